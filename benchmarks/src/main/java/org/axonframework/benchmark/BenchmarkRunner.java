@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the benchmarks jar. Runs the JMH benchmarks selected by the given command line options, writing
+ * the results in JSON format to <code>jmh-result.json</code>, unless a different result format is specified.
+ * The JSON results contain the score and error of each benchmark and parameter combination, allowing them to be
+ * compared between runs to detect performance regressions.
+ *
+ * @author Allard Buijze
+ */
+public final class BenchmarkRunner {
+
+    private static final String RESULT_FORMAT_OPTION = "-rf";
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks. Accepts all options supported by JMH. Run with <code>-h</code> for a list of them.
+     *
+     * @param args The JMH command line options
+     * @throws Exception when the benchmarks could not be run
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<String>(Arrays.asList(args));
+        if (!options.contains(RESULT_FORMAT_OPTION)) {
+            options.add(RESULT_FORMAT_OPTION);
+            options.add("json");
+        }
+        Main.main(options.toArray(new String[options.size()]));
+    }
+}
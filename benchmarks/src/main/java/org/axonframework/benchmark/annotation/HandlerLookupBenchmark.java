@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.annotation;
+
+import org.axonframework.common.annotation.MessageHandlerInvoker;
+import org.axonframework.common.annotation.MethodMessageHandler;
+import org.axonframework.domain.EventMessage;
+import org.axonframework.domain.GenericEventMessage;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing the resolution of handler methods on an event listener with 60 event handlers, using the
+ * cached resolution of the handler inspector versus a linear scan over all handlers.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerLookupBenchmark {
+
+    /**
+     * The position of the handled event type in the list of handlers. The "unhandled" case uses an event for which
+     * no handler exists.
+     */
+    @Param({"first", "last", "unhandled"})
+    private String eventType;
+
+    private MessageHandlerInvoker invoker;
+    private List<MethodMessageHandler> handlers;
+    private EventMessage<?> event;
+
+    @Setup
+    public void setUp() {
+        invoker = new MessageHandlerInvoker(new ManyHandlersListener(), EventHandler.class);
+        handlers = invoker.getHandlers();
+        if ("unhandled".equals(eventType)) {
+            event = GenericEventMessage.asEventMessage(new UnhandledEvent());
+        } else {
+            MethodMessageHandler handler = handlers.get("first".equals(eventType) ? 0 : handlers.size() - 1);
+            try {
+                event = GenericEventMessage.asEventMessage(handler.getPayloadType().newInstance());
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not create event instance", e);
+            }
+        }
+    }
+
+    @Benchmark
+    public MethodMessageHandler cachedLookup() {
+        return invoker.findHandlerMethod(event);
+    }
+
+    @Benchmark
+    public MethodMessageHandler linearScan() {
+        for (MethodMessageHandler handler : handlers) {
+            if (handler.matches(event)) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    public static class UnhandledEvent {
+
+    }
+
+    public static class Event00 {
+
+    }
+
+    public static class Event01 {
+
+    }
+
+    public static class Event02 {
+
+    }
+
+    public static class Event03 {
+
+    }
+
+    public static class Event04 {
+
+    }
+
+    public static class Event05 {
+
+    }
+
+    public static class Event06 {
+
+    }
+
+    public static class Event07 {
+
+    }
+
+    public static class Event08 {
+
+    }
+
+    public static class Event09 {
+
+    }
+
+    public static class Event10 {
+
+    }
+
+    public static class Event11 {
+
+    }
+
+    public static class Event12 {
+
+    }
+
+    public static class Event13 {
+
+    }
+
+    public static class Event14 {
+
+    }
+
+    public static class Event15 {
+
+    }
+
+    public static class Event16 {
+
+    }
+
+    public static class Event17 {
+
+    }
+
+    public static class Event18 {
+
+    }
+
+    public static class Event19 {
+
+    }
+
+    public static class Event20 {
+
+    }
+
+    public static class Event21 {
+
+    }
+
+    public static class Event22 {
+
+    }
+
+    public static class Event23 {
+
+    }
+
+    public static class Event24 {
+
+    }
+
+    public static class Event25 {
+
+    }
+
+    public static class Event26 {
+
+    }
+
+    public static class Event27 {
+
+    }
+
+    public static class Event28 {
+
+    }
+
+    public static class Event29 {
+
+    }
+
+    public static class Event30 {
+
+    }
+
+    public static class Event31 {
+
+    }
+
+    public static class Event32 {
+
+    }
+
+    public static class Event33 {
+
+    }
+
+    public static class Event34 {
+
+    }
+
+    public static class Event35 {
+
+    }
+
+    public static class Event36 {
+
+    }
+
+    public static class Event37 {
+
+    }
+
+    public static class Event38 {
+
+    }
+
+    public static class Event39 {
+
+    }
+
+    public static class Event40 {
+
+    }
+
+    public static class Event41 {
+
+    }
+
+    public static class Event42 {
+
+    }
+
+    public static class Event43 {
+
+    }
+
+    public static class Event44 {
+
+    }
+
+    public static class Event45 {
+
+    }
+
+    public static class Event46 {
+
+    }
+
+    public static class Event47 {
+
+    }
+
+    public static class Event48 {
+
+    }
+
+    public static class Event49 {
+
+    }
+
+    public static class Event50 {
+
+    }
+
+    public static class Event51 {
+
+    }
+
+    public static class Event52 {
+
+    }
+
+    public static class Event53 {
+
+    }
+
+    public static class Event54 {
+
+    }
+
+    public static class Event55 {
+
+    }
+
+    public static class Event56 {
+
+    }
+
+    public static class Event57 {
+
+    }
+
+    public static class Event58 {
+
+    }
+
+    public static class Event59 {
+
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class ManyHandlersListener {
+
+        @EventHandler
+        public void handle(Event00 event) {
+        }
+
+        @EventHandler
+        public void handle(Event01 event) {
+        }
+
+        @EventHandler
+        public void handle(Event02 event) {
+        }
+
+        @EventHandler
+        public void handle(Event03 event) {
+        }
+
+        @EventHandler
+        public void handle(Event04 event) {
+        }
+
+        @EventHandler
+        public void handle(Event05 event) {
+        }
+
+        @EventHandler
+        public void handle(Event06 event) {
+        }
+
+        @EventHandler
+        public void handle(Event07 event) {
+        }
+
+        @EventHandler
+        public void handle(Event08 event) {
+        }
+
+        @EventHandler
+        public void handle(Event09 event) {
+        }
+
+        @EventHandler
+        public void handle(Event10 event) {
+        }
+
+        @EventHandler
+        public void handle(Event11 event) {
+        }
+
+        @EventHandler
+        public void handle(Event12 event) {
+        }
+
+        @EventHandler
+        public void handle(Event13 event) {
+        }
+
+        @EventHandler
+        public void handle(Event14 event) {
+        }
+
+        @EventHandler
+        public void handle(Event15 event) {
+        }
+
+        @EventHandler
+        public void handle(Event16 event) {
+        }
+
+        @EventHandler
+        public void handle(Event17 event) {
+        }
+
+        @EventHandler
+        public void handle(Event18 event) {
+        }
+
+        @EventHandler
+        public void handle(Event19 event) {
+        }
+
+        @EventHandler
+        public void handle(Event20 event) {
+        }
+
+        @EventHandler
+        public void handle(Event21 event) {
+        }
+
+        @EventHandler
+        public void handle(Event22 event) {
+        }
+
+        @EventHandler
+        public void handle(Event23 event) {
+        }
+
+        @EventHandler
+        public void handle(Event24 event) {
+        }
+
+        @EventHandler
+        public void handle(Event25 event) {
+        }
+
+        @EventHandler
+        public void handle(Event26 event) {
+        }
+
+        @EventHandler
+        public void handle(Event27 event) {
+        }
+
+        @EventHandler
+        public void handle(Event28 event) {
+        }
+
+        @EventHandler
+        public void handle(Event29 event) {
+        }
+
+        @EventHandler
+        public void handle(Event30 event) {
+        }
+
+        @EventHandler
+        public void handle(Event31 event) {
+        }
+
+        @EventHandler
+        public void handle(Event32 event) {
+        }
+
+        @EventHandler
+        public void handle(Event33 event) {
+        }
+
+        @EventHandler
+        public void handle(Event34 event) {
+        }
+
+        @EventHandler
+        public void handle(Event35 event) {
+        }
+
+        @EventHandler
+        public void handle(Event36 event) {
+        }
+
+        @EventHandler
+        public void handle(Event37 event) {
+        }
+
+        @EventHandler
+        public void handle(Event38 event) {
+        }
+
+        @EventHandler
+        public void handle(Event39 event) {
+        }
+
+        @EventHandler
+        public void handle(Event40 event) {
+        }
+
+        @EventHandler
+        public void handle(Event41 event) {
+        }
+
+        @EventHandler
+        public void handle(Event42 event) {
+        }
+
+        @EventHandler
+        public void handle(Event43 event) {
+        }
+
+        @EventHandler
+        public void handle(Event44 event) {
+        }
+
+        @EventHandler
+        public void handle(Event45 event) {
+        }
+
+        @EventHandler
+        public void handle(Event46 event) {
+        }
+
+        @EventHandler
+        public void handle(Event47 event) {
+        }
+
+        @EventHandler
+        public void handle(Event48 event) {
+        }
+
+        @EventHandler
+        public void handle(Event49 event) {
+        }
+
+        @EventHandler
+        public void handle(Event50 event) {
+        }
+
+        @EventHandler
+        public void handle(Event51 event) {
+        }
+
+        @EventHandler
+        public void handle(Event52 event) {
+        }
+
+        @EventHandler
+        public void handle(Event53 event) {
+        }
+
+        @EventHandler
+        public void handle(Event54 event) {
+        }
+
+        @EventHandler
+        public void handle(Event55 event) {
+        }
+
+        @EventHandler
+        public void handle(Event56 event) {
+        }
+
+        @EventHandler
+        public void handle(Event57 event) {
+        }
+
+        @EventHandler
+        public void handle(Event58 event) {
+        }
+
+        @EventHandler
+        public void handle(Event59 event) {
+        }
+    }
+}
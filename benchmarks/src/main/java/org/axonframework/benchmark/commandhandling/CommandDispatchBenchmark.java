@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.commandhandling;
+
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.CommandHandlerInterceptor;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.InterceptorChain;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring the number of commands per second dispatched on the {@link SimpleCommandBus}, with a varying
+ * number of interceptors. Each command is handled by a handler that does nothing, making the overhead of the command
+ * bus, its interceptor chain and the Unit of Work it creates for each command the dominant cost.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+
+    @Param({"0", "1", "4"})
+    private int interceptorCount;
+
+    private SimpleCommandBus commandBus;
+    private ResultCallback callback;
+
+    @Setup
+    public void setUp() {
+        commandBus = new SimpleCommandBus(false);
+        commandBus.subscribe(StubCommand.class, new StubCommandHandler());
+        List<CommandHandlerInterceptor> interceptors = new ArrayList<CommandHandlerInterceptor>();
+        for (int i = 0; i < interceptorCount; i++) {
+            interceptors.add(new PassThroughInterceptor());
+        }
+        commandBus.setInterceptors(interceptors);
+        callback = new ResultCallback();
+    }
+
+    @Benchmark
+    public Object dispatch() {
+        commandBus.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand("aggregate")), callback);
+        return callback.result;
+    }
+
+    public static class StubCommand {
+
+        private final String aggregateIdentifier;
+
+        public StubCommand(String aggregateIdentifier) {
+            this.aggregateIdentifier = aggregateIdentifier;
+        }
+
+        public String getAggregateIdentifier() {
+            return aggregateIdentifier;
+        }
+    }
+
+    private static class StubCommandHandler implements CommandHandler<StubCommand> {
+
+        @Override
+        public Object handle(CommandMessage<StubCommand> commandMessage, UnitOfWork unitOfWork) {
+            return commandMessage.getPayload().getAggregateIdentifier();
+        }
+    }
+
+    private static class PassThroughInterceptor implements CommandHandlerInterceptor {
+
+        @Override
+        public Object handle(Object command, UnitOfWork unitOfWork, InterceptorChain interceptorChain)
+                throws Throwable {
+            return interceptorChain.proceed();
+        }
+    }
+
+    private static class ResultCallback implements CommandCallback<Object> {
+
+        private Object result;
+
+        @Override
+        public void onSuccess(Object result) {
+            this.result = result;
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            throw new IllegalStateException("The benchmark command failed", cause);
+        }
+    }
+}
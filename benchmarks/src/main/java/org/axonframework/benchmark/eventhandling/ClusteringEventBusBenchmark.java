@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.eventhandling;
+
+import org.axonframework.domain.EventMessage;
+import org.axonframework.domain.GenericEventMessage;
+import org.axonframework.eventhandling.Cluster;
+import org.axonframework.eventhandling.ClusterSelector;
+import org.axonframework.eventhandling.ClusteringEventBus;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.SimpleCluster;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring the number of events per second published on a {@link ClusteringEventBus}, fanning out to a
+ * varying number of {@link SimpleCluster clusters} and listeners per cluster. The listeners only count the events
+ * they receive, making the cost of the fan-out itself the dominant cost.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClusteringEventBusBenchmark {
+
+    @Param({"1", "4", "16"})
+    private int clusterCount;
+
+    @Param({"1", "10"})
+    private int listenersPerCluster;
+
+    private ClusteringEventBus eventBus;
+    private CountingEventListener lastListener;
+    private EventMessage<String> event;
+
+    @Setup
+    public void setUp() {
+        eventBus = new ClusteringEventBus(new RoundRobinClusterSelector(clusterCount));
+        for (int i = 0; i < clusterCount * listenersPerCluster; i++) {
+            lastListener = new CountingEventListener();
+            eventBus.subscribe(lastListener);
+        }
+        event = new GenericEventMessage<String>("event");
+    }
+
+    @Benchmark
+    public long publish() {
+        eventBus.publish(event);
+        return lastListener.handledEvents;
+    }
+
+    private static class RoundRobinClusterSelector implements ClusterSelector {
+
+        private final List<Cluster> clusters = new ArrayList<Cluster>();
+        private int next;
+
+        public RoundRobinClusterSelector(int clusterCount) {
+            for (int i = 0; i < clusterCount; i++) {
+                clusters.add(new SimpleCluster());
+            }
+        }
+
+        @Override
+        public Cluster selectCluster(EventListener eventListener) {
+            return clusters.get(next++ % clusters.size());
+        }
+    }
+
+    private static class CountingEventListener implements EventListener {
+
+        private long handledEvents;
+
+        @Override
+        public void handle(EventMessage event) {
+            handledEvents++;
+        }
+    }
+}
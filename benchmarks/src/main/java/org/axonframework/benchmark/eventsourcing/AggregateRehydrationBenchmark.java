@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.eventsourcing;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring the number of events per second applied while rehydrating an annotated aggregate from its
+ * events, once for an aggregate with public event handlers and once for an aggregate with private event handlers.
+ * <p/>
+ * The benchmarks module registers the {@link org.axonframework.common.annotation.FastClassMethodInvokerFactory}, which
+ * means the public handlers are invoked using generated accessors. Generated accessors cannot invoke private methods,
+ * so the private handlers are invoked using reflection.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregateRehydrationBenchmark {
+
+    private static final int EVENT_COUNT = 1000;
+
+    private final String aggregateIdentifier = UUID.randomUUID().toString();
+    private List<DomainEventMessage> events;
+
+    @Setup
+    public void setUp() {
+        events = new ArrayList<DomainEventMessage>(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            Object payload;
+            switch (i % 3) {
+                case 0:
+                    payload = new ItemAddedEvent("item" + i);
+                    break;
+                case 1:
+                    payload = new QuantityChangedEvent(i);
+                    break;
+                default:
+                    payload = new ItemRemovedEvent("item" + (i - 2));
+            }
+            events.add(new GenericDomainEventMessage<Object>(aggregateIdentifier, i, payload));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENT_COUNT)
+    public Object generatedAccessors() {
+        PublicHandlersAggregate aggregate = new PublicHandlersAggregate(aggregateIdentifier);
+        aggregate.initializeState(new SimpleDomainEventStream(events));
+        return aggregate;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENT_COUNT)
+    public Object reflection() {
+        PrivateHandlersAggregate aggregate = new PrivateHandlersAggregate(aggregateIdentifier);
+        aggregate.initializeState(new SimpleDomainEventStream(events));
+        return aggregate;
+    }
+
+    public static class PublicHandlersAggregate extends AbstractAnnotatedAggregateRoot {
+
+        private static final long serialVersionUID = 1L;
+        private final Object identifier;
+        private int itemCount;
+        private long quantity;
+
+        public PublicHandlersAggregate(Object identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public Object getIdentifier() {
+            return identifier;
+        }
+
+        @EventHandler
+        public void on(ItemAddedEvent event) {
+            itemCount++;
+        }
+
+        @EventHandler
+        public void on(QuantityChangedEvent event) {
+            quantity += event.getQuantity();
+        }
+
+        @EventHandler
+        public void on(ItemRemovedEvent event) {
+            itemCount--;
+        }
+    }
+
+    public static class PrivateHandlersAggregate extends AbstractAnnotatedAggregateRoot {
+
+        private static final long serialVersionUID = 1L;
+        private final Object identifier;
+        private int itemCount;
+        private long quantity;
+
+        public PrivateHandlersAggregate(Object identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public Object getIdentifier() {
+            return identifier;
+        }
+
+        @EventHandler
+        private void on(ItemAddedEvent event) {
+            itemCount++;
+        }
+
+        @EventHandler
+        private void on(QuantityChangedEvent event) {
+            quantity += event.getQuantity();
+        }
+
+        @EventHandler
+        private void on(ItemRemovedEvent event) {
+            itemCount--;
+        }
+    }
+
+    public static class ItemAddedEvent {
+
+        private final String item;
+
+        public ItemAddedEvent(String item) {
+            this.item = item;
+        }
+
+        public String getItem() {
+            return item;
+        }
+    }
+
+    public static class ItemRemovedEvent {
+
+        private final String item;
+
+        public ItemRemovedEvent(String item) {
+            this.item = item;
+        }
+
+        public String getItem() {
+            return item;
+        }
+    }
+
+    public static class QuantityChangedEvent {
+
+        private final long quantity;
+
+        public QuantityChangedEvent(long quantity) {
+            this.quantity = quantity;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+    }
+}
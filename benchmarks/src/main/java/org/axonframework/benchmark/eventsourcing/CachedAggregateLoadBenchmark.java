@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.eventsourcing;
+
+import org.axonframework.common.CacheEntryWeigher;
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventsourcing.AggregateInitializer;
+import org.axonframework.eventsourcing.BoundedAggregateCache;
+import org.axonframework.eventsourcing.CachingEventSourcingRepository;
+import org.axonframework.eventsourcing.GenericAggregateFactory;
+import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
+import org.axonframework.eventstore.EventStore;
+import org.axonframework.unitofwork.DefaultUnitOfWork;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring the time it takes to load a hot aggregate in a unit of work, with and without a {@link
+ * BoundedAggregateCache}. Each aggregate consists of a fixed number of events, which need to be read and applied when
+ * the aggregate is not found in the cache.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachedAggregateLoadBenchmark {
+
+    private static final int AGGREGATE_COUNT = 64;
+    private static final int EVENTS_PER_AGGREGATE = 200;
+
+    @Param({"none", "bounded"})
+    private String cache;
+
+    private CachingEventSourcingRepository<CountingAggregate> repository;
+    private Object[] aggregateIdentifiers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        aggregateIdentifiers = new Object[AGGREGATE_COUNT];
+        for (int i = 0; i < AGGREGATE_COUNT; i++) {
+            aggregateIdentifiers[i] = UUID.randomUUID().toString();
+            eventStore.createAggregate(aggregateIdentifiers[i], EVENTS_PER_AGGREGATE);
+        }
+        repository = new CachingEventSourcingRepository<CountingAggregate>(
+                new GenericAggregateFactory<CountingAggregate>(CountingAggregate.class));
+        repository.setEventStore(eventStore);
+        repository.setEventBus(new SimpleEventBus(false));
+        if ("bounded".equals(cache)) {
+            repository.setCache(new BoundedAggregateCache(AGGREGATE_COUNT * 2, new CacheEntryWeigher() {
+                @Override
+                public long weigh(Object key, Object value) {
+                    return 1;
+                }
+            }, 16, false));
+        }
+    }
+
+    @Benchmark
+    public Object loadHotAggregate() {
+        UnitOfWork unitOfWork = DefaultUnitOfWork.startAndGet();
+        CountingAggregate aggregate = repository.load(aggregateIdentifiers[next++ % AGGREGATE_COUNT]);
+        unitOfWork.commit();
+        return aggregate;
+    }
+
+    public static class CountingAggregate extends AbstractAnnotatedAggregateRoot {
+
+        private static final long serialVersionUID = 1L;
+        private final Object identifier;
+        private long total;
+
+        @AggregateInitializer
+        public CountingAggregate(Object identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public Object getIdentifier() {
+            return identifier;
+        }
+
+        @EventHandler
+        public void on(CountedEvent event) {
+            total += event.getAmount();
+        }
+    }
+
+    public static class CountedEvent {
+
+        private final int amount;
+
+        public CountedEvent(int amount) {
+            this.amount = amount;
+        }
+
+        public int getAmount() {
+            return amount;
+        }
+    }
+
+    private static class InMemoryEventStore implements EventStore {
+
+        private final Map<Object, List<DomainEventMessage>> store = new HashMap<Object, List<DomainEventMessage>>();
+
+        private void createAggregate(Object identifier, int eventCount) {
+            List<DomainEventMessage> events = new ArrayList<DomainEventMessage>(eventCount);
+            for (int i = 0; i < eventCount; i++) {
+                events.add(new GenericDomainEventMessage<CountedEvent>(identifier, i, new CountedEvent(i)));
+            }
+            store.put(identifier, events);
+        }
+
+        @Override
+        public void appendEvents(String type, DomainEventStream events) {
+            while (events.hasNext()) {
+                DomainEventMessage event = events.next();
+                store.get(event.getAggregateIdentifier()).add(event);
+            }
+        }
+
+        @Override
+        public DomainEventStream readEvents(String type, Object identifier) {
+            return new SimpleDomainEventStream(store.get(identifier));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.eventsourcing;
+
+import org.axonframework.common.jpa.SimpleEntityManagerProvider;
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventsourcing.AggregateInitializer;
+import org.axonframework.eventsourcing.EventSourcingRepository;
+import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
+import org.axonframework.eventstore.EventStore;
+import org.axonframework.eventstore.fs.FileSystemEventStore;
+import org.axonframework.eventstore.fs.SimpleEventFileResolver;
+import org.axonframework.eventstore.jpa.JpaEventStore;
+import org.axonframework.serializer.XStreamSerializer;
+import org.axonframework.unitofwork.DefaultUnitOfWork;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+/**
+ * Benchmark measuring the time it takes an {@link EventSourcingRepository} to load an aggregate, reading its events
+ * from the event store and applying them. The benchmark compares the {@link FileSystemEventStore} to the {@link
+ * JpaEventStore} backed by an in-memory HSQLDB database, for aggregates with different numbers of events.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventSourcingRepositoryLoadBenchmark {
+
+    private static final int AGGREGATE_COUNT = 100;
+
+    @Param({"filesystem", "jpa"})
+    private String eventStoreType;
+
+    @Param({"10", "100"})
+    private int eventsPerAggregate;
+
+    private File baseDir;
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private EventSourcingRepository<StubAggregate> repository;
+    private List<String> aggregateIdentifiers;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        EventStore eventStore;
+        if ("jpa".equals(eventStoreType)) {
+            entityManagerFactory = Persistence.createEntityManagerFactory("eventStoreBenchmark");
+            entityManager = entityManagerFactory.createEntityManager();
+            eventStore = new JpaEventStore(new SimpleEntityManagerProvider(entityManager));
+        } else {
+            baseDir = File.createTempFile("axon-benchmark", "");
+            if (!baseDir.delete() || !baseDir.mkdir()) {
+                throw new IOException("Could not create directory " + baseDir);
+            }
+            FileSystemEventStore fileSystemEventStore = new FileSystemEventStore(new XStreamSerializer());
+            fileSystemEventStore.setEventFileResolver(new SimpleEventFileResolver(baseDir));
+            eventStore = fileSystemEventStore;
+        }
+        repository = new EventSourcingRepository<StubAggregate>(StubAggregate.class);
+        repository.setEventStore(eventStore);
+        repository.setEventBus(new SimpleEventBus(false));
+
+        aggregateIdentifiers = new ArrayList<String>(AGGREGATE_COUNT);
+        beginTransaction();
+        for (int a = 0; a < AGGREGATE_COUNT; a++) {
+            String aggregateIdentifier = UUID.randomUUID().toString();
+            aggregateIdentifiers.add(aggregateIdentifier);
+            List<DomainEventMessage> events = new ArrayList<DomainEventMessage>(eventsPerAggregate);
+            for (int i = 0; i < eventsPerAggregate; i++) {
+                events.add(new GenericDomainEventMessage<Object>(aggregateIdentifier, i,
+                                                                  new QuantityChangedEvent(i)));
+            }
+            eventStore.appendEvents("StubAggregate", new SimpleDomainEventStream(events));
+        }
+        commitTransaction();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (entityManager != null) {
+            entityManager.close();
+            entityManagerFactory.close();
+        }
+        if (baseDir != null) {
+            delete(baseDir);
+        }
+    }
+
+    @Benchmark
+    public long load() {
+        UnitOfWork unitOfWork = DefaultUnitOfWork.startAndGet();
+        try {
+            return repository.load(aggregateIdentifiers.get(next++ % AGGREGATE_COUNT)).getQuantity();
+        } finally {
+            unitOfWork.rollback();
+            if (entityManager != null) {
+                entityManager.clear();
+            }
+        }
+    }
+
+    private void beginTransaction() {
+        if (entityManager != null) {
+            entityManager.getTransaction().begin();
+        }
+    }
+
+    private void commitTransaction() {
+        if (entityManager != null) {
+            entityManager.getTransaction().commit();
+            entityManager.clear();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    public static class StubAggregate extends AbstractAnnotatedAggregateRoot {
+
+        private static final long serialVersionUID = 1L;
+        private final Object identifier;
+        private long quantity;
+
+        @AggregateInitializer
+        public StubAggregate(Object identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public Object getIdentifier() {
+            return identifier;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        @EventHandler
+        public void on(QuantityChangedEvent event) {
+            quantity += event.getQuantity();
+        }
+    }
+
+    public static class QuantityChangedEvent implements Serializable {
+
+        private static final long serialVersionUID = -2365713894502378116L;
+        private final long quantity;
+
+        public QuantityChangedEvent(long quantity) {
+            this.quantity = quantity;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+    }
+}
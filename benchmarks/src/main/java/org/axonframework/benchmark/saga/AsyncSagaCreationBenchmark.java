@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.saga;
+
+import org.axonframework.domain.GenericEventMessage;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
+import org.axonframework.saga.annotation.AsyncAnnotatedSagaManager;
+import org.axonframework.saga.annotation.SagaEventHandler;
+import org.axonframework.saga.annotation.StartSaga;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark measuring the throughput of the {@link AsyncAnnotatedSagaManager} for events that start a Saga only if
+ * none is found, using different numbers of processors. Each Saga is started by the first of its events, invoked by
+ * the following ones and ended by the last one. Each invocation publishes a batch of events and waits until all of
+ * them have been handled.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncSagaCreationBenchmark {
+
+    private static final int SAGAS_PER_INVOCATION = 100;
+    private static final int EVENTS_PER_SAGA = 10;
+    private static final int EVENTS_PER_INVOCATION = SAGAS_PER_INVOCATION * EVENTS_PER_SAGA;
+    private static final AtomicLong handledEvents = new AtomicLong();
+
+    @Param({"1", "2", "4", "8", "16"})
+    private int processorCount;
+
+    private SimpleEventBus eventBus;
+    private AsyncAnnotatedSagaManager sagaManager;
+    private long publishedEvents;
+    private long nextOrderId;
+
+    @SuppressWarnings({"unchecked"})
+    @Setup
+    public void setUp() {
+        eventBus = new SimpleEventBus(false);
+        sagaManager = new AsyncAnnotatedSagaManager(eventBus, OrderSaga.class);
+        sagaManager.setProcessorCount(processorCount);
+        sagaManager.start();
+        handledEvents.set(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sagaManager.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_INVOCATION)
+    public long publishEvents() {
+        long firstOrderId = nextOrderId;
+        nextOrderId += SAGAS_PER_INVOCATION;
+        for (int i = 0; i < EVENTS_PER_INVOCATION; i++) {
+            eventBus.publish(new GenericEventMessage<OrderEvent>(
+                    new OrderEvent(Long.toString(firstOrderId + (i % SAGAS_PER_INVOCATION)))));
+        }
+        publishedEvents += EVENTS_PER_INVOCATION;
+        while (handledEvents.get() < publishedEvents) {
+            Thread.yield();
+        }
+        return publishedEvents;
+    }
+
+    public static class OrderSaga extends AbstractAnnotatedSaga {
+
+        private static final long serialVersionUID = -5428917254340713046L;
+        private int handledEventCount;
+
+        @StartSaga
+        @SagaEventHandler(associationProperty = "orderId")
+        public void handle(OrderEvent event) {
+            if (++handledEventCount == EVENTS_PER_SAGA) {
+                end();
+            }
+            handledEvents.incrementAndGet();
+        }
+    }
+
+    public static class OrderEvent {
+
+        private final String orderId;
+
+        public OrderEvent(String orderId) {
+            this.orderId = orderId;
+        }
+
+        public String getOrderId() {
+            return orderId;
+        }
+    }
+}
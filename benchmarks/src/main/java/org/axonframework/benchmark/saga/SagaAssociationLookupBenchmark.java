@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.saga;
+
+import org.axonframework.common.jpa.SimpleEntityManagerProvider;
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
+import org.axonframework.saga.repository.jpa.JpaSagaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+/**
+ * Benchmark comparing the {@link JpaSagaRepository} with all association values in memory to the repository looking
+ * up association values using queries, with and without a cache of hot association values. The
+ * <code>findSaga</code> benchmark measures the time to find a saga by one of its association values, while the
+ * <code>startup</code> benchmark measures the time it takes a new repository to find its first saga.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SagaAssociationLookupBenchmark {
+
+    private static final int HOT_SAGA_COUNT = 1000;
+
+    @Param({"inMemory", "query", "cachedQuery"})
+    private String lookup;
+
+    @Param({"20000"})
+    private int sagaCount;
+
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private JpaSagaRepository repository;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        entityManagerFactory = Persistence.createEntityManagerFactory("sagaBenchmark");
+        entityManager = entityManagerFactory.createEntityManager();
+        JpaSagaRepository populatingRepository = createRepository();
+        entityManager.getTransaction().begin();
+        // the index recommended for repositories using association value queries
+        entityManager.createNativeQuery("CREATE INDEX associationValueIndex ON AssociationValueEntry "
+                                                + "(associationKey, associationValue, sagaType)").executeUpdate();
+        for (int i = 0; i < sagaCount; i++) {
+            BenchmarkSaga saga = new BenchmarkSaga();
+            saga.associate("orderId", "order-" + i);
+            saga.associate("customerId", "customer-" + i);
+            populatingRepository.add(saga);
+            if (i % 500 == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+        repository = createRepository();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Set<BenchmarkSaga> findSaga() {
+        entityManager.clear();
+        return repository.find(BenchmarkSaga.class, Collections.singleton(
+                new AssociationValue("orderId", "order-" + (next++ % HOT_SAGA_COUNT))));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public Set<BenchmarkSaga> startup() {
+        entityManager.clear();
+        return createRepository().find(BenchmarkSaga.class, Collections.singleton(
+                new AssociationValue("orderId", "order-0")));
+    }
+
+    private JpaSagaRepository createRepository() {
+        JpaSagaRepository sagaRepository = new JpaSagaRepository(new SimpleEntityManagerProvider(entityManager));
+        sagaRepository.setUseExplicitFlush(false);
+        if (!"inMemory".equals(lookup)) {
+            sagaRepository.setUseAssociationValueQueries(true);
+        }
+        if ("cachedQuery".equals(lookup)) {
+            sagaRepository.setAssociationValueCacheSize(HOT_SAGA_COUNT * 2);
+        }
+        return sagaRepository;
+    }
+
+    public static class BenchmarkSaga extends AbstractAnnotatedSaga {
+
+        private static final long serialVersionUID = 4470465651138474471L;
+
+        public BenchmarkSaga() {
+            super(UUID.randomUUID().toString());
+        }
+
+        public void associate(String key, String value) {
+            associateWith(key, value);
+        }
+    }
+}
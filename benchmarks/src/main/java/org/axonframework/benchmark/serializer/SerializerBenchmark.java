@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.serializer;
+
+import org.axonframework.serializer.JavaSerializer;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.Serializer;
+import org.axonframework.serializer.XStreamSerializer;
+import org.axonframework.serializer.binary.BinarySerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing the {@link BinarySerializer}, the {@link XStreamSerializer} and the {@link JavaSerializer},
+ * measuring the number of events per second they serialize, deserialize, and serialize and deserialize in a round
+ * trip. The events are of a type typically found in an application: a few primitive fields, some strings and a small
+ * collection. The <code>serialize</code> benchmark also reports the size of the serialized event, as the
+ * <code>serializedBytes</code> secondary result.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"binary", "xstream", "java"})
+    private String serializerType;
+
+    private Serializer serializer;
+    private OrderPlacedEvent event;
+    private SerializedObject serializedEvent;
+
+    @Setup
+    public void setUp() {
+        if ("java".equals(serializerType)) {
+            serializer = new JavaSerializer();
+        } else if ("binary".equals(serializerType)) {
+            serializer = new BinarySerializer();
+        } else {
+            serializer = new XStreamSerializer();
+        }
+        List<String> items = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            items.add("item-" + i);
+        }
+        event = new OrderPlacedEvent(UUID.randomUUID().toString(), "customer-1234", 12345L, 3, items);
+        serializedEvent = serializer.serialize(event);
+    }
+
+    @Benchmark
+    public SerializedObject serialize(SerializedSize serializedSize) {
+        SerializedObject serializedObject = serializer.serialize(event);
+        serializedSize.serializedBytes = serializedObject.getData().length;
+        return serializedObject;
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serializedEvent);
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        return serializer.deserialize(serializer.serialize(event));
+    }
+
+    /**
+     * Reports the size of the serialized event. The counter holds the size, rather than a total, so that it is not
+     * normalized to the number of operations.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class SerializedSize {
+
+        public long serializedBytes;
+    }
+
+    public static class OrderPlacedEvent implements Serializable {
+
+        private static final long serialVersionUID = 8414294380209632432L;
+        private final String orderId;
+        private final String customerId;
+        private final long amountInCents;
+        private final int priority;
+        private final List<String> items;
+
+        public OrderPlacedEvent(String orderId, String customerId, long amountInCents, int priority,
+                                List<String> items) {
+            this.orderId = orderId;
+            this.customerId = customerId;
+            this.amountInCents = amountInCents;
+            this.priority = priority;
+            this.items = items;
+        }
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public String getCustomerId() {
+            return customerId;
+        }
+
+        public long getAmountInCents() {
+            return amountInCents;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public List<String> getItems() {
+            return items;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.benchmark.serializer;
+
+import org.axonframework.serializer.ChainingConverterFactory;
+import org.axonframework.serializer.IntermediateRepresentation;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.SerializedType;
+import org.axonframework.serializer.SimpleIntermediateRepresentation;
+import org.axonframework.serializer.SimpleSerializedObject;
+import org.axonframework.serializer.SimpleSerializedType;
+import org.axonframework.serializer.Upcaster;
+import org.axonframework.serializer.UpcasterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring the number of serialized events per second passed through an {@link UpcasterChain} of 80
+ * upcasters, each of which upcasts a different event type from revision 0 to revision 1. The <code>latest</code>
+ * benchmarks use an event that is already at its latest revision, the <code>outdated</code> benchmarks use an event
+ * that is upcast by the last upcaster in the chain.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpcasterChainBenchmark {
+
+    private static final int UPCASTER_COUNT = 80;
+
+    private UpcasterChain upcasterChain;
+    private SerializedObject latestEvent;
+    private SerializedObject outdatedEvent;
+
+    @Setup
+    public void setUp() {
+        List<Upcaster> upcasters = new ArrayList<Upcaster>();
+        for (int i = 0; i < UPCASTER_COUNT; i++) {
+            upcasters.add(new RevisionUpcaster("event-" + i));
+        }
+        upcasterChain = new UpcasterChain(new ChainingConverterFactory(), upcasters);
+        byte[] data = "<event><orderId>1234</orderId></event>".getBytes();
+        latestEvent = new SimpleSerializedObject(data, "event-" + (UPCASTER_COUNT - 1), 1);
+        outdatedEvent = new SimpleSerializedObject(data, "event-" + (UPCASTER_COUNT - 1), 0);
+    }
+
+    @Benchmark
+    public IntermediateRepresentation upcastLatest() {
+        return upcasterChain.upcast(latestEvent);
+    }
+
+    @Benchmark
+    public IntermediateRepresentation upcastOutdated() {
+        return upcasterChain.upcast(outdatedEvent);
+    }
+
+    @Benchmark
+    public SerializedType upcastLatestType() {
+        return upcasterChain.upcast(latestEvent.getType());
+    }
+
+    @Benchmark
+    public SerializedType upcastOutdatedType() {
+        return upcasterChain.upcast(outdatedEvent.getType());
+    }
+
+    private static class RevisionUpcaster implements Upcaster<byte[]> {
+
+        private final String typeName;
+
+        public RevisionUpcaster(String typeName) {
+            this.typeName = typeName;
+        }
+
+        @Override
+        public boolean canUpcast(SerializedType serializedType) {
+            return typeName.equals(serializedType.getName()) && serializedType.getRevision() == 0;
+        }
+
+        @Override
+        public Class<byte[]> expectedRepresentationType() {
+            return byte[].class;
+        }
+
+        @Override
+        public IntermediateRepresentation<?> upcast(IntermediateRepresentation<byte[]> intermediateRepresentation) {
+            return new SimpleIntermediateRepresentation<byte[]>(upcast(intermediateRepresentation.getType()),
+                                                                byte[].class, intermediateRepresentation.getData());
+        }
+
+        @Override
+        public SerializedType upcast(SerializedType serializedType) {
+            return new SimpleSerializedType(serializedType.getName(), 1);
+        }
+    }
+}
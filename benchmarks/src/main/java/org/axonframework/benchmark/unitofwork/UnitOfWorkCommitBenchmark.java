@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.benchmark.unitofwork;
+
+import org.axonframework.domain.EventMessage;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
+import org.axonframework.unitofwork.DefaultUnitOfWork;
+import org.axonframework.unitofwork.SaveAggregateCallback;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring the number of Units of Work per second started and committed by the {@link DefaultUnitOfWork}.
+ * In each Unit of Work, an aggregate is registered that applies a varying number of events. Committing the Unit of
+ * Work saves the aggregate and publishes its events to a {@link SimpleEventBus} with a single listener.
+ *
+ * @author Allard Buijze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitOfWorkCommitBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int eventsPerUnitOfWork;
+
+    private SimpleEventBus eventBus;
+    private CountingEventListener eventListener;
+    private SaveAggregateCallback<StubAggregate> saveCallback;
+
+    @Setup
+    public void setUp() {
+        eventBus = new SimpleEventBus(false);
+        eventListener = new CountingEventListener();
+        eventBus.subscribe(eventListener);
+        saveCallback = new SaveAggregateCallback<StubAggregate>() {
+            @Override
+            public void save(StubAggregate aggregate) {
+                aggregate.commitEvents();
+            }
+        };
+    }
+
+    @Benchmark
+    public long commit() {
+        UnitOfWork unitOfWork = DefaultUnitOfWork.startAndGet();
+        StubAggregate aggregate = unitOfWork.registerAggregate(new StubAggregate(UUID.randomUUID().toString()),
+                                                               eventBus, saveCallback);
+        for (int i = 0; i < eventsPerUnitOfWork; i++) {
+            aggregate.doSomething();
+        }
+        unitOfWork.commit();
+        return eventListener.handledEvents;
+    }
+
+    public static class StubAggregate extends AbstractAnnotatedAggregateRoot {
+
+        private static final long serialVersionUID = 1L;
+        private final Object identifier;
+
+        public StubAggregate(Object identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public Object getIdentifier() {
+            return identifier;
+        }
+
+        public void doSomething() {
+            apply(new SomethingDoneEvent());
+        }
+    }
+
+    public static class SomethingDoneEvent {
+
+    }
+
+    private static class CountingEventListener implements EventListener {
+
+        private long handledEvents;
+
+        @Override
+        public void handle(EventMessage event) {
+            handledEvents++;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
+import org.axonframework.common.Assert;
+import org.axonframework.eventhandling.AsynchronousExecutionWrapper;
+import org.axonframework.eventhandling.BackPressurePolicy;
+import org.axonframework.eventhandling.SequencingPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Specialization of the SimpleCommandBus that processes commands asynchronously using an Executor. The
+ * <code>dispatch</code> methods return as soon as the command has been scheduled for processing. Use a {@link
+ * org.axonframework.commandhandling.callbacks.FutureCallback FutureCallback} to wait for, or check on, the result of a
+ * command at a later moment.
+ * <p/>
+ * Commands targeting the same aggregate are processed sequentially, in the order in which they were dispatched, while
+ * commands for different aggregates are processed in parallel. The targeted aggregate is resolved using a {@link
+ * CommandTargetResolver}. Commands of which the target cannot be resolved are processed without any ordering
+ * guarantees.
+ * <p/>
+ * Commands are handled outside of any event processing transaction; {@link
+ * org.axonframework.eventhandling.TransactionStatus#current()} returns <code>null</code> in command handlers, even
+ * though the processing threads are scheduled in the same way as those of asynchronous event listeners.
+ * <p/>
+ * The number of commands waiting for processing is reported through the {@link SimpleCommandBusStatisticsMXBean}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class AsynchronousCommandBus extends SimpleCommandBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsynchronousCommandBus.class);
+
+    private final Executor executor;
+    private final boolean shutdownExecutor;
+    private final DispatchScheduler scheduler;
+
+    /**
+     * Initializes the AsynchronousCommandBus using a cached thread pool and registers the mbeans for management
+     * information. The targeted aggregate of each command is resolved using an {@link
+     * AnnotationCommandTargetResolver}.
+     * <p/>
+     * The thread pool is shut down when the command bus is {@link #shutdown() shut down}.
+     */
+    public AsynchronousCommandBus() {
+        this(Executors.newCachedThreadPool(), true, new AnnotationCommandTargetResolver(), true);
+    }
+
+    /**
+     * Initializes the AsynchronousCommandBus using the given <code>executor</code> and registers the mbeans for
+     * management information. The targeted aggregate of each command is resolved using an {@link
+     * AnnotationCommandTargetResolver}.
+     *
+     * @param executor The executor that provides the threads to process commands with
+     */
+    public AsynchronousCommandBus(Executor executor) {
+        this(executor, new AnnotationCommandTargetResolver(), true);
+    }
+
+    /**
+     * Initializes the AsynchronousCommandBus using the given <code>executor</code>, where the aggregate targeted by
+     * each command is resolved using the given <code>commandTargetResolver</code>.
+     *
+     * @param executor              The executor that provides the threads to process commands with
+     * @param commandTargetResolver The resolver for the aggregate targeted by each command
+     * @param registerMBeans        true to register the mbeans, false for not registering them.
+     */
+    public AsynchronousCommandBus(Executor executor, CommandTargetResolver commandTargetResolver,
+                                  boolean registerMBeans) {
+        this(executor, false, commandTargetResolver, registerMBeans);
+    }
+
+    private AsynchronousCommandBus(Executor executor, boolean shutdownExecutor,
+                                   CommandTargetResolver commandTargetResolver, boolean registerMBeans) {
+        super(registerMBeans);
+        Assert.notNull(executor, "The executor may not be null");
+        Assert.notNull(commandTargetResolver, "The command target resolver may not be null");
+        this.executor = executor;
+        this.shutdownExecutor = shutdownExecutor;
+        this.scheduler = new DispatchScheduler(executor, new TargetAggregatePolicy(commandTargetResolver));
+    }
+
+    @Override
+    protected <R> void doDispatch(CommandMessage<?> command, CommandHandler commandHandler,
+                                  CommandCallback<R> callback) {
+        getStatistics().recordQueuedCommand();
+        scheduler.schedule(new DispatchTask(command, commandHandler, callback, System.nanoTime()));
+    }
+
+    /**
+     * Shuts down the Executor used to process commands, if it was created by this command bus. Executors provided in
+     * the constructor are not shut down. Commands that have already been dispatched are still processed.
+     */
+    public void shutdown() {
+        if (shutdownExecutor && executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * Sets the maximum number of commands that may be queued for each aggregate. When the queue of an aggregate is
+     * full, the {@link #setBackPressurePolicy(BackPressurePolicy) back pressure policy} decides what happens with newly
+     * dispatched commands for that aggregate.
+     * <p/>
+     * Defaults to 0, meaning that an unbounded queue is used.
+     *
+     * @param queueCapacity the maximum number of commands queued for each aggregate, or 0 for an unbounded queue
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        scheduler.setQueueCapacity(queueCapacity);
+    }
+
+    /**
+     * Sets the policy that defines what happens with commands that are dispatched while the queue for their aggregate
+     * is full. This setting only has effect when a {@link #setQueueCapacity(int) queue capacity} has been configured.
+     * <p/>
+     * With {@link BackPressurePolicy#BLOCK}, the dispatching thread waits until the queue has capacity available. Never
+     * dispatch commands for the same aggregate from within a command handler when using this policy. With {@link
+     * BackPressurePolicy#DROP}, the command is not processed, and its callback is notified of a {@link
+     * CommandQueueFullException}. There is no policy that processes the command in the dispatching thread, as that
+     * would break the ordering of commands for the same aggregate.
+     * <p/>
+     * Defaults to {@link BackPressurePolicy#BLOCK}.
+     *
+     * @param backPressurePolicy the policy to apply to commands that are dispatched while the queue is full
+     */
+    public void setBackPressurePolicy(BackPressurePolicy backPressurePolicy) {
+        scheduler.setBackPressurePolicy(backPressurePolicy);
+    }
+
+    private final class DispatchScheduler extends AsynchronousExecutionWrapper<DispatchTask> {
+
+        private DispatchScheduler(Executor executor, SequencingPolicy<? super DispatchTask> sequencingPolicy) {
+            super(executor, sequencingPolicy);
+        }
+
+        @Override
+        protected void schedule(DispatchTask task) {
+            super.schedule(task);
+        }
+
+        @Override
+        protected void doHandle(DispatchTask task) {
+            getStatistics().recordDequeuedCommand();
+            try {
+                invokeHandler(task.command, task.commandHandler, task.callback, task.dispatchTime);
+            } catch (RuntimeException e) {
+                // an exception here would cause the scheduler to retry the command
+                logger.error("The callback of a [{}] threw an exception.",
+                             task.command.getPayloadType().getSimpleName(), e);
+            }
+        }
+
+        @Override
+        protected void taskDropped(DispatchTask task) {
+            getStatistics().recordDequeuedCommand();
+            task.callback.onFailure(new CommandQueueFullException(String.format(
+                    "The queue of commands for the aggregate targeted by a [%s] is full. The command was dropped.",
+                    task.command.getPayloadType().getSimpleName())));
+        }
+
+        @Override
+        protected boolean exposesTransactionStatus() {
+            return false;
+        }
+    }
+
+    private static final class TargetAggregatePolicy implements SequencingPolicy<DispatchTask> {
+
+        private final CommandTargetResolver commandTargetResolver;
+
+        private TargetAggregatePolicy(CommandTargetResolver commandTargetResolver) {
+            this.commandTargetResolver = commandTargetResolver;
+        }
+
+        @Override
+        public Object getSequenceIdentifierFor(DispatchTask task) {
+            try {
+                return commandTargetResolver.resolveTarget(task.command).getIdentifier();
+            } catch (IllegalArgumentException e) {
+                logger.debug("Could not resolve the aggregate targeted by a [{}]. It is processed concurrently.",
+                             task.command.getPayloadType().getSimpleName());
+                return null;
+            }
+        }
+    }
+
+    private static final class DispatchTask {
+
+        private final CommandMessage<?> command;
+        private final CommandHandler commandHandler;
+        private final CommandCallback<?> callback;
+        private final long dispatchTime;
+
+        private DispatchTask(CommandMessage<?> command, CommandHandler commandHandler, CommandCallback<?> callback,
+                             long dispatchTime) {
+            this.command = command;
+            this.commandHandler = commandHandler;
+            this.callback = callback;
+            this.dispatchTime = dispatchTime;
+        }
+    }
+}
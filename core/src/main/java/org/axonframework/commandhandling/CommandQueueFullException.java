@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import org.axonframework.common.AxonTransientException;
+
+/**
+ * Exception indicating that a command was not processed, because the queue of commands waiting for processing had
+ * reached its maximum capacity. Dispatching the command again at a later moment may succeed.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class CommandQueueFullException extends AxonTransientException {
+
+    private static final long serialVersionUID = 2748291372539263840L;
+
+    /**
+     * Initialize a CommandQueueFullException with the given <code>message</code>.
+     *
+     * @param message The message describing the cause of the exception
+     */
+    public CommandQueueFullException(String message) {
+        super(message);
+    }
+}
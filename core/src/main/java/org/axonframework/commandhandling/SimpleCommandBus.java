@@ -70,32 +70,63 @@ public class SimpleCommandBus implements CommandBus {
         }
     }
 
-    @SuppressWarnings({"ThrowableResultOfMethodCallIgnored"})
     @Override
     public void dispatch(CommandMessage<?> command) {
-        CommandHandler commandHandler = findCommandHandlerFor(command);
-        try {
-            doDispatch(command, commandHandler);
-        } catch (Error e) {
-            throw e;
-        } catch (Throwable throwable) {
-            logger.error(format("Processing of a [%s] resulted in an exception: ", command.getClass().getSimpleName()),
-                         throwable);
-        }
+        doDispatch(command, findCommandHandlerFor(command), new LoggingCallback(command));
     }
 
-    @SuppressWarnings({"unchecked"})
     @Override
     public <R> void dispatch(CommandMessage<?> command, final CommandCallback<R> callback) {
-        CommandHandler handler = findCommandHandlerFor(command);
+        doDispatch(command, findCommandHandlerFor(command), callback);
+    }
+
+    /**
+     * Performs the actual dispatching of the given <code>command</code> to the given <code>commandHandler</code>, and
+     * reports the result to the given <code>callback</code>. This implementation processes the command in the calling
+     * thread. Subclasses may override this method to process the command in another thread, in which case they should
+     * use {@link #invokeHandler(CommandMessage, CommandHandler, CommandCallback, long)} to do so.
+     *
+     * @param command        The command to dispatch
+     * @param commandHandler The handler subscribed to the command
+     * @param callback       The callback to notify of the result
+     * @param <R>            The type of result expected from the command handler
+     */
+    protected <R> void doDispatch(CommandMessage<?> command, CommandHandler commandHandler,
+                                  CommandCallback<R> callback) {
+        invokeHandler(command, commandHandler, callback, System.nanoTime());
+    }
+
+    /**
+     * Invokes the given <code>commandHandler</code> for the given <code>command</code> inside a Unit of Work, passing
+     * it through the configured interceptors, and reports the result to the given <code>callback</code>. The time
+     * passed since the given <code>dispatchTime</code> is recorded as the latency of the command.
+     *
+     * @param command        The command to process
+     * @param commandHandler The handler subscribed to the command
+     * @param callback       The callback to notify of the result
+     * @param dispatchTime   The value of {@link System#nanoTime()} at the moment the command was dispatched
+     * @param <R>            The type of result expected from the command handler
+     */
+    @SuppressWarnings({"unchecked"})
+    protected final <R> void invokeHandler(CommandMessage<?> command, CommandHandler commandHandler,
+                                           CommandCallback<R> callback, long dispatchTime) {
         try {
-            Object result = doDispatch(command, handler);
+            Object result = handle(command, commandHandler, dispatchTime);
             callback.onSuccess((R) result);
         } catch (Throwable throwable) {
             callback.onFailure(throwable);
         }
     }
 
+    /**
+     * Returns the statistics of this command bus.
+     *
+     * @return the statistics of this command bus
+     */
+    SimpleCommandBusStatistics getStatistics() {
+        return statistics;
+    }
+
     private CommandHandler findCommandHandlerFor(CommandMessage<?> command) {
         final CommandHandler handler = subscriptions.get(command.getPayloadType());
         if (handler == null) {
@@ -105,25 +136,30 @@ public class SimpleCommandBus implements CommandBus {
         return handler;
     }
 
-    private Object doDispatch(CommandMessage<?> command, CommandHandler commandHandler) throws Throwable {
+    private Object handle(CommandMessage<?> command, CommandHandler commandHandler, long dispatchTime)
+            throws Throwable {
         statistics.recordReceivedCommand();
-        UnitOfWork unitOfWork = unitOfWorkFactory.createUnitOfWork();
-        InterceptorChain chain = new DefaultInterceptorChain(command, unitOfWork, commandHandler, interceptors);
-
-        Object returnValue;
         try {
-            returnValue = chain.proceed();
-        } catch (Throwable throwable) {
-            if (rollbackConfiguration.rollBackOn(throwable)) {
-                unitOfWork.rollback(throwable);
-            } else {
-                unitOfWork.commit();
+            UnitOfWork unitOfWork = unitOfWorkFactory.createUnitOfWork();
+            InterceptorChain chain = new DefaultInterceptorChain(command, unitOfWork, commandHandler, interceptors);
+
+            Object returnValue;
+            try {
+                returnValue = chain.proceed();
+            } catch (Throwable throwable) {
+                if (rollbackConfiguration.rollBackOn(throwable)) {
+                    unitOfWork.rollback(throwable);
+                } else {
+                    unitOfWork.commit();
+                }
+                throw throwable;
             }
-            throw throwable;
-        }
 
-        unitOfWork.commit();
-        return returnValue;
+            unitOfWork.commit();
+            return returnValue;
+        } finally {
+            statistics.recordCommandLatency(System.nanoTime() - dispatchTime);
+        }
     }
 
     /**
@@ -193,4 +229,29 @@ public class SimpleCommandBus implements CommandBus {
     public void setRollbackConfiguration(RollbackConfiguration rollbackConfiguration) {
         this.rollbackConfiguration = rollbackConfiguration;
     }
+
+    /**
+     * Callback used when commands are dispatched without a callback. Logs any failures, but rethrows Errors.
+     */
+    private static class LoggingCallback implements CommandCallback<Object> {
+
+        private final CommandMessage<?> command;
+
+        public LoggingCallback(CommandMessage<?> command) {
+            this.command = command;
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            logger.error(format("Processing of a [%s] resulted in an exception: ",
+                                command.getPayloadType().getSimpleName()), cause);
+        }
+    }
 }
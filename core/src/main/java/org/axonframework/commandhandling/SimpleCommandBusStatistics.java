@@ -16,10 +16,13 @@
 
 package org.axonframework.commandhandling;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * <p>Statistics object to store information about the internals of the <code>SimpleCommandBus</code>.</p> <p>You can
@@ -33,9 +36,15 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 class SimpleCommandBusStatistics implements SimpleCommandBusStatisticsMXBean {
 
+    // the number of most recent command latencies the percentiles are calculated over
+    private static final int LATENCY_SAMPLE_SIZE = 1024;
+
     private AtomicLong handlerCounter = new AtomicLong(0);
     private AtomicLong receivedCommandCounter = new AtomicLong(0);
+    private AtomicLong queuedCommandCounter = new AtomicLong(0);
     private List<String> handlerTypes = new CopyOnWriteArrayList<String>();
+    private final AtomicLongArray latencySamples = new AtomicLongArray(LATENCY_SAMPLE_SIZE);
+    private final AtomicLong latencySampleCounter = new AtomicLong(0);
 
     /**
      * Creates an instance of this statistics MBean.
@@ -81,6 +90,46 @@ class SimpleCommandBusStatistics implements SimpleCommandBusStatisticsMXBean {
         receivedCommandCounter.set(0);
     }
 
+    /**
+     * Returns the number of commands that have been dispatched, but of which processing hasn't started yet.
+     *
+     * @return long representing the number of commands waiting for processing
+     */
+    @Override
+    public long getQueuedCommandCount() {
+        return queuedCommandCounter.get();
+    }
+
+    /**
+     * Returns the median of the latency of the most recently dispatched commands.
+     *
+     * @return the median of the command latency, in microseconds
+     */
+    @Override
+    public long getMedianCommandLatency() {
+        return latencyPercentile(50);
+    }
+
+    /**
+     * Returns the 95th percentile of the latency of the most recently dispatched commands.
+     *
+     * @return the 95th percentile of the command latency, in microseconds
+     */
+    @Override
+    public long get95thPercentileCommandLatency() {
+        return latencyPercentile(95);
+    }
+
+    /**
+     * Returns the 99th percentile of the latency of the most recently dispatched commands.
+     *
+     * @return the 99th percentile of the command latency, in microseconds
+     */
+    @Override
+    public long get99thPercentileCommandLatency() {
+        return latencyPercentile(99);
+    }
+
     /**
      * Indicate a new handler with the provided name is registered. Multiple handlers with the same name are supported.
      *
@@ -108,4 +157,43 @@ class SimpleCommandBusStatistics implements SimpleCommandBusStatisticsMXBean {
     void recordReceivedCommand() {
         receivedCommandCounter.incrementAndGet();
     }
+
+    /**
+     * Indicate a command has been queued for asynchronous processing.
+     */
+    void recordQueuedCommand() {
+        queuedCommandCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate processing of a queued command has started.
+     */
+    void recordDequeuedCommand() {
+        queuedCommandCounter.decrementAndGet();
+    }
+
+    /**
+     * Records the time it took to process a command, from the moment it was dispatched. Only the most recent
+     * latencies are kept for calculating percentiles.
+     *
+     * @param latencyNanos the latency of the command, in nanoseconds
+     */
+    void recordCommandLatency(long latencyNanos) {
+        int index = (int) (latencySampleCounter.getAndIncrement() % LATENCY_SAMPLE_SIZE);
+        latencySamples.set(index, latencyNanos);
+    }
+
+    private long latencyPercentile(int percentile) {
+        int sampleCount = (int) Math.min(latencySampleCounter.get(), LATENCY_SAMPLE_SIZE);
+        if (sampleCount == 0) {
+            return 0;
+        }
+        long[] samples = new long[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            samples[i] = latencySamples.get(i);
+        }
+        Arrays.sort(samples);
+        int rank = (int) Math.ceil(percentile / 100.0 * sampleCount) - 1;
+        return TimeUnit.NANOSECONDS.toMicros(samples[Math.max(0, rank)]);
+    }
 }
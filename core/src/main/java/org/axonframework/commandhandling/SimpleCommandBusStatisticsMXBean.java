@@ -54,4 +54,39 @@ public interface SimpleCommandBusStatisticsMXBean {
      * Reset the amount of commands received counter.
      */
     void resetReceivedCommandsCounter();
+
+    /**
+     * Returns the number of commands that have been dispatched, but of which processing hasn't started yet. Commands
+     * are only queued when they are dispatched asynchronously.
+     *
+     * @return long representing the number of commands waiting for processing
+     */
+    long getQueuedCommandCount();
+
+    /**
+     * Returns the median of the time it took to process the most recently dispatched commands, in microseconds. The
+     * latency of a command is the time between dispatching the command and the moment its processing has finished,
+     * including the time it was queued.
+     *
+     * @return the median command latency, in microseconds
+     */
+    long getMedianCommandLatency();
+
+    /**
+     * Returns the 95th percentile of the time it took to process the most recently dispatched commands, in
+     * microseconds.
+     *
+     * @return the 95th percentile of the command latency, in microseconds
+     * @see #getMedianCommandLatency()
+     */
+    long get95thPercentileCommandLatency();
+
+    /**
+     * Returns the 99th percentile of the time it took to process the most recently dispatched commands, in
+     * microseconds.
+     *
+     * @return the 99th percentile of the command latency, in microseconds
+     * @see #getMedianCommandLatency()
+     */
+    long get99thPercentileCommandLatency();
 }
@@ -19,7 +19,10 @@ package org.axonframework.commandhandling.annotation;
 import org.axonframework.commandhandling.CommandMessage;
 import org.axonframework.commandhandling.CommandTargetResolver;
 import org.axonframework.commandhandling.VersionedAggregateIdentifier;
+import org.axonframework.common.ClassCache;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -39,19 +42,32 @@ import static org.axonframework.common.ReflectionUtils.*;
  * Similarly, the expected aggregate version may be provided by annotating a method (without parameters) or field with
  * {@link TargetAggregateVersion}. The return value of the method or value held in the field is used as the expected
  * version. Note that the method must return a Long value, or a value that may be parsed as a Long.
+ * <p/>
+ * The annotated methods and fields are looked up once for each type of command, and cached for as long as the command
+ * type is in use. Looking up the cached members does not require locking. The cache only refers to the command types
+ * weakly, so that it doesn't keep their class loader in memory.
  *
  * @author Allard Buijze
  * @since 1.2
  */
 public class AnnotationCommandTargetResolver implements CommandTargetResolver {
 
+    private final ClassCache<TargetMembers> targetMembers = new ClassCache<TargetMembers>() {
+        @Override
+        protected TargetMembers computeValue(Class<?> commandType) {
+            return new TargetMembers(findMember(commandType, TargetAggregateIdentifier.class),
+                                     findMember(commandType, TargetAggregateVersion.class));
+        }
+    };
+
     @Override
     public VersionedAggregateIdentifier resolveTarget(CommandMessage<?> command) {
         Object aggregateIdentifier;
         Long aggregateVersion;
         try {
-            aggregateIdentifier = findIdentifier(command);
-            aggregateVersion = findVersion(command);
+            TargetMembers members = targetMembers.get(command.getPayloadType());
+            aggregateIdentifier = valueOf(members.identifierMember, command.getPayload());
+            aggregateVersion = asLong(valueOf(members.versionMember, command.getPayload()));
         } catch (InvocationTargetException e) {
             throw new IllegalArgumentException("An exception occurred while extracting aggregate "
                                                        + "information form a command", e);
@@ -71,34 +87,27 @@ public class AnnotationCommandTargetResolver implements CommandTargetResolver {
         return new VersionedAggregateIdentifier(aggregateIdentifier, aggregateVersion);
     }
 
-    @SuppressWarnings("unchecked")
-    private <I> I findIdentifier(CommandMessage<?> command)
-            throws InvocationTargetException, IllegalAccessException {
-        for (Method m : methodsOf(command.getPayloadType())) {
-            if (m.isAnnotationPresent(TargetAggregateIdentifier.class)) {
+    private AccessibleObject findMember(Class<?> commandType, Class<? extends Annotation> annotationType) {
+        for (Method m : methodsOf(commandType)) {
+            if (m.isAnnotationPresent(annotationType)) {
                 ensureAccessible(m);
-                return (I) m.invoke(command.getPayload());
+                return m;
             }
         }
-        for (Field f : fieldsOf(command.getPayloadType())) {
-            if (f.isAnnotationPresent(TargetAggregateIdentifier.class)) {
-                return (I) getFieldValue(f, command.getPayload());
+        for (Field f : fieldsOf(commandType)) {
+            if (f.isAnnotationPresent(annotationType)) {
+                return f;
             }
         }
         return null;
     }
 
-    private Long findVersion(CommandMessage<?> command) throws InvocationTargetException, IllegalAccessException {
-        for (Method m : methodsOf(command.getPayloadType())) {
-            if (m.isAnnotationPresent(TargetAggregateVersion.class)) {
-                ensureAccessible(m);
-                return asLong(m.invoke(command.getPayload()));
-            }
-        }
-        for (Field f : fieldsOf(command.getPayloadType())) {
-            if (f.isAnnotationPresent(TargetAggregateVersion.class)) {
-                return asLong(getFieldValue(f, command.getPayload()));
-            }
+    private Object valueOf(AccessibleObject member, Object payload)
+            throws InvocationTargetException, IllegalAccessException {
+        if (member instanceof Method) {
+            return ((Method) member).invoke(payload);
+        } else if (member instanceof Field) {
+            return getFieldValue((Field) member, payload);
         }
         return null;
     }
@@ -112,4 +121,15 @@ public class AnnotationCommandTargetResolver implements CommandTargetResolver {
             return Long.parseLong(fieldValue.toString());
         }
     }
+
+    private static final class TargetMembers {
+
+        private final AccessibleObject identifierMember;
+        private final AccessibleObject versionMember;
+
+        private TargetMembers(AccessibleObject identifierMember, AccessibleObject versionMember) {
+            this.identifierMember = identifierMember;
+            this.versionMember = versionMember;
+        }
+    }
 }
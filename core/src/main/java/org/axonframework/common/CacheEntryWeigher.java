@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common;
+
+/**
+ * Interface describing a mechanism that calculates the weight of an entry in a bounded cache, such as the {@link
+ * org.axonframework.eventsourcing.BoundedAggregateCache} or the {@link org.axonframework.saga.repository.SagaCache}.
+ * The cache evicts entries when the total weight of its entries exceeds its maximum weight.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface CacheEntryWeigher {
+
+    /**
+     * Returns the weight of the entry with given <code>key</code> and <code>value</code>. The weight of an entry must
+     * not change while the entry is in the cache.
+     *
+     * @param key   The key of the entry
+     * @param value The value of the entry, typically an aggregate or a saga
+     * @return the weight of the entry. Must be zero or positive.
+     */
+    long weigh(Object key, Object value);
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of values derived from a class, such as the result of inspecting its methods or fields. The value for a class
+ * is {@link #computeValue(Class) computed} when it is requested for the first time. Looking up a value that has
+ * already been computed does not require locking. Only the computation of a missing value is synchronized, to make
+ * sure each value is computed once.
+ * <p/>
+ * The cache refers to the classes weakly, and to the values softly, so that it does not keep the classes (and their
+ * class loader) in memory indefinitely, even when a value refers to the class it was computed for. When memory runs
+ * low, values may be cleared, in which case they are computed again when requested.
+ *
+ * @param <V> The type of value cached for each class
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public abstract class ClassCache<V> {
+
+    private final ConcurrentMap<Object, SoftReference<V>> values = new ConcurrentHashMap<Object, SoftReference<V>>();
+    private final ReferenceQueue<Class<?>> collectedClasses = new ReferenceQueue<Class<?>>();
+
+    /**
+     * Returns the value for the given <code>type</code>, computing it if it has not been computed before, or if it
+     * has been cleared.
+     *
+     * @param type The class to return the value for
+     * @return the value for the given class
+     */
+    public V get(Class<?> type) {
+        V value = cachedValue(type);
+        return value == null ? computeIfAbsent(type) : value;
+    }
+
+    /**
+     * Computes the value for the given <code>type</code>. This method is invoked at most once at a time for each
+     * cache instance. It must not return <code>null</code>.
+     *
+     * @param type The class to compute the value for
+     * @return the value for the given class
+     */
+    protected abstract V computeValue(Class<?> type);
+
+    private synchronized V computeIfAbsent(Class<?> type) {
+        V value = cachedValue(type);
+        if (value == null) {
+            removeCollectedClasses();
+            value = computeValue(type);
+            values.put(new ClassKey(type, collectedClasses), new SoftReference<V>(value));
+        }
+        return value;
+    }
+
+    private V cachedValue(Class<?> type) {
+        SoftReference<V> reference = values.get(new LookupKey(type));
+        return reference == null ? null : reference.get();
+    }
+
+    private void removeCollectedClasses() {
+        Reference<? extends Class<?>> collected;
+        while ((collected = collectedClasses.poll()) != null) {
+            values.remove(collected);
+        }
+    }
+
+    /**
+     * Key stored in the cache, which refers to the class weakly. Once the class has been collected, the key is only
+     * equal to itself.
+     */
+    private static final class ClassKey extends WeakReference<Class<?>> {
+
+        private final int hashCode;
+
+        private ClassKey(Class<?> type, ReferenceQueue<Class<?>> queue) {
+            super(type, queue);
+            this.hashCode = System.identityHashCode(type);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            Class<?> type = get();
+            return type != null && obj instanceof LookupKey && ((LookupKey) obj).type == type;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Short-lived key used to look up the value of a class, without creating a reference object.
+     */
+    private static final class LookupKey {
+
+        private final Class<?> type;
+
+        private LookupKey(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ClassKey && ((ClassKey) obj).get() == type;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(type);
+        }
+    }
+}
@@ -19,13 +19,8 @@ package org.axonframework.common.annotation;
 import org.axonframework.domain.Message;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
-
-import static org.axonframework.common.ReflectionUtils.methodsOf;
 
 /**
  * Abstract utility class that inspects handler methods.
@@ -36,49 +31,33 @@ import static org.axonframework.common.ReflectionUtils.methodsOf;
 public abstract class AbstractHandlerInspector {
 
     private final Class<?> targetType;
-    private final SortedSet<MethodMessageHandler> handlers = new TreeSet<MethodMessageHandler>();
+    private final MethodMessageHandlerInspector inspector;
 
     /**
      * Initialize an AbstractHandlerInspector, where the given <code>annotationType</code> is used to annotate the
-     * Handler methods.
+     * Handler methods. The given <code>targetType</code> is only inspected once. Inspectors for the same target type
+     * and annotation type share the results of the inspection.
      *
      * @param targetType     The targetType to inspect methods on
      * @param annotationType The annotation used on the Event Handler methods.
      */
     protected AbstractHandlerInspector(Class<?> targetType, Class<? extends Annotation> annotationType) {
         this.targetType = targetType;
-        Iterable<Method> methods = methodsOf(targetType);
-        for (Method method : methods) {
-            if (method.getAnnotation(annotationType) != null) {
-                MethodMessageHandler eventHandlerMethod = MethodMessageHandler.createFor(method);
-                if (!handlers.add(eventHandlerMethod)) {
-                    MethodMessageHandler existing = handlers.tailSet(eventHandlerMethod).first();
-                    throw new UnsupportedHandlerException(
-                            String.format(
-                                    "The class %s contains two handler methods (%s and %s) that listen to the same Event type: %s",
-                                    method.getDeclaringClass().getSimpleName(),
-                                    eventHandlerMethod.getMethodName(),
-                                    existing.getMethodName(),
-                                    eventHandlerMethod.getPayloadType().getSimpleName()), method);
-                }
-            }
-        }
+        this.inspector = MethodMessageHandlerInspector.getInstance(targetType, annotationType);
     }
 
     /**
      * Returns the handler method that handles objects of the given <code>parameterType</code>. Returns
      * <code>null</code> is no such method is found.
+     * <p/>
+     * The handlers capable of handling a specific payload type are resolved once per payload type, after which only
+     * these candidates are evaluated.
      *
      * @param message The message to find a handler for
      * @return the  handler method for the given parameterType
      */
     public MethodMessageHandler findHandlerMethod(final Message message) {
-        for (MethodMessageHandler handler : handlers) {
-            if (handler.matches(message)) {
-                return handler;
-            }
-        }
-        return null;
+        return inspector.findHandlerMethod(message);
     }
 
     /**
@@ -87,7 +66,7 @@ public abstract class AbstractHandlerInspector {
      * @return the list of handlers found on target type
      */
     public List<MethodMessageHandler> getHandlers() {
-        return new ArrayList<MethodMessageHandler>(handlers);
+        return new ArrayList<MethodMessageHandler>(inspector.getHandlers());
     }
 
     /**
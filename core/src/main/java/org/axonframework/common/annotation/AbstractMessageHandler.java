@@ -54,6 +54,42 @@ public abstract class AbstractMessageHandler implements Comparable<AbstractMessa
         return true;
     }
 
+    /**
+     * Indicates whether this handler is a candidate for messages carrying a payload of given
+     * <code>payloadType</code>. When this method returns <code>false</code>, {@link #matches(Message)} will return
+     * <code>false</code> for any message with that type of payload. Note that a return value of <code>true</code> does
+     * not guarantee that a message with that payload type is matched, as parameters may impose other requirements on a
+     * message.
+     *
+     * @param payloadType The type of payload to inspect
+     * @return <code>false</code> if this handler cannot handle messages with given payload type, otherwise
+     *         <code>true</code>
+     */
+    public boolean isCandidateFor(Class<?> payloadType) {
+        return !DefaultParameterResolverFactory.isPayloadResolver(parameterValueResolvers[0])
+                || this.payloadType.isAssignableFrom(payloadType);
+    }
+
+    /**
+     * Indicates whether this handler matches every message carrying a payload of given <code>payloadType</code>,
+     * meaning that {@link #matches(Message)} does not need to be evaluated for such messages.
+     *
+     * @param payloadType The type of payload to inspect
+     * @return <code>true</code> if this handler is known to match all messages with given payload type, otherwise
+     *         <code>false</code>
+     */
+    boolean matchesAll(Class<?> payloadType) {
+        if (!isCandidateFor(payloadType)) {
+            return false;
+        }
+        for (ParameterResolver parameterResolver : parameterValueResolvers) {
+            if (!DefaultParameterResolverFactory.isUnconditional(parameterResolver)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Invokes this handler for the given <code>target</code> instance, using the given <code>message</code> as
      * source object to provide parameter values.
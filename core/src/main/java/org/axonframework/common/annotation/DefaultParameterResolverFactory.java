@@ -42,6 +42,35 @@ class DefaultParameterResolverFactory extends ParameterResolverFactory {
         return new PayloadParameterResolver(parameterType);
     }
 
+    /**
+     * Indicates whether the given <code>parameterResolver</code> was created by {@link #newPayloadResolver(Class)}.
+     *
+     * @param parameterResolver The resolver to inspect
+     * @return <code>true</code> if the given resolver resolves a message's payload, otherwise <code>false</code>
+     */
+    static boolean isPayloadResolver(ParameterResolver parameterResolver) {
+        return parameterResolver instanceof PayloadParameterResolver;
+    }
+
+    /**
+     * Indicates whether the given <code>parameterResolver</code> is known to match any message with a payload of the
+     * type it was created for. Resolvers created by other factories are never considered unconditional.
+     *
+     * @param parameterResolver The resolver to inspect
+     * @return <code>true</code> if the given resolver only depends on the type of payload of a message, otherwise
+     *         <code>false</code>
+     */
+    static boolean isUnconditional(ParameterResolver parameterResolver) {
+        if (parameterResolver instanceof AnnotatedMetaDataParameterResolver) {
+            AnnotatedMetaDataParameterResolver resolver = (AnnotatedMetaDataParameterResolver) parameterResolver;
+            return !(resolver.parameterType.isPrimitive() || resolver.metaData.required());
+        } else if (parameterResolver instanceof MessageParameterResolver) {
+            return ((MessageParameterResolver) parameterResolver).parameterType.isAssignableFrom(Message.class);
+        }
+        return parameterResolver instanceof PayloadParameterResolver
+                || parameterResolver == MetaDataParameterResolver.INSTANCE;
+    }
+
     private static class AnnotatedMetaDataParameterResolver implements ParameterResolver {
 
         private final MetaData metaData;
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import net.sf.cglib.reflect.FastClass;
+import net.sf.cglib.reflect.FastMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * MethodInvokerFactory that invokes handler methods using accessor classes generated by CGLib, which avoid the
+ * overhead of reflective invocation. Generated accessors are only able to invoke public and package private methods.
+ * Private and protected methods, as well as methods for which no accessor could be generated (e.g. because of a
+ * restrictive class loader), are left to the next factory, or to reflection.
+ * <p/>
+ * This factory is not registered by default. See {@link MethodInvokerFactory} for details on how to register it.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class FastClassMethodInvokerFactory extends MethodInvokerFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(FastClassMethodInvokerFactory.class);
+
+    @Override
+    protected MethodInvoker createInstance(Method method) {
+        int modifiers = method.getModifiers();
+        if (Modifier.isPrivate(modifiers) || Modifier.isProtected(modifiers)) {
+            return null;
+        }
+        try {
+            return new FastMethodInvoker(FastClass.create(method.getDeclaringClass()).getMethod(method));
+        } catch (RuntimeException e) {
+            logger.debug("Could not generate an accessor for handler method {}.", method.toGenericString(), e);
+        } catch (LinkageError e) {
+            logger.debug("Could not generate an accessor for handler method {}.", method.toGenericString(), e);
+        }
+        return null;
+    }
+
+    private static final class FastMethodInvoker implements MethodInvoker {
+
+        private final FastMethod fastMethod;
+
+        private FastMethodInvoker(FastMethod fastMethod) {
+            this.fastMethod = fastMethod;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] parameters) throws InvocationTargetException {
+            return fastMethod.invoke(target, parameters);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Interface describing a mechanism that invokes a handler method on a target instance. Invokers are created by a
+ * {@link MethodInvokerFactory}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface MethodInvoker {
+
+    /**
+     * Invokes the method on the given <code>target</code>, using given <code>parameters</code>.
+     *
+     * @param target     The instance to invoke the method on
+     * @param parameters The parameter values to invoke the method with
+     * @return the value returned by the method
+     *
+     * @throws InvocationTargetException if the method throws an exception
+     * @throws IllegalAccessException    if the method is not accessible
+     */
+    Object invoke(Object target, Object[] parameters) throws InvocationTargetException, IllegalAccessException;
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Abstract class defining a factory for {@link MethodInvoker} instances, which invoke handler methods. Implementations
+ * are found using the {@link ServiceLoader}. When none of the factories found on the classpath provides an invoker for
+ * a method, the method is invoked using reflection.
+ * <p/>
+ * No factories are registered by default. To invoke handler methods using generated accessors instead of reflection,
+ * add a file called <code>META-INF/services/org.axonframework.common.annotation.MethodInvokerFactory</code> to the
+ * classpath, containing the fully qualified class name of the {@link FastClassMethodInvokerFactory}.
+ * <p/>
+ * The factory implementations must be public, non-abstract, have a default public constructor and extend the
+ * MethodInvokerFactory class.
+ *
+ * @author Allard Buijze
+ * @see ServiceLoader
+ * @since 2.0
+ */
+public abstract class MethodInvokerFactory {
+
+    private static final ServiceLoader<MethodInvokerFactory> factoryLoader =
+            ServiceLoader.load(MethodInvokerFactory.class);
+
+    /**
+     * Iterates over all known MethodInvokerFactory implementations to create a MethodInvoker for the given
+     * <code>method</code>. The factories are invoked in the order they are found on the classpath. The first to
+     * provide an invoker will be used. When none of them provides one, an invoker using reflection is returned.
+     *
+     * @param method The method to create an invoker for
+     * @return the invoker for the given method. Is never <code>null</code>.
+     */
+    public static MethodInvoker findMethodInvoker(Method method) {
+        MethodInvoker invoker = null;
+        Iterator<MethodInvokerFactory> factories = factoryLoader.iterator();
+        while (invoker == null && factories.hasNext()) {
+            invoker = factories.next().createInstance(method);
+        }
+        if (invoker == null) {
+            invoker = new ReflectiveMethodInvoker(method);
+        }
+        return invoker;
+    }
+
+    /**
+     * If available, creates a MethodInvoker for the given <code>method</code>. The method has been made accessible
+     * when this method is invoked.
+     * <p/>
+     * If the MethodInvokerFactory cannot invoke the given method, returns <code>null</code>.
+     *
+     * @param method The method to create an invoker for
+     * @return a suitable MethodInvoker, or <code>null</code> if the method is not supported
+     */
+    protected abstract MethodInvoker createInstance(Method method);
+
+    private static final class ReflectiveMethodInvoker implements MethodInvoker {
+
+        private final Method method;
+
+        private ReflectiveMethodInvoker(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] parameters)
+                throws InvocationTargetException, IllegalAccessException {
+            return method.invoke(target, parameters);
+        }
+    }
+}
@@ -29,6 +29,9 @@ import static org.axonframework.common.ReflectionUtils.ensureAccessible;
 
 /**
  * Represents a method recognized as a handler by the handler inspector (see {@link AbstractHandlerInspector}).
+ * <p/>
+ * The method is invoked using the {@link MethodInvoker} provided by the {@link MethodInvokerFactory}, which uses
+ * reflection unless another strategy has been registered.
  *
  * @author Allard Buijze
  * @since 2.0
@@ -36,6 +39,8 @@ import static org.axonframework.common.ReflectionUtils.ensureAccessible;
 public final class MethodMessageHandler extends AbstractMessageHandler {
 
     private final Method method;
+    private final MethodInvoker methodInvoker;
+    private final boolean voidReturnType;
 
     /**
      * Creates a MethodMessageHandler for the given <code>method</code>.
@@ -90,6 +95,8 @@ public final class MethodMessageHandler extends AbstractMessageHandler {
     private MethodMessageHandler(Method method, ParameterResolver[] parameterValueResolvers, Class payloadType) {
         super(payloadType, method.getDeclaringClass(), parameterValueResolvers);
         this.method = method;
+        this.methodInvoker = MethodInvokerFactory.findMethodInvoker(method);
+        this.voidReturnType = Void.TYPE.equals(method.getReturnType());
     }
 
     @Override
@@ -97,12 +104,13 @@ public final class MethodMessageHandler extends AbstractMessageHandler {
         Assert.isTrue(method.getDeclaringClass().isInstance(target),
                       "Given target is not an instance of the method's owner.");
         Assert.notNull(message, "Event may not be null");
-        Object[] parameterValues = new Object[getParameterValueResolvers().length];
+        ParameterResolver[] parameterValueResolvers = getParameterValueResolvers();
+        Object[] parameterValues = new Object[parameterValueResolvers.length];
         for (int i = 0; i < parameterValues.length; i++) {
-            parameterValues[i] = getParameterValueResolvers()[i].resolveParameterValue(message);
+            parameterValues[i] = parameterValueResolvers[i].resolveParameterValue(message);
         }
-        Object returnType = method.invoke(target, parameterValues);
-        if (Void.TYPE.equals(method.getReturnType())) {
+        Object returnType = methodInvoker.invoke(target, parameterValues);
+        if (voidReturnType) {
             return Void.TYPE;
         }
         return returnType;
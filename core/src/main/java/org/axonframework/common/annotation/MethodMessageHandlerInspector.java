@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import org.axonframework.common.ClassCache;
+import org.axonframework.domain.Message;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.axonframework.common.ReflectionUtils.methodsOf;
+
+/**
+ * Holds the handler methods found on a target type, and resolves the handler for a given message. Instances are
+ * shared between all inspectors of the same target type and annotation type, meaning the target type is inspected
+ * only once.
+ * <p/>
+ * For each payload type encountered, the handlers that are able to handle that payload type are resolved once and
+ * cached. When the first of these handlers does not impose any requirements on a message other than its payload type,
+ * resolving the handler for a message is a single lookup. Otherwise, only the candidates preceding the first such
+ * handler are evaluated.
+ * <p/>
+ * Both the shared instances and the handlers per payload type are held in a {@link ClassCache}, so that they do not
+ * keep the inspected classes or payload types (and their class loader) in memory indefinitely, for example after an
+ * application has been redeployed. When memory runs low, they may be cleared, in which case the target type is
+ * inspected again when an inspector is requested.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class MethodMessageHandlerInspector {
+
+    private static final ClassCache<ClassCache<MethodMessageHandlerInspector>> INSPECTORS =
+            new ClassCache<ClassCache<MethodMessageHandlerInspector>>() {
+                @Override
+                protected ClassCache<MethodMessageHandlerInspector> computeValue(final Class<?> targetType) {
+                    // the annotation type may be defined by the same class loader as the target type
+                    return new ClassCache<MethodMessageHandlerInspector>() {
+                        @SuppressWarnings({"unchecked"})
+                        @Override
+                        protected MethodMessageHandlerInspector computeValue(Class<?> annotationType) {
+                            return new MethodMessageHandlerInspector(targetType,
+                                                                     (Class<? extends Annotation>) annotationType);
+                        }
+                    };
+                }
+            };
+
+    private final List<MethodMessageHandler> handlers;
+    private final ClassCache<HandlerResolution> resolutionPerPayloadType = new ClassCache<HandlerResolution>() {
+        @Override
+        protected HandlerResolution computeValue(Class<?> payloadType) {
+            return new HandlerResolution(handlers, payloadType);
+        }
+    };
+
+    /**
+     * Returns the inspector for handler methods annotated with given <code>annotationType</code> on given
+     * <code>targetType</code>. The target type is inspected when the inspector is requested for the first time.
+     *
+     * @param targetType     The targetType to inspect methods on
+     * @param annotationType The annotation used on the handler methods
+     * @return the inspector for the given target type and annotation type
+     *
+     * @throws UnsupportedHandlerException if the target type contains handlers that are not supported
+     */
+    static MethodMessageHandlerInspector getInstance(Class<?> targetType,
+                                                     Class<? extends Annotation> annotationType) {
+        return INSPECTORS.get(targetType).get(annotationType);
+    }
+
+    private MethodMessageHandlerInspector(Class<?> targetType, Class<? extends Annotation> annotationType) {
+        SortedSet<MethodMessageHandler> sortedHandlers = new TreeSet<MethodMessageHandler>();
+        for (Method method : methodsOf(targetType)) {
+            if (method.getAnnotation(annotationType) != null) {
+                MethodMessageHandler eventHandlerMethod = MethodMessageHandler.createFor(method);
+                if (!sortedHandlers.add(eventHandlerMethod)) {
+                    MethodMessageHandler existing = sortedHandlers.tailSet(eventHandlerMethod).first();
+                    throw new UnsupportedHandlerException(
+                            String.format(
+                                    "The class %s contains two handler methods (%s and %s) that listen to the same Event type: %s",
+                                    method.getDeclaringClass().getSimpleName(),
+                                    eventHandlerMethod.getMethodName(),
+                                    existing.getMethodName(),
+                                    eventHandlerMethod.getPayloadType().getSimpleName()), method);
+                }
+            }
+        }
+        this.handlers = Collections.unmodifiableList(new ArrayList<MethodMessageHandler>(sortedHandlers));
+    }
+
+    /**
+     * Returns the handler method that handles the given <code>message</code>, or <code>null</code> if no such method
+     * is found.
+     *
+     * @param message The message to find a handler for
+     * @return the handler method for the given message
+     */
+    MethodMessageHandler findHandlerMethod(Message message) {
+        Class<?> payloadType = message.getPayloadType();
+        if (payloadType == null) {
+            return firstMatch(handlers, message);
+        }
+        return resolutionPerPayloadType.get(payloadType).resolve(message);
+    }
+
+    /**
+     * Returns the handlers found on the target type, in the order in which they are evaluated.
+     *
+     * @return the handlers found on the target type
+     */
+    List<MethodMessageHandler> getHandlers() {
+        return handlers;
+    }
+
+    private static MethodMessageHandler firstMatch(List<MethodMessageHandler> candidates, Message message) {
+        for (MethodMessageHandler handler : candidates) {
+            if (handler.matches(message)) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The handlers that may handle messages with a specific payload type. The absence of a handler is cached as well,
+     * as it is just as likely to be repeated.
+     */
+    private static final class HandlerResolution {
+
+        // the candidates to evaluate before falling back to the unconditional handler
+        private final List<MethodMessageHandler> conditionalCandidates;
+        private final MethodMessageHandler unconditionalHandler;
+
+        private HandlerResolution(List<MethodMessageHandler> handlers, Class<?> payloadType) {
+            List<MethodMessageHandler> candidates = new ArrayList<MethodMessageHandler>();
+            MethodMessageHandler unconditional = null;
+            for (MethodMessageHandler handler : handlers) {
+                if (handler.matchesAll(payloadType)) {
+                    // handlers further down the list would never be selected
+                    unconditional = handler;
+                    break;
+                } else if (handler.isCandidateFor(payloadType)) {
+                    candidates.add(handler);
+                }
+            }
+            this.conditionalCandidates = candidates.isEmpty()
+                    ? Collections.<MethodMessageHandler>emptyList()
+                    : candidates;
+            this.unconditionalHandler = unconditional;
+        }
+
+        private MethodMessageHandler resolve(Message message) {
+            MethodMessageHandler handler = firstMatch(conditionalCandidates, message);
+            return handler == null ? unconditionalHandler : handler;
+        }
+    }
+}
@@ -44,6 +44,7 @@ public class JpaEventStoreBeanDefinitionParser extends AbstractSingleBeanDefinit
     private static final String PERSISTENCE_EXCEPTION_RESOLVER_ATTRIBUTE = "persistence-exception-resolver";
     private static final String MAX_SNAPHOTS_ARCHIVED_ATTRIBUTE = "max-snapshots-archived";
     private static final String BATCH_SIZE_ATTRIBUTE = "batch-size";
+    private static final String FLUSH_AFTER_APPEND_ATTRIBUTE = "flush-after-append";
     private static final String ENTITY_MANAGER_PROVIDER = "entity-manager-provider";
 
     /**
@@ -82,5 +83,8 @@ public class JpaEventStoreBeanDefinitionParser extends AbstractSingleBeanDefinit
         if (element.hasAttribute(BATCH_SIZE_ATTRIBUTE)) {
             builder.addPropertyValue("batchSize", element.getAttribute(BATCH_SIZE_ATTRIBUTE));
         }
+        if (element.hasAttribute(FLUSH_AFTER_APPEND_ATTRIBUTE)) {
+            builder.addPropertyValue("flushAfterAppend", element.getAttribute(FLUSH_AFTER_APPEND_ATTRIBUTE));
+        }
     }
 }
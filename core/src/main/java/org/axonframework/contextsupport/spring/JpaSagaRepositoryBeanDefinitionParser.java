@@ -40,6 +40,10 @@ public class JpaSagaRepositoryBeanDefinitionParser extends AbstractBeanDefinitio
     private static final String SAGA_SERIALIZER_ATTRIBUTE = "saga-serializer";
     private static final String SAGA_SERIALIZER_PROPERTY = "serializer";
     private static final String ENTITY_MANAGER_PROVIDER = "entity-manager-provider";
+    private static final String ASSOCIATION_VALUE_QUERIES_ATTRIBUTE = "use-association-value-queries";
+    private static final String ASSOCIATION_VALUE_CACHE_SIZE_ATTRIBUTE = "association-value-cache-size";
+    private static final String SAGA_CACHE_ATTRIBUTE = "saga-cache";
+    private static final String WRITE_BEHIND_ATTRIBUTE = "write-behind";
 
     @Override
     protected AbstractBeanDefinition parseInternal(Element element, ParserContext parserContext) {
@@ -48,6 +52,8 @@ public class JpaSagaRepositoryBeanDefinitionParser extends AbstractBeanDefinitio
         parseExplicitFlushAttribute(element, builder);
         parseSagaSerializerAttribute(element, builder);
         parseEntityManagerProviderAttribute(element, builder);
+        parseAssociationValueLookupAttributes(element, builder);
+        parseSagaCacheAttributes(element, builder);
         return builder.getBeanDefinition();
     }
 
@@ -78,6 +84,26 @@ public class JpaSagaRepositoryBeanDefinitionParser extends AbstractBeanDefinitio
         }
     }
 
+    private void parseAssociationValueLookupAttributes(Element element, BeanDefinitionBuilder beanDefinition) {
+        if (element.hasAttribute(ASSOCIATION_VALUE_QUERIES_ATTRIBUTE)) {
+            beanDefinition.addPropertyValue("useAssociationValueQueries",
+                                            element.getAttribute(ASSOCIATION_VALUE_QUERIES_ATTRIBUTE));
+        }
+        if (element.hasAttribute(ASSOCIATION_VALUE_CACHE_SIZE_ATTRIBUTE)) {
+            beanDefinition.addPropertyValue("associationValueCacheSize",
+                                            element.getAttribute(ASSOCIATION_VALUE_CACHE_SIZE_ATTRIBUTE));
+        }
+    }
+
+    private void parseSagaCacheAttributes(Element element, BeanDefinitionBuilder beanDefinition) {
+        if (element.hasAttribute(SAGA_CACHE_ATTRIBUTE)) {
+            beanDefinition.addPropertyReference("sagaCache", element.getAttribute(SAGA_CACHE_ATTRIBUTE));
+        }
+        if (element.hasAttribute(WRITE_BEHIND_ATTRIBUTE)) {
+            beanDefinition.addPropertyValue("writeBehind", element.getAttribute(WRITE_BEHIND_ATTRIBUTE));
+        }
+    }
+
     private void parseResourceInjectorAttribute(Element element, BeanDefinitionBuilder beanDefinition) {
         if (element.hasAttribute(RESOURCE_INJECTOR_ATTRIBUTE)) {
             beanDefinition.addPropertyReference("resourceInjector", element.getAttribute(RESOURCE_INJECTOR_ATTRIBUTE));
@@ -16,7 +16,10 @@
 
 package org.axonframework.contextsupport.spring;
 
+import org.axonframework.commandhandling.AsynchronousCommandBus;
 import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.GenericBeanDefinition;
 import org.springframework.beans.factory.xml.AbstractBeanDefinitionParser;
@@ -30,32 +33,63 @@ import java.util.List;
  * The SimpleCommandBusBeanDefinitionParser does the actual work of parsing the <code>commandBus</code> element from
  * the
  * Axon namespace. This DefinitionParser creates a {@link org.axonframework.commandhandling.SimpleCommandBus} {@link
- * org.springframework.beans.factory.config.BeanDefinition}, with optional interceptors and subscribers.
+ * org.springframework.beans.factory.config.BeanDefinition}, with optional interceptors and subscribers. When an
+ * executor is configured, an {@link AsynchronousCommandBus} is created instead.
  *
  * @author Ben Z. Tels
  * @since 0.7
  */
 public class SimpleCommandBusBeanDefinitionParser extends AbstractBeanDefinitionParser {
 
+    private static final String EXECUTOR_ATTRIBUTE = "executor";
+    private static final String COMMAND_TARGET_RESOLVER_ATTRIBUTE = "command-target-resolver";
+    private static final String REGISTER_MBEANS_ATTRIBUTE = "register-mbeans";
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected AbstractBeanDefinition parseInternal(Element element, ParserContext parserContext) {
         GenericBeanDefinition commandBusDefinition = new GenericBeanDefinition();
-        commandBusDefinition.setBeanClass(SimpleCommandBus.class);
-
-        String attribute = element.getAttribute("register-mbeans");
-        if (!"".equals(attribute)) {
-            commandBusDefinition.getConstructorArgumentValues().addIndexedArgumentValue(0, attribute);
+        if (element.hasAttribute(EXECUTOR_ATTRIBUTE)) {
+            parseAsynchronousConfiguration(element, commandBusDefinition);
+        } else {
+            commandBusDefinition.setBeanClass(SimpleCommandBus.class);
+            String attribute = element.getAttribute(REGISTER_MBEANS_ATTRIBUTE);
+            if (!"".equals(attribute)) {
+                commandBusDefinition.getConstructorArgumentValues().addIndexedArgumentValue(0, attribute);
+            }
         }
 
-
         parseInterceptorConfiguration(element, parserContext, commandBusDefinition);
 
         return commandBusDefinition;
     }
 
+    /**
+     * Configures the definition to create an {@link AsynchronousCommandBus} that processes commands using the
+     * configured executor.
+     *
+     * @param element              The {@link Element} being parsed.
+     * @param commandBusDefinition The {@link org.springframework.beans.factory.config.BeanDefinition} being built.
+     */
+    private void parseAsynchronousConfiguration(Element element, GenericBeanDefinition commandBusDefinition) {
+        commandBusDefinition.setBeanClass(AsynchronousCommandBus.class);
+        commandBusDefinition.getConstructorArgumentValues().addIndexedArgumentValue(
+                0, new RuntimeBeanReference(element.getAttribute(EXECUTOR_ATTRIBUTE)));
+        if (element.hasAttribute(COMMAND_TARGET_RESOLVER_ATTRIBUTE)) {
+            commandBusDefinition.getConstructorArgumentValues().addIndexedArgumentValue(
+                    1, new RuntimeBeanReference(element.getAttribute(COMMAND_TARGET_RESOLVER_ATTRIBUTE)));
+        } else {
+            GenericBeanDefinition targetResolverDefinition = new GenericBeanDefinition();
+            targetResolverDefinition.setBeanClass(AnnotationCommandTargetResolver.class);
+            commandBusDefinition.getConstructorArgumentValues().addIndexedArgumentValue(1, targetResolverDefinition);
+        }
+        String registerMBeans = element.getAttribute(REGISTER_MBEANS_ATTRIBUTE);
+        commandBusDefinition.getConstructorArgumentValues().addIndexedArgumentValue(
+                2, "".equals(registerMBeans) ? "true" : registerMBeans);
+    }
+
     /**
      * Handles any optional interceptor-related configuration.
      *
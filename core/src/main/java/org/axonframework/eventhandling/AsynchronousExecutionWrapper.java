@@ -44,6 +44,8 @@ public abstract class AsynchronousExecutionWrapper<T> {
     private final SequencingPolicy<? super T> sequencingPolicy;
     private final BlockingQueue<T> concurrentEventQueue = new LinkedBlockingQueue<T>();
     private final TransactionManager transactionManager;
+    private int queueCapacity;
+    private BackPressurePolicy backPressurePolicy = BackPressurePolicy.BLOCK;
 
     /**
      * Initialize the AsynchronousExecutionWrapper using the given <code>executor</code> and
@@ -82,6 +84,29 @@ public abstract class AsynchronousExecutionWrapper<T> {
      */
     protected abstract void doHandle(T task);
 
+    /**
+     * Indicates whether the schedulers created by this instance expose their transaction status through {@link
+     * TransactionStatus#current()} while handling tasks. Defaults to <code>true</code>, as tasks are expected to be
+     * events. Subclasses processing other types of tasks should return <code>false</code>.
+     *
+     * @return <code>true</code> if the transaction status is exposed to the handling thread, otherwise
+     *         <code>false</code>
+     *
+     * @see EventProcessingScheduler#exposesTransactionStatus()
+     */
+    protected boolean exposesTransactionStatus() {
+        return true;
+    }
+
+    /**
+     * Invoked when the given <code>task</code> is dropped, because the queue of its sequence was full and the {@link
+     * BackPressurePolicy#DROP} policy is used. This implementation does nothing.
+     *
+     * @param task The task that has been dropped
+     */
+    protected void taskDropped(T task) {
+    }
+
     /**
      * Schedules this task for execution when all pre-conditions have been met.
      *
@@ -129,6 +154,25 @@ public abstract class AsynchronousExecutionWrapper<T> {
     protected EventProcessingScheduler<T> newProcessingScheduler(
             EventProcessingScheduler.ShutdownCallback shutDownCallback) {
         logger.debug("Initializing new processing scheduler.");
+        if (queueCapacity > 0) {
+            return new BoundedEventProcessingScheduler<T>(transactionManager, executor, shutDownCallback,
+                                                          queueCapacity, backPressurePolicy) {
+                @Override
+                protected void doHandle(T task) {
+                    AsynchronousExecutionWrapper.this.doHandle(task);
+                }
+
+                @Override
+                protected boolean exposesTransactionStatus() {
+                    return AsynchronousExecutionWrapper.this.exposesTransactionStatus();
+                }
+
+                @Override
+                protected void eventDropped(T task) {
+                    taskDropped(task);
+                }
+            };
+        }
         return newProcessingScheduler(shutDownCallback, new LinkedList<T>());
     }
 
@@ -148,9 +192,40 @@ public abstract class AsynchronousExecutionWrapper<T> {
             protected void doHandle(T task) {
                 AsynchronousExecutionWrapper.this.doHandle(task);
             }
+
+            @Override
+            protected boolean exposesTransactionStatus() {
+                return AsynchronousExecutionWrapper.this.exposesTransactionStatus();
+            }
         };
     }
 
+    /**
+     * Sets the maximum number of tasks that may be queued for each sequence of tasks. When set, tasks that need to be
+     * processed sequentially are scheduled using a {@link BoundedEventProcessingScheduler}, which does not use locks
+     * to schedule and process tasks. Tasks that may be processed fully concurrently are not affected by this setting.
+     * <p/>
+     * Defaults to 0, meaning that an unbounded queue is used.
+     *
+     * @param queueCapacity the maximum number of tasks queued for each sequence, or 0 for an unbounded queue
+     * @see #setBackPressurePolicy(BackPressurePolicy)
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Sets the policy that defines what happens with tasks that are scheduled while the queue for their sequence is
+     * full. This setting only has effect when a {@link #setQueueCapacity(int) queue capacity} has been configured.
+     * <p/>
+     * Defaults to {@link BackPressurePolicy#BLOCK}.
+     *
+     * @param backPressurePolicy the policy to apply to tasks that are scheduled while the queue is full
+     */
+    public void setBackPressurePolicy(BackPressurePolicy backPressurePolicy) {
+        this.backPressurePolicy = backPressurePolicy;
+    }
+
     private static class NoActionCallback implements EventProcessingScheduler.ShutdownCallback {
 
         /**
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+/**
+ * The policy describing what a {@link BoundedEventProcessingScheduler} should do with an event that is scheduled while
+ * its queue has reached its maximum capacity.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public enum BackPressurePolicy {
+
+    /**
+     * Blocks the thread scheduling the event until the queue has capacity available. Note that the thread processing
+     * the events should never schedule an event with the same scheduler, as that will block the thread indefinitely.
+     */
+    BLOCK,
+
+    /**
+     * Discards the event. A warning is logged for each discarded event.
+     */
+    DROP
+
+}
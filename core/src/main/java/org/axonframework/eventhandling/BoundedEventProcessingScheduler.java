@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.common.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EventProcessingScheduler implementation that queues events in a bounded ring buffer, without acquiring locks when
+ * scheduling or processing events. Unlike the default implementation, threads scheduling events do not contend with
+ * the thread processing them, and no objects are allocated for each scheduled event.
+ * <p/>
+ * The number of events waiting for processing is limited by the capacity of this scheduler. The {@link
+ * BackPressurePolicy} defines what happens with events that are scheduled while the queue is full. The semantics of
+ * the {@link RetryPolicy}, {@link YieldPolicy} and {@link TransactionStatus} are the same as those of the default
+ * implementation.
+ *
+ * @param <T> The type of class representing the processing instruction for the event.
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public abstract class BoundedEventProcessingScheduler<T> extends EventProcessingScheduler<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedEventProcessingScheduler.class);
+    private static final long MAX_BLOCKING_WAIT_NANOS = 1000000;
+
+    private final Executor executor;
+    private final RingBuffer<T> ringBuffer;
+    private final int capacity;
+    private final BackPressurePolicy backPressurePolicy;
+    // the number of events reserved in the ring buffer. -1 once shut down
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+    private final AtomicLong droppedEventCount = new AtomicLong();
+
+    /**
+     * Initialize a scheduler that queues at most <code>capacity</code> events, and processes them using the given
+     * <code>executor</code>. When an event is scheduled while the queue is full, the given
+     * <code>backPressurePolicy</code> decides what happens to it.
+     *
+     * @param transactionManager The transaction manager that manages underlying transactions
+     * @param executor           The executor service that will process the events
+     * @param shutDownCallback   The callback to notify when the scheduler finishes processing events
+     * @param capacity           The maximum number of events waiting for processing
+     * @param backPressurePolicy The policy to apply to events scheduled while the queue is full
+     */
+    public BoundedEventProcessingScheduler(TransactionManager transactionManager, Executor executor,
+                                           ShutdownCallback shutDownCallback, int capacity,
+                                           BackPressurePolicy backPressurePolicy) {
+        super(transactionManager, executor, shutDownCallback);
+        Assert.isTrue(capacity > 0, "The capacity must be a positive number");
+        Assert.notNull(backPressurePolicy, "The back pressure policy may not be null");
+        this.executor = executor;
+        this.capacity = capacity;
+        this.backPressurePolicy = backPressurePolicy;
+        this.ringBuffer = new RingBuffer<T>(capacity);
+    }
+
+    /**
+     * Schedules an event for processing. Will schedule a new invoker task if none is currently active. When the queue
+     * is full, the configured {@link BackPressurePolicy} is applied to the event.
+     * <p/>
+     * If the current scheduler is in the process of being shut down, this method will return false.
+     * <p/>
+     * This method is thread safe
+     *
+     * @param event the event to schedule
+     * @return true if the event was scheduled, dropped or processed successfully, false if this scheduler is not
+     *         available to process events
+     *
+     * @throws IllegalStateException if the thread is interrupted while waiting for the queue to have capacity
+     *                               available
+     */
+    @Override
+    public boolean scheduleEvent(T event) {
+        long waitNanos = 1;
+        while (true) {
+            int pending = pendingEvents.get();
+            if (pending < 0) {
+                // this scheduler has been shut down; accept no more events
+                return false;
+            } else if (pending < capacity) {
+                if (pendingEvents.compareAndSet(pending, pending + 1)) {
+                    break;
+                }
+            } else if (backPressurePolicy == BackPressurePolicy.DROP) {
+                droppedEventCount.incrementAndGet();
+                logger.warn("Event processing queue is full. Dropping event [{}].", event);
+                eventDropped(event);
+                return true;
+            } else {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Thread was interrupted while waiting for capacity in the "
+                                                            + "event processing queue.");
+                }
+                LockSupport.parkNanos(waitNanos);
+                waitNanos = Math.min(waitNanos * 2, MAX_BLOCKING_WAIT_NANOS);
+            }
+        }
+        ringBuffer.add(event);
+        if (!isScheduled.get() && isScheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of events that have been dropped because the queue was full. Only events scheduled with the
+     * {@link BackPressurePolicy#DROP} policy are ever dropped.
+     *
+     * @return the number of events dropped by this scheduler
+     */
+    public long getDroppedEventCount() {
+        return droppedEventCount.get();
+    }
+
+    /**
+     * Invoked when the given <code>event</code> is dropped because the queue was full. Subclasses may override this
+     * method to notify interested parties. This implementation does nothing.
+     *
+     * @param event The event that has been dropped
+     */
+    protected void eventDropped(T event) {
+    }
+
+    @Override
+    protected T pollEvent() {
+        T event = ringBuffer.poll();
+        if (event != null) {
+            pendingEvents.decrementAndGet();
+        }
+        return event;
+    }
+
+    @Override
+    protected int queuedEventCount() {
+        return Math.max(0, pendingEvents.get());
+    }
+
+    @Override
+    protected boolean tryShutDown() {
+        return pendingEvents.compareAndSet(0, -1);
+    }
+
+    /**
+     * Ring buffer for many producers and a single consumer. Producers must reserve a slot (by incrementing the pending
+     * event count) before adding an element, which guarantees that the slot they claim has been released by the
+     * consumer.
+     *
+     * @param <E> The type of element stored in the buffer
+     */
+    private static final class RingBuffer<E> {
+
+        private final AtomicReferenceArray<E> elements;
+        private final AtomicLong producerIndex = new AtomicLong();
+        private final int mask;
+        // only accessed by the consumer
+        private long consumerIndex;
+
+        private RingBuffer(int capacity) {
+            int size = 1;
+            while (size < capacity) {
+                size <<= 1;
+            }
+            this.elements = new AtomicReferenceArray<E>(size);
+            this.mask = size - 1;
+        }
+
+        private void add(E element) {
+            int slot = (int) (producerIndex.getAndIncrement() & mask);
+            elements.lazySet(slot, element);
+        }
+
+        private E poll() {
+            int slot = (int) (consumerIndex & mask);
+            E element = elements.get(slot);
+            if (element != null) {
+                elements.set(slot, null);
+                consumerIndex++;
+            }
+            return element;
+        }
+    }
+}
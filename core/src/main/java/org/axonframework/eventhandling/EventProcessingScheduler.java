@@ -115,14 +115,26 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @return the next DomainEvent for processing, of null if none is available
      */
-    private synchronized T nextEvent() {
-        T e = eventQueue.poll();
+    private T nextEvent() {
+        T e = pollEvent();
         if (e != null) {
             currentBatch.add(e);
         }
         return e;
     }
 
+    /**
+     * Removes the next event from the queue and returns it, or returns <code>null</code> if no events are available.
+     * This method is only invoked by the thread processing the events.
+     * <p/>
+     * This method is thread safe
+     *
+     * @return the next event in the queue, or <code>null</code> if none is available
+     */
+    protected synchronized T pollEvent() {
+        return eventQueue.poll();
+    }
+
     /**
      * Tries to yield to other threads by rescheduling processing of any further queued events. If rescheduling fails,
      * this call returns false, indicating that processing should continue in the current thread.
@@ -131,8 +143,8 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @return true if yielding succeeded, false otherwise.
      */
-    private synchronized boolean yield() {
-        if (eventQueue.size() > 0 || currentBatch.size() > 0) {
+    private boolean yield() {
+        if (currentBatch.size() > 0 || !tryShutDown()) {
             try {
                 if (retryAfter <= System.currentTimeMillis()) {
                     executor.execute(this);
@@ -151,7 +163,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
                 return false;
             }
         } else {
-            cleanUp();
+            shutDownCallback.afterShutdown(this);
         }
         return true;
     }
@@ -183,7 +195,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @return the number of events currently queued for processing.
      */
-    private synchronized int queuedEventCount() {
+    protected synchronized int queuedEventCount() {
         return eventQueue.size();
     }
 
@@ -196,7 +208,10 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         waitUntilAllowedStartingTime();
         final TransactionStatus status = new TransactionStatus();
         status.setMaxTransactionSize(queuedEventCount() + currentBatch.size());
-        TransactionStatus.set(status);
+        final boolean exposeStatus = exposesTransactionStatus();
+        if (exposeStatus) {
+            TransactionStatus.set(status);
+        }
         while (mayContinue) {
             processOrRetryBatch(status);
             boolean inRetryMode =
@@ -214,7 +229,24 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
                     || !yield();
             status.resetTransactionStatus();
         }
-        TransactionStatus.clear();
+        if (exposeStatus) {
+            TransactionStatus.clear();
+        }
+    }
+
+    /**
+     * Indicates whether the status of the current transaction is made available to the handling thread through {@link
+     * TransactionStatus#current()}. Components such as the write-behind mode of saga repositories use the presence
+     * of a current transaction status to detect that they are invoked as part of an event processing batch.
+     * <p/>
+     * Defaults to <code>true</code>. Schedulers that process anything other than events should return
+     * <code>false</code>.
+     *
+     * @return <code>true</code> if the transaction status should be exposed to the handling thread, otherwise
+     *         <code>false</code>.
+     */
+    protected boolean exposesTransactionStatus() {
+        return true;
     }
 
     private void waitUntilAllowedStartingTime() {
@@ -245,6 +277,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
                 handleEventBatch(status);
             }
             if (transactionStarted) {
+                status.notifyPrepareCommit();
                 transactionManager.afterTransaction(status);
             }
             currentBatch.clear();
@@ -254,8 +287,9 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         }
     }
 
-    private synchronized void prepareBatchRetry(TransactionStatus status, Exception e) {
+    private void prepareBatchRetry(TransactionStatus status, Exception e) {
         status.markFailed(e);
+        status.notifyRollback();
         tryAfterTransactionCall(status);
         switch (status.getRetryPolicy()) {
             case RETRY_LAST_EVENT:
@@ -327,10 +361,23 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         }
     }
 
-    private synchronized void cleanUp() {
+    /**
+     * Shuts down this scheduler if no events are queued for processing. Once shut down, the scheduler will not accept
+     * any more events. This method is only invoked by the thread processing the events, after the last transaction
+     * has been completed successfully.
+     * <p/>
+     * This method is thread safe
+     *
+     * @return <code>true</code> if the scheduler has been shut down, <code>false</code> if events are queued for
+     *         processing
+     */
+    protected synchronized boolean tryShutDown() {
+        if (!eventQueue.isEmpty()) {
+            return false;
+        }
         isScheduled = false;
         cleanedUp = true;
-        shutDownCallback.afterShutdown(this);
+        return true;
     }
 
     /**
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+/**
+ * Interface describing a component that gets notified of the completion of the transactional batch of events it was
+ * {@link TransactionStatus#registerListener(TransactionListener) registered} with. This allows components to postpone
+ * work (such as writing state to a backing store) until all events in a batch have been processed.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface TransactionListener {
+
+    /**
+     * Invoked when all events in the batch have been processed successfully, before the {@link TransactionManager} is
+     * notified through {@link TransactionManager#afterTransaction(TransactionStatus)}. Any exception thrown by this
+     * method causes the batch to fail.
+     *
+     * @param transactionStatus The status of the transaction that is about to be committed
+     */
+    void onPrepareCommit(TransactionStatus transactionStatus);
+
+    /**
+     * Invoked when processing of the batch has failed, before the {@link TransactionManager} is notified through
+     * {@link TransactionManager#afterTransaction(TransactionStatus)}. Any work postponed until the commit of the
+     * batch should be discarded.
+     *
+     * @param transactionStatus The status of the transaction that failed
+     */
+    void onRollback(TransactionStatus transactionStatus);
+}
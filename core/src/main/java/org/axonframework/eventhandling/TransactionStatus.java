@@ -16,6 +16,12 @@
 
 package org.axonframework.eventhandling;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Provides details about the current status of an event handling transaction. This method is typically accessed
  * through
@@ -31,6 +37,7 @@ package org.axonframework.eventhandling;
  */
 public class TransactionStatus {
 
+    private static final Logger logger = LoggerFactory.getLogger(TransactionStatus.class);
     private static final ThreadLocal<TransactionStatus> THREAD_LOCAL_TRANSACTION = new ThreadLocal<TransactionStatus>();
 
     private YieldPolicy yieldPolicy = YieldPolicy.YIELD_AFTER_TRANSACTION;
@@ -40,6 +47,7 @@ public class TransactionStatus {
     private Throwable exception;
     private RetryPolicy retryPolicy = RetryPolicy.SKIP_FAILED_EVENT;
     private long retryInterval = 5000;
+    private final List<TransactionListener> listeners = new ArrayList<TransactionListener>();
 
     /**
      * Initialize a TransactionStatus instance with default settings.
@@ -50,6 +58,9 @@ public class TransactionStatus {
     /**
      * Returns the TransactionStatus object related to a transaction running on the current thread. Returns
      * <code>null</code> if no transaction is running on the current thread.
+     * <p/>
+     * A status is only available while the current thread processes a batch of events on behalf of an {@link
+     * EventProcessingScheduler} that {@link EventProcessingScheduler#exposesTransactionStatus() exposes} it.
      *
      * @return the currently active TransactionStatus, or <code>null</code> if none is present.
      */
@@ -202,12 +213,50 @@ public class TransactionStatus {
 
     /**
      * Resets the event count for current transaction to 0 and sets the YieldPolicy to the default value
-     * (YIELD_AFTER_TRANSACTION).
+     * (YIELD_AFTER_TRANSACTION). Any registered listeners are removed.
      */
     protected void resetTransactionStatus() {
         eventsProcessedInTransaction = 0;
         yieldPolicy = YieldPolicy.YIELD_AFTER_TRANSACTION;
         exception = null;
+        listeners.clear();
+    }
+
+    /**
+     * Registers a listener that is notified when the current transactional batch is about to be committed or has
+     * failed. The listener is only notified for the current batch. Listeners are notified in the order in which they
+     * have been registered.
+     *
+     * @param listener The listener to notify of the completion of the current batch
+     */
+    public void registerListener(TransactionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Notifies the registered listeners that the current transactional batch is about to be committed.
+     */
+    protected void notifyPrepareCommit() {
+        // listeners may register other listeners while being notified
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onPrepareCommit(this);
+        }
+    }
+
+    /**
+     * Notifies the registered listeners that the current transactional batch has failed, and removes them. Exceptions
+     * thrown by listeners are ignored, to make sure all listeners are notified.
+     */
+    protected void notifyRollback() {
+        List<TransactionListener> failedListeners = new ArrayList<TransactionListener>(listeners);
+        listeners.clear();
+        for (TransactionListener listener : failedListeners) {
+            try {
+                listener.onRollback(this);
+            } catch (RuntimeException e) {
+                logger.warn("A TransactionListener threw an exception while being notified of a rollback.", e);
+            }
+        }
     }
 
     /**
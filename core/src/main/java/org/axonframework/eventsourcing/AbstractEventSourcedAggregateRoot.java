@@ -17,7 +17,6 @@
 package org.axonframework.eventsourcing;
 
 import org.axonframework.common.Assert;
-import org.axonframework.common.ReflectionUtils;
 import org.axonframework.domain.AbstractAggregateRoot;
 import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.DomainEventStream;
@@ -39,6 +38,7 @@ public abstract class AbstractEventSourcedAggregateRoot extends AbstractAggregat
         implements EventSourcedAggregateRoot {
 
     private static final long serialVersionUID = 5868786029296883724L;
+    private transient ChildEntityInspector childEntityInspector;
 
     /**
      * {@inheritDoc}
@@ -106,7 +106,7 @@ public abstract class AbstractEventSourcedAggregateRoot extends AbstractAggregat
      * Returns a list of event sourced entities directly referenced by the aggregate root.
      * <p/>
      * The default implementation uses reflection to find references to {@link AbstractEventSourcedEntity}
-     * implementations.
+     * implementations. The fields that may contain these references are resolved once for each aggregate type.
      * <p/>
      * It will look for entities: <ul><li> directly referenced in a field;<li> inside fields containing an {@link
      * Iterable};<li>inside both they keys and the values of fields containing a {@link java.util.Map}</ul>
@@ -118,7 +118,10 @@ public abstract class AbstractEventSourcedAggregateRoot extends AbstractAggregat
      * @return a list of event sourced entities contained in this aggregate
      */
     protected Collection<AbstractEventSourcedEntity> getChildEntities() {
-        return ReflectionUtils.findFieldValuesOfType(this, AbstractEventSourcedEntity.class);
+        if (childEntityInspector == null) {
+            childEntityInspector = ChildEntityInspector.getInstance(getClass());
+        }
+        return childEntityInspector.findChildEntities(this);
     }
 
     /**
@@ -16,7 +16,6 @@
 
 package org.axonframework.eventsourcing;
 
-import org.axonframework.common.ReflectionUtils;
 import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.MetaData;
 
@@ -33,12 +32,13 @@ import java.util.Collection;
 public abstract class AbstractEventSourcedEntity {
 
     private volatile AbstractEventSourcedAggregateRoot aggregateRoot;
+    private transient ChildEntityInspector childEntityInspector;
 
     /**
      * Returns a list of event sourced entities directly referenced by this entity.
      * <p/>
      * The default implementation uses reflection to find references to <code>AbstractEventSourcedEntity</code>
-     * implementations.
+     * implementations. The fields that may contain these references are resolved once for each entity type.
      * <p/>
      * It will look for them in the following locations: <ul><li> directly referenced in a field;<li> inside fields
      * containing an {@link Iterable};<li>inside both they keys and the values of fields containing a {@link
@@ -47,7 +47,10 @@ public abstract class AbstractEventSourcedEntity {
      * @return a list of event sourced entities contained in this aggregate
      */
     protected Collection<AbstractEventSourcedEntity> getChildEntities() {
-        return ReflectionUtils.findFieldValuesOfType(this, AbstractEventSourcedEntity.class);
+        if (childEntityInspector == null) {
+            childEntityInspector = ChildEntityInspector.getInstance(getClass());
+        }
+        return childEntityInspector.findChildEntities(this);
     }
 
     /**
@@ -0,0 +1,584 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+import net.sf.jsr107cache.Cache;
+import net.sf.jsr107cache.CacheEntry;
+import net.sf.jsr107cache.CacheListener;
+import net.sf.jsr107cache.CacheStatistics;
+import org.axonframework.common.Assert;
+import org.axonframework.common.CacheEntryWeigher;
+import org.axonframework.monitoring.jmx.JmxConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cache implementation that keeps a bounded number of aggregates in memory. When the maximum size of the cache is
+ * exceeded, the least recently used entries are evicted. Optionally, entries that haven't been accessed for a
+ * configured amount of time (time-to-idle) are evicted as well.
+ * <p/>
+ * By default, each entry counts as one towards the maximum size of the cache. A {@link CacheEntryWeigher} may be
+ * provided to assign a different weight to each entry, in which case the maximum size of the cache is the maximum
+ * total weight of its entries.
+ * <p/>
+ * The cache is divided in a number of segments, each guarded by its own lock and each holding an equal share of the
+ * maximum size. This allows threads accessing different segments to proceed concurrently. As a consequence, entries
+ * may be evicted from one segment while others still have room left.
+ * <p/>
+ * Statistics about hits, misses, evictions and load times are exposed as an MBean, using the {@link
+ * BoundedAggregateCacheStatisticsMXBean} interface. Each instance registers its own MBean, which is unregistered when
+ * the cache is {@link #close() closed}. Listeners registered with the cache are notified of evictions and
+ * removals, allowing the {@link EventCountSnapshotterTrigger} to clean up the counters of evicted aggregates.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class BoundedAggregateCache implements Cache {
+
+    private static final int DEFAULT_SEGMENT_COUNT = 16;
+    private static final CacheEntryWeigher UNIT_WEIGHER = new CacheEntryWeigher() {
+        @Override
+        public long weigh(Object key, Object value) {
+            return 1;
+        }
+    };
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final CacheEntryWeigher weigher;
+    private final BoundedAggregateCacheStatistics statistics = new BoundedAggregateCacheStatistics(this);
+    private final List<CacheListener> listeners = new CopyOnWriteArrayList<CacheListener>();
+    private final String mBeanName;
+    private volatile long timeToIdle;
+
+    /**
+     * Initializes a cache that holds at most <code>maximumSize</code> entries. The statistics of the cache are
+     * registered as an MBean.
+     *
+     * @param maximumSize The maximum number of entries in the cache
+     */
+    public BoundedAggregateCache(long maximumSize) {
+        this(maximumSize, UNIT_WEIGHER);
+    }
+
+    /**
+     * Initializes a cache that holds entries up to a total weight of <code>maximumWeight</code>, where the weight of
+     * each entry is calculated by the given <code>weigher</code>. The statistics of the cache are registered as an
+     * MBean.
+     *
+     * @param maximumWeight The maximum total weight of the entries in the cache
+     * @param weigher       The weigher calculating the weight of each entry
+     */
+    public BoundedAggregateCache(long maximumWeight, CacheEntryWeigher weigher) {
+        this(maximumWeight, weigher, DEFAULT_SEGMENT_COUNT, true);
+    }
+
+    /**
+     * Initializes a cache that holds entries up to a total weight of <code>maximumWeight</code>, where the weight of
+     * each entry is calculated by the given <code>weigher</code>. The cache is divided in at least
+     * <code>segmentCount</code> segments, rounded up to the next power of two.
+     *
+     * @param maximumWeight  The maximum total weight of the entries in the cache
+     * @param weigher        The weigher calculating the weight of each entry
+     * @param segmentCount   The minimum number of segments to divide the cache in
+     * @param registerMBeans true to register the mbeans, false for not registering them.
+     */
+    public BoundedAggregateCache(long maximumWeight, CacheEntryWeigher weigher, int segmentCount,
+                                 boolean registerMBeans) {
+        Assert.isTrue(maximumWeight > 0, "The maximum weight must be a positive number");
+        Assert.isTrue(segmentCount > 0, "The segment count must be a positive number");
+        Assert.notNull(weigher, "The weigher may not be null");
+        int size = 1;
+        while (size < segmentCount) {
+            size <<= 1;
+        }
+        this.segments = new Segment[size];
+        long maximumWeightPerSegment = Math.max(1, (maximumWeight + size - 1) / size);
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment(maximumWeightPerSegment);
+        }
+        this.segmentMask = size - 1;
+        this.weigher = weigher;
+        if (registerMBeans) {
+            mBeanName = "BoundedAggregateCache@" + Integer.toHexString(System.identityHashCode(this));
+            JmxConfiguration.getInstance().registerMBean(statistics, getClass(), mBeanName);
+        } else {
+            mBeanName = null;
+        }
+    }
+
+    /**
+     * Unregisters the MBean exposing the statistics of this cache, if it was registered. As the MBean refers to the
+     * cache, the cache cannot be garbage collected until it has been closed.
+     */
+    public void close() {
+        if (mBeanName != null) {
+            JmxConfiguration.getInstance().unregisterMBean(getClass(), mBeanName);
+        }
+    }
+
+    /**
+     * Sets the time, in milliseconds, after which entries that haven't been accessed are evicted. A value of zero or
+     * less disables time-to-idle eviction. Defaults to 0.
+     *
+     * @param timeToIdleMillis the time-to-idle of entries in milliseconds
+     */
+    public void setTimeToIdle(long timeToIdleMillis) {
+        this.timeToIdle = timeToIdleMillis;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Segment segment = segmentFor(key);
+        long now = System.currentTimeMillis();
+        Object value = null;
+        boolean expired = false;
+        synchronized (segment) {
+            // removing and re-adding the entry moves it to the end of the access order
+            Entry entry = segment.entries.remove(key);
+            if (entry != null) {
+                if (isExpired(entry, now)) {
+                    segment.weight -= entry.weight;
+                    expired = true;
+                } else {
+                    segment.entries.put(key, entry);
+                    entry.recordAccess(now);
+                    value = entry.value;
+                }
+            }
+        }
+        if (expired) {
+            statistics.recordExpiration();
+            notifyEvicted(Collections.singletonList(key));
+        }
+        if (value == null) {
+            statistics.recordMiss();
+        } else {
+            statistics.recordHit();
+        }
+        return value;
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        Segment segment = segmentFor(key);
+        long now = System.currentTimeMillis();
+        Entry newEntry = new Entry(key, value, weigher.weigh(key, value), now);
+        Object previousValue;
+        List<Object> evictedKeys = new ArrayList<Object>();
+        synchronized (segment) {
+            Entry previous = segment.removeEntry(key);
+            previousValue = previous == null ? null : previous.value;
+            segment.entries.put(key, newEntry);
+            segment.weight += newEntry.weight;
+            Iterator<Entry> iterator = segment.entries.values().iterator();
+            // the iterator returns the least recently accessed entries first
+            while (iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                boolean expired = isExpired(eldest, now);
+                if (!expired && segment.weight <= segment.maximumWeight) {
+                    break;
+                }
+                iterator.remove();
+                segment.weight -= eldest.weight;
+                evictedKeys.add(eldest.key);
+                if (expired) {
+                    statistics.recordExpiration();
+                } else {
+                    statistics.recordEviction();
+                }
+            }
+        }
+        for (CacheListener listener : listeners) {
+            listener.onPut(key);
+        }
+        notifyEvicted(evictedKeys);
+        return previousValue;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        Segment segment = segmentFor(key);
+        Entry removed;
+        synchronized (segment) {
+            removed = segment.removeEntry(key);
+        }
+        if (removed == null) {
+            return null;
+        }
+        for (CacheListener listener : listeners) {
+            listener.onRemove(key);
+        }
+        return removed.value;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * In contrast to {@link #get(Object)}, this method does not affect the cache statistics.
+     */
+    @Override
+    public Object peek(Object key) {
+        Entry entry = peekEntry(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public CacheEntry getCacheEntry(Object key) {
+        return peekEntry(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return peekEntry(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Entry entry : segment.entries.values()) {
+                    if (!isExpired(entry, now) && entry.value.equals(value)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Map getAll(Collection keys) {
+        Map<Object, Object> result = new HashMap<Object, Object>();
+        for (Object key : keys) {
+            Object value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This cache does not support loading of entries. This method does nothing.
+     */
+    @Override
+    public void load(Object key) {
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This cache does not support loading of entries. This method does nothing.
+     */
+    @Override
+    public void loadAll(Collection keys) {
+    }
+
+    @Override
+    public void putAll(Map entries) {
+        for (Object entry : entries.entrySet()) {
+            put(((Map.Entry) entry).getKey(), ((Map.Entry) entry).getValue());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation evicts all entries that haven't been accessed within the configured time-to-idle.
+     */
+    @Override
+    public void evict() {
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            List<Object> evictedKeys = new ArrayList<Object>();
+            synchronized (segment) {
+                Iterator<Entry> iterator = segment.entries.values().iterator();
+                while (iterator.hasNext()) {
+                    Entry eldest = iterator.next();
+                    if (!isExpired(eldest, now)) {
+                        break;
+                    }
+                    iterator.remove();
+                    segment.weight -= eldest.weight;
+                    evictedKeys.add(eldest.key);
+                    statistics.recordExpiration();
+                }
+            }
+            notifyEvicted(evictedKeys);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.weight = 0;
+            }
+        }
+        for (CacheListener listener : listeners) {
+            listener.onClear();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The returned set is an unmodifiable snapshot of the keys in the cache.
+     */
+    @Override
+    public Set keySet() {
+        Set<Object> keys = new HashSet<Object>();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                keys.addAll(segment.entries.keySet());
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The returned collection is an unmodifiable snapshot of the values in the cache.
+     */
+    @Override
+    public Collection values() {
+        List<Object> values = new ArrayList<Object>();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Entry entry : segment.entries.values()) {
+                    values.add(entry.value);
+                }
+            }
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The returned set is an unmodifiable snapshot of the entries in the cache.
+     */
+    @Override
+    public Set entrySet() {
+        Set<Entry> entries = new HashSet<Entry>();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entries.addAll(segment.entries.values());
+            }
+        }
+        return Collections.unmodifiableSet(entries);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void addListener(CacheListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(CacheListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the total weight of the entries in the cache.
+     *
+     * @return the total weight of the entries in the cache
+     */
+    long getWeight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Records the time it took to load an aggregate that was not available in the cache.
+     *
+     * @param loadTimeNanos the time it took to load the aggregate, in nanoseconds
+     */
+    void recordLoadTime(long loadTimeNanos) {
+        statistics.recordLoad(loadTimeNanos);
+    }
+
+    private Entry peekEntry(Object key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Entry entry = segment.entries.get(key);
+            return entry == null || isExpired(entry, System.currentTimeMillis()) ? null : entry;
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        long currentTimeToIdle = timeToIdle;
+        return currentTimeToIdle > 0 && now - entry.lastAccessTime > currentTimeToIdle;
+    }
+
+    private void notifyEvicted(List<Object> evictedKeys) {
+        for (Object evictedKey : evictedKeys) {
+            for (CacheListener listener : listeners) {
+                listener.onEvict(evictedKey);
+            }
+        }
+    }
+
+    private Segment segmentFor(Object key) {
+        int hash = key.hashCode();
+        // spread the higher bits, as the mask only takes the lower bits into account
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return segments[hash & segmentMask];
+    }
+
+    private static final class Segment {
+
+        // entries are moved to the end when accessed, meaning the least recently accessed entries come first
+        private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<Object, Entry>();
+        private final long maximumWeight;
+        private long weight;
+
+        private Segment(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        private Entry removeEntry(Object key) {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                weight -= removed.weight;
+            }
+            return removed;
+        }
+    }
+
+    private static final class Entry implements CacheEntry {
+
+        private final Object key;
+        private final Object value;
+        private final long weight;
+        private final long creationTime;
+        private volatile long lastAccessTime;
+        private volatile int hits;
+
+        private Entry(Object key, Object value, long weight, long creationTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.creationTime = creationTime;
+            this.lastAccessTime = creationTime;
+        }
+
+        // guarded by the lock of the segment containing this entry
+        private void recordAccess(long now) {
+            lastAccessTime = now;
+            hits++;
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException("Cache entries cannot be modified");
+        }
+
+        @Override
+        public int getHits() {
+            return hits;
+        }
+
+        @Override
+        public long getLastAccessTime() {
+            return lastAccessTime;
+        }
+
+        @Override
+        public long getLastUpdateTime() {
+            return creationTime;
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public long getExpirationTime() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public long getVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public long getCost() {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+import net.sf.jsr107cache.CacheStatistics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics object to store information about the use of a {@link BoundedAggregateCache}. The same information is
+ * made available through the {@link CacheStatistics} interface of the cache itself.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class BoundedAggregateCacheStatistics implements BoundedAggregateCacheStatisticsMXBean, CacheStatistics {
+
+    private final BoundedAggregateCache cache;
+    private final AtomicLong hitCounter = new AtomicLong();
+    private final AtomicLong missCounter = new AtomicLong();
+    private final AtomicLong evictionCounter = new AtomicLong();
+    private final AtomicLong expirationCounter = new AtomicLong();
+    private final AtomicLong loadCounter = new AtomicLong();
+    private final AtomicLong totalLoadTime = new AtomicLong();
+
+    /**
+     * Creates an instance of this statistics MBean for the given <code>cache</code>.
+     *
+     * @param cache the cache to keep statistics for
+     */
+    BoundedAggregateCacheStatistics(BoundedAggregateCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public int getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getWeight() {
+        return cache.getWeight();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCounter.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCounter.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = hitCounter.get();
+        long total = hits + missCounter.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCounter.get();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return expirationCounter.get();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return loadCounter.get();
+    }
+
+    @Override
+    public double getAverageLoadTime() {
+        long loads = loadCounter.get();
+        if (loads == 0) {
+            return 0;
+        }
+        return (double) totalLoadTime.get() / loads / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public void resetStatistics() {
+        hitCounter.set(0);
+        missCounter.set(0);
+        evictionCounter.set(0);
+        expirationCounter.set(0);
+        loadCounter.set(0);
+        totalLoadTime.set(0);
+    }
+
+    /*----- end of jmx enabled methods -----*/
+
+    @Override
+    public int getStatisticsAccuracy() {
+        return STATISTICS_ACCURACY_BEST_EFFORT;
+    }
+
+    @Override
+    public int getObjectCount() {
+        return getSize();
+    }
+
+    @Override
+    public int getCacheHits() {
+        return (int) Math.min(Integer.MAX_VALUE, getHitCount());
+    }
+
+    @Override
+    public int getCacheMisses() {
+        return (int) Math.min(Integer.MAX_VALUE, getMissCount());
+    }
+
+    @Override
+    public void clearStatistics() {
+        resetStatistics();
+    }
+
+    /**
+     * Indicate that an entry was found in the cache.
+     */
+    void recordHit() {
+        hitCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate that an entry was not found in the cache.
+     */
+    void recordMiss() {
+        missCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate that an entry was evicted because the maximum size of the cache was exceeded.
+     */
+    void recordEviction() {
+        evictionCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate that an entry was evicted because it wasn't accessed within the time-to-idle.
+     */
+    void recordExpiration() {
+        expirationCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate that an aggregate that wasn't found in the cache was loaded in the given amount of time.
+     *
+     * @param loadTimeNanos the time it took to load the aggregate, in nanoseconds
+     */
+    void recordLoad(long loadTimeNanos) {
+        loadCounter.incrementAndGet();
+        totalLoadTime.addAndGet(loadTimeNanos);
+    }
+}
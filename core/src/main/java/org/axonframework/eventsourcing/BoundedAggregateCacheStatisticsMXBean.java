@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+/**
+ * Interface describing the management information exposed by the {@link BoundedAggregateCache}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface BoundedAggregateCacheStatisticsMXBean {
+
+    /**
+     * Returns the number of entries currently in the cache.
+     *
+     * @return int representing the number of entries in the cache
+     */
+    int getSize();
+
+    /**
+     * Returns the total weight of the entries currently in the cache. Unless a weigher has been configured, this is
+     * equal to the number of entries.
+     *
+     * @return long representing the total weight of the entries in the cache
+     */
+    long getWeight();
+
+    /**
+     * Returns the number of times an aggregate was found in the cache.
+     *
+     * @return long representing the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of times an aggregate was not found in the cache.
+     *
+     * @return long representing the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Returns the ratio of cache lookups that resulted in a hit.
+     *
+     * @return double between 0 and 1 representing the hit ratio
+     */
+    double getHitRatio();
+
+    /**
+     * Returns the number of entries evicted because the maximum size of the cache was exceeded.
+     *
+     * @return long representing the number of evicted entries
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the number of entries evicted because they weren't accessed within the time-to-idle.
+     *
+     * @return long representing the number of expired entries
+     */
+    long getExpirationCount();
+
+    /**
+     * Returns the number of aggregates loaded by the repository because they were not found in the cache.
+     *
+     * @return long representing the number of aggregates loaded
+     */
+    long getLoadCount();
+
+    /**
+     * Returns the average time it took to load an aggregate that was not found in the cache, in milliseconds.
+     *
+     * @return double representing the average load time in milliseconds
+     */
+    double getAverageLoadTime();
+
+    /**
+     * Resets all counters to zero.
+     */
+    void resetStatistics();
+}
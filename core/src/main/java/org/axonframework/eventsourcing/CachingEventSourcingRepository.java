@@ -50,6 +50,17 @@ public class CachingEventSourcingRepository<T extends EventSourcedAggregateRoot>
         super(aggregateFactory, LockingStrategy.PESSIMISTIC);
     }
 
+    /**
+     * Initializes a repository with a the given <code>aggregateFactory</code> and a {@link LockingStrategy#STRIPED
+     * striped} locking strategy, using at least the given <code>lockStripeCount</code> number of locks.
+     *
+     * @param aggregateFactory The factory for new aggregate instances
+     * @param lockStripeCount  The minimum number of locks to use
+     */
+    public CachingEventSourcingRepository(AggregateFactory<T> aggregateFactory, int lockStripeCount) {
+        super(aggregateFactory, lockStripeCount);
+    }
+
     /**
      * Saves the aggregate and stores it in the cache (if configured) for fast retrieval. If an exception occurs while
      * saving the aggregate, the related cache entry is invalidated immediately.
@@ -92,7 +103,11 @@ public class CachingEventSourcingRepository<T extends EventSourcedAggregateRoot>
     public T doLoad(Object aggregateIdentifier, Long expectedVersion) {
         T aggregate = (T) cache.get(aggregateIdentifier);
         if (aggregate == null) {
+            long start = System.nanoTime();
             aggregate = super.doLoad(aggregateIdentifier, expectedVersion);
+            if (cache instanceof BoundedAggregateCache) {
+                ((BoundedAggregateCache) cache).recordLoadTime(System.nanoTime() - start);
+            }
         } else if (aggregate.isDeleted()) {
             throw new AggregateDeletedException(aggregateIdentifier);
         }
@@ -102,6 +117,9 @@ public class CachingEventSourcingRepository<T extends EventSourcedAggregateRoot>
 
     /**
      * Set the cache to use for this repository. If a cache is not set, caching is disabled for this implementation.
+     * <p/>
+     * When a {@link BoundedAggregateCache} is used, the time it takes to load aggregates that are not in the cache is
+     * recorded in the cache's statistics.
      *
      * @param cache the cache to use
      */
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+import org.axonframework.common.ClassCache;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.axonframework.common.ReflectionUtils.ensureAccessible;
+import static org.axonframework.common.ReflectionUtils.fieldsOf;
+import static org.axonframework.common.ReflectionUtils.getFieldValue;
+
+/**
+ * Holds the fields of a type that may reference {@link AbstractEventSourcedEntity} instances. Each type is inspected
+ * only once, after which the child entities of an instance are found by reading the values of the pre-resolved
+ * fields.
+ * <p/>
+ * Entities are found in fields declared with an entity type, as well as inside fields declared as {@link Iterable}
+ * and inside both the keys and the values of fields declared as {@link Map}.
+ * <p/>
+ * Inspectors are held in a {@link ClassCache}, so that they do not keep the inspected types (and their class loader)
+ * in memory indefinitely.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class ChildEntityInspector {
+
+    private static final ClassCache<ChildEntityInspector> INSPECTORS = new ClassCache<ChildEntityInspector>() {
+        @Override
+        protected ChildEntityInspector computeValue(Class<?> type) {
+            return new ChildEntityInspector(type);
+        }
+    };
+
+    private final Field[] entityFields;
+    private final Field[] iterableFields;
+    private final Field[] mapFields;
+
+    /**
+     * Returns the inspector for the given <code>type</code>. The type is inspected when the inspector is requested
+     * for the first time.
+     *
+     * @param type The type to find the entity fields of
+     * @return the inspector for the given type
+     */
+    static ChildEntityInspector getInstance(Class<?> type) {
+        return INSPECTORS.get(type);
+    }
+
+    private ChildEntityInspector(Class<?> type) {
+        List<Field> entities = new ArrayList<Field>();
+        List<Field> iterables = new ArrayList<Field>();
+        List<Field> maps = new ArrayList<Field>();
+        for (Field field : fieldsOf(type)) {
+            if (AbstractEventSourcedEntity.class.isAssignableFrom(field.getType())) {
+                entities.add(field);
+            } else if (Iterable.class.isAssignableFrom(field.getType())) {
+                iterables.add(field);
+            } else if (Map.class.isAssignableFrom(field.getType())) {
+                maps.add(field);
+            }
+        }
+        this.entityFields = accessible(entities);
+        this.iterableFields = accessible(iterables);
+        this.mapFields = accessible(maps);
+    }
+
+    private static Field[] accessible(List<Field> fields) {
+        for (Field field : fields) {
+            ensureAccessible(field);
+        }
+        return fields.toArray(new Field[fields.size()]);
+    }
+
+    /**
+     * Returns the entities referenced by the given <code>instance</code>, which must be of the type this inspector
+     * was created for.
+     *
+     * @param instance The instance to find the child entities of
+     * @return the entities referenced by the given instance. Can be empty. Is never <code>null</code>.
+     */
+    Collection<AbstractEventSourcedEntity> findChildEntities(Object instance) {
+        Set<AbstractEventSourcedEntity> children = new HashSet<AbstractEventSourcedEntity>();
+        for (Field field : entityFields) {
+            Object fieldValue = getFieldValue(field, instance);
+            if (fieldValue != null) {
+                children.add((AbstractEventSourcedEntity) fieldValue);
+            }
+        }
+        for (Field field : iterableFields) {
+            Iterable<?> iterable = (Iterable<?>) getFieldValue(field, instance);
+            if (iterable != null) {
+                addEntities(iterable, children);
+            }
+        }
+        for (Field field : mapFields) {
+            Map<?, ?> map = (Map<?, ?>) getFieldValue(field, instance);
+            if (map != null) {
+                addEntities(map.keySet(), children);
+                addEntities(map.values(), children);
+            }
+        }
+        return children;
+    }
+
+    private static void addEntities(Iterable<?> candidates, Set<AbstractEventSourcedEntity> children) {
+        for (Object candidate : candidates) {
+            if (candidate instanceof AbstractEventSourcedEntity) {
+                children.add((AbstractEventSourcedEntity) candidate);
+            }
+        }
+    }
+}
@@ -102,6 +102,30 @@ public class EventSourcingRepository<T extends EventSourcedAggregateRoot> extend
         this(new GenericAggregateFactory<T>(aggregateType), lockingStrategy);
     }
 
+    /**
+     * Initialize a repository with a {@link LockingStrategy#STRIPED striped} locking strategy, using at least the
+     * given <code>lockStripeCount</code> number of locks.
+     *
+     * @param aggregateFactory The factory for new aggregate instances
+     * @param lockStripeCount  the minimum number of locks to use
+     */
+    public EventSourcingRepository(final AggregateFactory<T> aggregateFactory, final int lockStripeCount) {
+        super(lockStripeCount);
+        this.aggregateFactory = aggregateFactory;
+    }
+
+    /**
+     * Initialize a repository with a {@link LockingStrategy#STRIPED striped} locking strategy, using at least the
+     * given <code>lockStripeCount</code> number of locks and a GenericAggregateFactory to create new aggregate
+     * instances.
+     *
+     * @param aggregateType   The type of aggregate to store in this repository
+     * @param lockStripeCount the minimum number of locks to use
+     */
+    public EventSourcingRepository(final Class<T> aggregateType, final int lockStripeCount) {
+        this(new GenericAggregateFactory<T>(aggregateType), lockStripeCount);
+    }
+
     /**
      * Perform the actual saving of the aggregate. All necessary locks have been verified.
      *
@@ -94,6 +94,24 @@ public class HybridJpaRepository<T extends EventSourcedAggregateRoot> extends Ge
         this.aggregateTypeIdentifier = aggregateTypeIdentifier;
     }
 
+    /**
+     * Initializes a Hybrid Repository that stored entities of the given <code>aggregateType</code> and a {@link
+     * LockingStrategy#STRIPED striped} locking strategy, using at least the given <code>lockStripeCount</code> number
+     * of locks.
+     *
+     * @param entityManagerProvider   The EntityManagerProvider providing the EntityManager instance for this
+     *                                repository
+     * @param aggregateType           The type of aggregate stored in this repository.
+     * @param aggregateTypeIdentifier The type identifier to store events with
+     * @param lockStripeCount         The minimum number of locks to use
+     */
+    public HybridJpaRepository(EntityManagerProvider entityManagerProvider,
+                               Class<T> aggregateType, String aggregateTypeIdentifier,
+                               int lockStripeCount) {
+        super(entityManagerProvider, aggregateType, lockStripeCount);
+        this.aggregateTypeIdentifier = aggregateTypeIdentifier;
+    }
+
     @Override
     protected void doDeleteWithLock(T aggregate) {
         if (eventStore != null) {
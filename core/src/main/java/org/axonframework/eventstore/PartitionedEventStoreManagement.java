@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.common.Assert;
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.monitoring.jmx.JmxConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * EventStoreManagement implementation that visits the events of another EventStoreManagement instance using multiple
+ * threads. Events are read by the thread invoking {@link #visitEvents(EventVisitor)} and are assigned to one of a
+ * fixed number of partitions, based on the hash of their aggregate identifier. Each partition is processed by its own
+ * worker, which means that the events of a single aggregate are visited in the order provided by the delegate
+ * EventStoreManagement, but not necessarily in absolute chronological order with respect to events of other
+ * aggregates.
+ * <p/>
+ * The given visitor is invoked concurrently by each of the workers, and must therefore be thread safe. The given
+ * executor must be able to run at least as many tasks in parallel as there are partitions. When the executor is a
+ * {@link ThreadPoolExecutor}, its pool size is verified before the replay starts. Reading of events only starts when
+ * the workers of all partitions are running. When they do not start within the {@link #setStartTimeout(long) start
+ * timeout}, the replay is aborted.
+ * <p/>
+ * Processing stops when the visitor throws an exception or error. Events that have already been assigned to a
+ * partition are not processed anymore, and the exception is rethrown on the thread that invoked {@link
+ * #visitEvents(EventVisitor)}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class PartitionedEventStoreManagement implements EventStoreManagement {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedEventStoreManagement.class);
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final DomainEventMessage END_OF_STREAM = new GenericDomainEventMessage<Object>("", 0, "");
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final long DEFAULT_START_TIMEOUT_MILLIS = 10000;
+
+    private final EventStoreManagement delegate;
+    private final Executor executor;
+    private final int partitionCount;
+    private final PartitionedEventStoreManagementStatistics statistics;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private long startTimeoutMillis = DEFAULT_START_TIMEOUT_MILLIS;
+
+    /**
+     * Initializes the PartitionedEventStoreManagement to visit the events of given <code>delegate</code> using the
+     * given <code>executor</code> to process <code>partitionCount</code> partitions in parallel. The MBean exposing
+     * the statistics of this instance is registered with the {@link JmxConfiguration}.
+     *
+     * @param delegate       The EventStoreManagement providing the events to visit
+     * @param executor       The executor that processes the partitions
+     * @param partitionCount The number of partitions to process in parallel
+     */
+    public PartitionedEventStoreManagement(EventStoreManagement delegate, Executor executor, int partitionCount) {
+        this(delegate, executor, partitionCount, true);
+    }
+
+    /**
+     * Initializes the PartitionedEventStoreManagement to visit the events of given <code>delegate</code> using the
+     * given <code>executor</code> to process <code>partitionCount</code> partitions in parallel. The registration of
+     * the MBean exposing the statistics of this instance is optional.
+     *
+     * @param delegate       The EventStoreManagement providing the events to visit
+     * @param executor       The executor that processes the partitions
+     * @param partitionCount The number of partitions to process in parallel
+     * @param registerMBeans true to register the mbeans, false for not registering them.
+     */
+    public PartitionedEventStoreManagement(EventStoreManagement delegate, Executor executor, int partitionCount,
+                                           boolean registerMBeans) {
+        Assert.isTrue(partitionCount > 0, "The number of partitions must be at least 1");
+        this.delegate = delegate;
+        this.executor = executor;
+        this.partitionCount = partitionCount;
+        this.statistics = new PartitionedEventStoreManagementStatistics(partitionCount);
+        if (registerMBeans) {
+            JmxConfiguration.getInstance().registerMBean(statistics, getClass());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This method returns when all events have been processed by the workers of each partition.
+     *
+     * @throws IllegalStateException if the executor is a ThreadPoolExecutor that cannot run a worker for each
+     *                               partition in parallel
+     * @throws EventStoreException   if the workers of the partitions could not be started
+     */
+    @Override
+    public void visitEvents(EventVisitor visitor) {
+        checkExecutorCapacity();
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        CountDownLatch started = new CountDownLatch(partitionCount);
+        CountDownLatch completed = new CountDownLatch(partitionCount);
+        Partition[] partitions = new Partition[partitionCount];
+        int submitted = 0;
+        boolean reading = false;
+        statistics.replayStarted();
+        try {
+            for (; submitted < partitionCount; submitted++) {
+                partitions[submitted] = new Partition(submitted, visitor, failure, started, completed);
+                executor.execute(partitions[submitted]);
+            }
+            awaitStart(started);
+            reading = true;
+            delegate.visitEvents(new PartitioningEventVisitor(partitions, failure));
+        } catch (RuntimeException e) {
+            // when reading was aborted because of a failing visitor, that failure is rethrown instead
+            if (failure.get() == null) {
+                throw e;
+            }
+        } finally {
+            for (int i = 0; i < submitted; i++) {
+                partitions[i].endOfStream();
+            }
+            // workers only use the visitor once reading has started. Others may never get a thread to run on.
+            if (reading) {
+                awaitCompletion(completed);
+            }
+            statistics.replayEnded();
+        }
+        rethrow(failure.get());
+    }
+
+    /**
+     * Returns the statistics of the replays performed by this instance.
+     *
+     * @return the statistics of the replays performed by this instance
+     */
+    public PartitionedEventStoreManagementStatisticsMXBean getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets the maximum number of events that may be waiting for processing in each partition. When a partition's
+     * queue is full, reading of events is suspended until space becomes available. Defaults to {@value
+     * #DEFAULT_QUEUE_CAPACITY}.
+     *
+     * @param queueCapacity the maximum number of events waiting for processing per partition
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Sets the amount of time to wait for the workers of all partitions to start, before aborting the replay.
+     * Reading of events does not start before all workers are running, as events assigned to a partition without a
+     * running worker would never be processed. Defaults to {@value #DEFAULT_START_TIMEOUT_MILLIS} milliseconds.
+     *
+     * @param startTimeoutMillis the number of milliseconds to wait for the workers to start
+     */
+    public void setStartTimeout(long startTimeoutMillis) {
+        this.startTimeoutMillis = startTimeoutMillis;
+    }
+
+    private void checkExecutorCapacity() {
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            // a pool only creates threads beyond its core size when tasks cannot be queued
+            int capacity = pool.getQueue() instanceof SynchronousQueue
+                    ? pool.getMaximumPoolSize()
+                    : pool.getCorePoolSize();
+            if (capacity < partitionCount) {
+                throw new IllegalStateException(String.format(
+                        "The executor can run %s tasks in parallel, but a worker is needed for each of the %s "
+                                + "partitions", capacity, partitionCount));
+            }
+        }
+    }
+
+    private void awaitStart(CountDownLatch started) {
+        try {
+            if (!started.await(startTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new EventStoreException(String.format(
+                        "Replay aborted, as only %s of the %s partition workers were started within %s ms. "
+                                + "Make sure the executor can run a worker for each partition in parallel.",
+                        partitionCount - started.getCount(), partitionCount, startTimeoutMillis));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EventStoreException("Thread was interrupted while waiting for the partition workers to start",
+                                          e);
+        }
+    }
+
+    private void rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new EventStoreException("An error occurred while visiting an event", failure);
+        }
+    }
+
+    private void awaitCompletion(CountDownLatch completed) {
+        boolean interrupted = false;
+        while (completed.getCount() > 0) {
+            try {
+                completed.await();
+            } catch (InterruptedException e) {
+                // the partitions must finish to prevent them from using the visitor after returning
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class PartitioningEventVisitor implements EventVisitor {
+
+        private final Partition[] partitions;
+        private final AtomicReference<Throwable> failure;
+
+        private PartitioningEventVisitor(Partition[] partitions, AtomicReference<Throwable> failure) {
+            this.partitions = partitions;
+            this.failure = failure;
+        }
+
+        @Override
+        public void doWithEvent(DomainEventMessage domainEvent) {
+            if (failure.get() != null) {
+                throw new EventStoreException("Replay aborted, as an error occurred while visiting an event");
+            }
+            int hash = domainEvent.getAggregateIdentifier().hashCode();
+            partitions[Math.abs(hash % partitionCount)].enqueue(domainEvent);
+            statistics.recordReadEvent();
+        }
+    }
+
+    private final class Partition implements Runnable {
+
+        private final int partitionNumber;
+        private final BlockingQueue<DomainEventMessage> queue;
+        private final EventVisitor visitor;
+        private final AtomicReference<Throwable> failure;
+        private final CountDownLatch started;
+        private final CountDownLatch completed;
+        private volatile boolean terminated;
+
+        private Partition(int partitionNumber, EventVisitor visitor, AtomicReference<Throwable> failure,
+                          CountDownLatch started, CountDownLatch completed) {
+            this.partitionNumber = partitionNumber;
+            this.queue = new ArrayBlockingQueue<DomainEventMessage>(queueCapacity);
+            this.visitor = visitor;
+            this.failure = failure;
+            this.started = started;
+            this.completed = completed;
+        }
+
+        private void enqueue(DomainEventMessage event) {
+            try {
+                // a worker that has failed or terminated would never make space in the queue
+                while (!queue.offer(event, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null || terminated) {
+                        throw new EventStoreException("Replay aborted, as an error occurred while visiting an event");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EventStoreException("Thread was interrupted while waiting for space in a partition queue",
+                                              e);
+            }
+        }
+
+        private void endOfStream() {
+            boolean interrupted = false;
+            while (!terminated) {
+                try {
+                    if (queue.offer(END_OF_STREAM, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    // the partition must be notified, as the worker would wait for events indefinitely otherwise
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                DomainEventMessage event = nextEvent();
+                while (event != END_OF_STREAM) {
+                    // after a failure, the queue is drained to make sure the reading thread doesn't block
+                    if (failure.get() == null) {
+                        process(event);
+                    }
+                    event = nextEvent();
+                }
+            } catch (Throwable e) {
+                logger.error("The worker of partition [{}] terminated unexpectedly", partitionNumber, e);
+                failure.compareAndSet(null, e);
+            } finally {
+                terminated = true;
+                completed.countDown();
+            }
+        }
+
+        private void process(DomainEventMessage event) {
+            try {
+                visitor.doWithEvent(event);
+                statistics.recordProcessedEvent(partitionNumber);
+            } catch (Throwable e) {
+                logger.warn("Aborting replay, as the visitor failed to process event [{}] of aggregate [{}]",
+                            event.getIdentifier(), event.getAggregateIdentifier());
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        private DomainEventMessage nextEvent() {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    logger.warn("This thread has been interrupted, but the interruption has "
+                                        + "been ignored to prevent loss of events.");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Statistics object to store information about the progress of replays performed by the {@link
+ * PartitionedEventStoreManagement}. Counters are reset when a new replay is started.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class PartitionedEventStoreManagementStatistics implements PartitionedEventStoreManagementStatisticsMXBean {
+
+    private final AtomicLong readEventCounter = new AtomicLong(0);
+    private final AtomicLongArray processedEventCounters;
+    private volatile boolean replayInProgress;
+    private volatile long startTime;
+    private volatile long endTime;
+
+    /**
+     * Creates an instance of this statistics MBean for the given number of partitions.
+     *
+     * @param partitionCount the number of partitions to keep statistics for
+     */
+    PartitionedEventStoreManagementStatistics(int partitionCount) {
+        this.processedEventCounters = new AtomicLongArray(partitionCount);
+    }
+
+    @Override
+    public boolean isReplayInProgress() {
+        return replayInProgress;
+    }
+
+    @Override
+    public long getReadEventCount() {
+        return readEventCounter.get();
+    }
+
+    @Override
+    public long getProcessedEventCount() {
+        long total = 0;
+        for (int i = 0; i < processedEventCounters.length(); i++) {
+            total += processedEventCounters.get(i);
+        }
+        return total;
+    }
+
+    @Override
+    public long getLag() {
+        return Math.max(0, getReadEventCount() - getProcessedEventCount());
+    }
+
+    @Override
+    public long[] getProcessedEventCountPerPartition() {
+        long[] counts = new long[processedEventCounters.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = processedEventCounters.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public double getThroughput() {
+        long end = replayInProgress ? System.currentTimeMillis() : endTime;
+        long duration = end - startTime;
+        if (startTime == 0 || duration <= 0) {
+            return 0;
+        }
+        return getProcessedEventCount() * 1000D / duration;
+    }
+
+    /*----- end of jmx enabled methods -----*/
+
+    /**
+     * Indicate that a replay has started. All counters are reset.
+     */
+    void replayStarted() {
+        readEventCounter.set(0);
+        for (int i = 0; i < processedEventCounters.length(); i++) {
+            processedEventCounters.set(i, 0);
+        }
+        startTime = System.currentTimeMillis();
+        replayInProgress = true;
+    }
+
+    /**
+     * Indicate that a replay has ended, either because all events have been processed, or because of an error.
+     */
+    void replayEnded() {
+        endTime = System.currentTimeMillis();
+        replayInProgress = false;
+    }
+
+    /**
+     * Indicate that an event has been read from the event store.
+     */
+    void recordReadEvent() {
+        readEventCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate that an event has been processed by the worker of the given <code>partition</code>.
+     *
+     * @param partition the number of the partition that processed the event
+     */
+    void recordProcessedEvent(int partition) {
+        processedEventCounters.incrementAndGet(partition);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+/**
+ * Interface describing the management information exposed by the {@link PartitionedEventStoreManagement}. The
+ * counters relate to the last (or currently running) replay.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface PartitionedEventStoreManagementStatisticsMXBean {
+
+    /**
+     * Indicates whether a replay is currently in progress.
+     *
+     * @return <code>true</code> if a replay is in progress, otherwise <code>false</code>
+     */
+    boolean isReplayInProgress();
+
+    /**
+     * Returns the number of events read from the event store.
+     *
+     * @return long representing the number of events read
+     */
+    long getReadEventCount();
+
+    /**
+     * Returns the number of events processed by the visitor.
+     *
+     * @return long representing the number of events processed
+     */
+    long getProcessedEventCount();
+
+    /**
+     * Returns the number of events that have been read, but not processed yet.
+     *
+     * @return long representing the number of events waiting to be processed
+     */
+    long getLag();
+
+    /**
+     * Returns the number of events processed by the visitor for each of the partitions.
+     *
+     * @return an array containing the number of events processed, indexed by partition number
+     */
+    long[] getProcessedEventCountPerPartition();
+
+    /**
+     * Returns the average number of events processed per second.
+     *
+     * @return double representing the number of events processed per second
+     */
+    double getThroughput();
+}
@@ -134,6 +134,15 @@ public class SerializedDomainEventMessage<T> implements DomainEventMessage<T> {
         return serializedPayload.getType();
     }
 
+    /**
+     * Indicates whether the payload of this message has already been deserialized.
+     *
+     * @return <code>true</code> if the payload is deserialized, otherwise <code>false</code>
+     */
+    public boolean isPayloadDeserialized() {
+        return serializedPayload.isDeserialized();
+    }
+
     @Override
     public DomainEventMessage<T> withMetaData(Map<String, Object> newMetaData) {
         if (serializedPayload.isDeserialized()) {
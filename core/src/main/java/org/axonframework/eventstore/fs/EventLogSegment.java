@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.common.io.IOUtils;
+import org.axonframework.eventstore.EventStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * A single, memory mapped, file of a {@link SegmentedFileSystemEventStore}'s event log. Records are appended to the
+ * segment, each prefixed with a 4 byte length and a 4 byte CRC32 checksum of the record. Records start at offsets that
+ * are a multiple of 8. Since a newly mapped file is filled with zeroes, a zero length indicates the end of the records
+ * in the segment.
+ * <p/>
+ * When a segment is opened, the checksums of its records are verified. If the last record of the segment has been
+ * torn, for example because the operating system failed while writing it, the segment may be opened with torn
+ * record truncation enabled. This removes the torn record from the segment. Any other damage to the segment, such as
+ * a corrupt record followed by valid records, causes the segment to be refused.
+ * <p/>
+ * Appending records is not thread safe and must be synchronized externally. Records may be read concurrently with
+ * appends, provided that the offset of the record has been safely published to the reading thread.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class EventLogSegment {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLogSegment.class);
+
+    private static final int HEADER_SIZE = 8;
+    private static final int CHECKSUM_OFFSET = 4;
+    private static final int ALIGNMENT = 8;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private final CRC32 appendChecksum = new CRC32();
+    private final byte[] appendBuffer = new byte[4096];
+    private int writePosition;
+
+    /**
+     * Opens the segment stored in the given <code>file</code>, creating it if it doesn't exist. The file is mapped
+     * with at least the given <code>capacity</code>, or its current length if that is larger. The write position of
+     * the segment is placed after the last valid record found in the file.
+     * <p/>
+     * The checksums of the records starting before <code>verifiedLength</code> are not verified, as these records are
+     * known to be valid. If the segment ends with a torn record and <code>truncateTornRecord</code> is
+     * <code>true</code>, the torn record is removed from the segment.
+     *
+     * @param file               The file containing the segment
+     * @param capacity           The minimum capacity of the segment, in bytes
+     * @param verifiedLength     The number of bytes at the start of the segment known to contain valid records
+     * @param truncateTornRecord Whether to remove a torn record at the end of the segment
+     * @return the opened segment
+     *
+     * @throws IOException         when the file could not be opened or mapped
+     * @throws EventStoreException when the segment is corrupt
+     */
+    static EventLogSegment open(File file, int capacity, int verifiedLength, boolean truncateTornRecord)
+            throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            long size = Math.max(capacity, randomAccessFile.length());
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            EventLogSegment segment = new EventLogSegment(file, randomAccessFile, buffer);
+            segment.recover(verifiedLength, truncateTornRecord);
+            return segment;
+        } catch (IOException e) {
+            IOUtils.closeQuietly(randomAccessFile);
+            throw e;
+        } catch (RuntimeException e) {
+            IOUtils.closeQuietly(randomAccessFile);
+            throw e;
+        }
+    }
+
+    private EventLogSegment(File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer) {
+        this.file = file;
+        this.randomAccessFile = randomAccessFile;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Places the write position after the last valid record. Any data found after that position must be the remains
+     * of a torn record, which are removed if allowed. If a valid record is found after the write position, the
+     * segment is corrupt.
+     */
+    private void recover(int verifiedLength, boolean truncateTornRecord) {
+        int position = 0;
+        while (isValidRecord(position, position < verifiedLength)) {
+            position = endOfRecord(position, buffer.getInt(position));
+        }
+        this.writePosition = position;
+        int endOfData = endOfData(position);
+        if (endOfData > position) {
+            if (!truncateTornRecord || containsValidRecord(position + ALIGNMENT, endOfData)) {
+                throw corruptRecord(position);
+            }
+            logger.warn("Truncating torn record at offset {} of event log segment [{}].", position, file);
+            for (int i = position; i < endOfData; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Appends the given <code>record</code> to this segment, if there is enough room left to contain it.
+     * <p/>
+     * The position of the given buffer is not changed.
+     *
+     * @param record The bytes of the record to append
+     * @return the offset of the appended record, or <code>-1</code> if the segment doesn't have enough room left
+     */
+    int append(ByteBuffer record) {
+        int length = record.remaining();
+        if (!hasRoomFor(length)) {
+            return -1;
+        }
+        int offset = writePosition;
+        ByteBuffer source = record.duplicate();
+        ByteBuffer writeBuffer = buffer.duplicate();
+        writeBuffer.position(offset + HEADER_SIZE);
+        appendChecksum.reset();
+        while (source.hasRemaining()) {
+            int chunk = Math.min(source.remaining(), appendBuffer.length);
+            source.get(appendBuffer, 0, chunk);
+            appendChecksum.update(appendBuffer, 0, chunk);
+            writeBuffer.put(appendBuffer, 0, chunk);
+        }
+        buffer.putInt(offset + CHECKSUM_OFFSET, (int) appendChecksum.getValue());
+        // the length is written last, as it marks the record as present
+        buffer.putInt(offset, length);
+        writePosition = endOfRecord(offset, length);
+        return offset;
+    }
+
+    /**
+     * Returns the bytes of the record at the given <code>offset</code>.
+     *
+     * @param offset The offset of the record, as returned by {@link #append(java.nio.ByteBuffer)}
+     * @return the bytes of the record
+     *
+     * @throws EventStoreException when the record at the given offset is corrupt
+     */
+    byte[] readRecord(int offset) {
+        ByteBuffer readBuffer = buffer.duplicate();
+        int length = readBuffer.getInt(offset);
+        if (length <= 0 || offset + HEADER_SIZE + length > readBuffer.capacity()) {
+            throw corruptRecord(offset);
+        }
+        byte[] record = new byte[length];
+        readBuffer.position(offset + HEADER_SIZE);
+        readBuffer.get(record);
+        CRC32 checksum = new CRC32();
+        checksum.update(record);
+        if ((int) checksum.getValue() != readBuffer.getInt(offset + CHECKSUM_OFFSET)) {
+            throw corruptRecord(offset);
+        }
+        return record;
+    }
+
+    /**
+     * Returns the offset of the record following the record at the given <code>offset</code>, or <code>-1</code> if
+     * there is no record at the given offset.
+     *
+     * @param offset The offset of a record
+     * @return the offset of the next record, or <code>-1</code> if there is no record at the given offset
+     */
+    int nextRecordOffset(int offset) {
+        if (offset >= writePosition) {
+            return -1;
+        }
+        return endOfRecord(offset, buffer.getInt(offset));
+    }
+
+    /**
+     * Indicates whether a record of the given <code>recordLength</code> can be appended to this segment.
+     *
+     * @param recordLength The number of bytes of the record
+     * @return <code>true</code> if the record fits in this segment, otherwise <code>false</code>
+     */
+    boolean hasRoomFor(int recordLength) {
+        return (long) writePosition + requiredCapacity(recordLength) <= buffer.capacity();
+    }
+
+    /**
+     * Returns the offset at which the next record will be appended. This is also the number of bytes used in this
+     * segment.
+     *
+     * @return the offset at which the next record will be appended
+     */
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    /**
+     * Forces any changes made to this segment to be written to the storage device containing it.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Closes the file backing this segment. The memory mapping itself is released when the segment is garbage
+     * collected.
+     */
+    void close() {
+        IOUtils.closeQuietly(randomAccessFile);
+    }
+
+    /**
+     * Returns the name of the file backing this segment.
+     *
+     * @return the name of the file backing this segment
+     */
+    String getName() {
+        return file.getName();
+    }
+
+    /**
+     * Returns the number of bytes needed to store a record of the given <code>recordLength</code> in a segment.
+     *
+     * @param recordLength The length of the record
+     * @return the number of bytes needed to store the record
+     */
+    static int requiredCapacity(int recordLength) {
+        return align(HEADER_SIZE + recordLength);
+    }
+
+    private boolean isValidRecord(int offset, boolean verified) {
+        if (offset + HEADER_SIZE > buffer.capacity()) {
+            return false;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + HEADER_SIZE + length > buffer.capacity()) {
+            return false;
+        }
+        if (verified) {
+            return true;
+        }
+        ByteBuffer readBuffer = buffer.duplicate();
+        readBuffer.position(offset + HEADER_SIZE);
+        CRC32 checksum = new CRC32();
+        byte[] chunk = new byte[Math.min(length, appendBuffer.length)];
+        int remaining = length;
+        while (remaining > 0) {
+            int chunkSize = Math.min(remaining, chunk.length);
+            readBuffer.get(chunk, 0, chunkSize);
+            checksum.update(chunk, 0, chunkSize);
+            remaining -= chunkSize;
+        }
+        return (int) checksum.getValue() == buffer.getInt(offset + CHECKSUM_OFFSET);
+    }
+
+    private boolean containsValidRecord(int from, int to) {
+        for (int offset = from; offset < to; offset += ALIGNMENT) {
+            if (isValidRecord(offset, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the offset following the last non-zero byte of this segment, or <code>from</code> if all bytes starting
+     * at <code>from</code> are zero.
+     */
+    private int endOfData(int from) {
+        int position = buffer.capacity();
+        while (position > from && position % ALIGNMENT != 0) {
+            if (buffer.get(position - 1) != 0) {
+                return position;
+            }
+            position--;
+        }
+        while (position - ALIGNMENT >= from && buffer.getLong(position - ALIGNMENT) == 0) {
+            position -= ALIGNMENT;
+        }
+        while (position > from && buffer.get(position - 1) == 0) {
+            position--;
+        }
+        return position;
+    }
+
+    private EventStoreException corruptRecord(int offset) {
+        return new EventStoreException(String.format(
+                "Event log segment [%s] is corrupt. The record at offset %s is invalid.", file, offset));
+    }
+
+    private static int endOfRecord(int offset, int length) {
+        return offset + requiredCapacity(length);
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    @Override
+    public String toString() {
+        return file.getName();
+    }
+}
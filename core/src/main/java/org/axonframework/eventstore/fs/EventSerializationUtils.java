@@ -106,7 +106,7 @@ abstract class EventSerializationUtils {
         out.writeString(timeStamp);
         out.writeString(serializedEvent.getType().getName());
         out.writeNumber(serializedEvent.getType().getRevision());
-        out.writeBytes(serializedEvent.getData());
+        writeData(out, outputStream, serializedEvent);
     }
 
     /**
@@ -167,7 +167,24 @@ abstract class EventSerializationUtils {
         out.writeNumber(snapshotEntry.getOffset());
         out.writeString(snapshotEntry.getPayload().getType().getName());
         out.writeNumber(snapshotEntry.getPayload().getType().getRevision());
-        out.writeBytes(snapshotEntry.getPayload().getData());
+        writeData(out, outputStream, snapshotEntry.getPayload());
+    }
+
+    /**
+     * Writes the data of the given <code>serializedObject</code> in the format used by {@link
+     * BinaryEntryOutputStream#writeBytes(byte[])}. The data of a SimpleSerializedObject is written without creating a
+     * copy of it.
+     */
+    private static void writeData(BinaryEntryOutputStream out, OutputStream outputStream,
+                                  SerializedObject serializedObject) throws IOException {
+        if (serializedObject instanceof SimpleSerializedObject) {
+            SimpleSerializedObject simpleSerializedObject = (SimpleSerializedObject) serializedObject;
+            out.writeNumber(simpleSerializedObject.getDataLength());
+            simpleSerializedObject.writeTo(outputStream);
+            outputStream.write('\n');
+        } else {
+            out.writeBytes(serializedObject.getData());
+        }
     }
 
     private static SnapshotEventEntry readNextSnapshotEntry(InputStream inputStream) throws IOException {
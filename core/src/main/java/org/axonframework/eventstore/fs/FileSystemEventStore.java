@@ -24,6 +24,8 @@ import org.axonframework.eventstore.EventStore;
 import org.axonframework.eventstore.EventStoreException;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.SnapshotEventStore;
+import org.axonframework.serializer.SerializationBuffer;
+import org.axonframework.serializer.SerializationBufferPool;
 import org.axonframework.serializer.SerializedObject;
 import org.axonframework.serializer.Serializer;
 import org.axonframework.serializer.XStreamSerializer;
@@ -60,6 +62,7 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
     private static final Logger logger = LoggerFactory.getLogger(FileSystemEventStore.class);
 
     private final Serializer eventSerializer;
+    private final SerializationBufferPool buffers = new SerializationBufferPool();
     private EventFileResolver eventFileResolver;
 
     /**
@@ -92,11 +95,13 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
             return;
         }
         OutputStream out = null;
+        SerializationBuffer buffer = buffers.acquire();
         try {
             DomainEventMessage next = eventsToStore.next();
             out = eventFileResolver.openEventFileForWriting(type, next.getAggregateIdentifier());
             do {
-                SerializedObject serializedObject = eventSerializer.serialize(next);
+                buffer.reset();
+                SerializedObject serializedObject = buffer.serialize(eventSerializer, next);
                 String timeStamp = next.getTimestamp().toString();
                 writeEventEntry(out, next.getSequenceNumber(), timeStamp, serializedObject);
                 if (eventsToStore.hasNext()) {
@@ -108,6 +113,7 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
         } catch (IOException e) {
             throw new EventStoreException("Unable to store given entity due to an IOException", e);
         } finally {
+            buffers.release(buffer);
             IOUtils.closeQuietly(out);
         }
     }
@@ -0,0 +1,695 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.common.Assert;
+import org.axonframework.common.io.BinaryEntryInputStream;
+import org.axonframework.common.io.BinaryEntryOutputStream;
+import org.axonframework.common.io.IOUtils;
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.eventstore.EventStore;
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.eventstore.SnapshotEventStore;
+import org.axonframework.serializer.SerializationBuffer;
+import org.axonframework.serializer.SerializationBufferPool;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.Serializer;
+import org.axonframework.serializer.XStreamSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static org.axonframework.eventstore.fs.EventSerializationUtils.readEventEntry;
+import static org.axonframework.eventstore.fs.EventSerializationUtils.writeEventEntry;
+
+/**
+ * Implementation of the {@link org.axonframework.eventstore.EventStore} that appends the events of all aggregates to
+ * a log of memory mapped segment files on disk. In contrast to the {@link FileSystemEventStore}, this event store does
+ * not need a file for each aggregate, and doesn't open or close any files when appending or reading events.
+ * <p/>
+ * The event store keeps an in-memory index of the locations of the events and the latest snapshot event of each
+ * aggregate. When the event store is closed, this index is written to an index file in the base directory. When the
+ * event store is first used, it reads the index file and only scans the part of the event log that was appended after
+ * the index file was written. Without a valid index file, the index is rebuilt by scanning all segment files. Events
+ * are stored using the same entry format as the {@link FileSystemEventStore}.
+ * <p/>
+ * Each record in the event log carries a checksum. When the last record of the event log turns out to be torn, for
+ * example because the operating system failed while writing it, that record is removed. Any other corruption of the
+ * event log is reported as an {@link EventStoreException}, either when the event log is opened or when the damaged
+ * record is read.
+ * <p/>
+ * By default, each append is forced to the storage device before the append method returns. Threads appending
+ * concurrently share the force operation (group commit), meaning a single force may cover the appends of several
+ * threads. Use {@link #setForceWrites(boolean)} to disable forcing altogether.
+ * <p/>
+ * Use {@link #setBaseDir(java.io.File)} to specify the directory where segment files should be stored. A single
+ * directory may not be shared by multiple event store instances.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class SegmentedFileSystemEventStore implements EventStore, SnapshotEventStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedFileSystemEventStore.class);
+
+    private static final String CHARSET_UTF8 = "UTF-8";
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+    private static final String SEGMENT_FILE_SUFFIX = ".log";
+    private static final String INDEX_FILE_NAME = "index.chk";
+    private static final int INDEX_FILE_VERSION = 1;
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int EVENT_RECORD = 0;
+    private static final int SNAPSHOT_RECORD = 1;
+
+    private final Serializer eventSerializer;
+    private final SerializationBufferPool eventBuffers = new SerializationBufferPool();
+    private final SerializationBufferPool recordBuffers = new SerializationBufferPool();
+    private final ConcurrentMap<String, ConcurrentMap<String, AggregateIndex>> indexes =
+            new ConcurrentHashMap<String, ConcurrentMap<String, AggregateIndex>>();
+    private final List<EventLogSegment> segments = new CopyOnWriteArrayList<EventLogSegment>();
+    private final Object writeLock = new Object();
+    private final Object forceLock = new Object();
+    private volatile boolean initialized;
+    private File baseDir;
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private boolean forceWrites = true;
+
+    // guarded by "writeLock"
+    private long appendCount;
+    private int lastIndexedLength;
+    private int firstUnforcedSegment;
+    private int nextSegmentNumber;
+    // guarded by "forceLock"
+    private long forcedAppendCount;
+
+    /**
+     * Basic initialization of the event store. The actual serialization and deserialization is delegated to a {@link
+     * org.axonframework.serializer.XStreamSerializer}
+     */
+    public SegmentedFileSystemEventStore() {
+        this(new XStreamSerializer());
+    }
+
+    /**
+     * Initialize the SegmentedFileSystemEventStore using the given <code>serializer</code>. The serializer must be
+     * capable of serializing at least DomainEvents.
+     *
+     * @param serializer The serializer capable of serializing (at least) DomainEvents
+     */
+    public SegmentedFileSystemEventStore(Serializer serializer) {
+        this.eventSerializer = serializer;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation appends the events to the current segment of the event log. The events are forced to disk
+     * before this method returns, unless forcing writes has been disabled.
+     */
+    @Override
+    public void appendEvents(String type, DomainEventStream eventsToStore) {
+        if (!eventsToStore.hasNext()) {
+            return;
+        }
+        List<DomainEventMessage> events = new ArrayList<DomainEventMessage>();
+        List<ByteBuffer> records = new ArrayList<ByteBuffer>();
+        SerializationBuffer recordBuffer = recordBuffers.acquire();
+        long appendNumber;
+        try {
+            while (eventsToStore.hasNext()) {
+                DomainEventMessage event = eventsToStore.next();
+                events.add(event);
+                records.add(writeRecord(recordBuffer, EVENT_RECORD, type, event));
+            }
+            synchronized (writeLock) {
+                initializeIfNeeded();
+                for (int i = 0; i < records.size(); i++) {
+                    DomainEventMessage event = events.get(i);
+                    long position = append(records.get(i));
+                    indexFor(type, event.getAggregateIdentifier(), true)
+                            .addEvent(position, event.getSequenceNumber());
+                }
+                appendNumber = ++appendCount;
+            }
+        } finally {
+            recordBuffers.release(recordBuffer);
+        }
+        if (forceWrites) {
+            forceUpTo(appendNumber);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The latest snapshot event of the aggregate, if any, is located using the index. Only the events following the
+     * snapshot are read from the event log.
+     */
+    @Override
+    public DomainEventStream readEvents(String type, Object identifier) {
+        ensureInitialized();
+        AggregateIndex index = indexFor(type, identifier, false);
+        if (index == null) {
+            throw new EventStreamNotFoundException(type, identifier);
+        }
+        return new SegmentDomainEventStream(index.positionsToRead());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws EventStoreException when an error occurs while writing to the event log.
+     */
+    @Override
+    public void appendSnapshotEvent(String type, DomainEventMessage snapshotEvent) {
+        SerializationBuffer recordBuffer = recordBuffers.acquire();
+        long appendNumber;
+        try {
+            ByteBuffer record = writeRecord(recordBuffer, SNAPSHOT_RECORD, type, snapshotEvent);
+            synchronized (writeLock) {
+                initializeIfNeeded();
+                long position = append(record);
+                indexFor(type, snapshotEvent.getAggregateIdentifier(), true)
+                        .setSnapshot(position, snapshotEvent.getSequenceNumber());
+                appendNumber = ++appendCount;
+            }
+        } finally {
+            recordBuffers.release(recordBuffer);
+        }
+        if (forceWrites) {
+            forceUpTo(appendNumber);
+        }
+    }
+
+    /**
+     * Closes the segment files of this event store, after writing the index to the index file. The event store will
+     * reopen the segment files and read its index when it is used after being closed.
+     */
+    public void close() {
+        synchronized (writeLock) {
+            if (!initialized) {
+                return;
+            }
+            for (EventLogSegment segment : segments) {
+                segment.force();
+            }
+            writeIndexFile();
+            for (EventLogSegment segment : segments) {
+                segment.close();
+            }
+            segments.clear();
+            indexes.clear();
+            firstUnforcedSegment = 0;
+            initialized = false;
+        }
+    }
+
+    /**
+     * Appends the given <code>record</code> to the current segment, rolling over to a new segment if the record does
+     * not fit. Must be called while holding the write lock.
+     */
+    private long append(ByteBuffer record) {
+        EventLogSegment segment = segments.get(segments.size() - 1);
+        int offset = segment.append(record);
+        if (offset < 0) {
+            int capacity = Math.max(segmentSize, EventLogSegment.requiredCapacity(record.remaining()));
+            segment = openSegment(nextSegmentNumber++, capacity);
+            segments.add(segment);
+            offset = segment.append(record);
+        }
+        return toPosition(segments.size() - 1, offset);
+    }
+
+    /**
+     * Forces all segments that have been written to since the last force, unless another thread has done so after the
+     * append with the given <code>appendNumber</code>.
+     *
+     * @param appendNumber the number of the append that must have been forced when this method returns
+     */
+    private void forceUpTo(long appendNumber) {
+        synchronized (forceLock) {
+            if (forcedAppendCount >= appendNumber) {
+                return;
+            }
+            long forcedAppends;
+            List<EventLogSegment> segmentsToForce;
+            synchronized (writeLock) {
+                forcedAppends = appendCount;
+                segmentsToForce = new ArrayList<EventLogSegment>(
+                        segments.subList(firstUnforcedSegment, segments.size()));
+                firstUnforcedSegment = Math.max(0, segments.size() - 1);
+            }
+            for (EventLogSegment segment : segmentsToForce) {
+                segment.force();
+            }
+            forcedAppendCount = forcedAppends;
+        }
+    }
+
+    private void ensureInitialized() {
+        if (!initialized) {
+            synchronized (writeLock) {
+                initializeIfNeeded();
+            }
+        }
+    }
+
+    /**
+     * Initializes the event store, if that hasn't been done yet. Must be called while holding the write lock.
+     */
+    private void initializeIfNeeded() {
+        if (!initialized) {
+            initialize();
+            initialized = true;
+        }
+    }
+
+    private void initialize() {
+        Assert.state(baseDir != null, "The base directory of the event store has not been set");
+        if (!baseDir.exists() && !baseDir.mkdirs()) {
+            throw new EventStoreException(String.format("Unable to create directory [%s]", baseDir));
+        }
+        File[] segmentFiles = baseDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX);
+            }
+        });
+        // segment file names are zero padded, making their natural ordering equal to the order of the segments
+        Arrays.sort(segmentFiles);
+        int indexedSegments = readIndexFile(segmentFiles);
+        int indexedLength = indexedSegments > 0 ? lastIndexedLength : 0;
+        nextSegmentNumber = 0;
+        for (int i = 0; i < segmentFiles.length; i++) {
+            boolean lastSegment = i == segmentFiles.length - 1;
+            int verifiedLength = i < indexedSegments - 1 ? Integer.MAX_VALUE : 0;
+            if (i == indexedSegments - 1) {
+                verifiedLength = indexedLength;
+            }
+            EventLogSegment segment = openSegment(segmentFiles[i], 0, verifiedLength, lastSegment);
+            segments.add(segment);
+            if (i >= indexedSegments - 1) {
+                indexSegment(i, segment, i == indexedSegments - 1 ? indexedLength : 0);
+            }
+            nextSegmentNumber = segmentNumberOf(segmentFiles[i]) + 1;
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(nextSegmentNumber++, segmentSize));
+        }
+        firstUnforcedSegment = segments.size() - 1;
+        logger.debug("Opened {} segment(s) of the event log in [{}]", segments.size(), baseDir);
+    }
+
+    private void indexSegment(int segmentIndex, EventLogSegment segment, int startOffset) {
+        int offset = startOffset;
+        int nextOffset = segment.nextRecordOffset(offset);
+        while (nextOffset >= 0) {
+            try {
+                InputStream in = new ByteArrayInputStream(segment.readRecord(offset));
+                BinaryEntryInputStream header = new BinaryEntryInputStream(in);
+                int recordType = (int) header.readNumber();
+                String type = new String(header.readBytes(), CHARSET_UTF8);
+                String identifier = new String(header.readBytes(), CHARSET_UTF8);
+                EventEntry entry = readEventEntry(in);
+                long position = toPosition(segmentIndex, offset);
+                if (recordType == SNAPSHOT_RECORD) {
+                    indexFor(type, identifier, true).setSnapshot(position, entry.getSequenceNumber());
+                } else {
+                    indexFor(type, identifier, true).addEvent(position, entry.getSequenceNumber());
+                }
+            } catch (IOException e) {
+                throw new EventStoreException(String.format(
+                        "Unable to read the entry at offset %s of event log segment [%s]", offset, segment), e);
+            }
+            offset = nextOffset;
+            nextOffset = segment.nextRecordOffset(offset);
+        }
+    }
+
+    /**
+     * Reads the index file, if present and valid for the given <code>segmentFiles</code>, into the index of this event
+     * store. Returns the number of segments covered by the index file, of which the last segment is covered up to
+     * {@link #lastIndexedLength}. Returns <code>0</code> if there is no valid index file.
+     */
+    private int readIndexFile(File[] segmentFiles) {
+        File indexFile = new File(baseDir, INDEX_FILE_NAME);
+        if (!indexFile.exists()) {
+            return 0;
+        }
+        DataInputStream in = null;
+        try {
+            CheckedInputStream checkedIn = new CheckedInputStream(
+                    new BufferedInputStream(new FileInputStream(indexFile)), new CRC32());
+            in = new DataInputStream(checkedIn);
+            if (in.readInt() != INDEX_FILE_VERSION) {
+                throw new IOException("Unsupported index file version");
+            }
+            int segmentCount = in.readInt();
+            if (segmentCount < 1 || segmentCount > segmentFiles.length) {
+                throw new IOException("The index file refers to segments that do not exist");
+            }
+            for (int i = 0; i < segmentCount; i++) {
+                if (!segmentFiles[i].getName().equals(in.readUTF())) {
+                    throw new IOException("The index file refers to segments that do not exist");
+                }
+            }
+            int indexedLength = in.readInt();
+            if (indexedLength < 0 || indexedLength > segmentFiles[segmentCount - 1].length()) {
+                throw new IOException("The index file refers to records that do not exist");
+            }
+            int typeCount = in.readInt();
+            for (int t = 0; t < typeCount; t++) {
+                String type = in.readUTF();
+                int aggregateCount = in.readInt();
+                for (int a = 0; a < aggregateCount; a++) {
+                    String identifier = in.readUTF();
+                    AggregateIndex.readFrom(in, indexFor(type, identifier, true));
+                }
+            }
+            long checksum = checkedIn.getChecksum().getValue();
+            if (checksum != in.readLong()) {
+                throw new IOException("The checksum of the index file does not match its contents");
+            }
+            lastIndexedLength = indexedLength;
+            return segmentCount;
+        } catch (IOException e) {
+            logger.warn("Unable to read the index file of the event log in [{}]. Rebuilding the index from the event "
+                                + "log instead.", baseDir, e);
+            indexes.clear();
+            return 0;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Writes the index of this event store to the index file. Must be called while holding the write lock, after all
+     * segments have been forced.
+     */
+    private void writeIndexFile() {
+        File indexFile = new File(baseDir, INDEX_FILE_NAME);
+        File tempFile = new File(baseDir, INDEX_FILE_NAME + ".tmp");
+        DataOutputStream out = null;
+        try {
+            CheckedOutputStream checkedOut = new CheckedOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)), new CRC32());
+            out = new DataOutputStream(checkedOut);
+            out.writeInt(INDEX_FILE_VERSION);
+            out.writeInt(segments.size());
+            for (EventLogSegment segment : segments) {
+                out.writeUTF(segment.getName());
+            }
+            out.writeInt(segments.get(segments.size() - 1).getWritePosition());
+            out.writeInt(indexes.size());
+            for (Map.Entry<String, ConcurrentMap<String, AggregateIndex>> indexesOfType : indexes.entrySet()) {
+                out.writeUTF(indexesOfType.getKey());
+                out.writeInt(indexesOfType.getValue().size());
+                for (Map.Entry<String, AggregateIndex> index : indexesOfType.getValue().entrySet()) {
+                    out.writeUTF(index.getKey());
+                    index.getValue().writeTo(out);
+                }
+            }
+            out.writeLong(checkedOut.getChecksum().getValue());
+            out.close();
+            out = null;
+            if ((indexFile.exists() && !indexFile.delete()) || !tempFile.renameTo(indexFile)) {
+                throw new IOException("Unable to replace the index file");
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to write the index file of the event log in [{}]. The index will be rebuilt from the "
+                                + "event log when the event store is reopened.", baseDir, e);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    private EventLogSegment openSegment(int segmentNumber, int capacity) {
+        String fileName = String.format("%s%010d%s", SEGMENT_FILE_PREFIX, segmentNumber, SEGMENT_FILE_SUFFIX);
+        return openSegment(new File(baseDir, fileName), capacity, 0, false);
+    }
+
+    private EventLogSegment openSegment(File segmentFile, int capacity, int verifiedLength,
+                                        boolean truncateTornRecord) {
+        try {
+            return EventLogSegment.open(segmentFile, capacity, verifiedLength, truncateTornRecord);
+        } catch (IOException e) {
+            throw new EventStoreException(
+                    String.format("Unable to open event log segment [%s]", segmentFile), e);
+        }
+    }
+
+    private int segmentNumberOf(File segmentFile) {
+        String name = segmentFile.getName();
+        return Integer.parseInt(name.substring(SEGMENT_FILE_PREFIX.length(),
+                                               name.length() - SEGMENT_FILE_SUFFIX.length()));
+    }
+
+    private AggregateIndex indexFor(String type, Object identifier, boolean createIfAbsent) {
+        ConcurrentMap<String, AggregateIndex> indexesOfType = indexes.get(type);
+        if (indexesOfType == null) {
+            if (!createIfAbsent) {
+                return null;
+            }
+            indexes.putIfAbsent(type, new ConcurrentHashMap<String, AggregateIndex>());
+            indexesOfType = indexes.get(type);
+        }
+        String key = identifier.toString();
+        AggregateIndex index = indexesOfType.get(key);
+        if (index == null && createIfAbsent) {
+            indexesOfType.putIfAbsent(key, new AggregateIndex());
+            index = indexesOfType.get(key);
+        }
+        return index;
+    }
+
+    /**
+     * Appends the record for the given <code>event</code> to the given <code>recordBuffer</code>, and returns a view
+     * of the appended record. The event is serialized into a pooled buffer, so that creating a record does not require
+     * any byte arrays to be allocated.
+     */
+    private ByteBuffer writeRecord(SerializationBuffer recordBuffer, int recordType, String type,
+                                   DomainEventMessage event) {
+        SerializationBuffer eventBuffer = eventBuffers.acquire();
+        try {
+            SerializedObject serializedEvent = eventBuffer.serialize(eventSerializer, event);
+            int recordStart = recordBuffer.size();
+            BinaryEntryOutputStream out = new BinaryEntryOutputStream(recordBuffer);
+            out.writeNumber(recordType);
+            out.writeBytes(type.getBytes(CHARSET_UTF8));
+            out.writeBytes(event.getAggregateIdentifier().toString().getBytes(CHARSET_UTF8));
+            writeEventEntry(recordBuffer, event.getSequenceNumber(), event.getTimestamp().toString(),
+                            serializedEvent);
+            return recordBuffer.asByteBuffer(recordStart, recordBuffer.size() - recordStart);
+        } catch (IOException e) {
+            throw new EventStoreException("Unable to create an entry for the event log", e);
+        } finally {
+            eventBuffers.release(eventBuffer);
+        }
+    }
+
+    private EventEntry readEntry(long position) {
+        EventLogSegment segment;
+        try {
+            segment = segments.get(segmentIndexOf(position));
+        } catch (IndexOutOfBoundsException e) {
+            throw new EventStoreException("Unable to read from the event log. The event store has been closed.", e);
+        }
+        try {
+            InputStream in = new ByteArrayInputStream(segment.readRecord(offsetOf(position)));
+            BinaryEntryInputStream header = new BinaryEntryInputStream(in);
+            header.readNumber();
+            header.readBytes();
+            header.readBytes();
+            return readEventEntry(in);
+        } catch (IOException e) {
+            throw new EventStoreException("An error occurred while reading from the event log", e);
+        }
+    }
+
+    private static long toPosition(int segmentIndex, int offset) {
+        return ((long) segmentIndex << 32) | offset;
+    }
+
+    private static int segmentIndexOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Sets the base directory where the event store will store its segment files.
+     *
+     * @param baseDir the location to store segment files
+     */
+    public void setBaseDir(File baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Sets the size of newly created segment files, in bytes. Each segment file is mapped into memory entirely.
+     * Defaults to 64MB.
+     *
+     * @param segmentSize the size of newly created segment files
+     */
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Sets whether appended events must be forced to the storage device before the append methods return. When
+     * disabled, events may get lost when the operating system fails before it has written them to disk. Defaults to
+     * <code>true</code>.
+     *
+     * @param forceWrites whether to force appended events to the storage device
+     */
+    public void setForceWrites(boolean forceWrites) {
+        this.forceWrites = forceWrites;
+    }
+
+    /**
+     * The locations of the events of a single aggregate in the event log, and the location of its latest snapshot
+     * event, if any.
+     */
+    private static final class AggregateIndex {
+
+        private long[] positions = new long[4];
+        private long[] sequenceNumbers = new long[4];
+        private int size;
+        private long snapshotPosition = -1;
+        private int firstEventAfterSnapshot;
+
+        private synchronized void addEvent(long position, long sequenceNumber) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                sequenceNumbers = Arrays.copyOf(sequenceNumbers, size * 2);
+            }
+            positions[size] = position;
+            sequenceNumbers[size] = sequenceNumber;
+            size++;
+        }
+
+        private synchronized void setSnapshot(long position, long sequenceNumber) {
+            // snapshots are usually taken of the latest state, so searching from the end is the fastest
+            int index = size;
+            while (index > 0 && sequenceNumbers[index - 1] > sequenceNumber) {
+                index--;
+            }
+            snapshotPosition = position;
+            firstEventAfterSnapshot = index;
+        }
+
+        private synchronized void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(positions[i]);
+                out.writeLong(sequenceNumbers[i]);
+            }
+            out.writeLong(snapshotPosition);
+            out.writeInt(firstEventAfterSnapshot);
+        }
+
+        private static void readFrom(DataInputStream in, AggregateIndex index) throws IOException {
+            int size = in.readInt();
+            if (size < 0) {
+                throw new IOException("Invalid number of events in the index file");
+            }
+            for (int i = 0; i < size; i++) {
+                index.addEvent(in.readLong(), in.readLong());
+            }
+            synchronized (index) {
+                index.snapshotPosition = in.readLong();
+                index.firstEventAfterSnapshot = in.readInt();
+            }
+        }
+
+        private synchronized long[] positionsToRead() {
+            if (snapshotPosition < 0) {
+                return Arrays.copyOf(positions, size);
+            }
+            long[] result = new long[size - firstEventAfterSnapshot + 1];
+            result[0] = snapshotPosition;
+            System.arraycopy(positions, firstEventAfterSnapshot, result, 1, result.length - 1);
+            return result;
+        }
+    }
+
+    /**
+     * DomainEventStream implementation that reads and deserializes the events at the given positions in the event
+     * log, as they are requested.
+     */
+    private class SegmentDomainEventStream implements DomainEventStream {
+
+        private final long[] positions;
+        private int nextIndex;
+        private DomainEventMessage next;
+
+        public SegmentDomainEventStream(long[] positions) {
+            this.positions = positions;
+            this.next = doReadNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public DomainEventMessage next() {
+            DomainEventMessage toReturn = next;
+            next = doReadNext();
+            return toReturn;
+        }
+
+        @Override
+        public DomainEventMessage peek() {
+            return next;
+        }
+
+        private DomainEventMessage doReadNext() {
+            if (nextIndex >= positions.length) {
+                return null;
+            }
+            return readEntry(positions[nextIndex++]).deserialize(eventSerializer);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.axonframework.eventstore.fs;
 
 import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.SimpleSerializedObject;
 
 /**
  * Represents the relevant information of a snapshot event in regard to the event log. It combines the actual event (in
@@ -75,6 +76,9 @@ class SnapshotEventEntry {
      * @return the size of the serialized object in bytes.
      */
     public int getEventSize() {
+        if (serializedEvent instanceof SimpleSerializedObject) {
+            return ((SimpleSerializedObject) serializedEvent).getDataLength();
+        }
         return serializedEvent.getData().length;
     }
 
@@ -27,7 +27,6 @@ import org.axonframework.serializer.Serializer;
 import org.axonframework.serializer.SimpleSerializedObject;
 import org.joda.time.DateTime;
 
-import java.util.Arrays;
 import javax.persistence.Basic;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -86,7 +85,7 @@ abstract class AbstractEventEntry implements SerializedDomainEventData {
         this.payload = payload.getData();
         this.aggregateIdentifier = event.getAggregateIdentifier().toString();
         this.sequenceNumber = event.getSequenceNumber();
-        this.metaData = Arrays.copyOf(metaData.getData(), metaData.getData().length);
+        this.metaData = metaData.getData();
         this.timeStamp = event.getTimestamp().toString();
     }
 
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jpa;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.serializer.SerializedObject;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+
+/**
+ * EventEntryStore that is able to persist a batch of events at once. The {@link JpaEventStore} uses this to hand all
+ * events of an append to the EventEntryStore before the entity manager is flushed. EventEntryStores that do not
+ * implement this interface receive each event separately through {@link EventEntryStore#persistEvent(String,
+ * org.axonframework.domain.DomainEventMessage, org.axonframework.serializer.SerializedObject,
+ * org.axonframework.serializer.SerializedObject, javax.persistence.EntityManager)}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface BatchingEventEntryStore extends EventEntryStore {
+
+    /**
+     * Persists the given <code>events</code>, which have been serialized into <code>serializedPayloads</code> and
+     * <code>serializedMetaData</code>, in the backing data store using given <code>entityManager</code>. The three
+     * lists are of equal size, and the serialized forms of each event are found at the same index as the event
+     * itself.
+     * <p/>
+     * Implementations should persist all entries before the entity manager is flushed, allowing the JPA provider to
+     * write them to the database in a single JDBC batch (when the provider is configured to do so, e.g. using
+     * <code>hibernate.jdbc.batch_size</code>).
+     * <p/>
+     * The serialized objects may refer to a buffer that is reused after this method returns. Implementations that
+     * need to hold on to the serialized data must use {@link SerializedObject#getData()}, which returns a copy.
+     * <p/>
+     * These events should be returned by the <code>fetchBatch(...)</code> methods.
+     *
+     * @param aggregateType      The type identifier of the aggregate that generated the events
+     * @param events             The actual event instances. May be used to extract relevant meta data
+     * @param serializedPayloads The serialized payloads of the events
+     * @param serializedMetaData The serialized MetaData of the events
+     * @param entityManager      The entity manager providing access to the data store
+     */
+    void persistEvents(String aggregateType, List<DomainEventMessage> events,
+                       List<SerializedObject> serializedPayloads, List<SerializedObject> serializedMetaData,
+                       EntityManager entityManager);
+}
@@ -32,7 +32,7 @@ import javax.persistence.EntityManager;
  * @author Allard Buijze
  * @since 1.2
  */
-class DefaultEventEntryStore implements EventEntryStore {
+class DefaultEventEntryStore implements KeysetPagingEventEntryStore, BatchingEventEntryStore {
 
     @Override
     public void persistEvent(String aggregateType, DomainEventMessage event, SerializedObject serializedPayload,
@@ -40,6 +40,16 @@ class DefaultEventEntryStore implements EventEntryStore {
         entityManager.persist(new DomainEventEntry(aggregateType, event, serializedPayload, serializedMetaData));
     }
 
+    @Override
+    public void persistEvents(String aggregateType, List<DomainEventMessage> events,
+                              List<SerializedObject> serializedPayloads, List<SerializedObject> serializedMetaData,
+                              EntityManager entityManager) {
+        for (int i = 0; i < events.size(); i++) {
+            entityManager.persist(new DomainEventEntry(aggregateType, events.get(i), serializedPayloads.get(i),
+                                                       serializedMetaData.get(i)));
+        }
+    }
+
     @Override
     @SuppressWarnings({"unchecked"})
     public SnapshotEventEntry loadLastSnapshotEvent(String aggregateType, Object identifier,
@@ -70,6 +80,29 @@ class DefaultEventEntryStore implements EventEntryStore {
                             .getResultList();
     }
 
+    @Override
+    @SuppressWarnings({"unchecked"})
+    public List<DomainEventEntry> fetchBatch(String lastEventIdentifier, int batchSize, EntityManager entityManager) {
+        if (lastEventIdentifier == null) {
+            return entityManager.createQuery(
+                    "SELECT e FROM DomainEventEntry e "
+                            + "ORDER BY e.timeStamp ASC, e.sequenceNumber ASC, e.eventIdentifier ASC")
+                                .setMaxResults(batchSize)
+                                .getResultList();
+        }
+        return entityManager.createQuery(
+                "SELECT e FROM DomainEventEntry e, DomainEventEntry l "
+                        + "WHERE l.eventIdentifier = :lastEventIdentifier "
+                        + "AND e.timeStamp >= l.timeStamp "
+                        + "AND (e.timeStamp > l.timeStamp "
+                        + "OR (e.sequenceNumber > l.sequenceNumber) "
+                        + "OR (e.sequenceNumber = l.sequenceNumber AND e.eventIdentifier > l.eventIdentifier)) "
+                        + "ORDER BY e.timeStamp ASC, e.sequenceNumber ASC, e.eventIdentifier ASC")
+                            .setParameter("lastEventIdentifier", lastEventIdentifier)
+                            .setMaxResults(batchSize)
+                            .getResultList();
+    }
+
     @Override
     public void persistSnapshot(String aggregateType, DomainEventMessage snapshotEvent,
                                 SerializedObject serializedPayload, SerializedObject serializedMetaData,
@@ -35,6 +35,9 @@ public interface EventEntryStore {
      * Persists the given <code>event</code> which has been serialized into <code>serializedEvent</code> in the
      * backing data store using given <code>entityManager</code>.
      * <p/>
+     * The serialized objects may refer to a buffer that is reused after this method returns. Implementations that
+     * need to hold on to the serialized data must use {@link SerializedObject#getData()}, which returns a copy.
+     * <p/>
      * These events should be returned by the <code>fetchBatch(...)</code> methods.
      *
      * @param aggregateType      The type identifier of the aggregate that generated the event
@@ -64,12 +67,18 @@ public interface EventEntryStore {
      * <p/>
      * Note that the implementation is responsible for guaranteeing a consistent ordering in the query. Otherwise,
      * batches may not represent a consecutive list of the entire collection of events.
+     * <p/>
+     * This method is only used to visit the events of stores that do not implement {@link
+     * KeysetPagingEventEntryStore}.
      *
      * @param startPosition The first item to include in the batch
      * @param batchSize     The number of items to include in the batch
      * @param entityManager The entity manager providing access to the data store
      * @return a List of serialized representations of Events included in this batch
+     * @deprecated Implement {@link KeysetPagingEventEntryStore} instead, which allows the events to be visited
+     *             without skipping over all preceding entries for each batch
      */
+    @Deprecated
     List<? extends SerializedDomainEventData> fetchBatch(int startPosition, int batchSize, EntityManager entityManager);
 
     /**
@@ -106,7 +115,10 @@ public interface EventEntryStore {
 
     /**
      * Persists the given <code>event</code> which has been serialized into <code>serializedEvent</code> in the
-     * backing data store using given <code>entityManager</code>.
+     * backing data store using given <code>entityManager</code>. As with {@link #persistEvent(String,
+     * org.axonframework.domain.DomainEventMessage, org.axonframework.serializer.SerializedObject,
+     * org.axonframework.serializer.SerializedObject, javax.persistence.EntityManager) persistEvent(...)}, the
+     * serialized objects may refer to a buffer that is reused after this method returns.
      * <p/>
      * These snapshot events should be returned by the <code>loadLastSnapshotEvent(...)</code> methods.
      *
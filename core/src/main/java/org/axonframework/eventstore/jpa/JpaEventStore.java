@@ -21,6 +21,7 @@ import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.DomainEventStream;
 import org.axonframework.domain.GenericDomainEventMessage;
 import org.axonframework.domain.MetaData;
+import org.axonframework.eventstore.EventStoreException;
 import org.axonframework.eventstore.EventStoreManagement;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
@@ -29,6 +30,9 @@ import org.axonframework.eventstore.SerializedDomainEventData;
 import org.axonframework.eventstore.SerializedDomainEventMessage;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.repository.ConcurrencyException;
+import org.axonframework.serializer.SerializationBuffer;
+import org.axonframework.serializer.SerializationBufferPool;
+import org.axonframework.serializer.SerializedObject;
 import org.axonframework.serializer.Serializer;
 import org.axonframework.serializer.XStreamSerializer;
 import org.slf4j.Logger;
@@ -39,6 +43,11 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import javax.persistence.EntityManager;
 import javax.sql.DataSource;
 
@@ -65,12 +74,18 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
 
     private static final int DEFAULT_BATCH_SIZE = 100;
     private static final int DEFAULT_MAX_SNAPSHOTS_ARCHIVED = 1;
+    private static final int DEFAULT_REPLAY_BATCH_SIZE = 1000;
 
     private final EntityManagerProvider entityManagerProvider;
     private final Serializer eventSerializer;
     private final EventEntryStore eventEntryStore;
+    private final SerializationBufferPool buffers = new SerializationBufferPool();
     private int batchSize = DEFAULT_BATCH_SIZE;
     private int maxSnapshotsArchived = DEFAULT_MAX_SNAPSHOTS_ARCHIVED;
+    private int replayBatchSize = DEFAULT_REPLAY_BATCH_SIZE;
+    private Executor readAheadExecutor;
+    private boolean flushAfterAppend = true;
+    private boolean clearPersistenceContextOnReplay = false;
 
     private PersistenceExceptionResolver persistenceExceptionResolver;
 
@@ -130,26 +145,61 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
      */
     @Override
     public void appendEvents(String type, DomainEventStream events) {
-        DomainEventMessage event = null;
+        List<DomainEventMessage> messages = new ArrayList<DomainEventMessage>();
+        List<SerializedObject> serializedPayloads = new ArrayList<SerializedObject>();
+        List<SerializedObject> serializedMetaData = new ArrayList<SerializedObject>();
+        // all events of the batch are serialized into a single buffer, which is reused once they have been persisted
+        SerializationBuffer buffer = buffers.acquire();
         try {
-            EntityManager entityManager = entityManagerProvider.getEntityManager();
             while (events.hasNext()) {
-                event = events.next();
+                DomainEventMessage event = events.next();
                 validateIdentifier(event.getAggregateIdentifier().getClass());
-                eventEntryStore.persistEvent(type, event, eventSerializer.serialize(event.getPayload()),
-                                             eventSerializer.serialize(event.getMetaData()), entityManager);
+                messages.add(event);
+                serializedPayloads.add(buffer.serialize(eventSerializer, event.getPayload()));
+                serializedMetaData.add(buffer.serialize(eventSerializer, event.getMetaData()));
             }
-            entityManager.flush();
-        } catch (RuntimeException exception) {
-            if (persistenceExceptionResolver != null
-                    && persistenceExceptionResolver.isDuplicateKeyViolation(exception)) {
-                throw new ConcurrencyException(
-                        String.format("Concurrent modification detected for Aggregate identifier [%s], sequence: [%s]",
-                                      event.getAggregateIdentifier(),
-                                      event.getSequenceNumber()),
-                        exception);
+            if (messages.isEmpty()) {
+                return;
+            }
+            try {
+                EntityManager entityManager = entityManagerProvider.getEntityManager();
+                persistEvents(type, messages, serializedPayloads, serializedMetaData, entityManager);
+                if (flushAfterAppend) {
+                    entityManager.flush();
+                }
+            } catch (RuntimeException exception) {
+                if (persistenceExceptionResolver != null
+                        && persistenceExceptionResolver.isDuplicateKeyViolation(exception)) {
+                    DomainEventMessage firstEvent = messages.get(0);
+                    DomainEventMessage lastEvent = messages.get(messages.size() - 1);
+                    String sequence = firstEvent.getSequenceNumber() == lastEvent.getSequenceNumber()
+                            ? String.valueOf(firstEvent.getSequenceNumber())
+                            : firstEvent.getSequenceNumber() + "-" + lastEvent.getSequenceNumber();
+                    throw new ConcurrencyException(
+                            String.format(
+                                    "Concurrent modification detected for Aggregate identifier [%s], sequence: [%s]",
+                                    firstEvent.getAggregateIdentifier(),
+                                    sequence),
+                            exception);
+                }
+                throw exception;
+            }
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private void persistEvents(String type, List<DomainEventMessage> messages,
+                               List<SerializedObject> serializedPayloads, List<SerializedObject> serializedMetaData,
+                               EntityManager entityManager) {
+        if (eventEntryStore instanceof BatchingEventEntryStore) {
+            ((BatchingEventEntryStore) eventEntryStore).persistEvents(type, messages, serializedPayloads,
+                                                                      serializedMetaData, entityManager);
+        } else {
+            for (int i = 0; i < messages.size(); i++) {
+                eventEntryStore.persistEvent(type, messages.get(i), serializedPayloads.get(i),
+                                             serializedMetaData.get(i), entityManager);
             }
-            throw exception;
         }
     }
 
@@ -223,8 +273,15 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
         EntityManager entityManager = entityManagerProvider.getEntityManager();
         // Persist snapshot before pruning redundant archived ones, in order to prevent snapshot misses when reloading
         // an aggregate, which may occur when a READ_UNCOMMITTED transaction isolation level is used.
-        eventEntryStore.persistSnapshot(type, snapshotEvent, eventSerializer.serialize(snapshotEvent.getPayload()),
-                                        eventSerializer.serialize(snapshotEvent.getMetaData()), entityManager);
+        SerializationBuffer buffer = buffers.acquire();
+        try {
+            eventEntryStore.persistSnapshot(type, snapshotEvent,
+                                            buffer.serialize(eventSerializer, snapshotEvent.getPayload()),
+                                            buffer.serialize(eventSerializer, snapshotEvent.getMetaData()),
+                                            entityManager);
+        } finally {
+            buffers.release(buffer);
+        }
 
         if (maxSnapshotsArchived > 0) {
             eventEntryStore.pruneSnapshots(type, snapshotEvent, maxSnapshotsArchived,
@@ -234,17 +291,134 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
 
     @Override
     public void visitEvents(EventVisitor visitor) {
+        visitEvents(null, visitor);
+    }
+
+    /**
+     * Loads all events stored after the event with given <code>lastEventIdentifier</code> and calls {@link
+     * EventVisitor#doWithEvent(org.axonframework.domain.DomainEventMessage)} for each event found. When
+     * <code>lastEventIdentifier</code> is <code>null</code>, all events in the event store are visited.
+     * <p/>
+     * Events are read in batches of the configured {@link #setReplayBatchSize(int) replay batch size}. When the
+     * EventEntryStore is a {@link KeysetPagingEventEntryStore}, each batch is selected relative to the last event of
+     * the previous batch, which means the cost of reading a batch does not increase as the replay progresses. The
+     * identifier of any visited event (see {@link org.axonframework.domain.DomainEventMessage#getIdentifier()}) may be
+     * used to resume an interrupted replay directly after that event. Other EventEntryStores are read from the first
+     * event, skipping all events up to and including the one with given <code>lastEventIdentifier</code>.
+     * <p/>
+     * Unless {@link #setClearPersistenceContextOnReplay(boolean) configured} otherwise, the event entries read
+     * remain in the persistence context of the entity manager until the replay is finished.
+     * <p/>
+     * Processing stops when the visitor throws an exception.
+     *
+     * @param lastEventIdentifier The identifier of the event after which to start visiting, or <code>null</code> to
+     *                            visit all events
+     * @param visitor             The visitor the receives each loaded event
+     * @return the identifier of the last event visited, or <code>lastEventIdentifier</code> if no events were visited
+     * @throws EventStoreException if the EventEntryStore is read from the first event and does not contain an event
+     *                             with given <code>lastEventIdentifier</code>
+     */
+    public String visitEvents(String lastEventIdentifier, EventVisitor visitor) {
         EntityManager entityManager = entityManagerProvider.getEntityManager();
-        int first = 0;
-        List<? extends SerializedDomainEventData> batch;
-        boolean shouldContinue = true;
-        while (shouldContinue) {
-            batch = eventEntryStore.fetchBatch(first, batchSize, entityManager);
-            for (SerializedDomainEventData entry : batch) {
-                visitor.doWithEvent(new SerializedDomainEventMessage<Object>(entry, eventSerializer, eventSerializer));
+        // stores without keyset paging are read from the start, skipping events up to the last visited one
+        boolean skipping = lastEventIdentifier != null && !(eventEntryStore instanceof KeysetPagingEventEntryStore);
+        int position = 0;
+        String lastVisited = lastEventIdentifier;
+        Future<List<DomainEventMessage>> nextBatch = prepareBatch(lastEventIdentifier, position, entityManager);
+        while (nextBatch != null) {
+            List<DomainEventMessage> batch = waitFor(nextBatch);
+            nextBatch = null;
+            position += batch.size();
+            if (batch.size() >= replayBatchSize) {
+                // read the next batch while the visitor is processing the current one
+                nextBatch = prepareBatch(batch.get(batch.size() - 1).getIdentifier(), position, entityManager);
+            }
+            for (DomainEventMessage event : batch) {
+                if (skipping) {
+                    skipping = !event.getIdentifier().equals(lastEventIdentifier);
+                } else {
+                    visitor.doWithEvent(event);
+                    lastVisited = event.getIdentifier();
+                }
+            }
+        }
+        if (skipping) {
+            throw new EventStoreException(String.format("Cannot resume visiting events after event [%s]. "
+                                                                + "No event with that identifier was found.",
+                                                        lastEventIdentifier));
+        }
+        return lastVisited;
+    }
+
+    @SuppressWarnings({"deprecation"})
+    private Future<List<DomainEventMessage>> prepareBatch(String lastEventIdentifier, int startPosition,
+                                                          EntityManager entityManager) {
+        final List<? extends SerializedDomainEventData> entries;
+        if (eventEntryStore instanceof KeysetPagingEventEntryStore) {
+            entries = ((KeysetPagingEventEntryStore) eventEntryStore).fetchBatch(lastEventIdentifier,
+                                                                                 replayBatchSize,
+                                                                                 entityManager);
+        } else {
+            entries = eventEntryStore.fetchBatch(startPosition, replayBatchSize, entityManager);
+        }
+        if (clearPersistenceContextOnReplay) {
+            // the visitor may share the entity manager, so its pending changes must be written before clearing
+            entityManager.flush();
+            entityManager.clear();
+        }
+        FutureTask<List<DomainEventMessage>> task = new FutureTask<List<DomainEventMessage>>(
+                new Callable<List<DomainEventMessage>>() {
+                    @Override
+                    public List<DomainEventMessage> call() {
+                        List<DomainEventMessage> events = new ArrayList<DomainEventMessage>(entries.size());
+                        for (SerializedDomainEventData entry : entries) {
+                            events.add(new SerializedDomainEventMessage<Object>(entry, eventSerializer,
+                                                                                eventSerializer));
+                        }
+                        if (readAheadExecutor != null) {
+                            deserialize(events);
+                        }
+                        return events;
+                    }
+                });
+        if (readAheadExecutor == null) {
+            task.run();
+        } else {
+            readAheadExecutor.execute(task);
+        }
+        return task;
+    }
+
+    private void deserialize(List<DomainEventMessage> events) {
+        for (DomainEventMessage event : events) {
+            try {
+                event.getPayload();
+                event.getMetaData();
+            } catch (RuntimeException e) {
+                // the visitor will encounter this exception when it accesses the event
+                logger.debug("Failed to deserialize event [{}] ahead of processing.", event.getIdentifier());
+            }
+        }
+    }
+
+    private List<DomainEventMessage> waitFor(Future<List<DomainEventMessage>> batch) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return batch.get();
+                } catch (InterruptedException e) {
+                    // the batch must be completed to guarantee that no events are skipped
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new EventStoreException("An error occurred while reading ahead the next batch of events",
+                                                  e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
-            shouldContinue = (batch.size() >= batchSize);
-            first += batchSize;
         }
     }
 
@@ -287,6 +461,67 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
         this.batchSize = batchSize;
     }
 
+    /**
+     * Sets the number of events that should be read at each database access when {@link
+     * #visitEvents(org.axonframework.eventstore.EventVisitor) visiting} the events in the event store. Since replays
+     * typically process the entire event store, a value larger than the regular batch size is generally preferred.
+     * Defaults to {@value #DEFAULT_REPLAY_BATCH_SIZE}.
+     *
+     * @param replayBatchSize the number of events to read on each database access while visiting events
+     */
+    public void setReplayBatchSize(int replayBatchSize) {
+        this.replayBatchSize = replayBatchSize;
+    }
+
+    /**
+     * Sets the executor that deserializes the next batch of events while the visitor processes the current batch
+     * during a {@link #visitEvents(org.axonframework.eventstore.EventVisitor) replay}. The database is always
+     * accessed by the thread visiting the events. When no executor is configured (the default), events are
+     * deserialized lazily by the thread that visits them.
+     *
+     * @param readAheadExecutor the executor that deserializes events ahead of the visitor
+     */
+    public void setReadAheadExecutor(Executor readAheadExecutor) {
+        this.readAheadExecutor = readAheadExecutor;
+    }
+
+    /**
+     * Indicates whether the EventStore should clear the entity manager after each batch of events read while {@link
+     * #visitEvents(org.axonframework.eventstore.EventVisitor) visiting} the events in the event store. Clearing
+     * prevents the persistence context from holding all the events in the event store at the end of the replay.
+     * Defaults to <code>false</code>.
+     * <p/>
+     * Since the next batch is read while the visitor processes the current one, the entity manager is flushed before
+     * it is cleared, to make sure changes made by the visitor are not lost. This requires the replay to run inside a
+     * transaction. Note that entities loaded by the visitor become detached when the entity manager is cleared.
+     *
+     * @param clearPersistenceContextOnReplay whether to clear the entity manager after reading each batch of events
+     *                                        during a replay
+     */
+    public void setClearPersistenceContextOnReplay(boolean clearPersistenceContextOnReplay) {
+        this.clearPersistenceContextOnReplay = clearPersistenceContextOnReplay;
+    }
+
+    /**
+     * Indicates whether the EventStore should flush the entity manager after appending the events of an aggregate.
+     * Defaults to <code>true</code>.
+     * <p/>
+     * All events appended in a single invocation are persisted before the entity manager is flushed, allowing the JPA
+     * provider to insert them using a single JDBC batch. Setting this value to <code>false</code> postpones the flush
+     * until the transaction is committed, causing the events of all aggregates saved in the same Unit of Work (and
+     * transaction) to be inserted in a single batch. Note that in that case, concurrent modifications are not
+     * detected until the transaction commits. The resulting exception is not translated into a {@link
+     * ConcurrencyException}.
+     * <p/>
+     * JDBC batching must be enabled in the JPA provider for inserts to be batched, for example by setting the
+     * <code>hibernate.jdbc.batch_size</code> property when using Hibernate.
+     *
+     * @param flushAfterAppend whether to flush the entity manager after each append
+     */
+    public void setFlushAfterAppend(boolean flushAfterAppend) {
+        this.flushAfterAppend = flushAfterAppend;
+    }
+
     /**
      * Sets the maximum number of snapshots to archive for an aggregate. The EventStore will keep at most this number
      * of
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.eventstore.jpa;
+
+import org.axonframework.eventstore.SerializedDomainEventData;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+
+/**
+ * EventEntryStore that is able to select a batch of events relative to the last event of the previous batch. The
+ * {@link JpaEventStore} uses this to visit the events in the event store without having the data store skip over all
+ * preceding entries for each batch. EventEntryStores that do not implement this interface are visited using {@link
+ * EventEntryStore#fetchBatch(int, int, javax.persistence.EntityManager)}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface KeysetPagingEventEntryStore extends EventEntryStore {
+
+    /**
+     * Fetches a selection of <code>batchSize</code> events in the entire event store, starting directly after the
+     * event with given <code>lastEventIdentifier</code>. When <code>lastEventIdentifier</code> is <code>null</code>,
+     * the selection starts at the first event in the event store.
+     * <p/>
+     * Unlike {@link #fetchBatch(int, int, javax.persistence.EntityManager)}, this method does not require the data
+     * store to skip over all preceding entries, making the cost of fetching a batch independent of its position in
+     * the event store. Implementations must use a total ordering of events that is consistent with the ordering of
+     * events within each aggregate, so that each event is returned exactly once when fetching consecutive batches.
+     *
+     * @param lastEventIdentifier The identifier of the last event of the previous batch, or <code>null</code> to
+     *                            start at the first event
+     * @param batchSize           The number of items to include in the batch
+     * @param entityManager       The entity manager providing access to the data store
+     * @return a List of serialized representations of Events included in this batch
+     */
+    List<? extends SerializedDomainEventData> fetchBatch(String lastEventIdentifier, int batchSize,
+                                                         EntityManager entityManager);
+}
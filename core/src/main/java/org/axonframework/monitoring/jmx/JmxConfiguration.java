@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.management.ManagementFactory;
 import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
 import javax.management.MBeanRegistrationException;
 import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
@@ -66,9 +67,48 @@ public final class JmxConfiguration {
      *                      of the MBean.
      */
     public void registerMBean(Object mBean, Class<?> monitoredType) {
+        registerMBean(mBean, objectNameFor(monitoredType, null));
+    }
+
+    /**
+     * Attempts to register the given <code>mBean</code> as an MBean with the default MBeanServer, using an ObjectName
+     * that contains the given <code>name</code>. This allows several instances of the same <code>monitoredType</code>
+     * to be registered side by side. If registration fails, no exceptions are thrown. Instead, failure is logged and
+     * silently accepted.
+     *
+     * @param mBean         The instance to register as MBean. Note that this instance needs to be MBean compliant.
+     *                      Otherwise, registration fails silently.
+     * @param monitoredType The type of object that the MBean represents. This type is used to construct the ObjectName
+     *                      of the MBean.
+     * @param name          The name that distinguishes this MBean from others of the same <code>monitoredType</code>
+     */
+    public void registerMBean(Object mBean, Class<?> monitoredType, String name) {
+        registerMBean(mBean, objectNameFor(monitoredType, name));
+    }
+
+    /**
+     * Attempts to unregister the MBean that was registered using {@link #registerMBean(Object, Class, String)} with
+     * the given <code>monitoredType</code> and <code>name</code>. If unregistration fails, no exceptions are thrown.
+     * Instead, failure is logged and silently accepted.
+     *
+     * @param monitoredType The type of object that the MBean represents
+     * @param name          The name that distinguishes the MBean from others of the same <code>monitoredType</code>
+     */
+    public void unregisterMBean(Class<?> monitoredType, String name) {
+        ObjectName objectName = objectNameFor(monitoredType, name);
+        try {
+            mBeanServer.unregisterMBean(objectName);
+        } catch (InstanceNotFoundException e) {
+            logger.debug("No MBean has been registered with name {}", objectName);
+        } catch (MBeanRegistrationException e) {
+            logger.error("An error occurred unregistering an MBean", e);
+        }
+    }
+
+    private void registerMBean(Object mBean, ObjectName objectName) {
         if (enabled) {
             try {
-                mBeanServer.registerMBean(new StandardMBean(mBean, null, true), objectNameFor(monitoredType));
+                mBeanServer.registerMBean(new StandardMBean(mBean, null, true), objectName);
             } catch (InstanceAlreadyExistsException e) {
                 logger.warn("Object {} has already been registered as an MBean", mBean);
             } catch (MBeanRegistrationException e) {
@@ -79,9 +119,13 @@ public final class JmxConfiguration {
         }
     }
 
-    private ObjectName objectNameFor(Class<?> clazz) {
+    private ObjectName objectNameFor(Class<?> clazz, String name) {
         try {
-            return new ObjectName("org.axonframework", "type", clazz.getSimpleName());
+            if (name == null) {
+                return new ObjectName("org.axonframework", "type", clazz.getSimpleName());
+            }
+            return new ObjectName("org.axonframework:type=" + clazz.getSimpleName()
+                                          + ",name=" + ObjectName.quote(name));
         } catch (MalformedObjectNameException e) {
             throw new IllegalStateException("This JVM doesn't seem to accept perfectly normal ObjectNames");
         }
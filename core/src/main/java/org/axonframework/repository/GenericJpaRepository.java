@@ -69,6 +69,22 @@ public class GenericJpaRepository<T extends AggregateRoot> extends LockingReposi
         this.aggregateType = aggregateType;
     }
 
+    /**
+     * Initialize a repository for storing aggregates of the given <code>aggregateType</code> with a {@link
+     * LockingStrategy#STRIPED striped} locking strategy, using at least the given <code>lockStripeCount</code> number
+     * of locks.
+     *
+     * @param entityManagerProvider The EntityManagerProvider providing the EntityManager instance for this repository
+     * @param aggregateType         the aggregate type this repository manages
+     * @param lockStripeCount       the minimum number of locks to use
+     */
+    public GenericJpaRepository(EntityManagerProvider entityManagerProvider, Class<T> aggregateType,
+                                int lockStripeCount) {
+        super(lockStripeCount);
+        this.entityManagerProvider = entityManagerProvider;
+        this.aggregateType = aggregateType;
+    }
+
     @Override
     protected void doSaveWithLock(T aggregate) {
         EntityManager entityManager = entityManagerProvider.getEntityManager();
@@ -35,7 +35,10 @@ import org.slf4j.LoggerFactory;
  * Pessimistic Locking requires an exclusive lock to be handed to a thread loading an aggregate before the aggregate is
  * handed over. This means that, once an aggregate is loaded, it has full exclusive access to it, until it saves the
  * aggregate. With this strategy, it is important that -no matter what- the aggregate is saved to the repository. Any
- * failure to do so will result in threads blocking endlessly, waiting for a lock that might never be released. </ul>
+ * failure to do so will result in threads blocking endlessly, waiting for a lock that might never be released.
+ * <li><em>Striped Locking</em> strategy: A variant of Pessimistic Locking that uses a fixed number of locks, each
+ * guarding the aggregates with identifiers hashing to that lock. No locks are created or disposed while loading and
+ * saving aggregates, but aggregates sharing a lock cannot be accessed concurrently. </ul>
  * <p/>
  * Important: If an exception is thrown during the saving process, any locks held are released. The calling thread may
  * reattempt saving the aggregate again. If the lock is available, the thread automatically takes back the lock. If,
@@ -68,6 +71,9 @@ public abstract class LockingRepository<T extends AggregateRoot> extends Abstrac
             case PESSIMISTIC:
                 lockManager = new PessimisticLockManager();
                 break;
+            case STRIPED:
+                lockManager = new StripedLockManager(StripedLockManager.DEFAULT_STRIPE_COUNT, lockManagerName());
+                break;
             case OPTIMISTIC:
                 lockManager = new OptimisticLockManager();
                 break;
@@ -81,6 +87,16 @@ public abstract class LockingRepository<T extends AggregateRoot> extends Abstrac
         }
     }
 
+    /**
+     * Initialize the repository with a {@link LockingStrategy#STRIPED striped} locking strategy, using at least the
+     * given <code>lockStripeCount</code> number of locks. The number of locks is rounded up to the next power of two.
+     *
+     * @param lockStripeCount the minimum number of locks to use
+     */
+    protected LockingRepository(int lockStripeCount) {
+        this.lockManager = new StripedLockManager(lockStripeCount, lockManagerName());
+    }
+
     /**
      * Utility constructor for testing.
      *
@@ -90,6 +106,21 @@ public abstract class LockingRepository<T extends AggregateRoot> extends Abstrac
         this.lockManager = lockManager;
     }
 
+    /**
+     * Releases the resources held by this repository. When the repository uses a {@link LockingStrategy#STRIPED
+     * striped} locking strategy, the MBean exposing the statistics of its locks is unregistered.
+     */
+    public void close() {
+        if (lockManager instanceof StripedLockManager) {
+            ((StripedLockManager) lockManager).close();
+        }
+    }
+
+    private String lockManagerName() {
+        String className = getClass().getSimpleName().length() == 0 ? getClass().getName() : getClass().getSimpleName();
+        return className + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+
     @Override
     public void add(T aggregate) {
         lockManager.obtainLock(aggregate.getIdentifier());
@@ -48,6 +48,21 @@ public enum LockingStrategy {
      */
     PESSIMISTIC,
 
+    /**
+     * Indicator of a striped pessimistic locking strategy. Like the pessimistic strategy, this strategy will block any
+     * thread that tries to load an aggregate that has already been loaded by another thread. Instead of creating a
+     * lock for each aggregate, a fixed number of locks is used, each guarding all aggregates with an identifier
+     * hashing to that lock. This prevents the creation and disposal of locks at the cost of occasionally blocking
+     * threads that access different aggregates.
+     * <p/>
+     * <strong>Important note</strong>: threads locking multiple aggregates at the same time may deadlock when the
+     * locks of these aggregates are acquired in a different order. Make sure the number of locks is well over the
+     * number of threads concurrently accessing the repository.
+     *
+     * @see LockingRepository
+     */
+    STRIPED,
+
     /**
      * Indicator of no locking strategy. This strategy expects another mechanism to perform the necessary locking, such
      * as an event store using a relational database.
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.repository;
+
+import org.axonframework.common.Assert;
+import org.axonframework.domain.AggregateRoot;
+import org.axonframework.monitoring.jmx.JmxConfiguration;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the {@link LockManager} that uses a fixed number of pessimistic locks, each guarding a "stripe" of
+ * aggregates. The stripe of an aggregate is selected using the hash code of its identifier. Calls to obtainLock will
+ * block until the lock of the stripe could be obtained.
+ * <p/>
+ * In contrast to the {@link PessimisticLockManager}, this lock manager does not create or dispose any locks while
+ * obtaining and releasing them. The price to pay is that aggregates sharing a stripe cannot be accessed concurrently.
+ * When a thread locks more than one aggregate at a time, this may cause deadlocks that would not occur when each
+ * aggregate has its own lock. The number of stripes should therefore be well over the number of threads concurrently
+ * accessing the repository.
+ * <p/>
+ * Besides holding the lock, each stripe keeps track of the identifiers its owner has locked. This ensures that a lock
+ * is only considered valid for the aggregates that were actually locked, and not for any other aggregate that happens
+ * to share the same stripe. Since only the thread holding a stripe's lock accesses these identifiers, keeping track
+ * of them requires no synchronization.
+ * <p/>
+ * When the statistics of this lock manager are registered as an MBean, {@link #close()} must be invoked when the lock
+ * manager is no longer used, to unregister it.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class StripedLockManager implements LockManager {
+
+    /**
+     * The number of stripes used when none is explicitly configured.
+     */
+    static final int DEFAULT_STRIPE_COUNT = 1024;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final StripedLockManagerStatistics statistics;
+    private final String mBeanName;
+
+    /**
+     * Initializes a lock manager with at least the given <code>stripeCount</code> number of stripes, without
+     * registering its statistics as an MBean. The number of stripes is rounded up to the next power of two.
+     *
+     * @param stripeCount The minimum number of stripes to use
+     */
+    StripedLockManager(int stripeCount) {
+        this(stripeCount, null);
+    }
+
+    /**
+     * Initializes a lock manager with at least the given <code>stripeCount</code> number of stripes. The number of
+     * stripes is rounded up to the next power of two. The statistics of this lock manager are registered as an MBean
+     * using the given <code>mBeanName</code>, which should uniquely identify the repository using this lock manager.
+     *
+     * @param stripeCount The minimum number of stripes to use
+     * @param mBeanName   The name to register the statistics MBean with, or <code>null</code> to not register it
+     */
+    StripedLockManager(int stripeCount, String mBeanName) {
+        Assert.isTrue(stripeCount > 0, "The stripe count must be a positive number");
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+        this.statistics = new StripedLockManagerStatistics(stripes);
+        this.mBeanName = mBeanName;
+        if (mBeanName != null) {
+            JmxConfiguration.getInstance().registerMBean(statistics, getClass(), mBeanName);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean validateLock(AggregateRoot aggregate) {
+        Object identifier = aggregate.getIdentifier();
+        Stripe stripe = stripes[stripeOf(identifier)];
+        return stripe.isHeldByCurrentThread() && stripe.holds(identifier);
+    }
+
+    /**
+     * Obtain the lock of the stripe of an aggregate. This method will block until the lock was successfully obtained.
+     *
+     * @param aggregateIdentifier the identifier of the aggregate to obtains a lock for.
+     */
+    @Override
+    public void obtainLock(Object aggregateIdentifier) {
+        int stripeNumber = stripeOf(aggregateIdentifier);
+        Stripe stripe = stripes[stripeNumber];
+        if (!stripe.tryLock()) {
+            long start = System.nanoTime();
+            stripe.lock();
+            statistics.recordContendedAcquisition(stripeNumber, System.nanoTime() - start);
+        }
+        stripe.hold(aggregateIdentifier);
+    }
+
+    /**
+     * Release the lock of the stripe of an aggregate.
+     *
+     * @param aggregateIdentifier the identifier of the aggregate to release the lock for.
+     * @throws IllegalMonitorStateException if the current thread does not hold a lock for the given aggregate
+     */
+    @Override
+    public void releaseLock(Object aggregateIdentifier) {
+        Stripe stripe = stripes[stripeOf(aggregateIdentifier)];
+        if (!stripe.isHeldByCurrentThread() || !stripe.release(aggregateIdentifier)) {
+            throw new IllegalMonitorStateException(
+                    String.format("The current thread holds no lock for aggregate [%s]", aggregateIdentifier));
+        }
+        stripe.unlock();
+    }
+
+    /**
+     * Unregisters the MBean exposing the statistics of this lock manager, if it was registered.
+     */
+    void close() {
+        if (mBeanName != null) {
+            JmxConfiguration.getInstance().unregisterMBean(getClass(), mBeanName);
+        }
+    }
+
+    /**
+     * Returns the number of stripes used by this lock manager.
+     *
+     * @return the number of stripes
+     */
+    int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Returns the statistics of this lock manager.
+     *
+     * @return the statistics of this lock manager
+     */
+    StripedLockManagerStatistics getStatistics() {
+        return statistics;
+    }
+
+    private int stripeOf(Object aggregateIdentifier) {
+        int hash = aggregateIdentifier.hashCode();
+        // spread the higher bits, as the mask only takes the lower bits into account
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return hash & mask;
+    }
+
+    /**
+     * The lock of a stripe, holding the identifiers locked by its owner and the number of times each of them has been
+     * locked. These are only accessed by the thread holding the lock. The arrays only grow when a thread locks more
+     * distinct aggregates in the same stripe than they can hold.
+     */
+    private static final class Stripe extends ReentrantLock {
+
+        private static final long serialVersionUID = -3206493428296151335L;
+
+        private Object[] identifiers = new Object[2];
+        private int[] holdCounts = new int[2];
+        private int size;
+
+        private boolean holds(Object identifier) {
+            return indexOf(identifier) >= 0;
+        }
+
+        private void hold(Object identifier) {
+            int index = indexOf(identifier);
+            if (index >= 0) {
+                holdCounts[index]++;
+                return;
+            }
+            if (size == identifiers.length) {
+                identifiers = Arrays.copyOf(identifiers, size * 2);
+                holdCounts = Arrays.copyOf(holdCounts, size * 2);
+            }
+            identifiers[size] = identifier;
+            holdCounts[size] = 1;
+            size++;
+        }
+
+        private boolean release(Object identifier) {
+            int index = indexOf(identifier);
+            if (index < 0) {
+                return false;
+            }
+            if (--holdCounts[index] == 0) {
+                size--;
+                identifiers[index] = identifiers[size];
+                holdCounts[index] = holdCounts[size];
+                identifiers[size] = null;
+            }
+            return true;
+        }
+
+        private int indexOf(Object identifier) {
+            for (int i = 0; i < size; i++) {
+                if (identifiers[i].equals(identifier)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Statistics object to store information about the contention on the locks of a {@link StripedLockManager}. Only
+ * lock acquisitions that had to wait for another thread are recorded.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class StripedLockManagerStatistics implements StripedLockManagerStatisticsMXBean {
+
+    private final ReentrantLock[] locks;
+    private final AtomicLongArray contendedAcquisitionCounters;
+    private final AtomicLongArray waitTimes;
+
+    /**
+     * Creates an instance of this statistics MBean for the given <code>locks</code>.
+     *
+     * @param locks the locks of the stripes to keep statistics for
+     */
+    StripedLockManagerStatistics(ReentrantLock[] locks) {
+        this.locks = locks;
+        this.contendedAcquisitionCounters = new AtomicLongArray(locks.length);
+        this.waitTimes = new AtomicLongArray(locks.length);
+    }
+
+    @Override
+    public int getStripeCount() {
+        return locks.length;
+    }
+
+    @Override
+    public long getContendedAcquisitionCount() {
+        return sum(contendedAcquisitionCounters);
+    }
+
+    @Override
+    public long getTotalWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(sum(waitTimes));
+    }
+
+    @Override
+    public int getQueueLength() {
+        int total = 0;
+        for (ReentrantLock lock : locks) {
+            total += lock.getQueueLength();
+        }
+        return total;
+    }
+
+    @Override
+    public long[] getContendedAcquisitionCountPerStripe() {
+        return toArray(contendedAcquisitionCounters);
+    }
+
+    @Override
+    public long[] getWaitTimePerStripe() {
+        long[] result = toArray(waitTimes);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = TimeUnit.NANOSECONDS.toMillis(result[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] getQueueLengthPerStripe() {
+        int[] result = new int[locks.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = locks[i].getQueueLength();
+        }
+        return result;
+    }
+
+    /*----- end of jmx enabled methods -----*/
+
+    /**
+     * Indicate that the lock of the given <code>stripe</code> was obtained after waiting for another thread to release
+     * it.
+     *
+     * @param stripe        the number of the stripe that was locked
+     * @param waitTimeNanos the time spent waiting for the lock, in nanoseconds
+     */
+    void recordContendedAcquisition(int stripe, long waitTimeNanos) {
+        contendedAcquisitionCounters.incrementAndGet(stripe);
+        waitTimes.addAndGet(stripe, waitTimeNanos);
+    }
+
+    private static long sum(AtomicLongArray values) {
+        long total = 0;
+        for (int i = 0; i < values.length(); i++) {
+            total += values.get(i);
+        }
+        return total;
+    }
+
+    private static long[] toArray(AtomicLongArray values) {
+        long[] result = new long[values.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.repository;
+
+/**
+ * Interface describing the management information exposed by repositories using the {@link
+ * LockingStrategy#STRIPED striped locking strategy}. Wait times and acquisition counts only take lock acquisitions
+ * into account that had to wait for another thread to release the lock.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface StripedLockManagerStatisticsMXBean {
+
+    /**
+     * Returns the number of stripes, and thus the number of locks, used.
+     *
+     * @return int representing the number of stripes
+     */
+    int getStripeCount();
+
+    /**
+     * Returns the number of times a thread had to wait for a lock to be released by another thread.
+     *
+     * @return long representing the number of contended lock acquisitions
+     */
+    long getContendedAcquisitionCount();
+
+    /**
+     * Returns the total time threads have spent waiting for locks, in milliseconds.
+     *
+     * @return long representing the total wait time in milliseconds
+     */
+    long getTotalWaitTime();
+
+    /**
+     * Returns an estimate of the number of threads currently waiting for any of the locks.
+     *
+     * @return int representing the number of waiting threads
+     */
+    int getQueueLength();
+
+    /**
+     * Returns the number of contended lock acquisitions for each of the stripes.
+     *
+     * @return an array containing the number of contended acquisitions, indexed by stripe number
+     */
+    long[] getContendedAcquisitionCountPerStripe();
+
+    /**
+     * Returns the time threads have spent waiting for the lock of each of the stripes, in milliseconds.
+     *
+     * @return an array containing the wait time in milliseconds, indexed by stripe number
+     */
+    long[] getWaitTimePerStripe();
+
+    /**
+     * Returns an estimate of the number of threads currently waiting for the lock of each of the stripes.
+     *
+     * @return an array containing the number of waiting threads, indexed by stripe number
+     */
+    int[] getQueueLengthPerStripe();
+}
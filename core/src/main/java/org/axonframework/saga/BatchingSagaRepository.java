@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga;
+
+import java.util.Collection;
+
+/**
+ * SagaRepository that is able to commit a number of Sagas at once. The {@link
+ * org.axonframework.saga.annotation.AsyncSagaEventProcessor} uses this to commit all Sagas that handled events in a
+ * batch. Repositories that do not implement this interface have each of the Sagas committed separately through {@link
+ * #commit(Saga)}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface BatchingSagaRepository extends SagaRepository {
+
+    /**
+     * Commits the changes made to all given Saga instances. The result is the same as invoking {@link #commit(Saga)}
+     * for each of the Sagas, but allows implementations to write the changes to the underlying storage in a single
+     * batch. Sagas are committed in the iteration order of the given collection.
+     *
+     * @param sagas The Saga instances to commit
+     */
+    void commitAll(Collection<? extends Saga> sagas);
+}
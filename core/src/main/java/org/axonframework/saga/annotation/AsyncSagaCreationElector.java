@@ -19,12 +19,16 @@ package org.axonframework.saga.annotation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Manages the election of which asynchronous saga event processor is responsible for creating a new Saga instance,
  * when necessary.
+ * <p/>
+ * The election doesn't use any locks. Processors that do not own the new Saga instance cast their vote and continue
+ * processing immediately. Only the owning processor waits, and only when it didn't find a Saga to invoke itself and
+ * the other processors haven't cast their votes yet.
  *
  * @author Allard Buijze
  * @since 2.0
@@ -32,17 +36,16 @@ import java.util.concurrent.locks.ReentrantLock;
 class AsyncSagaCreationElector {
 
     private static final Logger logger = LoggerFactory.getLogger(AsyncSagaCreationElector.class);
+    private static final int SPIN_TRIES = 100;
+    private static final long MAX_WAIT_NANOS = 1000000;
 
-    private final ReentrantLock votingLock = new ReentrantLock();
-    private final Condition allVotesCast = votingLock.newCondition();
-
-    // guarded by "votingLock"
-    private int castVotes = 0;
+    private final AtomicInteger castVotes = new AtomicInteger();
     private volatile boolean invocationDetected = false;
 
     /**
      * Forces the current thread to wait for the voting to complete if it is responsible for creating the Saga. As soon
-     * as an invocation has been recorded, the waiting thread is released.
+     * as an invocation has been recorded, the waiting thread is released. Threads that are not responsible for
+     * creating the Saga never wait.
      *
      * @param didInvocation      indicates whether the current processor found a Saga to process
      * @param totalVotesExpected The total number of processors expected to cast a vote
@@ -51,39 +54,54 @@ class AsyncSagaCreationElector {
      */
     public boolean waitForSagaCreationVote(final boolean didInvocation, final int totalVotesExpected,
                                            final boolean isSagaOwner) {
-        votingLock.lock();
-        try {
-            invocationDetected = invocationDetected || didInvocation;
-            castVotes++;
-            while (isSagaOwner && !invocationDetected && castVotes < totalVotesExpected) {
-                try {
-                    allVotesCast.await();
-                } catch (InterruptedException e) {
-                    // interrupting this process is not supported.
-                    logger.warn("This thread has been interrupted, but the interruption has "
-                                        + "been ignored to prevent loss of information.");
-                }
+        if (didInvocation) {
+            // must be written before the vote is counted, to make it visible to the owner
+            invocationDetected = true;
+        }
+        if (!isSagaOwner) {
+            castVotes.incrementAndGet();
+            return false;
+        }
+        int tries = 0;
+        long waitNanos = 1;
+        boolean interrupted = false;
+        while (!isVotingComplete(totalVotesExpected)) {
+            if (tries++ < SPIN_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(waitNanos);
+                waitNanos = Math.min(waitNanos * 2, MAX_WAIT_NANOS);
             }
-            if (isSagaOwner) {
-                return !invocationDetected;
+            if (Thread.interrupted()) {
+                // interrupting this process is not supported.
+                logger.warn("This thread has been interrupted, but the interruption has "
+                                    + "been ignored to prevent loss of information.");
+                interrupted = true;
             }
-            allVotesCast.signalAll();
-        } finally {
-            votingLock.unlock();
         }
-        return false;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return !invocationDetected;
+    }
+
+    /**
+     * Indicates whether the outcome of the election is known to the owner of the new Saga instance. That is the case
+     * when any of the processors has found a Saga to invoke, or when all processors other than the owner have cast
+     * their vote.
+     *
+     * @param totalVotesExpected The total number of processors expected to cast a vote
+     * @return <code>true</code> if the owner can decide without waiting, otherwise <code>false</code>
+     */
+    public boolean isVotingComplete(int totalVotesExpected) {
+        return invocationDetected || castVotes.get() >= totalVotesExpected - 1;
     }
 
     /**
      * Clears the voting counts for a new round.
      */
     public void clear() {
-        votingLock.lock();
-        try {
-            castVotes = 0;
-            invocationDetected = false;
-        } finally {
-            votingLock.unlock();
-        }
+        castVotes.set(0);
+        invocationDetected = false;
     }
 }
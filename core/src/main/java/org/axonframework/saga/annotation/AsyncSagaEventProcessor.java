@@ -19,6 +19,7 @@ package org.axonframework.saga.annotation;
 import com.lmax.disruptor.EventHandler;
 import org.axonframework.eventhandling.TransactionManager;
 import org.axonframework.eventhandling.TransactionStatus;
+import org.axonframework.saga.BatchingSagaRepository;
 import org.axonframework.saga.Saga;
 import org.axonframework.saga.SagaRepository;
 
@@ -30,6 +31,9 @@ import java.util.TreeMap;
 /**
  * Processes events by forwarding it to Saga instances "owned" by each processor. This processor uses a consistent
  * hashing algorithm to assign the owner of each Saga.
+ * <p/>
+ * When an event should only create a Saga if no existing Saga is found, the processor owning the new instance decides
+ * whether to create it. The other processors only cast their vote and continue processing.
  *
  * @author Allard Buijze
  * @since 2.0
@@ -87,10 +91,12 @@ final class AsyncSagaEventProcessor implements EventHandler<AsyncSagaProcessingE
                 }
                 break;
             case IF_NONE_FOUND:
-                persistProcessedSagas(true);
-                boolean shouldCreate = entry.waitForSagaCreationVote(sagaInvoked, processorCount,
-                                                                     ownedByCurrentProcessor(entry.getNewSaga()
-                                                                                                  .getSagaIdentifier()));
+                boolean ownsNewSaga = ownedByCurrentProcessor(entry.getNewSaga().getSagaIdentifier());
+                if (ownsNewSaga && !sagaInvoked && !entry.isSagaCreationVoteComplete(processorCount)) {
+                    // we need to wait for the other processors. Don't keep any resources locked in the meantime
+                    persistProcessedSagas(true);
+                }
+                boolean shouldCreate = entry.waitForSagaCreationVote(sagaInvoked, processorCount, ownsNewSaga);
                 if (shouldCreate) {
                     processedSagas.put(entry.getNewSaga().getSagaIdentifier(), entry.getNewSaga());
                     entry.getNewSaga().handle(entry.getPublishedEvent());
@@ -114,8 +120,12 @@ final class AsyncSagaEventProcessor implements EventHandler<AsyncSagaProcessingE
     private void persistProcessedSagas(boolean ensureNewTransaction) {
         if (!processedSagas.isEmpty()) {
             ensureLiveTransaction();
-            for (Saga saga : processedSagas.values()) {
-                sagaRepository.commit(saga);
+            if (sagaRepository instanceof BatchingSagaRepository) {
+                ((BatchingSagaRepository) sagaRepository).commitAll(processedSagas.values());
+            } else {
+                for (Saga saga : processedSagas.values()) {
+                    sagaRepository.commit(saga);
+                }
             }
         }
         if (transactionStatus != null) {
@@ -112,9 +112,21 @@ class AsyncSagaProcessingEvent {
         newSaga = null;
     }
 
+    /**
+     * Indicates whether the owner of the new Saga instance can decide whether to create it without waiting for the
+     * votes of other processors.
+     *
+     * @param processorCount The total number of processors expected to cast a vote
+     * @return <code>true</code> if the outcome of the vote is known, otherwise <code>false</code>
+     */
+    public boolean isSagaCreationVoteComplete(int processorCount) {
+        return elector.isVotingComplete(processorCount);
+    }
+
     /**
      * Forces the current thread to wait for the voting to complete if it is responsible for creating the Saga. As soon
-     * as an invocation has been recorded, the waiting thread is released.
+     * as an invocation has been recorded, the waiting thread is released. Processors that are not responsible for
+     * creating the Saga cast their vote without waiting.
      *
      * @param didEventInvocation  indicates whether the current processor found a Saga to process
      * @param processorCount      The total number of processors expected to cast a vote
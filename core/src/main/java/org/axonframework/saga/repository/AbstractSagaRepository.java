@@ -16,12 +16,20 @@
 
 package org.axonframework.saga.repository;
 
+import org.axonframework.common.Assert;
+import org.axonframework.eventhandling.TransactionListener;
+import org.axonframework.eventhandling.TransactionStatus;
 import org.axonframework.saga.AssociationValue;
 import org.axonframework.saga.AssociationValues;
+import org.axonframework.saga.BatchingSagaRepository;
 import org.axonframework.saga.Saga;
-import org.axonframework.saga.SagaRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -29,21 +37,27 @@ import java.util.Set;
  * saga
  * instances in the JVM. That means it will prevent multiple instances of the same conceptual Saga (i.e. with same
  * identifier) to exist within the JVM.
+ * <p/>
+ * Optionally, updates of sagas can be written behind. In that case, sagas committed while processing a transactional
+ * batch of events are only updated in the backing storage when the batch is about to be committed. Sagas that are
+ * committed several times in the same batch are updated only once.
  *
  * @author Allard Buijze
  * @since 0.7
  */
-public abstract class AbstractSagaRepository implements SagaRepository {
+public abstract class AbstractSagaRepository implements BatchingSagaRepository {
 
     private final AssociationValueMap associationValueMap = new AssociationValueMap();
-    private final SagaCache sagaCache = new SagaCache();
+    private final ThreadLocal<WriteBehindBatch> writeBehindBatch = new ThreadLocal<WriteBehindBatch>();
+    private volatile SagaCache sagaCache = new SagaCache();
+    private volatile boolean writeBehind = false;
 
     @Override
     public <T extends Saga> Set<T> find(Class<T> type, Set<AssociationValue> associationValues) {
         Set<String> sagaIdentifiers = new HashSet<String>();
         Set<T> result = new HashSet<T>();
         for (AssociationValue associationValue : associationValues) {
-            Set<String> identifiers = associationValueMap.findSagas(typeOf(type), associationValue);
+            Set<String> identifiers = findAssociatedSagaIdentifiers(typeOf(type), associationValue);
             if (identifiers != null) {
                 sagaIdentifiers.addAll(identifiers);
             }
@@ -85,7 +99,7 @@ public abstract class AbstractSagaRepository implements SagaRepository {
         Saga cachedSaga = sagaCache.put(saga);
         if (isSameInstance(cachedSaga, saga)) {
             for (AssociationValue av : saga.getAssociationValues()) {
-                associationValueMap.add(av, typeOf(saga), saga.getSagaIdentifier());
+                addAssociationValueToIndex(av, typeOf(saga), saga.getSagaIdentifier());
                 storeAssociationValue(av, typeOf(saga), saga.getSagaIdentifier());
             }
             saga.getAssociationValues().addChangeListener(
@@ -119,13 +133,69 @@ public abstract class AbstractSagaRepository implements SagaRepository {
     @Override
     public void commit(Saga saga) {
         if (!saga.isActive()) {
-            for (AssociationValue associationValue : saga.getAssociationValues()) {
-                associationValueMap.remove(associationValue, typeOf(saga), saga.getSagaIdentifier());
-            }
-            deleteSaga(saga);
+            end(saga);
         } else {
-            updateSaga(saga);
+            WriteBehindBatch batch = currentWriteBehindBatch();
+            if (batch == null) {
+                updateSaga(saga);
+            } else {
+                batch.add(saga);
+            }
+        }
+    }
+
+    @Override
+    public void commitAll(Collection<? extends Saga> sagas) {
+        List<Saga> activeSagas = new ArrayList<Saga>(sagas.size());
+        for (Saga saga : sagas) {
+            if (saga.isActive()) {
+                activeSagas.add(saga);
+            } else {
+                end(saga);
+            }
+        }
+        if (!activeSagas.isEmpty()) {
+            WriteBehindBatch batch = currentWriteBehindBatch();
+            if (batch == null) {
+                updateSagas(activeSagas);
+            } else {
+                for (Saga saga : activeSagas) {
+                    batch.add(saga);
+                }
+            }
+        }
+    }
+
+    private void end(Saga saga) {
+        WriteBehindBatch batch = writeBehindBatch.get();
+        if (batch != null) {
+            batch.remove(saga);
+        }
+        for (AssociationValue associationValue : saga.getAssociationValues()) {
+            removeAssociationValueFromIndex(associationValue, typeOf(saga), saga.getSagaIdentifier());
+        }
+        deleteSaga(saga);
+        sagaCache.release(saga.getSagaIdentifier());
+    }
+
+    /**
+     * Returns the batch collecting the Sagas to update when the transactional batch processed by the current thread
+     * is about to be committed, or <code>null</code> if updates should be written immediately.
+     *
+     * @return the batch collecting Sagas to update, or <code>null</code> if updates are not written behind
+     */
+    private WriteBehindBatch currentWriteBehindBatch() {
+        TransactionStatus transactionStatus = TransactionStatus.current();
+        if (!writeBehind || transactionStatus == null) {
+            return null;
+        }
+        WriteBehindBatch batch = writeBehindBatch.get();
+        if (batch == null || batch.transactionStatus != transactionStatus) {
+            batch = new WriteBehindBatch(transactionStatus);
+            writeBehindBatch.set(batch);
+            transactionStatus.registerListener(batch);
         }
+        return batch;
     }
 
     /**
@@ -159,6 +229,19 @@ public abstract class AbstractSagaRepository implements SagaRepository {
      */
     protected abstract void updateSaga(Saga saga);
 
+    /**
+     * Update the given stored, active <code>sagas</code>. Implementations should override this method to write all
+     * updates to the underlying storage in a single batch. The default implementation invokes {@link
+     * #updateSaga(Saga)} for each of the given Sagas.
+     *
+     * @param sagas The sagas that have been modified and need to be updated in the storage
+     */
+    protected void updateSagas(Collection<Saga> sagas) {
+        for (Saga saga : sagas) {
+            updateSaga(saga);
+        }
+    }
+
     /**
      * Stores a newly created Saga instance.
      *
@@ -187,6 +270,55 @@ public abstract class AbstractSagaRepository implements SagaRepository {
     protected abstract void removeAssociationValue(AssociationValue associationValue,
                                                    String sagaType, String sagaIdentifier);
 
+    /**
+     * Returns the identifiers of the Sagas of given <code>sagaType</code> that have been associated with the given
+     * <code>associationValue</code>. Returns <code>null</code> or an empty set if no such Sagas exist.
+     * <p/>
+     * By default, the identifiers are looked up in the {@link #getAssociationValueMap() AssociationValueMap}.
+     * Subclasses may override this method to look them up in the backing storage instead, in which case they
+     * should also override {@link #addAssociationValueToIndex(AssociationValue, String, String)} and {@link
+     * #removeAssociationValueFromIndex(AssociationValue, String, String)}.
+     *
+     * @param sagaType         The type of Saga to find the identifiers of
+     * @param associationValue The association value the Sagas must have been associated with
+     * @return the identifiers of the Sagas associated with given <code>associationValue</code>
+     */
+    protected Set<String> findAssociatedSagaIdentifiers(String sagaType, AssociationValue associationValue) {
+        return associationValueMap.findSagas(sagaType, associationValue);
+    }
+
+    /**
+     * Registers the given <code>associationValue</code> of the Saga with given <code>sagaIdentifier</code>, so that it
+     * can be found using {@link #findAssociatedSagaIdentifiers(String, AssociationValue)}. This method is invoked
+     * before the association value is {@link #storeAssociationValue(AssociationValue, String, String) stored}.
+     * <p/>
+     * By default, the association value is added to the {@link #getAssociationValueMap() AssociationValueMap}.
+     *
+     * @param associationValue The association value to register
+     * @param sagaType         The type of Saga the association value belongs to
+     * @param sagaIdentifier   The identifier of the Saga the association value belongs to
+     */
+    protected void addAssociationValueToIndex(AssociationValue associationValue, String sagaType,
+                                              String sagaIdentifier) {
+        associationValueMap.add(associationValue, sagaType, sagaIdentifier);
+    }
+
+    /**
+     * Unregisters the given <code>associationValue</code> of the Saga with given <code>sagaIdentifier</code>. This
+     * method is invoked when an association value is removed from a Saga, and for each association value of a Saga
+     * that has ended.
+     * <p/>
+     * By default, the association value is removed from the {@link #getAssociationValueMap() AssociationValueMap}.
+     *
+     * @param associationValue The association value to unregister
+     * @param sagaType         The type of Saga the association value belongs to
+     * @param sagaIdentifier   The identifier of the Saga the association value belongs to
+     */
+    protected void removeAssociationValueFromIndex(AssociationValue associationValue, String sagaType,
+                                                   String sagaIdentifier) {
+        associationValueMap.remove(associationValue, sagaType, sagaIdentifier);
+    }
+
     /**
      * Returns the AssociationValueMap containing the mappings of AssociationValue to Saga.
      *
@@ -206,6 +338,38 @@ public abstract class AbstractSagaRepository implements SagaRepository {
         return sagaCache;
     }
 
+    /**
+     * Sets the SagaCache used to prevent multiple instances of the same conceptual Saga from being active in the JVM.
+     * Configure a bounded cache to prevent frequently used Sagas from being garbage collected. Defaults to a cache
+     * that doesn't retain any Sagas that are not referenced elsewhere.
+     * <p/>
+     * The cache should be set before the repository is used.
+     *
+     * @param sagaCache The cache to keep Saga instances in
+     */
+    public void setSagaCache(SagaCache sagaCache) {
+        Assert.notNull(sagaCache, "The saga cache may not be null");
+        this.sagaCache = sagaCache;
+    }
+
+    /**
+     * Sets whether updates of Sagas are written behind. When <code>true</code>, Sagas committed while the current
+     * thread processes a transactional batch of events (see {@link TransactionStatus#current()}) are updated once,
+     * when the batch is about to be committed. When the batch fails, pending updates are discarded. Sagas committed
+     * outside of a batch are always updated immediately. Defaults to <code>false</code>.
+     * <p/>
+     * Only schedulers that process events expose their transaction status to the handling thread (see {@link
+     * org.axonframework.eventhandling.EventProcessingScheduler#exposesTransactionStatus()}). Schedulers processing
+     * other types of tasks don't, so Sagas committed as a consequence of those tasks are not written behind.
+     * <p/>
+     * Note that the Sagas with pending updates are kept in memory until the batch completes.
+     *
+     * @param writeBehind whether to write updates of Sagas behind
+     */
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
     /**
      * Remove all elements from the cache pointing to Saga instances that have been garbage collected.
      */
@@ -213,6 +377,42 @@ public abstract class AbstractSagaRepository implements SagaRepository {
         sagaCache.purge();
     }
 
+    /**
+     * The Sagas awaiting an update when the transactional batch processed by the current thread is committed.
+     */
+    private final class WriteBehindBatch implements TransactionListener {
+
+        private final TransactionStatus transactionStatus;
+        private final Map<String, Saga> pendingUpdates = new LinkedHashMap<String, Saga>();
+
+        private WriteBehindBatch(TransactionStatus transactionStatus) {
+            this.transactionStatus = transactionStatus;
+        }
+
+        private void add(Saga saga) {
+            pendingUpdates.put(saga.getSagaIdentifier(), saga);
+        }
+
+        private void remove(Saga saga) {
+            pendingUpdates.remove(saga.getSagaIdentifier());
+        }
+
+        @Override
+        public void onPrepareCommit(TransactionStatus status) {
+            writeBehindBatch.remove();
+            if (!pendingUpdates.isEmpty()) {
+                updateSagas(new ArrayList<Saga>(pendingUpdates.values()));
+            }
+            pendingUpdates.clear();
+        }
+
+        @Override
+        public void onRollback(TransactionStatus status) {
+            writeBehindBatch.remove();
+            pendingUpdates.clear();
+        }
+    }
+
     private class AssociationValueChangeListener implements AssociationValues.ChangeListener {
 
         private final String sagaType;
@@ -225,14 +425,14 @@ public abstract class AbstractSagaRepository implements SagaRepository {
 
         @Override
         public void onAssociationValueAdded(AssociationValue newAssociationValue) {
-            associationValueMap.add(newAssociationValue, sagaType, sagaIdentifier);
+            addAssociationValueToIndex(newAssociationValue, sagaType, sagaIdentifier);
             storeAssociationValue(newAssociationValue, sagaType, sagaIdentifier);
         }
 
         @SuppressWarnings({"unchecked"})
         @Override
         public void onAssociationValueRemoved(AssociationValue associationValue) {
-            associationValueMap.remove(associationValue, sagaType, sagaIdentifier);
+            removeAssociationValueFromIndex(associationValue, sagaType, sagaIdentifier);
             removeAssociationValue(associationValue, sagaType, sagaIdentifier);
         }
     }
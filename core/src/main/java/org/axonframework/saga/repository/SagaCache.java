@@ -16,10 +16,17 @@
 
 package org.axonframework.saga.repository;
 
+import org.axonframework.common.Assert;
+import org.axonframework.common.CacheEntryWeigher;
+import org.axonframework.monitoring.jmx.JmxConfiguration;
 import org.axonframework.saga.Saga;
 
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -29,27 +36,97 @@ import java.util.concurrent.ConcurrentMap;
  * a Saga exist, this SagaCache will return that instance when it is looked up using its identifier.
  * <p/>
  * When all references to a Saga are cleared, the garbage collector <em>may</em> clear any unreferenced saga instances
- * from this Cache.
- * <p/>
- * When a reference from this Cache is removed, the entry itself may still survive in the cache (albeit empty). To
- * remove any empty entries, use the {@link #purge()} method. Empty entries are also cleared when accessed (cache
- * misses).
+ * from this Cache. Entries of sagas that have been cleared are removed from the cache when other sagas are put in the
+ * cache, or when the {@link #purge()} method is invoked. Empty entries are also cleared when accessed (cache misses).
  * <p/>
  * Note that the primary purpose of this cache is <em>not</em> to improve performance, but to prevent multiple instances
- * of the same conceptual saga (i.e. having the same identifier) from being active in the JVM.
+ * of the same conceptual saga (i.e. having the same identifier) from being active in the JVM. To prevent frequently
+ * used sagas from being garbage collected (and reloaded from the backing storage), the cache may be configured to
+ * retain a bounded number of recently used sagas, limited by either their count or their total weight. The retained
+ * sagas are divided in a number of segments, each guarded by its own lock and each holding a share of the maximum
+ * weight, so that threads accessing sagas in different segments do not block each other. As a consequence, sagas may
+ * be released from one segment while others still have room left. Retained sagas that aren't accessed within the
+ * {@link #setTimeToIdle(long) time-to-idle} are released when another saga in their segment is accessed, on any cache
+ * miss, or when the cache is purged. Alternatively, the cache
+ * may use {@link ReferenceType#SOFT soft references}, which are only cleared when the JVM is low on memory. Releasing
+ * a saga never breaks the guarantee that only a single instance of a saga is active: the saga remains available in the
+ * cache for as long as it is referenced elsewhere.
+ * <p/>
+ * Statistics about hits, misses, evictions and expirations are available through {@link #getStatistics()}. Bounded
+ * caches may register these statistics as an MBean, using the {@link SagaCacheStatisticsMXBean} interface. Each cache
+ * is registered under a name of its own, and is unregistered when the cache is {@link #close() closed}.
  *
  * @author Allard Buijze
  * @since 0.7
  */
 public class SagaCache {
 
-    private ConcurrentMap<String, Reference<Saga>> backingCache;
+    private static final int DEFAULT_SEGMENT_COUNT = 16;
+
+    private final ConcurrentMap<String, Reference<Saga>> backingCache;
+    private final ReferenceQueue<Saga> clearedReferences = new ReferenceQueue<Saga>();
+    private final RetainedSagas retainedSagas;
+    private final SagaCacheStatistics statistics = new SagaCacheStatistics(this);
+    private final String mBeanName;
+    private volatile ReferenceType referenceType = ReferenceType.WEAK;
 
     /**
-     * Initializes an empty cache.
+     * Initializes an empty cache, that doesn't retain any sagas that are not referenced elsewhere.
      */
     public SagaCache() {
         backingCache = new ConcurrentHashMap<String, Reference<Saga>>();
+        retainedSagas = null;
+        mBeanName = null;
+    }
+
+    /**
+     * Initializes an empty cache, that retains at most <code>maximumSize</code> recently used sagas. The statistics of
+     * the cache are not registered as an MBean.
+     *
+     * @param maximumSize The maximum number of sagas to retain
+     * @see #SagaCache(long, org.axonframework.common.CacheEntryWeigher, boolean)
+     */
+    public SagaCache(int maximumSize) {
+        this(maximumSize, UnitWeigher.INSTANCE, false);
+    }
+
+    /**
+     * Initializes an empty cache, that retains recently used sagas up to a total weight of
+     * <code>maximumWeight</code>, where the weight of each saga is calculated by the given <code>weigher</code>. The
+     * weigher is invoked with the saga identifier as key and the saga instance as value.
+     *
+     * @param maximumWeight  The maximum total weight of the sagas to retain
+     * @param weigher        The weigher calculating the weight of each saga
+     * @param registerMBeans true to register the mbeans, false for not registering them.
+     */
+    public SagaCache(long maximumWeight, CacheEntryWeigher weigher, boolean registerMBeans) {
+        this(maximumWeight, weigher, DEFAULT_SEGMENT_COUNT, registerMBeans);
+    }
+
+    /**
+     * Initializes an empty cache, that retains recently used sagas up to a total weight of
+     * <code>maximumWeight</code>, where the weight of each saga is calculated by the given <code>weigher</code>. The
+     * retained sagas are divided in at least <code>segmentCount</code> segments, rounded up to the next power of two.
+     * The number of segments is limited to the maximum weight, so that each segment is able to retain at least one
+     * saga.
+     *
+     * @param maximumWeight  The maximum total weight of the sagas to retain
+     * @param weigher        The weigher calculating the weight of each saga
+     * @param segmentCount   The minimum number of segments to divide the retained sagas in
+     * @param registerMBeans true to register the mbeans, false for not registering them.
+     */
+    public SagaCache(long maximumWeight, CacheEntryWeigher weigher, int segmentCount, boolean registerMBeans) {
+        Assert.isTrue(maximumWeight > 0, "The maximum weight must be a positive number");
+        Assert.isTrue(segmentCount > 0, "The segment count must be a positive number");
+        Assert.notNull(weigher, "The weigher may not be null");
+        backingCache = new ConcurrentHashMap<String, Reference<Saga>>();
+        retainedSagas = new RetainedSagas(maximumWeight, weigher, segmentCount);
+        if (registerMBeans) {
+            mBeanName = "SagaCache@" + Integer.toHexString(System.identityHashCode(this));
+            JmxConfiguration.getInstance().registerMBean(statistics, getClass(), mBeanName);
+        } else {
+            mBeanName = null;
+        }
     }
 
     /**
@@ -60,7 +137,15 @@ public class SagaCache {
      */
     public Saga get(String sagaIdentifier) {
         Reference<Saga> reference = backingCache.get(sagaIdentifier);
-        return getOrPurge(sagaIdentifier, reference);
+        Saga saga = getOrPurge(sagaIdentifier, reference);
+        if (saga == null) {
+            statistics.recordMiss();
+            expireIdleSagas();
+        } else {
+            statistics.recordHit();
+            retain(saga);
+        }
+        return saga;
     }
 
     /**
@@ -75,25 +160,50 @@ public class SagaCache {
      * @return The cached instance of the saga
      */
     public Saga put(Saga saga) {
-        backingCache.putIfAbsent(saga.getSagaIdentifier(), new WeakReference<Saga>(saga));
-        Saga cachedSaga = get(saga.getSagaIdentifier());
+        expungeClearedReferences();
+        String sagaIdentifier = saga.getSagaIdentifier();
+        Saga cachedSaga = null;
         while (cachedSaga == null) {
-            cachedSaga = put(saga);
+            Reference<Saga> reference = backingCache.get(sagaIdentifier);
+            if (reference == null) {
+                if (backingCache.putIfAbsent(sagaIdentifier, newReference(saga)) == null) {
+                    cachedSaga = saga;
+                }
+            } else {
+                cachedSaga = getOrPurge(sagaIdentifier, reference);
+            }
         }
+        retain(cachedSaga);
         return cachedSaga;
     }
 
+    /**
+     * Releases the saga with given <code>sagaIdentifier</code> from the retained sagas, making it available for
+     * garbage collection as soon as it is no longer referenced elsewhere. This method is typically invoked for sagas
+     * that have ended.
+     *
+     * @param sagaIdentifier The identifier of the saga to release
+     */
+    public void release(String sagaIdentifier) {
+        if (retainedSagas != null) {
+            retainedSagas.segmentFor(sagaIdentifier).remove(sagaIdentifier);
+        }
+    }
+
     /**
      * Clears any entries whose saga instances have been cleaned up by the garbage collector. Purged entries will no
-     * longer count against the {@link #size()} of the cache.
+     * longer count against the {@link #size()} of the cache. Retained sagas that haven't been accessed within the
+     * time-to-idle are released.
      */
     public void purge() {
+        expungeClearedReferences();
         for (Map.Entry<String, Reference<Saga>> entry : backingCache.entrySet()) {
             Reference<Saga> value = entry.getValue();
             if (value == null || value.get() == null) {
                 backingCache.remove(entry.getKey(), value);
             }
         }
+        expireIdleSagas();
     }
 
     /**
@@ -108,6 +218,20 @@ public class SagaCache {
         return backingCache.size();
     }
 
+    /**
+     * Returns the number of sagas that are retained by this cache, preventing them from being garbage collected.
+     * Retained sagas that have been idle for longer than the time-to-idle are released first.
+     *
+     * @return the number of retained sagas
+     */
+    public int retainedSize() {
+        if (retainedSagas == null) {
+            return 0;
+        }
+        expireIdleSagas();
+        return retainedSagas.size();
+    }
+
     /**
      * Indicates whether or not this cache is empty. The cache is considered not empty even if it only contains entries
      * to sagas that have been garbage collected.
@@ -120,6 +244,77 @@ public class SagaCache {
         return backingCache.isEmpty();
     }
 
+    /**
+     * Sets the time, in milliseconds, after which retained sagas that haven't been accessed are released. A value of
+     * zero or less disables time-to-idle expiration. Defaults to 0. Has no effect on caches that don't retain sagas.
+     *
+     * @param timeToIdleMillis the time-to-idle of retained sagas in milliseconds
+     */
+    public void setTimeToIdle(long timeToIdleMillis) {
+        if (retainedSagas != null) {
+            retainedSagas.timeToIdle = timeToIdleMillis;
+        }
+    }
+
+    /**
+     * Sets the type of reference used to refer to sagas in the cache. Changing the reference type only affects
+     * sagas put in the cache afterwards. Defaults to {@link ReferenceType#WEAK}.
+     *
+     * @param referenceType the type of reference to use for sagas in the cache
+     */
+    public void setReferenceType(ReferenceType referenceType) {
+        Assert.notNull(referenceType, "The reference type may not be null");
+        this.referenceType = referenceType;
+    }
+
+    /**
+     * Returns the statistics of this cache.
+     *
+     * @return the statistics of this cache
+     */
+    public SagaCacheStatisticsMXBean getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Unregisters the MBean exposing the statistics of this cache, if it was registered. As the MBean refers to the
+     * cache, the cache cannot be garbage collected until it has been closed.
+     */
+    public void close() {
+        if (mBeanName != null) {
+            JmxConfiguration.getInstance().unregisterMBean(getClass(), mBeanName);
+        }
+    }
+
+    private Reference<Saga> newReference(Saga saga) {
+        if (referenceType == ReferenceType.SOFT) {
+            return new SoftSagaReference(saga, clearedReferences);
+        }
+        return new WeakSagaReference(saga, clearedReferences);
+    }
+
+    private void expireIdleSagas() {
+        if (retainedSagas != null && retainedSagas.timeToIdle > 0) {
+            long now = System.currentTimeMillis();
+            for (Segment segment : retainedSagas.segments) {
+                segment.expireIdleSagas(now);
+            }
+        }
+    }
+
+    private void retain(Saga saga) {
+        if (retainedSagas != null) {
+            retainedSagas.segmentFor(saga.getSagaIdentifier()).add(saga);
+        }
+    }
+
+    private void expungeClearedReferences() {
+        Reference<? extends Saga> reference;
+        while ((reference = clearedReferences.poll()) != null) {
+            backingCache.remove(((IdentifiedReference) reference).getSagaIdentifier(), reference);
+        }
+    }
+
     private Saga getOrPurge(String sagaIdentifier, Reference<Saga> reference) {
         if (reference == null) {
             return null;
@@ -130,4 +325,188 @@ public class SagaCache {
         }
         return value;
     }
+
+    /**
+     * The type of reference used to refer to sagas that are not retained by the cache.
+     */
+    public static enum ReferenceType {
+
+        /**
+         * Sagas are cleared from the cache as soon as they are no longer referenced elsewhere.
+         */
+        WEAK,
+
+        /**
+         * Sagas that are no longer referenced elsewhere are cleared from the cache when the JVM needs the memory.
+         */
+        SOFT
+    }
+
+    private interface IdentifiedReference {
+
+        String getSagaIdentifier();
+    }
+
+    private static final class WeakSagaReference extends WeakReference<Saga> implements IdentifiedReference {
+
+        private final String sagaIdentifier;
+
+        private WeakSagaReference(Saga saga, ReferenceQueue<Saga> queue) {
+            super(saga, queue);
+            this.sagaIdentifier = saga.getSagaIdentifier();
+        }
+
+        @Override
+        public String getSagaIdentifier() {
+            return sagaIdentifier;
+        }
+    }
+
+    private static final class SoftSagaReference extends SoftReference<Saga> implements IdentifiedReference {
+
+        private final String sagaIdentifier;
+
+        private SoftSagaReference(Saga saga, ReferenceQueue<Saga> queue) {
+            super(saga, queue);
+            this.sagaIdentifier = saga.getSagaIdentifier();
+        }
+
+        @Override
+        public String getSagaIdentifier() {
+            return sagaIdentifier;
+        }
+    }
+
+    private static final class UnitWeigher implements CacheEntryWeigher {
+
+        private static final UnitWeigher INSTANCE = new UnitWeigher();
+
+        @Override
+        public long weigh(Object key, Object value) {
+            return 1;
+        }
+    }
+
+    /**
+     * Keeps strong references to recently used sagas, divided over a number of segments. Releasing a saga only removes
+     * the strong reference; the saga remains in the backing cache for as long as it is referenced elsewhere.
+     */
+    private final class RetainedSagas {
+
+        private final Segment[] segments;
+        private final int segmentMask;
+        private final CacheEntryWeigher weigher;
+        private volatile long timeToIdle;
+
+        private RetainedSagas(long maximumWeight, CacheEntryWeigher weigher, int segmentCount) {
+            int size = 1;
+            while (size < segmentCount && size * 2L <= maximumWeight) {
+                size <<= 1;
+            }
+            this.segments = new Segment[size];
+            for (int i = 0; i < size; i++) {
+                // the remainder is spread over the first segments, so that the segments add up to the maximum weight
+                segments[i] = new Segment(maximumWeight / size + (i < maximumWeight % size ? 1 : 0));
+            }
+            this.segmentMask = size - 1;
+            this.weigher = weigher;
+        }
+
+        private Segment segmentFor(String sagaIdentifier) {
+            int hash = sagaIdentifier.hashCode();
+            // spread the higher bits, as the mask only takes the lower bits into account
+            hash ^= (hash >>> 20) ^ (hash >>> 12);
+            hash ^= (hash >>> 7) ^ (hash >>> 4);
+            return segments[hash & segmentMask];
+        }
+
+        private int size() {
+            int size = 0;
+            for (Segment segment : segments) {
+                size += segment.size();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Holds the retained sagas of a segment, in least recently used order.
+     */
+    private final class Segment {
+
+        private final LinkedHashMap<String, RetainedSaga> sagas =
+                new LinkedHashMap<String, RetainedSaga>(16, 0.75f, true);
+        private final long maximumWeight;
+        private long weight;
+
+        private Segment(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        private synchronized void add(Saga saga) {
+            long now = System.currentTimeMillis();
+            RetainedSaga retainedSaga = sagas.get(saga.getSagaIdentifier());
+            if (retainedSaga == null) {
+                long sagaWeight = retainedSagas.weigher.weigh(saga.getSagaIdentifier(), saga);
+                sagas.put(saga.getSagaIdentifier(), new RetainedSaga(saga, sagaWeight, now));
+                weight += sagaWeight;
+            } else {
+                retainedSaga.lastAccess = now;
+            }
+            expire(now);
+            Iterator<RetainedSaga> iterator = sagas.values().iterator();
+            while (weight > maximumWeight && iterator.hasNext()) {
+                weight -= iterator.next().weight;
+                iterator.remove();
+                statistics.recordEviction();
+            }
+        }
+
+        private synchronized void remove(String sagaIdentifier) {
+            RetainedSaga retainedSaga = sagas.remove(sagaIdentifier);
+            if (retainedSaga != null) {
+                weight -= retainedSaga.weight;
+            }
+        }
+
+        private synchronized void expireIdleSagas(long now) {
+            expire(now);
+        }
+
+        private void expire(long now) {
+            long timeToIdle = retainedSagas.timeToIdle;
+            if (timeToIdle <= 0) {
+                return;
+            }
+            // entries are iterated in access order, so the first entry that isn't idle ends the expiration
+            Iterator<RetainedSaga> iterator = sagas.values().iterator();
+            while (iterator.hasNext()) {
+                RetainedSaga retainedSaga = iterator.next();
+                if (now - retainedSaga.lastAccess < timeToIdle) {
+                    return;
+                }
+                weight -= retainedSaga.weight;
+                iterator.remove();
+                statistics.recordExpiration();
+            }
+        }
+
+        private synchronized int size() {
+            return sagas.size();
+        }
+    }
+
+    private static final class RetainedSaga {
+
+        // the strong reference preventing the saga from being garbage collected
+        private final Saga saga;
+        private final long weight;
+        private long lastAccess;
+
+        private RetainedSaga(Saga saga, long weight, long lastAccess) {
+            this.saga = saga;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
 }
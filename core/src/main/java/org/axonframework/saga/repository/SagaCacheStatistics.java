@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics object to store information about the use of a {@link SagaCache}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class SagaCacheStatistics implements SagaCacheStatisticsMXBean {
+
+    private final SagaCache cache;
+    private final AtomicLong hitCounter = new AtomicLong();
+    private final AtomicLong missCounter = new AtomicLong();
+    private final AtomicLong evictionCounter = new AtomicLong();
+    private final AtomicLong expirationCounter = new AtomicLong();
+
+    /**
+     * Creates an instance of this statistics MBean for the given <code>cache</code>.
+     *
+     * @param cache the cache to keep statistics for
+     */
+    SagaCacheStatistics(SagaCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public int getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public int getRetainedSize() {
+        return cache.retainedSize();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCounter.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCounter.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = hitCounter.get();
+        long total = hits + missCounter.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCounter.get();
+    }
+
+    @Override
+    public long getExpirationCount() {
+        return expirationCounter.get();
+    }
+
+    @Override
+    public void resetStatistics() {
+        hitCounter.set(0);
+        missCounter.set(0);
+        evictionCounter.set(0);
+        expirationCounter.set(0);
+    }
+
+    /*----- end of jmx enabled methods -----*/
+
+    /**
+     * Indicate that a saga was found in the cache.
+     */
+    void recordHit() {
+        hitCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate that a saga was not found in the cache.
+     */
+    void recordMiss() {
+        missCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate that a saga was released because the maximum size of the cache was exceeded.
+     */
+    void recordEviction() {
+        evictionCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate that a saga was released because it wasn't accessed within the time-to-idle.
+     */
+    void recordExpiration() {
+        expirationCounter.incrementAndGet();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository;
+
+/**
+ * Interface describing the management information exposed by the {@link SagaCache}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface SagaCacheStatisticsMXBean {
+
+    /**
+     * Returns the number of entries currently in the cache, including entries of sagas that have been garbage
+     * collected, but haven't been purged yet.
+     *
+     * @return int representing the number of entries in the cache
+     */
+    int getSize();
+
+    /**
+     * Returns the number of sagas the cache currently prevents from being garbage collected.
+     *
+     * @return int representing the number of retained sagas
+     */
+    int getRetainedSize();
+
+    /**
+     * Returns the number of times a saga was found in the cache.
+     *
+     * @return long representing the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of times a saga was not found in the cache, requiring it to be loaded from the backing
+     * storage.
+     *
+     * @return long representing the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Returns the ratio of cache lookups that resulted in a hit.
+     *
+     * @return double between 0 and 1 representing the hit ratio
+     */
+    double getHitRatio();
+
+    /**
+     * Returns the number of sagas released because the maximum size of the cache was exceeded.
+     *
+     * @return long representing the number of evicted sagas
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the number of sagas released because they weren't accessed within the time-to-idle.
+     *
+     * @return long representing the number of expired sagas
+     */
+    long getExpirationCount();
+
+    /**
+     * Resets all counters to zero.
+     */
+    void resetStatistics();
+}
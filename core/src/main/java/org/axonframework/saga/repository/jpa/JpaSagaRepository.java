@@ -23,10 +23,15 @@ import org.axonframework.saga.ResourceInjector;
 import org.axonframework.saga.Saga;
 import org.axonframework.saga.repository.AbstractSagaRepository;
 import org.axonframework.serializer.JavaSerializer;
-import org.axonframework.serializer.SerializedObject;
 import org.axonframework.serializer.Serializer;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.Resource;
 import javax.persistence.EntityManager;
@@ -35,19 +40,32 @@ import javax.persistence.EntityManager;
  * JPA implementation of the Saga Repository. It uses an {@link EntityManager} to persist the actual saga in a backing
  * store.
  * <p/>
- * After each operations that modified the backing store, {@link javax.persistence.EntityManager#flush()} is invoked to
- * ensure the store contains the last modifications. To override this behavior, see {@link }
+ * When a saga is stored, updated or deleted, {@link javax.persistence.EntityManager#flush()} is invoked to ensure the
+ * store contains the last modifications. To override this behavior, see {@link #setUseExplicitFlush(boolean)}.
+ * Changes to the association values of a saga are not flushed separately, but together with the saga itself, when it
+ * is committed. Sagas committed using {@link #commitAll(java.util.Collection)} are updated in the persistence context
+ * and flushed once, allowing the JPA implementation to write them using JDBC batches (e.g. by setting
+ * <code>hibernate.jdbc.batch_size</code>).
+ * <p/>
+ * By default, all association values are loaded into memory when the repository is first used. When {@link
+ * #setUseAssociationValueQueries(boolean) association value queries} are enabled, the sagas associated with an
+ * association value are looked up using a query instead, optionally caching the results for a limited number of
+ * association values.
  *
  * @author Allard Buijze
  * @since 0.7
  */
 public class JpaSagaRepository extends AbstractSagaRepository {
 
+    private static final int MAX_SAGA_IDENTIFIERS_PER_QUERY = 500;
+
     private final EntityManagerProvider entityManagerProvider;
     private ResourceInjector injector;
     private Serializer serializer;
     private volatile boolean useExplicitFlush = true;
     private volatile boolean initialized = false;
+    private volatile boolean useAssociationValueQueries = false;
+    private volatile AssociationValueCache associationValueCache;
 
     /**
      * Initializes a Saga Repository with a <code>JavaSerializer</code>.
@@ -83,6 +101,66 @@ public class JpaSagaRepository extends AbstractSagaRepository {
         super.commit(saga);
     }
 
+    @Override
+    public void commitAll(Collection<? extends Saga> sagas) {
+        if (!initialized) {
+            initialize();
+        }
+        super.commitAll(sagas);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    @Override
+    protected Set<String> findAssociatedSagaIdentifiers(String sagaType, AssociationValue associationValue) {
+        if (!useAssociationValueQueries) {
+            return super.findAssociatedSagaIdentifiers(sagaType, associationValue);
+        }
+        AssociationValueCache cache = associationValueCache;
+        long cacheModificationCount = 0;
+        if (cache != null) {
+            Set<String> cachedIdentifiers = cache.get(sagaType, associationValue);
+            if (cachedIdentifiers != null) {
+                return cachedIdentifiers;
+            }
+            cacheModificationCount = cache.getModificationCount();
+        }
+        EntityManager entityManager = entityManagerProvider.getEntityManager();
+        List<String> identifiers = entityManager.createQuery(
+                "SELECT ae.sagaId FROM AssociationValueEntry ae "
+                        + "WHERE ae.associationKey = :associationKey "
+                        + "AND ae.associationValue = :associationValue "
+                        + "AND ae.sagaType = :sagaType")
+                                                .setParameter("associationKey", associationValue.getKey())
+                                                .setParameter("associationValue", associationValue.getValue())
+                                                .setParameter("sagaType", sagaType)
+                                                .getResultList();
+        Set<String> result = Collections.unmodifiableSet(new HashSet<String>(identifiers));
+        if (cache != null) {
+            cache.putIfUnmodified(sagaType, associationValue, result, cacheModificationCount);
+        }
+        return result;
+    }
+
+    @Override
+    protected void addAssociationValueToIndex(AssociationValue associationValue, String sagaType,
+                                              String sagaIdentifier) {
+        if (!useAssociationValueQueries) {
+            super.addAssociationValueToIndex(associationValue, sagaType, sagaIdentifier);
+        } else if (associationValueCache != null) {
+            associationValueCache.add(sagaType, associationValue, sagaIdentifier);
+        }
+    }
+
+    @Override
+    protected void removeAssociationValueFromIndex(AssociationValue associationValue, String sagaType,
+                                                   String sagaIdentifier) {
+        if (!useAssociationValueQueries) {
+            super.removeAssociationValueFromIndex(associationValue, sagaType, sagaIdentifier);
+        } else if (associationValueCache != null) {
+            associationValueCache.remove(sagaType, associationValue, sagaIdentifier);
+        }
+    }
+
     @SuppressWarnings({"unchecked"})
     @Override
     protected void removeAssociationValue(AssociationValue associationValue, String sagaType, String sagaIdentifier) {
@@ -102,18 +180,12 @@ public class JpaSagaRepository extends AbstractSagaRepository {
                 entityManager.remove(entry);
             }
         }
-        if (useExplicitFlush) {
-            entityManager.flush();
-        }
     }
 
     @Override
     protected void storeAssociationValue(AssociationValue associationValue, String sagaType, String sagaIdentifier) {
         EntityManager entityManager = entityManagerProvider.getEntityManager();
         entityManager.persist(new AssociationValueEntry(sagaType, sagaIdentifier, associationValue));
-        if (useExplicitFlush) {
-            entityManager.flush();
-        }
     }
 
     @Override
@@ -149,19 +221,51 @@ public class JpaSagaRepository extends AbstractSagaRepository {
     @Override
     protected void updateSaga(Saga saga) {
         EntityManager entityManager = entityManagerProvider.getEntityManager();
-        SerializedObject serializedSaga = serializer.serialize(saga);
-        int updates = entityManager.createQuery(
-                "UPDATE SagaEntry se SET se.serializedSaga = :serializedSaga, se"
-                        + ".sagaType = :sagaType, "
-                        + "se.revision = :revision WHERE se.sagaId = :sagaId")
-                                   .setParameter("sagaId", saga.getSagaIdentifier())
-                                   .setParameter("serializedSaga", serializedSaga.getData())
-                                   .setParameter("sagaType", serializedSaga.getType().getName())
-                                   .setParameter("revision", serializedSaga.getType().getRevision())
-                                   .executeUpdate();
-        if (updates == 0) {
+        // the entry is usually still managed, as the saga was loaded in the same persistence context
+        SagaEntry entry = entityManager.find(SagaEntry.class, saga.getSagaIdentifier());
+        if (entry == null) {
             storeSaga(saga);
-        } else if (useExplicitFlush) {
+        } else {
+            entry.update(saga, serializer);
+            if (useExplicitFlush) {
+                entityManager.flush();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation loads the entries of the given sagas using a single query per {@value
+     * #MAX_SAGA_IDENTIFIERS_PER_QUERY} sagas, returning the instances already managed by the persistence context where
+     * available, and updates them in the persistence context. Sagas without an entry are stored as new entries. When
+     * explicit flushing is enabled, all changes are flushed at once, allowing the JPA implementation to write them
+     * using JDBC batches.
+     */
+    @SuppressWarnings({"unchecked"})
+    @Override
+    protected void updateSagas(Collection<Saga> sagas) {
+        EntityManager entityManager = entityManagerProvider.getEntityManager();
+        Map<String, Saga> sagasToUpdate = new LinkedHashMap<String, Saga>();
+        for (Saga saga : sagas) {
+            sagasToUpdate.put(saga.getSagaIdentifier(), saga);
+        }
+        List<String> sagaIdentifiers = new ArrayList<String>(sagasToUpdate.keySet());
+        for (int i = 0; i < sagaIdentifiers.size(); i += MAX_SAGA_IDENTIFIERS_PER_QUERY) {
+            List<String> identifiersInQuery = sagaIdentifiers.subList(
+                    i, Math.min(i + MAX_SAGA_IDENTIFIERS_PER_QUERY, sagaIdentifiers.size()));
+            List<SagaEntry> entries = entityManager.createQuery(
+                    "SELECT se FROM SagaEntry se WHERE se.sagaId IN (:sagaIds)")
+                                                   .setParameter("sagaIds", identifiersInQuery)
+                                                   .getResultList();
+            for (SagaEntry entry : entries) {
+                entry.update(sagasToUpdate.remove(entry.getSagaId()), serializer);
+            }
+        }
+        for (Saga saga : sagasToUpdate.values()) {
+            entityManager.persist(new SagaEntry(saga, serializer));
+        }
+        if (useExplicitFlush) {
             entityManager.flush();
         }
     }
@@ -177,12 +281,13 @@ public class JpaSagaRepository extends AbstractSagaRepository {
 
     /**
      * Initializes the repository by loading all AssociationValues in memory. Failure to initialize properly might
-     * result in Saga instance not being found based on their <code>AssociationValue</code>s.
+     * result in Saga instance not being found based on their <code>AssociationValue</code>s. When association value
+     * queries are used, nothing needs to be loaded.
      */
     @SuppressWarnings({"unchecked"})
     private synchronized void initialize() {
         EntityManager entityManager = entityManagerProvider.getEntityManager();
-        if (!initialized) {
+        if (!initialized && !useAssociationValueQueries) {
             List<AssociationValueEntry> entries =
                     entityManager.createQuery("SELECT ae FROM AssociationValueEntry ae").getResultList();
             getAssociationValueMap().clear();
@@ -190,8 +295,8 @@ public class JpaSagaRepository extends AbstractSagaRepository {
                 AssociationValue associationValue = entry.getAssociationValue();
                 getAssociationValueMap().add(associationValue, entry.getSagaType(), entry.getSagaIdentifier());
             }
-            initialized = true;
         }
+        initialized = true;
     }
 
     /**
@@ -223,4 +328,124 @@ public class JpaSagaRepository extends AbstractSagaRepository {
     public void setUseExplicitFlush(boolean useExplicitFlush) {
         this.useExplicitFlush = useExplicitFlush;
     }
+
+    /**
+     * Sets whether the sagas associated with an association value should be looked up using a query on the
+     * AssociationValueEntry table, instead of loading all association values in memory when the repository is first
+     * used. Defaults to <code>false</code>.
+     * <p/>
+     * Using queries keeps startup time and memory consumption independent of the number of active sagas, at the cost
+     * of a query for each lookup. Make sure the AssociationValueEntry table has an index on the
+     * <code>associationKey</code>, <code>associationValue</code> and <code>sagaType</code> columns.
+     *
+     * @param useAssociationValueQueries <code>true</code> to look up association values using queries,
+     *                                   <code>false</code> to keep them in memory
+     * @see #setAssociationValueCacheSize(int)
+     */
+    public void setUseAssociationValueQueries(boolean useAssociationValueQueries) {
+        this.useAssociationValueQueries = useAssociationValueQueries;
+    }
+
+    /**
+     * Sets the maximum number of association values for which the identifiers of associated sagas are cached in
+     * memory. When the cache is full, the least recently used association value is evicted. The cache is only used
+     * when {@link #setUseAssociationValueQueries(boolean) association value queries} are enabled. Defaults to 0,
+     * meaning that no association values are cached.
+     * <p/>
+     * Note that the cache is only kept consistent with changes made through this repository instance. Don't use a
+     * cache when other processes modify the sagas in the same backing store.
+     *
+     * @param associationValueCacheSize the maximum number of association values to cache
+     */
+    public void setAssociationValueCacheSize(int associationValueCacheSize) {
+        this.associationValueCache =
+                associationValueCacheSize > 0 ? new AssociationValueCache(associationValueCacheSize) : null;
+    }
+
+    /**
+     * Least recently used cache of the identifiers of sagas associated with an association value. Changes to the
+     * associations of cached association values are applied to the cache directly. Query results are only cached if
+     * no association value has changed while the query was executed.
+     */
+    private static final class AssociationValueCache {
+
+        private final Map<CacheKey, Set<String>> entries;
+        private long modificationCount;
+
+        private AssociationValueCache(final int maxSize) {
+            this.entries = new LinkedHashMap<CacheKey, Set<String>>(16, 0.75f, true) {
+                private static final long serialVersionUID = -4257282349418577163L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, Set<String>> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        private synchronized Set<String> get(String sagaType, AssociationValue associationValue) {
+            return entries.get(new CacheKey(sagaType, associationValue));
+        }
+
+        private synchronized long getModificationCount() {
+            return modificationCount;
+        }
+
+        private synchronized void putIfUnmodified(String sagaType, AssociationValue associationValue,
+                                                  Set<String> sagaIdentifiers, long expectedModificationCount) {
+            if (modificationCount == expectedModificationCount) {
+                entries.put(new CacheKey(sagaType, associationValue), sagaIdentifiers);
+            }
+        }
+
+        private synchronized void add(String sagaType, AssociationValue associationValue, String sagaIdentifier) {
+            modificationCount++;
+            CacheKey key = new CacheKey(sagaType, associationValue);
+            Set<String> current = entries.get(key);
+            if (current != null && !current.contains(sagaIdentifier)) {
+                Set<String> updated = new HashSet<String>(current);
+                updated.add(sagaIdentifier);
+                entries.put(key, Collections.unmodifiableSet(updated));
+            }
+        }
+
+        private synchronized void remove(String sagaType, AssociationValue associationValue, String sagaIdentifier) {
+            modificationCount++;
+            CacheKey key = new CacheKey(sagaType, associationValue);
+            Set<String> current = entries.get(key);
+            if (current != null && current.contains(sagaIdentifier)) {
+                Set<String> updated = new HashSet<String>(current);
+                updated.remove(sagaIdentifier);
+                entries.put(key, Collections.unmodifiableSet(updated));
+            }
+        }
+    }
+
+    private static final class CacheKey {
+
+        private final String sagaType;
+        private final AssociationValue associationValue;
+
+        private CacheKey(String sagaType, AssociationValue associationValue) {
+            this.sagaType = sagaType;
+            this.associationValue = associationValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return sagaType.equals(other.sagaType) && associationValue.equals(other.associationValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sagaType.hashCode() + associationValue.hashCode();
+        }
+    }
 }
@@ -56,7 +56,21 @@ public class SagaEntry {
      */
     public SagaEntry(Saga saga, Serializer serializer) {
         this.sagaId = saga.getSagaIdentifier();
-        SerializedObject serialized = serializer.serialize(saga);
+        setSerializedSaga(serializer.serialize(saga));
+    }
+
+    /**
+     * Replaces the state stored in this entry with that of the given <code>saga</code>. The given saga must have the
+     * same identifier as the saga stored in this entry.
+     *
+     * @param saga       The saga to store
+     * @param serializer The serialization mechanism to convert the Saga to a byte stream
+     */
+    void update(Saga saga, Serializer serializer) {
+        setSerializedSaga(serializer.serialize(saga));
+    }
+
+    private void setSerializedSaga(SerializedObject serialized) {
         this.serializedSaga = serialized.getData();
         this.sagaType = serialized.getType().getName();
         this.revision = serialized.getType().getRevision();
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.serializer;
+
+import org.axonframework.common.SerializationException;
+
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.XMLEventConsumer;
+
+/**
+ * Abstract implementation of an Upcaster that upcasts XML in a single streaming pass, using a StAX XMLEventReader as
+ * intermediate representation. Unlike upcasters that use a dom4j Document, this upcaster does not require the entire
+ * XML tree to be held in memory. It is suitable for local changes, such as renaming, adding or removing elements.
+ * <p/>
+ * Each event read from the original representation is passed to {@link #processEvent(XMLEvent, int,
+ * XMLEventConsumer)}, which writes the events that replace it to the given output. The events are processed lazily,
+ * while the upcast representation is read.
+ * <p/>
+ * Implementations must not keep state between invocations of <code>processEvent</code>, as a single instance is used
+ * to upcast many representations, possibly concurrently.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public abstract class AbstractStaxUpcaster implements Upcaster<XMLEventReader> {
+
+    // factories are safe for concurrent use, as long as their location is not changed
+    private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+    @Override
+    public Class<XMLEventReader> expectedRepresentationType() {
+        return XMLEventReader.class;
+    }
+
+    @Override
+    public IntermediateRepresentation<?> upcast(IntermediateRepresentation<XMLEventReader> intermediateRepresentation) {
+        return new SimpleIntermediateRepresentation<XMLEventReader>(upcast(intermediateRepresentation.getType()),
+                                                                    XMLEventReader.class,
+                                                                    new UpcastingEventReader(
+                                                                            intermediateRepresentation.getData()));
+    }
+
+    /**
+     * Processes the given <code>event</code>, by adding the events that replace it to the given <code>output</code>.
+     * To leave the event unchanged, add it to the output. To remove it, add nothing.
+     * <p/>
+     * The <code>depth</code> is the number of elements enclosing the event, including the element that is started or
+     * ended by the event itself. Thus, the depth of the root element's start and end events is 1, and the depth of the
+     * text directly within the root element is 1 as well.
+     *
+     * @param event  The event read from the original representation
+     * @param depth  The nesting level of the event
+     * @param output The consumer to add the upcast events to
+     * @throws XMLStreamException when the events cannot be processed
+     */
+    protected abstract void processEvent(XMLEvent event, int depth, XMLEventConsumer output)
+            throws XMLStreamException;
+
+    /**
+     * Returns the factory to create new events with. The location of the factory may not be changed.
+     *
+     * @return the factory to create new events with
+     */
+    protected XMLEventFactory getEventFactory() {
+        return eventFactory;
+    }
+
+    /**
+     * Returns a copy of the given start or end element <code>event</code>, which has the given
+     * <code>localName</code>. Namespace, prefix, attributes and namespace declarations are retained.
+     *
+     * @param event     The start or end element event to rename
+     * @param localName The new local name of the element
+     * @return an event for the renamed element
+     */
+    protected XMLEvent rename(XMLEvent event, String localName) {
+        if (event.isStartElement()) {
+            StartElement start = event.asStartElement();
+            QName name = start.getName();
+            return eventFactory.createStartElement(name.getPrefix(), name.getNamespaceURI(), localName,
+                                                   start.getAttributes(), start.getNamespaces());
+        }
+        EndElement end = event.asEndElement();
+        QName name = end.getName();
+        return eventFactory.createEndElement(name.getPrefix(), name.getNamespaceURI(), localName,
+                                             end.getNamespaces());
+    }
+
+    /**
+     * XMLEventReader that passes the events of another reader through {@link #processEvent(XMLEvent, int,
+     * XMLEventConsumer)}.
+     */
+    private final class UpcastingEventReader implements XMLEventReader, XMLEventConsumer {
+
+        private final XMLEventReader source;
+        private final LinkedList<XMLEvent> pending = new LinkedList<XMLEvent>();
+        private int depth;
+
+        private UpcastingEventReader(XMLEventReader source) {
+            this.source = source;
+        }
+
+        @Override
+        public void add(XMLEvent event) {
+            pending.add(event);
+        }
+
+        @Override
+        public XMLEvent nextEvent() throws XMLStreamException {
+            if (!fill()) {
+                throw new NoSuchElementException("There are no more events to read");
+            }
+            return pending.removeFirst();
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return fill();
+            } catch (XMLStreamException e) {
+                throw new SerializationException("Failed to upcast the XML representation", e);
+            }
+        }
+
+        @Override
+        public XMLEvent peek() throws XMLStreamException {
+            return fill() ? pending.getFirst() : null;
+        }
+
+        @Override
+        public Object next() {
+            try {
+                return nextEvent();
+            } catch (XMLStreamException e) {
+                throw new SerializationException("Failed to upcast the XML representation", e);
+            }
+        }
+
+        @Override
+        public String getElementText() throws XMLStreamException {
+            StringBuilder text = new StringBuilder();
+            XMLEvent event = nextEvent();
+            while (!event.isEndElement()) {
+                if (event.isCharacters()) {
+                    text.append(event.asCharacters().getData());
+                } else if (event.isStartElement()) {
+                    throw new XMLStreamException("The element contains other elements", event.getLocation());
+                }
+                event = nextEvent();
+            }
+            return text.toString();
+        }
+
+        @Override
+        public XMLEvent nextTag() throws XMLStreamException {
+            XMLEvent event = nextEvent();
+            while ((event.isCharacters() && event.asCharacters().isWhiteSpace())
+                    || event.getEventType() == XMLEvent.COMMENT
+                    || event.getEventType() == XMLEvent.PROCESSING_INSTRUCTION) {
+                event = nextEvent();
+            }
+            if (!event.isStartElement() && !event.isEndElement()) {
+                throw new XMLStreamException("Expected a start or end element", event.getLocation());
+            }
+            return event;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return source.getProperty(name);
+        }
+
+        @Override
+        public void close() throws XMLStreamException {
+            source.close();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Events cannot be removed from an XMLEventReader");
+        }
+
+        private boolean fill() throws XMLStreamException {
+            while (pending.isEmpty() && source.hasNext()) {
+                XMLEvent event = source.nextEvent();
+                if (event.isStartElement()) {
+                    depth++;
+                }
+                processEvent(event, depth, this);
+                if (event.isEndElement()) {
+                    depth--;
+                }
+            }
+            return !pending.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer;
+
+/**
+ * Serializer that is able to append serialized data to a {@link SerializationBuffer}. This allows callers that only
+ * need to write the serialized data somewhere, such as event stores, to reuse a single buffer, instead of allocating
+ * new byte arrays for each serialized object.
+ * <p/>
+ * Callers should use {@link SerializationBuffer#serialize(Serializer, Object)}, which falls back to copying the result
+ * of {@link #serialize(Object)} for serializers that do not implement this interface.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface BufferingSerializer extends Serializer {
+
+    /**
+     * Serializes the given <code>object</code>, appending the serialized data to the given <code>buffer</code>. The
+     * returned SerializedObject refers to the appended range of the buffer, without copying it. It remains valid until
+     * the buffer is reset.
+     *
+     * @param object The object to serialize
+     * @param buffer The buffer to append the serialized data to
+     * @return the instance representing the serialized object, referring to the contents of the buffer
+     */
+    SerializedObject serialize(Object object, SerializationBuffer buffer);
+}
@@ -1,13 +1,18 @@
 package org.axonframework.serializer;
 
+import org.axonframework.common.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
 
+import static java.lang.String.format;
+
 /**
  * ConverterFactory implementation that will combine converters to form chains of converters to be able to convert
  * from one type to another, for which there is no suitable single converter.
@@ -15,6 +20,12 @@ import java.util.ServiceLoader;
  * This implementation will also autodetect ContentTypeConverter implementations by scanning
  * <code>/META-INF/services/org.axonframework.serializer.ContentTypeConverter</code> files on the classpath. These
  * files must contain the fully qualified class names of the implementations to use.
+ * <p/>
+ * The converter found for each combination of source and target type is cached, including the fact that no converter
+ * exists. Once cached, finding a converter requires a single map lookup. The cache is an immutable map that is
+ * replaced when a new route is added, allowing it to be read concurrently without locking. Registering a converter
+ * clears the cache. To bound memory usage, no more than a {@link #setMaxCachedRoutes(int) configurable number} of
+ * routes is cached.
  *
  * @author Allard Buijze
  * @since 2.0
@@ -22,7 +33,13 @@ import java.util.ServiceLoader;
 public class ChainingConverterFactory implements ConverterFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(ChainingConverterFactory.class);
-    private final Deque<ContentTypeConverter<?, ?>> converters = new ArrayDeque<ContentTypeConverter<?, ?>>();
+    private static final int DEFAULT_MAX_CACHED_ROUTES = 1024;
+
+    private final Object lock = new Object();
+    // both collections are immutable, and replaced while holding the lock
+    private volatile List<ContentTypeConverter<?, ?>> converters = Collections.emptyList();
+    private volatile Map<RouteKey, CachedRoute> routes = Collections.emptyMap();
+    private volatile int maxCachedRoutes = DEFAULT_MAX_CACHED_ROUTES;
 
     /**
      * Initialize a new ChainingConverterFactory. Will autodetect all converters mentioned in
@@ -31,28 +48,22 @@ public class ChainingConverterFactory implements ConverterFactory {
     public ChainingConverterFactory() {
         ServiceLoader<ContentTypeConverter> converterLoader = ServiceLoader.load(ContentTypeConverter.class);
         for (ContentTypeConverter converter : converterLoader) {
-            converters.addFirst(converter);
+            registerConverter(converter);
         }
     }
 
     @Override
     public <S, T> ContentTypeConverter getConverter(Class<S> sourceContentType, Class<T> targetContentType) {
-        for (ContentTypeConverter converter : converters) {
-            try {
-                if (converter.expectedSourceType().isAssignableFrom(sourceContentType) &&
-                        targetContentType.isAssignableFrom(converter.targetType())) {
-                    return converter;
-                }
-            } catch (NoClassDefFoundError e) {
-                logger.info("ContentTypeConverter [{}] is ignored. It seems to rely on a class that is "
-                                    + "not available in the class loader: {}", converter, e.getMessage());
-                converters.remove(converter);
-            }
+        CachedRoute route = routes.get(new RouteKey(sourceContentType, targetContentType));
+        if (route == null) {
+            route = calculateRoute(sourceContentType, targetContentType);
         }
-        ChainedConverter<S, T> converter = ChainedConverter.calculateChain(sourceContentType, targetContentType,
-                                                                           converters);
-        converters.addFirst(converter);
-        return converter;
+        if (route.converter == null) {
+            throw new CannotConvertBetweenTypesException(format("Cannot build a converter to convert from %s to %s",
+                                                                sourceContentType.getName(),
+                                                                targetContentType.getName()));
+        }
+        return route.converter;
     }
 
     /**
@@ -67,7 +78,14 @@ public class ChainingConverterFactory implements ConverterFactory {
      * @param converter the converter to register.
      */
     public void registerConverter(ContentTypeConverter converter) {
-        converters.addFirst(converter);
+        synchronized (lock) {
+            List<ContentTypeConverter<?, ?>> newConverters = new ArrayList<ContentTypeConverter<?, ?>>();
+            newConverters.add(converter);
+            newConverters.addAll(converters);
+            converters = Collections.unmodifiableList(newConverters);
+            // the new converter may provide a better route for combinations that have been calculated before
+            routes = Collections.emptyMap();
+        }
     }
 
     /**
@@ -82,4 +100,97 @@ public class ChainingConverterFactory implements ConverterFactory {
             registerConverter(converter);
         }
     }
+
+    /**
+     * Sets the maximum number of combinations of source and target type for which the converter is cached. When the
+     * maximum is reached, converters for other combinations are calculated each time they are requested. Defaults to
+     * 1024.
+     *
+     * @param maxCachedRoutes The maximum number of cached routes
+     */
+    public void setMaxCachedRoutes(int maxCachedRoutes) {
+        Assert.isTrue(maxCachedRoutes >= 0, "The maximum number of cached routes may not be negative");
+        this.maxCachedRoutes = maxCachedRoutes;
+    }
+
+    private CachedRoute calculateRoute(Class<?> sourceContentType, Class<?> targetContentType) {
+        RouteKey key = new RouteKey(sourceContentType, targetContentType);
+        synchronized (lock) {
+            CachedRoute route = routes.get(key);
+            if (route != null) {
+                return route;
+            }
+            route = new CachedRoute(findConverter(sourceContentType, targetContentType));
+            if (routes.size() < maxCachedRoutes) {
+                Map<RouteKey, CachedRoute> newRoutes = new HashMap<RouteKey, CachedRoute>(routes);
+                newRoutes.put(key, route);
+                routes = Collections.unmodifiableMap(newRoutes);
+            } else {
+                logger.debug("The converter from [{}] to [{}] is not cached, as the maximum number of cached "
+                                     + "routes has been reached.", sourceContentType.getName(),
+                             targetContentType.getName());
+            }
+            return route;
+        }
+    }
+
+    private ContentTypeConverter findConverter(Class<?> sourceContentType, Class<?> targetContentType) {
+        for (ContentTypeConverter converter : converters) {
+            try {
+                if (converter.expectedSourceType().isAssignableFrom(sourceContentType) &&
+                        targetContentType.isAssignableFrom(converter.targetType())) {
+                    return converter;
+                }
+            } catch (NoClassDefFoundError e) {
+                logger.info("ContentTypeConverter [{}] is ignored. It seems to rely on a class that is "
+                                    + "not available in the class loader: {}", converter, e.getMessage());
+                List<ContentTypeConverter<?, ?>> newConverters = new ArrayList<ContentTypeConverter<?, ?>>(converters);
+                newConverters.remove(converter);
+                converters = Collections.unmodifiableList(newConverters);
+            }
+        }
+        try {
+            return ChainedConverter.calculateChain(sourceContentType, targetContentType, converters);
+        } catch (CannotConvertBetweenTypesException e) {
+            return null;
+        }
+    }
+
+    private static final class RouteKey {
+
+        private final Class<?> source;
+        private final Class<?> target;
+
+        private RouteKey(Class<?> source, Class<?> target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RouteKey that = (RouteKey) o;
+            return source.equals(that.source) && target.equals(that.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * source.hashCode() + target.hashCode();
+        }
+    }
+
+    private static final class CachedRoute {
+
+        // null when no converter exists for the route
+        private final ContentTypeConverter converter;
+
+        private CachedRoute(ContentTypeConverter converter) {
+            this.converter = converter;
+        }
+    }
 }
@@ -21,7 +21,6 @@ import org.axonframework.common.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -37,10 +36,12 @@ import java.io.OutputStream;
  * @author Allard Buijze
  * @since 2.0
  */
-public class JavaSerializer implements Serializer {
+public class JavaSerializer implements BufferingSerializer {
 
     private static final Logger logger = LoggerFactory.getLogger(JavaSerializer.class);
 
+    private final SerializationBufferPool buffers = new SerializationBufferPool();
+
     @SuppressWarnings({"NonSerializableObjectPassedToObjectStream"})
     @Override
     public SerializedType serialize(Object object, OutputStream outputStream) throws IOException {
@@ -59,7 +60,20 @@ public class JavaSerializer implements Serializer {
 
     @Override
     public SerializedObject serialize(Object instance) {
-        return serializeObject(instance);
+        SerializationBuffer buffer = buffers.acquire();
+        try {
+            SerializedType type = writeToBuffer(instance, buffer);
+            byte[] data = buffer.toByteArray();
+            return new SimpleSerializedObject(data, 0, data.length, type);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    @Override
+    public SerializedObject serialize(Object instance, SerializationBuffer buffer) {
+        int offset = buffer.size();
+        return buffer.toSerializedObject(offset, writeToBuffer(instance, buffer));
     }
 
     @Override
@@ -103,16 +117,13 @@ public class JavaSerializer implements Serializer {
         return revision == null ? 0 : revision.value();
     }
 
-    private SerializedObject serializeObject(Object instance) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    private SerializedType writeToBuffer(Object instance, SerializationBuffer buffer) {
         try {
-            serialize(instance, baos);
+            return serialize(instance, (OutputStream) buffer);
         } catch (IOException e) {
             throw new SerializationException("The theoretically impossible has just happened: "
-                                                     + "An IOException while writing to a ByteArrayOutputStream.", e);
+                                                     + "An IOException while writing to a SerializationBuffer.", e);
         }
-        return new SimpleSerializedObject(baos.toByteArray(), instance.getClass().getName(),
-                                          revisionOf(instance.getClass()));
     }
 
     private Object deserialize(InputStream inputStream) throws IOException {
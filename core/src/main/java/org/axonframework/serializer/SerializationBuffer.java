@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer;
+
+import org.axonframework.common.Assert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Growable buffer that serializers write serialized data to. Unlike a <code>ByteArrayOutputStream</code>, the buffer
+ * gives access to its contents without copying them: {@link #toSerializedObject(int, SerializedType)} returns a
+ * SerializedObject that refers to a range of the buffer, and {@link #asByteBuffer()} returns a view of its contents.
+ * Use {@link #serialize(Serializer, Object)} to append a serialized object to the buffer using any serializer.
+ * <p/>
+ * Buffers are meant to be reused. {@link #reset()} discards the contents of the buffer, but keeps the allocated
+ * memory. Note that SerializedObjects and ByteBuffers obtained from the buffer become invalid when the buffer is
+ * reset. Use a {@link SerializationBufferPool} to reuse buffers safely across invocations.
+ * <p/>
+ * Buffers are not thread safe.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class SerializationBuffer extends OutputStream {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+    private byte[] buffer;
+    private int count;
+
+    /**
+     * Initializes an empty buffer with an initial capacity of 1024 bytes.
+     */
+    public SerializationBuffer() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Initializes an empty buffer with the given <code>initialCapacity</code>.
+     *
+     * @param initialCapacity The number of bytes the buffer can hold before it needs to grow
+     */
+    public SerializationBuffer(int initialCapacity) {
+        Assert.isTrue(initialCapacity > 0, "The initial capacity must be a positive number");
+        this.buffer = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Returns the number of bytes written to this buffer since it was created or last reset.
+     *
+     * @return the number of bytes in this buffer
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes this buffer can hold without growing.
+     *
+     * @return the capacity of this buffer
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Discards the contents of the buffer, retaining the allocated memory. SerializedObjects and ByteBuffers obtained
+     * from this buffer may no longer be used after the buffer has been reset.
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * Writes the contents of this buffer to the given <code>outputStream</code>.
+     *
+     * @param outputStream The stream to write the contents of this buffer to
+     * @throws IOException when the stream reports an error
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(buffer, 0, count);
+    }
+
+    /**
+     * Returns a copy of the contents of this buffer.
+     *
+     * @return a copy of the contents of this buffer
+     */
+    public byte[] toByteArray() {
+        return toByteArray(0);
+    }
+
+    /**
+     * Returns a copy of the contents of this buffer, starting at the given <code>offset</code>.
+     *
+     * @param offset The position of the first byte to copy
+     * @return a copy of the contents of this buffer starting at the given offset
+     */
+    public byte[] toByteArray(int offset) {
+        Assert.isTrue(offset >= 0 && offset <= count, "The offset must lie within the contents of the buffer");
+        byte[] copy = new byte[count - offset];
+        System.arraycopy(buffer, offset, copy, 0, copy.length);
+        return copy;
+    }
+
+    /**
+     * Returns a read-only view of the contents of this buffer. The view is not affected by data written to the buffer
+     * afterwards.
+     *
+     * @return a read-only view of the contents of this buffer
+     */
+    public ByteBuffer asByteBuffer() {
+        return asByteBuffer(0, count);
+    }
+
+    /**
+     * Returns a read-only view of <code>length</code> bytes of this buffer, starting at the given
+     * <code>offset</code>. The view is not affected by data written to the buffer afterwards.
+     *
+     * @param offset The position of the first byte of the view
+     * @param length The number of bytes in the view
+     * @return a read-only view of the given range of this buffer
+     */
+    public ByteBuffer asByteBuffer(int offset, int length) {
+        Assert.isTrue(offset >= 0 && length >= 0 && offset + length <= count,
+                      "The given range must lie within the contents of the buffer");
+        return ByteBuffer.wrap(buffer, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a SerializedObject of the given <code>type</code>, of which the data consists of the bytes in this
+     * buffer from the given <code>offset</code> up to the current end of the buffer. The data is not copied. The
+     * returned instance remains valid while more data is written to this buffer, but not after the buffer is {@link
+     * #reset() reset}.
+     *
+     * @param offset The position in the buffer where the data of the serialized object starts
+     * @param type   The type of the serialized object
+     * @return a SerializedObject referring to the contents of this buffer
+     */
+    public SimpleSerializedObject toSerializedObject(int offset, SerializedType type) {
+        Assert.isTrue(offset >= 0 && offset <= count, "The offset must lie within the contents of the buffer");
+        return new SimpleSerializedObject(buffer, offset, count - offset, type);
+    }
+
+    /**
+     * Serializes the given <code>object</code> using the given <code>serializer</code>, appending the serialized data
+     * to this buffer. A {@link BufferingSerializer} writes the data to this buffer directly. The data serialized by
+     * other serializers is copied into this buffer. The returned instance refers to the appended range of this
+     * buffer, and remains valid until the buffer is {@link #reset() reset}.
+     *
+     * @param serializer The serializer to serialize the object with
+     * @param object     The object to serialize
+     * @return a SerializedObject referring to the serialized data in this buffer
+     */
+    public SimpleSerializedObject serialize(Serializer serializer, Object object) {
+        int offset = count;
+        SerializedType type;
+        if (serializer instanceof BufferingSerializer) {
+            type = ((BufferingSerializer) serializer).serialize(object, this).getType();
+        } else {
+            SerializedObject serializedObject = serializer.serialize(object);
+            byte[] data = serializedObject.getData();
+            write(data, 0, data.length);
+            type = serializedObject.getType();
+        }
+        return toSerializedObject(offset, type);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (count + bytes > buffer.length) {
+            // the old array is left untouched, keeping serialized objects that refer to it valid
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, count + bytes)];
+            System.arraycopy(buffer, 0, newBuffer, 0, count);
+            buffer = newBuffer;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer;
+
+/**
+ * Pool of {@link SerializationBuffer SerializationBuffers}, which keeps a buffer per thread. A thread that acquires a
+ * buffer while it still holds the buffer it acquired earlier receives a new one, which is not retained. Buffers that
+ * have grown beyond the maximum retained capacity are not reused, to prevent a single large object from permanently
+ * occupying memory.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class SerializationBufferPool {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    private static final int DEFAULT_MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private final ThreadLocal<PooledBuffer> buffers = new ThreadLocal<PooledBuffer>();
+    private final int initialCapacity;
+    private final int maxRetainedCapacity;
+
+    /**
+     * Initializes a pool of buffers with an initial capacity of 1KB, of which buffers are no longer reused once they
+     * have grown beyond 1MB.
+     */
+    public SerializationBufferPool() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_RETAINED_CAPACITY);
+    }
+
+    /**
+     * Initializes a pool of buffers with the given <code>initialCapacity</code>, of which buffers are no longer reused
+     * once they have grown beyond the given <code>maxRetainedCapacity</code>.
+     *
+     * @param initialCapacity     The initial capacity of the buffers, in bytes
+     * @param maxRetainedCapacity The capacity beyond which buffers are no longer reused, in bytes
+     */
+    public SerializationBufferPool(int initialCapacity, int maxRetainedCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    /**
+     * Returns an empty buffer for use by the current thread. The buffer must be {@link #release(SerializationBuffer)
+     * released} by the same thread when it is no longer used.
+     *
+     * @return an empty buffer
+     */
+    public SerializationBuffer acquire() {
+        PooledBuffer buffer = buffers.get();
+        if (buffer == null) {
+            buffer = new PooledBuffer(initialCapacity);
+            buffers.set(buffer);
+        } else if (buffer.inUse) {
+            return new SerializationBuffer(initialCapacity);
+        }
+        buffer.inUse = true;
+        buffer.reset();
+        return buffer;
+    }
+
+    /**
+     * Returns the given <code>buffer</code> to the pool. Serialized objects obtained from the buffer may no longer be
+     * used after the buffer has been released.
+     *
+     * @param buffer The buffer to release
+     */
+    public void release(SerializationBuffer buffer) {
+        if (buffer instanceof PooledBuffer && buffers.get() == buffer) {
+            ((PooledBuffer) buffer).inUse = false;
+            if (buffer.capacity() > maxRetainedCapacity) {
+                buffers.remove();
+            }
+        }
+    }
+
+    private static final class PooledBuffer extends SerializationBuffer {
+
+        private boolean inUse;
+
+        private PooledBuffer(int initialCapacity) {
+            super(initialCapacity);
+        }
+    }
+}
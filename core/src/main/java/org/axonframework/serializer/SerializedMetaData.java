@@ -19,7 +19,6 @@ package org.axonframework.serializer;
 import org.axonframework.domain.MetaData;
 
 import java.io.InputStream;
-import java.util.Arrays;
 
 /**
  * Represents the serialized form of a {@link MetaData} instance.
@@ -38,7 +37,7 @@ public class SerializedMetaData implements SerializedObject {
      * @param bytes data representing the serialized form of a {@link MetaData} instance.
      */
     public SerializedMetaData(byte[] bytes) {
-        delegate = new SimpleSerializedObject(Arrays.copyOf(bytes, bytes.length), MetaData.class.getName(), -1);
+        delegate = new SimpleSerializedObject(bytes, MetaData.class.getName(), -1);
     }
 
     @Override
@@ -19,13 +19,18 @@ package org.axonframework.serializer;
 import org.axonframework.common.Assert;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 import static java.lang.String.format;
 
 /**
- * SerializedObject implementation that takes all properties as constructor parameters.
+ * SerializedObject implementation that takes all properties as constructor parameters. The data may be a range of a
+ * larger array, such as the contents of a {@link SerializationBuffer}, in which case it is not copied. Each invocation
+ * of {@link #getData()} returns a copy of the data. Use {@link #writeTo(java.io.OutputStream)} or {@link #getStream()}
+ * to access the data without copying it.
  *
  * @author Allard Buijze
  * @since 2.0
@@ -33,24 +38,25 @@ import static java.lang.String.format;
 public class SimpleSerializedObject implements SerializedObject {
 
     private final byte[] bytes;
+    private final int offset;
+    private final int length;
     private final SerializedType type;
 
     /**
-     * Initializes a SimpleSerializedObject using given <code>data</code> and <code>serializedType</code>.
+     * Initializes a SimpleSerializedObject using given <code>data</code> and <code>serializedType</code>. The data is
+     * copied, so that changes to the given array do not affect this instance.
      *
      * @param data           The data of the serialized object
      * @param serializedType The type description of the serialized object
      */
     public SimpleSerializedObject(byte[] data, SerializedType serializedType) {
-        Assert.notNull(data, "Data for a serialized object cannot be null");
-        Assert.notNull(serializedType, "The type identifier of the serialized object");
-        this.bytes = Arrays.copyOf(data, data.length);
-        this.type = serializedType;
+        this(copy(data), 0, data.length, serializedType);
     }
 
     /**
      * Initializes a SimpleSerializedObject using given <code>data</code> and a serialized type identified by given
-     * <code>type</code> and <code>revision</code>.
+     * <code>type</code> and <code>revision</code>. The data is copied, so that changes to the given array do not
+     * affect this instance.
      *
      * @param data     The data of the serialized object
      * @param type     The type identifying the serialized object
@@ -60,14 +66,56 @@ public class SimpleSerializedObject implements SerializedObject {
         this(data, new SimpleSerializedType(type, revision));
     }
 
+    /**
+     * Initializes a SimpleSerializedObject of which the data consists of <code>length</code> bytes of the given
+     * <code>data</code> array, starting at <code>offset</code>. The data is not copied. Changes to that range of the
+     * array are reflected in this instance, so the caller must make sure the range is not modified while this
+     * instance is in use.
+     *
+     * @param data           The array containing the data of the serialized object
+     * @param offset         The position of the first byte of the serialized object in the array
+     * @param length         The number of bytes of the serialized object
+     * @param serializedType The type description of the serialized object
+     */
+    public SimpleSerializedObject(byte[] data, int offset, int length, SerializedType serializedType) {
+        Assert.notNull(data, "Data for a serialized object cannot be null");
+        Assert.notNull(serializedType, "The type identifier of the serialized object");
+        Assert.isTrue(offset >= 0 && length >= 0 && offset + length <= data.length,
+                      "The given range must lie within the given data");
+        this.bytes = data;
+        this.offset = offset;
+        this.length = length;
+        this.type = serializedType;
+    }
+
     @Override
     public byte[] getData() {
-        return Arrays.copyOf(bytes, bytes.length);
+        return Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+
+    /**
+     * Returns the number of bytes of the serialized data, without copying the data.
+     *
+     * @return the number of bytes of the serialized data
+     */
+    public int getDataLength() {
+        return length;
+    }
+
+    /**
+     * Writes the serialized data to the given <code>outputStream</code>, without creating a copy of it. This method
+     * does not close the <code>outputStream</code>.
+     *
+     * @param outputStream The stream to write the serialized data to
+     * @throws IOException when the stream reports an error
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(bytes, offset, length);
     }
 
     @Override
     public InputStream getStream() {
-        return new ByteArrayInputStream(bytes);
+        return new ByteArrayInputStream(bytes, offset, length);
     }
 
     @Override
@@ -86,9 +134,14 @@ public class SimpleSerializedObject implements SerializedObject {
 
         SimpleSerializedObject that = (SimpleSerializedObject) o;
 
-        if (!Arrays.equals(bytes, that.bytes)) {
+        if (length != that.length) {
             return false;
         }
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] != that.bytes[that.offset + i]) {
+                return false;
+            }
+        }
         if (!type.equals(that.type)) {
             return false;
         }
@@ -98,7 +151,10 @@ public class SimpleSerializedObject implements SerializedObject {
 
     @Override
     public int hashCode() {
-        int result = Arrays.hashCode(bytes);
+        int result = 1;
+        for (int i = offset; i < offset + length; i++) {
+            result = 31 * result + bytes[i];
+        }
         result = 31 * result + type.hashCode();
         return result;
     }
@@ -107,4 +163,9 @@ public class SimpleSerializedObject implements SerializedObject {
     public String toString() {
         return format("SimpleSerializedObject [%s]", type);
     }
+
+    private static byte[] copy(byte[] data) {
+        Assert.notNull(data, "Data for a serialized object cannot be null");
+        return Arrays.copyOf(data, data.length);
+    }
 }
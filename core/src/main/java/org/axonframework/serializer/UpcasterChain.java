@@ -19,6 +19,8 @@ package org.axonframework.serializer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents a series of upcasters which are combined to upcast a {@link SerializedObject} to the most recent revision
@@ -27,6 +29,13 @@ import java.util.List;
  * <p/>
  * Upcasters for different object types may be merged into a single chain, as long as the order of related upcasters
  * can be guaranteed.
+ * <p/>
+ * The first time a serialized type is upcast, the chain compiles an upcast plan for that type: the upcasters that
+ * apply to it, in order, and the type each of them produces. The plan is cached, so that upcasting objects of that
+ * type no longer requires each upcaster in the chain to be asked whether it can upcast the object. For types that do
+ * not need upcasting, finding the plan is a single map lookup. When an upcaster produces a representation with another
+ * type than predicted by its {@link Upcaster#upcast(SerializedType)} method, the remaining upcasters are evaluated as
+ * if no plan was available.
  *
  * @author Allard Buijze
  * @since 2.0
@@ -35,6 +44,7 @@ public class UpcasterChain {
 
     private final List<Upcaster> upcasters;
     private final ConverterFactory converterFactory;
+    private final ConcurrentMap<String, RevisionPlans> plans = new ConcurrentHashMap<String, RevisionPlans>();
 
     /**
      * Initialize a chain of the given <code>upcasters</code> and using the given <code>converterFactory</code> to
@@ -59,6 +69,18 @@ public class UpcasterChain {
         this(converterFactory, Arrays.asList(upcasters));
     }
 
+    /**
+     * Indicates whether any of the upcasters in this chain is capable of upcasting the given
+     * <code>serializedType</code>. When this method returns <code>false</code>, upcasting an object of that type
+     * returns it unchanged.
+     *
+     * @param serializedType The type under investigation
+     * @return <code>true</code> if the given type is upcast by this chain, otherwise <code>false</code>
+     */
+    public boolean canUpcast(SerializedType serializedType) {
+        return planFor(serializedType).steps.length > 0;
+    }
+
     /**
      * Pass the given <code>serializedObject</code> through the chain of upcasters. The result is a serializedObject
      * representing the latest revision of the payload object.
@@ -66,13 +88,13 @@ public class UpcasterChain {
      * @param serializedObject the serialized object to upcast
      * @return the upcast SerializedObject
      */
-    @SuppressWarnings({"unchecked"})
     public IntermediateRepresentation upcast(SerializedObject serializedObject) {
+        UpcastPlan plan = planFor(serializedObject.getType());
         IntermediateRepresentation current = new DefaultIntermediateRepresentation(serializedObject);
-        for (Upcaster upcaster : upcasters) {
-            if (upcaster.canUpcast(current.getType())) {
-                current = ensureCorrectContentType(current, upcaster.expectedRepresentationType());
-                current = upcaster.upcast(current);
+        for (UpcastStep step : plan.steps) {
+            current = step.upcast(current);
+            if (!isSameType(step.resultType, current.getType())) {
+                return upcast(current, step.upcasterIndex + 1);
             }
         }
         return current;
@@ -86,13 +108,50 @@ public class UpcasterChain {
      * @return The last known revision of the SerializedType
      */
     public SerializedType upcast(SerializedType serializedType) {
+        UpcastPlan plan = planFor(serializedType);
+        return plan.steps.length == 0 ? serializedType : plan.resultType;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private IntermediateRepresentation upcast(IntermediateRepresentation representation, int firstUpcasterIndex) {
+        IntermediateRepresentation current = representation;
+        for (Upcaster upcaster : upcasters.subList(firstUpcasterIndex, upcasters.size())) {
+            if (upcaster.canUpcast(current.getType())) {
+                current = ensureCorrectContentType(current, upcaster.expectedRepresentationType());
+                current = upcaster.upcast(current);
+            }
+        }
+        return current;
+    }
+
+    private UpcastPlan planFor(SerializedType serializedType) {
+        RevisionPlans revisionPlans = plans.get(serializedType.getName());
+        UpcastPlan plan = revisionPlans == null ? null : revisionPlans.get(serializedType.getRevision());
+        if (plan == null) {
+            plan = compile(serializedType);
+            // plans are immutable, so concurrent compilation of the same plan just produces an equal plan
+            synchronized (plans) {
+                revisionPlans = plans.get(serializedType.getName());
+                plans.put(serializedType.getName(), revisionPlans == null
+                        ? new RevisionPlans(serializedType.getRevision(), plan)
+                        : revisionPlans.with(serializedType.getRevision(), plan));
+            }
+        }
+        return plan;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private UpcastPlan compile(SerializedType serializedType) {
+        List<UpcastStep> steps = new ArrayList<UpcastStep>();
         SerializedType current = serializedType;
-        for (Upcaster upcaster : upcasters) {
+        for (int i = 0; i < upcasters.size(); i++) {
+            Upcaster upcaster = upcasters.get(i);
             if (upcaster.canUpcast(current)) {
                 current = upcaster.upcast(current);
+                steps.add(new UpcastStep(i, upcaster, current));
             }
         }
-        return current;
+        return new UpcastPlan(steps.toArray(new UpcastStep[steps.size()]), current);
     }
 
     @SuppressWarnings({"unchecked"})
@@ -106,6 +165,102 @@ public class UpcasterChain {
         return (IntermediateRepresentation<T>) current;
     }
 
+    private static boolean isSameType(SerializedType expected, SerializedType actual) {
+        return expected.getRevision() == actual.getRevision() && expected.getName().equals(actual.getName());
+    }
+
+    /**
+     * The upcast plans for the revisions of a single type. Instances are immutable; adding a plan creates a new
+     * instance. Revisions are looked up using a linear scan, as the number of revisions of a type is typically small.
+     */
+    private static final class RevisionPlans {
+
+        private final int[] revisions;
+        private final UpcastPlan[] plans;
+
+        private RevisionPlans(int revision, UpcastPlan plan) {
+            this(new int[]{revision}, new UpcastPlan[]{plan});
+        }
+
+        private RevisionPlans(int[] revisions, UpcastPlan[] plans) {
+            this.revisions = revisions;
+            this.plans = plans;
+        }
+
+        private UpcastPlan get(int revision) {
+            for (int i = 0; i < revisions.length; i++) {
+                if (revisions[i] == revision) {
+                    return plans[i];
+                }
+            }
+            return null;
+        }
+
+        private RevisionPlans with(int revision, UpcastPlan plan) {
+            if (get(revision) != null) {
+                return this;
+            }
+            int[] newRevisions = Arrays.copyOf(revisions, revisions.length + 1);
+            UpcastPlan[] newPlans = Arrays.copyOf(plans, plans.length + 1);
+            newRevisions[revisions.length] = revision;
+            newPlans[plans.length] = plan;
+            return new RevisionPlans(newRevisions, newPlans);
+        }
+    }
+
+    private static final class UpcastPlan {
+
+        private final UpcastStep[] steps;
+        private final SerializedType resultType;
+
+        private UpcastPlan(UpcastStep[] steps, SerializedType resultType) {
+            this.steps = steps;
+            this.resultType = resultType;
+        }
+    }
+
+    private final class UpcastStep {
+
+        private final int upcasterIndex;
+        private final Upcaster upcaster;
+        private final SerializedType resultType;
+        // the converter used by the previous invocation, which is typically needed for the next one too
+        private volatile Conversion lastConversion;
+
+        private UpcastStep(int upcasterIndex, Upcaster upcaster, SerializedType resultType) {
+            this.upcasterIndex = upcasterIndex;
+            this.upcaster = upcaster;
+            this.resultType = resultType;
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private IntermediateRepresentation upcast(IntermediateRepresentation current) {
+            Class<?> expectedContentType = upcaster.expectedRepresentationType();
+            Class<?> contentType = current.getContentType();
+            if (!expectedContentType.isAssignableFrom(contentType)) {
+                Conversion conversion = lastConversion;
+                if (conversion == null || !conversion.sourceContentType.equals(contentType)) {
+                    conversion = new Conversion(contentType,
+                                                converterFactory.getConverter(contentType, expectedContentType));
+                    lastConversion = conversion;
+                }
+                current = conversion.converter.convert(current);
+            }
+            return upcaster.upcast(current);
+        }
+    }
+
+    private static final class Conversion {
+
+        private final Class<?> sourceContentType;
+        private final ContentTypeConverter converter;
+
+        private Conversion(Class<?> sourceContentType, ContentTypeConverter converter) {
+            this.sourceContentType = sourceContentType;
+            this.converter = converter;
+        }
+    }
+
     private static class DefaultIntermediateRepresentation implements IntermediateRepresentation<byte[]> {
         private final SerializedObject serializedObject;
 
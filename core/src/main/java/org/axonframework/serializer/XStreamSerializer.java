@@ -34,7 +34,6 @@ import org.axonframework.domain.MetaData;
 import org.dom4j.Document;
 import org.joda.time.DateTime;
 
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
@@ -58,11 +57,12 @@ import java.util.UUID;
  * @see com.thoughtworks.xstream.XStream
  * @since 1.2
  */
-public class XStreamSerializer implements Serializer {
+public class XStreamSerializer implements BufferingSerializer {
 
     private static final Charset DEFAULT_CHARSET_NAME = Charset.forName("UTF-8");
     private final XStream xStream;
     private final Charset charset;
+    private final SerializationBufferPool buffers = new SerializationBufferPool();
     private volatile UpcasterChain upcasters;
     private ConverterFactory converterFactory;
 
@@ -156,10 +156,23 @@ public class XStreamSerializer implements Serializer {
      */
     @Override
     public SerializedObject serialize(Object object) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        serialize(object, baos);
-        return new SimpleSerializedObject(baos.toByteArray(), typeIdentifierOf(object.getClass()),
-                                          revisionOf(object.getClass()));
+        SerializationBuffer buffer = buffers.acquire();
+        try {
+            SerializedType type = serialize(object, (OutputStream) buffer);
+            byte[] data = buffer.toByteArray();
+            return new SimpleSerializedObject(data, 0, data.length, type);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SerializedObject serialize(Object object, SerializationBuffer buffer) {
+        int offset = buffer.size();
+        return buffer.toSerializedObject(offset, serialize(object, (OutputStream) buffer));
     }
 
     /**
@@ -186,13 +199,10 @@ public class XStreamSerializer implements Serializer {
     @Override
     public Object deserialize(SerializedObject serializedObject) {
         UpcasterChain currentUpcasterChain = upcasters; // create copy for concurrency reasons
-        IntermediateRepresentation<?> current = new SimpleIntermediateRepresentation<byte[]>(serializedObject.getType(),
-                                                                                             byte[].class,
-                                                                                             serializedObject
-                                                                                                     .getData());
-        if (currentUpcasterChain != null) {
-            current = currentUpcasterChain.upcast(serializedObject);
+        if (currentUpcasterChain == null || !currentUpcasterChain.canUpcast(serializedObject.getType())) {
+            return xStream.fromXML(new InputStreamReader(serializedObject.getStream(), charset));
         }
+        IntermediateRepresentation<?> current = currentUpcasterChain.upcast(serializedObject);
         if ("org.dom4j.Document".equals(current.getContentType().getName())) {
             return xStream.unmarshal(new Dom4JReader((Document) current.getData()));
         } else {
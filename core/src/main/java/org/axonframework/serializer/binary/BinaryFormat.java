@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+/**
+ * Constants describing the binary format written by the {@link BinarySerializer}. The format is self-describing: each
+ * value is preceded by a tag identifying its type, and objects contain the names of their fields. This allows the
+ * serialized form to be read without knowledge of the classes involved, which is what makes it tolerant to changes
+ * in these classes, and allows it to be converted to a tree structure for upcasting.
+ * <p/>
+ * Class and field names are written once per serialized object. Subsequent occurrences refer to the first occurrence
+ * by index. Objects, arrays, collections and maps that occur more than once in the serialized object graph are written
+ * once. Subsequent occurrences refer to the first occurrence by the index in which composite values were started.
+ * <p/>
+ * Sorted collections and maps that order their elements using a comparator are written with the comparator preceding
+ * their elements. Fields hidden by a field with the same name in a subclass are written with the name of their
+ * declaring class, e.g. <code>com.example.Parent:field</code>.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class BinaryFormat {
+
+    /**
+     * The version of the format, written as the first byte of each serialized object.
+     */
+    static final byte VERSION = 1;
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte BYTE = 3;
+    static final byte SHORT = 4;
+    static final byte CHAR = 5;
+    static final byte INT = 6;
+    static final byte LONG = 7;
+    static final byte FLOAT = 8;
+    static final byte DOUBLE = 9;
+    static final byte STRING = 10;
+    static final byte ENUM = 11;
+    static final byte BYTES = 12;
+    static final byte ARRAY = 13;
+    static final byte COLLECTION = 14;
+    static final byte MAP = 15;
+    static final byte OBJECT = 16;
+    static final byte REFERENCE = 17;
+    static final byte VALUE = 18;
+    static final byte SORTED_COLLECTION = 19;
+    static final byte SORTED_MAP = 20;
+
+    /**
+     * Separates the name of the declaring class from the name of a field that is hidden by a field in a subclass.
+     */
+    static final char DECLARING_CLASS_SEPARATOR = ':';
+
+    private BinaryFormat() {
+        // utility class
+    }
+}
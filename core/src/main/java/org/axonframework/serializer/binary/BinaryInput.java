@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.common.SerializationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads values in the binary format from a byte array.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class BinaryInput {
+
+    private final List<String> names = new ArrayList<String>();
+    private final byte[] data;
+    private int position;
+
+    /**
+     * Initializes the input to read from the given <code>data</code>.
+     *
+     * @param data The bytes to read values from
+     */
+    BinaryInput(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Reads the version of the format and verifies that it is supported.
+     *
+     * @throws SerializationException if the data was written in an unsupported version of the format
+     */
+    void readHeader() {
+        byte version = readByte();
+        if (version != BinaryFormat.VERSION) {
+            throw new SerializationException(String.format(
+                    "Cannot read serialized data in version [%s] of the binary format. Expected version [%s].",
+                    version, BinaryFormat.VERSION));
+        }
+    }
+
+    byte readByte() {
+        if (position >= data.length) {
+            throw new SerializationException("Unexpected end of serialized data");
+        }
+        return data[position++];
+    }
+
+    int readVarInt() {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new SerializationException("Malformed variable length integer in serialized data");
+    }
+
+    long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new SerializationException("Malformed variable length integer in serialized data");
+    }
+
+    int readSignedInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readSignedLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    float readFloat() {
+        return Float.intBitsToFloat(readFixedInt());
+    }
+
+    double readDouble() {
+        long high = readFixedInt();
+        long low = readFixedInt();
+        return Double.longBitsToDouble((high << 32) | (low & 0xFFFFFFFFL));
+    }
+
+    byte[] readBytes() {
+        int length = readLength();
+        byte[] result = new byte[length];
+        System.arraycopy(data, position, result, 0, length);
+        position += length;
+        return result;
+    }
+
+    String readString() {
+        int length = readLength();
+        int end = position + length;
+        char[] chars = new char[length];
+        int count = 0;
+        while (position < end) {
+            int b = data[position++];
+            if (b >= 0) {
+                chars[count++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | continuation(end));
+            } else if ((b & 0xF0) == 0xE0) {
+                int c = ((b & 0x0F) << 12) | (continuation(end) << 6);
+                chars[count++] = (char) (c | continuation(end));
+            } else if ((b & 0xF8) == 0xF0) {
+                int codePoint = ((b & 0x07) << 18) | (continuation(end) << 12);
+                codePoint |= continuation(end) << 6;
+                codePoint |= continuation(end);
+                count += Character.toChars(codePoint, chars, count);
+            } else {
+                throw new SerializationException("Malformed UTF-8 string in serialized data");
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * Reads a class or field name, which is either written in full or as a reference to an earlier occurrence.
+     *
+     * @return the name read
+     */
+    String readName() {
+        int index = readVarInt();
+        if (index == 0) {
+            String name = readString();
+            names.add(name);
+            return name;
+        }
+        if (index > names.size()) {
+            throw new SerializationException("Serialized data refers to an unknown name");
+        }
+        return names.get(index - 1);
+    }
+
+    /**
+     * Indicates whether all data has been read.
+     *
+     * @return <code>true</code> if all data has been read, otherwise <code>false</code>
+     */
+    boolean isExhausted() {
+        return position >= data.length;
+    }
+
+    private int readLength() {
+        int length = readVarInt();
+        if (length < 0 || length > data.length - position) {
+            throw new SerializationException("Unexpected end of serialized data");
+        }
+        return length;
+    }
+
+    private int continuation(int end) {
+        if (position >= end) {
+            throw new SerializationException("Malformed UTF-8 string in serialized data");
+        }
+        return data[position++] & 0x3F;
+    }
+
+    private int readFixedInt() {
+        return ((readByte() & 0xFF) << 24) | ((readByte() & 0xFF) << 16) | ((readByte() & 0xFF) << 8)
+                | (readByte() & 0xFF);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.serializer.SerializationBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Growable buffer that values in the binary format are written to. Instances are meant to be reused: a call to {@link
+ * #reset()} clears the contents of the buffer, but keeps the allocated memory.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class BinaryOutput {
+
+    private final Map<String, Integer> names = new HashMap<String, Integer>();
+    private byte[] buffer;
+    private int position;
+
+    /**
+     * Initializes a buffer with the given <code>initialCapacity</code>.
+     *
+     * @param initialCapacity The number of bytes to allocate initially
+     */
+    BinaryOutput(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Clears the contents of this buffer, including the names written to it.
+     */
+    void reset() {
+        position = 0;
+        names.clear();
+    }
+
+    /**
+     * Returns the number of bytes written to this buffer.
+     *
+     * @return the number of bytes written to this buffer
+     */
+    int size() {
+        return position;
+    }
+
+    /**
+     * Returns the number of bytes this buffer can hold without growing.
+     *
+     * @return the number of bytes this buffer can hold without growing
+     */
+    int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Returns a copy of the bytes written to this buffer.
+     *
+     * @return a copy of the bytes written to this buffer
+     */
+    byte[] toByteArray() {
+        byte[] result = new byte[position];
+        System.arraycopy(buffer, 0, result, 0, position);
+        return result;
+    }
+
+    /**
+     * Writes the bytes in this buffer to the given <code>outputStream</code>.
+     *
+     * @param outputStream The stream to write the bytes to
+     * @throws IOException when the stream reports an error
+     */
+    void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(buffer, 0, position);
+    }
+
+    /**
+     * Appends the bytes in this buffer to the given <code>serializationBuffer</code>.
+     *
+     * @param serializationBuffer The buffer to append the bytes to
+     */
+    void writeTo(SerializationBuffer serializationBuffer) {
+        serializationBuffer.write(buffer, 0, position);
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeSignedInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    void writeSignedLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeFloat(float value) {
+        writeFixedInt(Float.floatToIntBits(value));
+    }
+
+    void writeDouble(double value) {
+        long bits = Double.doubleToLongBits(value);
+        writeFixedInt((int) (bits >>> 32));
+        writeFixedInt((int) bits);
+    }
+
+    void writeBytes(byte[] bytes) {
+        writeVarInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Writes the given <code>value</code> as its length in bytes, followed by its UTF-8 encoded characters.
+     *
+     * @param value The string to write
+     */
+    void writeString(String value) {
+        int length = value.length();
+        int encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                encodedLength = encodedLength(value, i);
+                break;
+            }
+        }
+        writeVarInt(encodedLength);
+        ensureCapacity(encodedLength);
+        if (encodedLength == length) {
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) value.charAt(i);
+            }
+        } else {
+            encodeUtf8(value);
+        }
+    }
+
+    /**
+     * Writes the given class or field <code>name</code>. The first time a name is written, it is written in full and
+     * assigned the next index. Subsequent occurrences are written as that index.
+     *
+     * @param name The name to write
+     */
+    void writeName(String name) {
+        Integer index = names.get(name);
+        if (index != null) {
+            writeVarInt(index + 1);
+        } else {
+            names.put(name, names.size());
+            writeVarInt(0);
+            writeString(name);
+        }
+    }
+
+    private void writeFixedInt(int value) {
+        ensureCapacity(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private int encodedLength(String value, int firstNonAscii) {
+        int encodedLength = firstNonAscii;
+        for (int i = firstNonAscii; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                encodedLength++;
+            } else if (c < 0x800) {
+                encodedLength += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                encodedLength += 4;
+                i++;
+            } else {
+                encodedLength += 3;
+            }
+        }
+        return encodedLength;
+    }
+
+    private void encodeUtf8(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (position + bytes > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + bytes)];
+            System.arraycopy(buffer, 0, newBuffer, 0, position);
+            buffer = newBuffer;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.serializer.BufferingSerializer;
+import org.axonframework.serializer.ChainingConverterFactory;
+import org.axonframework.serializer.ConverterFactory;
+import org.axonframework.serializer.IntermediateRepresentation;
+import org.axonframework.serializer.Revision;
+import org.axonframework.serializer.SerializationBuffer;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.SerializedType;
+import org.axonframework.serializer.SimpleSerializedObject;
+import org.axonframework.serializer.SimpleSerializedType;
+import org.axonframework.serializer.Upcaster;
+import org.axonframework.serializer.UpcasterChain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Serializer that writes objects in a compact binary format. Like the {@link
+ * org.axonframework.serializer.XStreamSerializer}, it serializes objects field by field, and does not require them
+ * to implement <code>Serializable</code>. The serialized form is typically several times smaller than that of XStream
+ * and Java serialization, and is written and read considerably faster.
+ * <p/>
+ * The format contains the names of classes and fields, which makes it tolerant to changes in the serialized classes.
+ * Values of fields that have been removed are ignored. Fields that have been added are left at the value assigned by
+ * the no-arg constructor of the class, if it has one. Numeric fields may change type. More significant changes, such
+ * as renamed fields and classes, require an {@link Upcaster}. Upcasters can process the serialized form as a dom4j
+ * Document, of which the structure is described by the {@link BinaryToDom4jConverter}, or as a StAX XMLEventReader
+ * providing XML of the same structure. The revision of each serialized object is determined by the {@link Revision
+ * @Revision} annotation on its class.
+ * <p/>
+ * Objects are serialized using all their non-static, non-transient fields, including those declared by super classes.
+ * Collections and maps are serialized as their elements and entries, provided their class has a no-arg constructor.
+ * The time classes of Joda Time, <code>BigInteger</code> and <code>BigDecimal</code> are serialized as their string
+ * representation. Classes are deserialized using their no-arg constructor if they declare one (of any visibility).
+ * Otherwise, instances are created without invoking a constructor, which is only possible on JVMs that support it,
+ * such as the Sun JVM.
+ * <p/>
+ * The way to access the fields of a class is determined only once for each class. Objects are written to a buffer
+ * that is kept per thread, so that serializing an object does not require allocating a buffer.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class BinarySerializer implements BufferingSerializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinarySerializer.class);
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private final ClassCodecs codecs;
+    private final ConverterFactory converterFactory;
+    private final ThreadLocal<ObjectEncoder> encoders = new ThreadLocal<ObjectEncoder>();
+    private volatile UpcasterChain upcasters;
+
+    /**
+     * Initializes a serializer that loads the classes of deserialized objects using the class loader that loaded the
+     * BinarySerializer class.
+     */
+    public BinarySerializer() {
+        this(BinarySerializer.class.getClassLoader());
+    }
+
+    /**
+     * Initializes a serializer that loads the classes of deserialized objects using the given
+     * <code>classLoader</code>.
+     *
+     * @param classLoader The class loader to load classes with
+     */
+    public BinarySerializer(ClassLoader classLoader) {
+        this.codecs = new ClassCodecs(classLoader);
+        ChainingConverterFactory chainingConverterFactory = new ChainingConverterFactory();
+        if (isDom4jAvailable()) {
+            chainingConverterFactory.registerConverter(new BinaryToDom4jConverter());
+            chainingConverterFactory.registerConverter(new Dom4jToBinaryConverter());
+            chainingConverterFactory.registerConverter(new BinaryToStaxConverter());
+            chainingConverterFactory.registerConverter(new StaxToBinaryConverter());
+        }
+        this.converterFactory = chainingConverterFactory;
+    }
+
+    @Override
+    public SerializedType serialize(Object object, OutputStream outputStream) throws IOException {
+        ObjectEncoder encoder = acquireEncoder();
+        try {
+            encoder.encode(object).writeTo(outputStream);
+        } finally {
+            release(encoder);
+        }
+        return new SimpleSerializedType(object.getClass().getName(), revisionOf(object.getClass()));
+    }
+
+    @Override
+    public SerializedObject serialize(Object object) {
+        ObjectEncoder encoder = acquireEncoder();
+        byte[] data;
+        try {
+            data = encoder.encode(object).toByteArray();
+        } finally {
+            release(encoder);
+        }
+        return new SimpleSerializedObject(data, 0, data.length,
+                                          new SimpleSerializedType(object.getClass().getName(),
+                                                                   revisionOf(object.getClass())));
+    }
+
+    @Override
+    public SerializedObject serialize(Object object, SerializationBuffer buffer) {
+        int offset = buffer.size();
+        ObjectEncoder encoder = acquireEncoder();
+        try {
+            encoder.encode(object).writeTo(buffer);
+        } finally {
+            release(encoder);
+        }
+        return buffer.toSerializedObject(offset, new SimpleSerializedType(object.getClass().getName(),
+                                                                          revisionOf(object.getClass())));
+    }
+
+    @Override
+    public Object deserialize(SerializedObject serializedObject) {
+        UpcasterChain currentUpcasterChain = upcasters; // create copy for concurrency reasons
+        byte[] data = serializedObject.getData();
+        if (currentUpcasterChain != null && currentUpcasterChain.canUpcast(serializedObject.getType())) {
+            IntermediateRepresentation<?> current = currentUpcasterChain.upcast(serializedObject);
+            if (!byte[].class.equals(current.getContentType())) {
+                current = converterFactory.getConverter(current.getContentType(), byte[].class).convert(current);
+            }
+            data = (byte[]) current.getData();
+        }
+        return new ObjectDecoder(codecs, data).decode();
+    }
+
+    @Override
+    public Class classForType(SerializedType type) {
+        UpcasterChain currentUpcasterChain = upcasters; // create copy for concurrency reasons
+        if (currentUpcasterChain != null) {
+            type = currentUpcasterChain.upcast(type);
+        }
+        try {
+            return codecs.classForName(type.getName());
+        } catch (RuntimeException e) {
+            logger.warn("Could not load class for serialized type [{}] revision {}",
+                        type.getName(), type.getRevision());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the revision number for the given <code>type</code>. The default implementation checks for an {@link
+     * Revision @Revision} annotation, and returns <code>0</code> if none was found. This method can be safely
+     * overridden by subclasses.
+     * <p/>
+     * The revision number is used by upcasters to decide whether they need to process a certain serialized event.
+     * Generally, the revision number needs to be increased each time the structure of an event has been changed in an
+     * incompatible manner.
+     *
+     * @param type The type for which to return the revision number
+     * @return the revision number for the given <code>type</code>
+     */
+    protected int revisionOf(Class<?> type) {
+        Revision revision = type.getAnnotation(Revision.class);
+        return revision == null ? 0 : revision.value();
+    }
+
+    /**
+     * Returns the ConverterFactory used by this serializer. The converter factory allows registration of
+     * ContentTypeConverters needed by the upcasters. Converters between the binary format and dom4j Documents or StAX
+     * XMLEventReaders are registered by default.
+     *
+     * @return the ConverterFactory used by this serializer
+     */
+    public ConverterFactory getConverterFactory() {
+        return converterFactory;
+    }
+
+    /**
+     * Sets the upcasters which allow older revisions of serialized objects to be deserialized. Upcasters are evaluated
+     * in the order they are provided in the given List. That means that you should take special precaution when an
+     * upcaster expects another upcaster to have processed an event.
+     * <p/>
+     * Any upcaster that relies on another upcaster doing its work first, should be placed <em>after</em> that other
+     * upcaster in the given list. Thus for any <em>upcaster B</em> that relies on <em>upcaster A</em> to do its work
+     * first, the following must be true: <code>upcasters.indexOf(B) > upcasters.indexOf(A)</code>.
+     *
+     * @param upcasters the upcasters for this serializer.
+     */
+    public void setUpcasters(List<Upcaster> upcasters) {
+        this.upcasters = new UpcasterChain(converterFactory, upcasters);
+    }
+
+    private ObjectEncoder acquireEncoder() {
+        ObjectEncoder encoder = encoders.get();
+        if (encoder == null) {
+            encoder = new ObjectEncoder(codecs, INITIAL_BUFFER_SIZE);
+            encoders.set(encoder);
+        } else if (encoder.isInUse()) {
+            // serialization was invoked recursively, e.g. by one of the serialized objects
+            return new ObjectEncoder(codecs, INITIAL_BUFFER_SIZE);
+        }
+        return encoder;
+    }
+
+    private void release(ObjectEncoder encoder) {
+        encoder.release();
+        if (encoder.capacity() > MAX_RETAINED_BUFFER_SIZE && encoders.get() == encoder) {
+            // don't hold on to exceptionally large buffers
+            encoders.remove();
+        }
+    }
+
+    private static boolean isDom4jAvailable() {
+        try {
+            Class.forName("org.dom4j.Document", false, BinarySerializer.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
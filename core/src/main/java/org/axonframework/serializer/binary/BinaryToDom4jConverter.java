@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.common.SerializationException;
+import org.axonframework.serializer.CannotConvertBetweenTypesException;
+import org.axonframework.serializer.ContentTypeConverter;
+import org.axonframework.serializer.IntermediateRepresentation;
+import org.axonframework.serializer.SimpleIntermediateRepresentation;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * ContentTypeConverter that converts data in the binary format of the {@link BinarySerializer} to a dom4j Document,
+ * allowing upcasters to process it. The conversion does not require any of the serialized classes to be available.
+ * <p/>
+ * Each value is represented by an element with a <code>type</code> attribute, which is one of <code>null</code>,
+ * <code>boolean</code>, <code>byte</code>, <code>short</code>, <code>char</code>, <code>int</code>,
+ * <code>long</code>, <code>float</code>, <code>double</code>, <code>string</code>, <code>bytes</code> (Base64
+ * encoded), <code>enum</code>, <code>value</code>, <code>array</code>, <code>collection</code>, <code>map</code>,
+ * <code>object</code> or <code>ref</code>. Simple values are contained in the text of the element. The
+ * <code>class</code> attribute holds the class of enums, values, collections, maps and objects, and the component type
+ * of arrays. Objects contain an element per field, named after that field. Arrays and collections contain an
+ * <code>item</code> element per element, and maps contain an <code>entry</code> element per entry, with a
+ * <code>key</code> and <code>value</code> element. Sorted collections and maps that use a comparator contain a
+ * <code>comparator</code> element preceding their elements. Fields that are hidden by a field of a subclass have a
+ * <code>declaredBy</code> attribute holding the class declaring them. The root element is called <code>root</code>.
+ * <p/>
+ * Values that occur more than once in the serialized data are represented once, with an <code>id</code> attribute.
+ * Other occurrences are represented by an element of type <code>ref</code>, of which the <code>ref</code> attribute
+ * holds that id.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class BinaryToDom4jConverter implements ContentTypeConverter<byte[], Document> {
+
+    @Override
+    public Class<byte[]> expectedSourceType() {
+        return byte[].class;
+    }
+
+    @Override
+    public Class<Document> targetType() {
+        return Document.class;
+    }
+
+    @Override
+    public IntermediateRepresentation<Document> convert(IntermediateRepresentation<byte[]> original) {
+        try {
+            Document document = DocumentHelper.createDocument();
+            new TreeBuilder(new BinaryInput(original.getData())).build(document.addElement(TreeFormat.ROOT));
+            return new SimpleIntermediateRepresentation<Document>(original.getType(), Document.class, document);
+        } catch (SerializationException e) {
+            throw new CannotConvertBetweenTypesException("Cannot convert from binary format to dom4j Document.", e);
+        }
+    }
+
+    private static final class TreeBuilder {
+
+        private final BinaryInput input;
+        private final List<Element> composites = new ArrayList<Element>();
+        private final Set<Integer> referenced = new HashSet<Integer>();
+
+        private TreeBuilder(BinaryInput input) {
+            this.input = input;
+        }
+
+        private void build(Element root) {
+            input.readHeader();
+            readValue(root);
+            for (int i = 0; i < composites.size(); i++) {
+                if (!referenced.contains(i)) {
+                    composites.get(i).remove(composites.get(i).attribute(TreeFormat.ID));
+                }
+            }
+        }
+
+        private void readValue(Element element) {
+            byte tag = input.readByte();
+            switch (tag) {
+                case BinaryFormat.NULL:
+                    element.addAttribute(TreeFormat.TYPE, TreeFormat.NULL);
+                    break;
+                case BinaryFormat.FALSE:
+                case BinaryFormat.TRUE:
+                    simpleValue(element, TreeFormat.BOOLEAN, Boolean.toString(tag == BinaryFormat.TRUE));
+                    break;
+                case BinaryFormat.BYTE:
+                    simpleValue(element, TreeFormat.BYTE, Byte.toString(input.readByte()));
+                    break;
+                case BinaryFormat.SHORT:
+                    simpleValue(element, TreeFormat.SHORT, Integer.toString(input.readSignedInt()));
+                    break;
+                case BinaryFormat.CHAR:
+                    simpleValue(element, TreeFormat.CHAR, Integer.toString(input.readVarInt()));
+                    break;
+                case BinaryFormat.INT:
+                    simpleValue(element, TreeFormat.INT, Integer.toString(input.readSignedInt()));
+                    break;
+                case BinaryFormat.LONG:
+                    simpleValue(element, TreeFormat.LONG, Long.toString(input.readSignedLong()));
+                    break;
+                case BinaryFormat.FLOAT:
+                    simpleValue(element, TreeFormat.FLOAT, Float.toString(input.readFloat()));
+                    break;
+                case BinaryFormat.DOUBLE:
+                    simpleValue(element, TreeFormat.DOUBLE, Double.toString(input.readDouble()));
+                    break;
+                case BinaryFormat.STRING:
+                    simpleValue(element, TreeFormat.STRING, input.readString());
+                    break;
+                case BinaryFormat.BYTES:
+                    simpleValue(element, TreeFormat.BYTES, DatatypeConverter.printBase64Binary(input.readBytes()));
+                    break;
+                case BinaryFormat.ENUM:
+                    element.addAttribute(TreeFormat.TYPE, TreeFormat.ENUM);
+                    element.addAttribute(TreeFormat.CLASS, input.readName());
+                    element.setText(input.readString());
+                    break;
+                case BinaryFormat.VALUE:
+                    element.addAttribute(TreeFormat.TYPE, TreeFormat.VALUE);
+                    element.addAttribute(TreeFormat.CLASS, input.readName());
+                    element.setText(input.readString());
+                    break;
+                case BinaryFormat.REFERENCE:
+                    int index = input.readVarInt();
+                    referenced.add(index);
+                    element.addAttribute(TreeFormat.TYPE, TreeFormat.REF);
+                    element.addAttribute(TreeFormat.REF, Integer.toString(index));
+                    break;
+                case BinaryFormat.ARRAY:
+                    composite(element, TreeFormat.ARRAY);
+                    for (int i = input.readVarInt(); i > 0; i--) {
+                        readValue(element.addElement(TreeFormat.ITEM));
+                    }
+                    break;
+                case BinaryFormat.COLLECTION:
+                case BinaryFormat.SORTED_COLLECTION:
+                    composite(element, TreeFormat.COLLECTION);
+                    if (tag == BinaryFormat.SORTED_COLLECTION) {
+                        readValue(element.addElement(TreeFormat.COMPARATOR));
+                    }
+                    for (int i = input.readVarInt(); i > 0; i--) {
+                        readValue(element.addElement(TreeFormat.ITEM));
+                    }
+                    break;
+                case BinaryFormat.MAP:
+                case BinaryFormat.SORTED_MAP:
+                    composite(element, TreeFormat.MAP);
+                    if (tag == BinaryFormat.SORTED_MAP) {
+                        readValue(element.addElement(TreeFormat.COMPARATOR));
+                    }
+                    for (int i = input.readVarInt(); i > 0; i--) {
+                        Element entry = element.addElement(TreeFormat.ENTRY);
+                        readValue(entry.addElement(TreeFormat.KEY));
+                        readValue(entry.addElement(TreeFormat.VALUE));
+                    }
+                    break;
+                case BinaryFormat.OBJECT:
+                    composite(element, TreeFormat.OBJECT);
+                    for (int i = input.readVarInt(); i > 0; i--) {
+                        readValue(field(element, input.readName()));
+                    }
+                    break;
+                default:
+                    throw new SerializationException(String.format("Unknown value type [%s] in serialized data",
+                                                                   tag));
+            }
+        }
+
+        private Element field(Element object, String name) {
+            int separator = name.lastIndexOf(BinaryFormat.DECLARING_CLASS_SEPARATOR);
+            if (separator < 0) {
+                return object.addElement(name);
+            }
+            Element field = object.addElement(name.substring(separator + 1));
+            field.addAttribute(TreeFormat.DECLARED_BY, name.substring(0, separator));
+            return field;
+        }
+
+        private void simpleValue(Element element, String type, String text) {
+            element.addAttribute(TreeFormat.TYPE, type);
+            element.setText(text);
+        }
+
+        private void composite(Element element, String type) {
+            element.addAttribute(TreeFormat.TYPE, type);
+            element.addAttribute(TreeFormat.CLASS, input.readName());
+            element.addAttribute(TreeFormat.ID, Integer.toString(composites.size()));
+            composites.add(element);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.serializer.CannotConvertBetweenTypesException;
+import org.axonframework.serializer.ContentTypeConverter;
+import org.axonframework.serializer.IntermediateRepresentation;
+import org.axonframework.serializer.SimpleIntermediateRepresentation;
+import org.dom4j.Document;
+
+import java.io.StringReader;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * ContentTypeConverter that converts data in the binary format of the {@link BinarySerializer} to a StAX
+ * XMLEventReader, allowing {@link org.axonframework.serializer.AbstractStaxUpcaster streaming upcasters} to process
+ * it. The XML has the structure described by the {@link BinaryToDom4jConverter}, which is used to build it.
+ * <p/>
+ * As the binary format is not XML, the conversion does not stream: it builds the full tree. It allows upcasters
+ * written for XML based serializers to be used with the BinarySerializer as well.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class BinaryToStaxConverter implements ContentTypeConverter<byte[], XMLEventReader> {
+
+    private final BinaryToDom4jConverter treeConverter = new BinaryToDom4jConverter();
+    // factories are safe for concurrent use once they have been configured
+    private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    @Override
+    public Class<byte[]> expectedSourceType() {
+        return byte[].class;
+    }
+
+    @Override
+    public Class<XMLEventReader> targetType() {
+        return XMLEventReader.class;
+    }
+
+    @Override
+    public IntermediateRepresentation<XMLEventReader> convert(IntermediateRepresentation<byte[]> original) {
+        Document document = treeConverter.convert(original).getData();
+        try {
+            XMLEventReader reader = inputFactory.createXMLEventReader(new StringReader(document.asXML()));
+            return new SimpleIntermediateRepresentation<XMLEventReader>(original.getType(), XMLEventReader.class,
+                                                                        reader);
+        } catch (XMLStreamException e) {
+            throw new CannotConvertBetweenTypesException("Cannot convert from binary format to XMLEventReader.", e);
+        }
+    }
+}
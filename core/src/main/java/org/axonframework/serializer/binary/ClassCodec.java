@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.common.SerializationException;
+import org.axonframework.domain.MetaData;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import static java.lang.String.format;
+
+/**
+ * Describes how instances of a single class are written and read by the {@link BinarySerializer}. A codec is created
+ * once per class, and contains everything that requires reflection on that class: the fields to serialize, the way to
+ * create new instances and, for types written as a single string, the way to parse that string.
+ * <p/>
+ * Objects are serialized field by field. All non-static, non-transient fields declared by the class and its super
+ * classes are included. When a class declares a field with the same name as a field in one of its super classes, the
+ * field of the super class is identified by the fully qualified name of its declaring class as well, e.g.
+ * <code>com.example.Parent:field</code>.
+ * <p/>
+ * Sorted collections and maps are written as their elements, together with their comparator, if they can be created
+ * with a comparator. Otherwise, they are written field by field.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class ClassCodec {
+
+    /**
+     * The ways in which instances of a class are serialized.
+     */
+    enum Kind {
+        /**
+         * Instances are written field by field.
+         */
+        OBJECT,
+        /**
+         * Instances are written as their elements, and read by adding the elements to a new instance.
+         */
+        COLLECTION,
+        /**
+         * Instances are written as their entries, and read by putting the entries in a new instance.
+         */
+        MAP,
+        /**
+         * Instances are written as their entries, and read using {@link MetaData#from(java.util.Map)}.
+         */
+        META_DATA,
+        /**
+         * Instances are written as a single string, from which they are also read.
+         */
+        VALUE
+    }
+
+    private static final Object UNSAFE;
+    private static final Method ALLOCATE_INSTANCE;
+
+    static {
+        Object unsafe = null;
+        Method allocateInstance = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+        } catch (Exception e) {
+            // objects without a no-arg constructor cannot be deserialized on this JVM
+        }
+        UNSAFE = unsafe;
+        ALLOCATE_INSTANCE = allocateInstance;
+    }
+
+    private final Class<?> type;
+    private final Kind kind;
+    private final Constructor<?> constructor;
+    private final Constructor<?> comparatorConstructor;
+    private final String[] fieldNames;
+    private final Field[] fields;
+    private final Map<String, Field> fieldsByName;
+
+    private ClassCodec(Class<?> type, Kind kind, Constructor<?> constructor, Constructor<?> comparatorConstructor,
+                       String[] fieldNames, Field[] fields) {
+        this.type = type;
+        this.kind = kind;
+        this.constructor = constructor;
+        this.comparatorConstructor = comparatorConstructor;
+        this.fieldNames = fieldNames;
+        this.fields = fields;
+        this.fieldsByName = new HashMap<String, Field>(fields.length * 4);
+        for (int i = 0; i < fields.length; i++) {
+            fieldsByName.put(qualifiedName(fields[i]), fields[i]);
+            fieldsByName.put(fieldNames[i], fields[i]);
+        }
+    }
+
+    /**
+     * Creates the codec for the given <code>type</code>.
+     *
+     * @param type The class to create the codec for
+     * @return the codec for the given type
+     */
+    static ClassCodec forClass(Class<?> type) {
+        if (MetaData.class.equals(type)) {
+            return new ClassCodec(type, Kind.META_DATA, null, null, new String[0], new Field[0]);
+        }
+        if (BigInteger.class.equals(type) || BigDecimal.class.equals(type)) {
+            return new ClassCodec(type, Kind.VALUE, constructor(type, String.class), null, new String[0],
+                                  new Field[0]);
+        }
+        if (type.getName().startsWith("org.joda.time.")) {
+            Constructor<?> constructor = constructor(type, Object.class);
+            if (constructor != null) {
+                return new ClassCodec(type, Kind.VALUE, constructor, null, new String[0], new Field[0]);
+            }
+        }
+        Constructor<?> noArgConstructor = constructor(type);
+        Constructor<?> comparatorConstructor = null;
+        boolean writeElements = noArgConstructor != null;
+        if (SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type)) {
+            comparatorConstructor = constructor(type, Comparator.class);
+            // without such a constructor, only writing the fields preserves the comparator
+            writeElements = writeElements && comparatorConstructor != null;
+        }
+        if (writeElements && Collection.class.isAssignableFrom(type)) {
+            return new ClassCodec(type, Kind.COLLECTION, noArgConstructor, comparatorConstructor, new String[0],
+                                  new Field[0]);
+        }
+        if (writeElements && Map.class.isAssignableFrom(type)) {
+            return new ClassCodec(type, Kind.MAP, noArgConstructor, comparatorConstructor, new String[0],
+                                  new Field[0]);
+        }
+        List<Field> fields = new ArrayList<Field>();
+        List<String> fieldNames = new ArrayList<String>();
+        for (Class<?> current = type; current != null && !Object.class.equals(current);
+             current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    String name = field.getName();
+                    if (fieldNames.contains(name)) {
+                        name = qualifiedName(field);
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                    fieldNames.add(name);
+                }
+            }
+        }
+        return new ClassCodec(type, Kind.OBJECT, noArgConstructor, null,
+                              fieldNames.toArray(new String[fieldNames.size()]),
+                              fields.toArray(new Field[fields.size()]));
+    }
+
+    /**
+     * Returns the way instances of the class are serialized.
+     *
+     * @return the way instances of the class are serialized
+     */
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the names of the serialized fields, in the same order as {@link #getFields()}.
+     *
+     * @return the names of the serialized fields
+     */
+    String[] getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * Returns the serialized fields of the class. All fields are accessible.
+     *
+     * @return the serialized fields of the class
+     */
+    Field[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the field with the given serialized <code>name</code>, or <code>null</code> if the class has no such
+     * field. Fields can also be found by the name qualified with their declaring class, even if they are not hidden by
+     * a field of a subclass (anymore).
+     *
+     * @param name The serialized name of the field
+     * @return the field with the given name, or <code>null</code> if no such field exists
+     */
+    Field getField(String name) {
+        return fieldsByName.get(name);
+    }
+
+    /**
+     * Creates a new, empty instance of the class. The no-arg constructor is used if the class declares one. Otherwise,
+     * the instance is created without invoking any constructor.
+     *
+     * @return a new instance of the class
+     */
+    Object newInstance() {
+        try {
+            if (constructor != null) {
+                return constructor.newInstance();
+            }
+            if (ALLOCATE_INSTANCE != null) {
+                return ALLOCATE_INSTANCE.invoke(UNSAFE, type);
+            }
+        } catch (InstantiationException e) {
+            throw new SerializationException(format("Could not create an instance of [%s]", type.getName()), e);
+        } catch (IllegalAccessException e) {
+            throw new SerializationException(format("Could not create an instance of [%s]", type.getName()), e);
+        } catch (InvocationTargetException e) {
+            throw new SerializationException(format("Could not create an instance of [%s]", type.getName()),
+                                             e.getCause());
+        }
+        throw new SerializationException(format("Could not create an instance of [%s]. On this JVM, classes need "
+                                                        + "to declare a no-arg constructor to be deserialized.",
+                                                type.getName()));
+    }
+
+    /**
+     * Creates a new, empty instance of a sorted collection or map class, which orders its elements using the given
+     * <code>comparator</code>.
+     *
+     * @param comparator The comparator to order the elements of the instance with
+     * @return a new instance of the class
+     */
+    Object newInstance(Comparator<?> comparator) {
+        if (comparatorConstructor == null) {
+            throw new SerializationException(format("Could not create an instance of [%s] with a comparator",
+                                                    type.getName()));
+        }
+        try {
+            return comparatorConstructor.newInstance(comparator);
+        } catch (InvocationTargetException e) {
+            throw new SerializationException(format("Could not create an instance of [%s]", type.getName()),
+                                             e.getCause());
+        } catch (Exception e) {
+            throw new SerializationException(format("Could not create an instance of [%s]", type.getName()), e);
+        }
+    }
+
+    /**
+     * Creates an instance of a {@link Kind#VALUE} class from its string representation.
+     *
+     * @param value The string representation of the instance
+     * @return the instance represented by the given string
+     */
+    Object fromString(String value) {
+        try {
+            return constructor.newInstance(value);
+        } catch (Exception e) {
+            throw new SerializationException(format("Could not create an instance of [%s] from [%s]",
+                                                    type.getName(), value), e);
+        }
+    }
+
+    private static String qualifiedName(Field field) {
+        return field.getDeclaringClass().getName() + BinaryFormat.DECLARING_CLASS_SEPARATOR + field.getName();
+    }
+
+    private static Constructor<?> constructor(Class<?> type, Class<?>... parameterTypes) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor(parameterTypes);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.common.SerializationException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.String.format;
+
+/**
+ * Thread safe cache of {@link ClassCodec ClassCodecs}, which also resolves the classes named in serialized data.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class ClassCodecs {
+
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+
+    static {
+        for (Class<?> type : new Class<?>[]{boolean.class, byte.class, short.class, char.class, int.class,
+                long.class, float.class, double.class}) {
+            PRIMITIVE_TYPES.put(type.getName(), type);
+        }
+    }
+
+    private final ConcurrentMap<Class<?>, ClassCodec> codecs = new ConcurrentHashMap<Class<?>, ClassCodec>();
+    private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+    private final ClassLoader classLoader;
+
+    /**
+     * Initializes the cache, resolving classes using the given <code>classLoader</code>.
+     *
+     * @param classLoader The class loader to load the classes named in serialized data with
+     */
+    ClassCodecs(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Returns the codec for the given <code>type</code>, creating it if it does not exist yet.
+     *
+     * @param type The class to return the codec for
+     * @return the codec for the given class
+     */
+    ClassCodec forClass(Class<?> type) {
+        ClassCodec codec = codecs.get(type);
+        if (codec == null) {
+            codec = ClassCodec.forClass(type);
+            ClassCodec existing = codecs.putIfAbsent(type, codec);
+            if (existing != null) {
+                codec = existing;
+            }
+        }
+        return codec;
+    }
+
+    /**
+     * Returns the class with the given <code>name</code>. Primitive types are resolved by their name, e.g.
+     * <code>int</code>.
+     *
+     * @param name The name of the class
+     * @return the class with the given name
+     *
+     * @throws SerializationException if no class with the given name can be found
+     */
+    Class<?> classForName(String name) {
+        Class<?> type = classes.get(name);
+        if (type == null) {
+            type = PRIMITIVE_TYPES.get(name);
+            if (type == null) {
+                try {
+                    type = Class.forName(name, false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    throw new SerializationException(format(
+                            "Serialized data refers to class [%s], which cannot be found. "
+                                    + "An upcaster may be needed to convert the serialized data.", name), e);
+                }
+            }
+            classes.putIfAbsent(name, type);
+        }
+        return type;
+    }
+}
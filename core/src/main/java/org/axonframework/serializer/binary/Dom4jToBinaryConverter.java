@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.serializer.CannotConvertBetweenTypesException;
+import org.axonframework.serializer.ContentTypeConverter;
+import org.axonframework.serializer.IntermediateRepresentation;
+import org.axonframework.serializer.SimpleIntermediateRepresentation;
+import org.dom4j.Document;
+import org.dom4j.Element;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.bind.DatatypeConverter;
+
+import static java.lang.String.format;
+
+/**
+ * ContentTypeConverter that converts a dom4j Document, as created by the {@link BinaryToDom4jConverter} and possibly
+ * modified by upcasters, back to the binary format of the {@link BinarySerializer}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class Dom4jToBinaryConverter implements ContentTypeConverter<Document, byte[]> {
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    @Override
+    public Class<Document> expectedSourceType() {
+        return Document.class;
+    }
+
+    @Override
+    public Class<byte[]> targetType() {
+        return byte[].class;
+    }
+
+    @Override
+    public IntermediateRepresentation<byte[]> convert(IntermediateRepresentation<Document> original) {
+        BinaryOutput output = new BinaryOutput(INITIAL_BUFFER_SIZE);
+        output.writeByte(BinaryFormat.VERSION);
+        new TreeWriter(output).writeValue(original.getData().getRootElement());
+        return new SimpleIntermediateRepresentation<byte[]>(original.getType(), byte[].class, output.toByteArray());
+    }
+
+    private static final class TreeWriter {
+
+        private final BinaryOutput output;
+        private final Map<String, Integer> ids = new HashMap<String, Integer>();
+        private int compositeCount;
+
+        private TreeWriter(BinaryOutput output) {
+            this.output = output;
+        }
+
+        private void writeValue(Element element) {
+            String type = element.attributeValue(TreeFormat.TYPE);
+            String text = element.getText();
+            try {
+                if (TreeFormat.NULL.equals(type)) {
+                    output.writeByte(BinaryFormat.NULL);
+                } else if (TreeFormat.BOOLEAN.equals(type)) {
+                    output.writeByte(Boolean.parseBoolean(text.trim()) ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+                } else if (TreeFormat.BYTE.equals(type)) {
+                    output.writeByte(BinaryFormat.BYTE);
+                    output.writeByte(Byte.parseByte(text.trim()));
+                } else if (TreeFormat.SHORT.equals(type)) {
+                    output.writeByte(BinaryFormat.SHORT);
+                    output.writeSignedInt(Short.parseShort(text.trim()));
+                } else if (TreeFormat.CHAR.equals(type)) {
+                    output.writeByte(BinaryFormat.CHAR);
+                    output.writeVarInt(Integer.parseInt(text.trim()));
+                } else if (TreeFormat.INT.equals(type)) {
+                    output.writeByte(BinaryFormat.INT);
+                    output.writeSignedInt(Integer.parseInt(text.trim()));
+                } else if (TreeFormat.LONG.equals(type)) {
+                    output.writeByte(BinaryFormat.LONG);
+                    output.writeSignedLong(Long.parseLong(text.trim()));
+                } else if (TreeFormat.FLOAT.equals(type)) {
+                    output.writeByte(BinaryFormat.FLOAT);
+                    output.writeFloat(Float.parseFloat(text.trim()));
+                } else if (TreeFormat.DOUBLE.equals(type)) {
+                    output.writeByte(BinaryFormat.DOUBLE);
+                    output.writeDouble(Double.parseDouble(text.trim()));
+                } else if (TreeFormat.STRING.equals(type)) {
+                    output.writeByte(BinaryFormat.STRING);
+                    output.writeString(text);
+                } else if (TreeFormat.BYTES.equals(type)) {
+                    output.writeByte(BinaryFormat.BYTES);
+                    output.writeBytes(DatatypeConverter.parseBase64Binary(text.trim()));
+                } else if (TreeFormat.ENUM.equals(type)) {
+                    output.writeByte(BinaryFormat.ENUM);
+                    output.writeName(requiredAttribute(element, TreeFormat.CLASS));
+                    output.writeString(text.trim());
+                } else if (TreeFormat.VALUE.equals(type)) {
+                    output.writeByte(BinaryFormat.VALUE);
+                    output.writeName(requiredAttribute(element, TreeFormat.CLASS));
+                    output.writeString(text);
+                } else if (TreeFormat.REF.equals(type)) {
+                    writeReference(element);
+                } else if (TreeFormat.ARRAY.equals(type)) {
+                    writeElements(element, BinaryFormat.ARRAY);
+                } else if (TreeFormat.COLLECTION.equals(type)) {
+                    writeCollection(element);
+                } else if (TreeFormat.MAP.equals(type)) {
+                    writeMap(element);
+                } else if (TreeFormat.OBJECT.equals(type)) {
+                    writeObject(element);
+                } else {
+                    throw new CannotConvertBetweenTypesException(format(
+                            "Element [%s] has an unknown value type [%s]", element.getPath(), type));
+                }
+            } catch (NumberFormatException e) {
+                throw new CannotConvertBetweenTypesException(format(
+                        "Element [%s] does not contain a valid %s value", element.getPath(), type), e);
+            }
+        }
+
+        private void writeReference(Element element) {
+            Integer index = ids.get(requiredAttribute(element, TreeFormat.REF));
+            if (index == null) {
+                throw new CannotConvertBetweenTypesException(format(
+                        "Element [%s] refers to an element that does not precede it", element.getPath()));
+            }
+            output.writeByte(BinaryFormat.REFERENCE);
+            output.writeVarInt(index);
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private void writeElements(Element element, byte tag) {
+            startComposite(element, tag);
+            List<Element> items = element.elements();
+            output.writeVarInt(items.size());
+            for (Element item : items) {
+                writeValue(item);
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private void writeCollection(Element element) {
+            Element comparator = element.element(TreeFormat.COMPARATOR);
+            startComposite(element, comparator == null ? BinaryFormat.COLLECTION : BinaryFormat.SORTED_COLLECTION);
+            List<Element> items = new ArrayList<Element>(element.elements());
+            if (comparator != null) {
+                writeValue(comparator);
+                items.remove(comparator);
+            }
+            output.writeVarInt(items.size());
+            for (Element item : items) {
+                writeValue(item);
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private void writeMap(Element element) {
+            Element comparator = element.element(TreeFormat.COMPARATOR);
+            startComposite(element, comparator == null ? BinaryFormat.MAP : BinaryFormat.SORTED_MAP);
+            if (comparator != null) {
+                writeValue(comparator);
+            }
+            List<Element> entries = element.elements(TreeFormat.ENTRY);
+            output.writeVarInt(entries.size());
+            for (Element entry : entries) {
+                writeValue(requiredElement(entry, TreeFormat.KEY));
+                writeValue(requiredElement(entry, TreeFormat.VALUE));
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private void writeObject(Element element) {
+            startComposite(element, BinaryFormat.OBJECT);
+            List<Element> fields = element.elements();
+            output.writeVarInt(fields.size());
+            for (Element field : fields) {
+                String declaringClass = field.attributeValue(TreeFormat.DECLARED_BY);
+                output.writeName(declaringClass == null
+                                         ? field.getName()
+                                         : declaringClass + BinaryFormat.DECLARING_CLASS_SEPARATOR + field.getName());
+                writeValue(field);
+            }
+        }
+
+        private void startComposite(Element element, byte tag) {
+            String id = element.attributeValue(TreeFormat.ID);
+            if (id != null) {
+                ids.put(id, compositeCount);
+            }
+            compositeCount++;
+            output.writeByte(tag);
+            output.writeName(requiredAttribute(element, TreeFormat.CLASS));
+        }
+
+        private String requiredAttribute(Element element, String name) {
+            String value = element.attributeValue(name);
+            if (value == null) {
+                throw new CannotConvertBetweenTypesException(format("Element [%s] is missing the [%s] attribute",
+                                                                    element.getPath(), name));
+            }
+            return value;
+        }
+
+        private Element requiredElement(Element parent, String name) {
+            Element element = parent.element(name);
+            if (element == null) {
+                throw new CannotConvertBetweenTypesException(format("Element [%s] is missing the [%s] element",
+                                                                    parent.getPath(), name));
+            }
+            return element;
+        }
+    }
+}
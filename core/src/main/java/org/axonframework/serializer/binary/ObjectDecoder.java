@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.common.SerializationException;
+import org.axonframework.domain.MetaData;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * Reads object graphs written in the binary format. The decoder tolerates differences between the serialized form
+ * and the current definition of a class: values of fields that no longer exist are ignored, fields that have no value
+ * in the serialized form keep the value assigned by the no-arg constructor, if any, and numeric values are converted to
+ * the type of the field they are assigned to. Decoders are not thread safe and are meant to be used once.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class ObjectDecoder {
+
+    private final ClassCodecs codecs;
+    private final BinaryInput input;
+    private final List<Object> references = new ArrayList<Object>();
+
+    /**
+     * Initializes a decoder to read from the given <code>data</code>, using the given <code>codecs</code>.
+     *
+     * @param codecs The codecs describing how to read instances of each class
+     * @param data   The serialized data
+     */
+    ObjectDecoder(ClassCodecs codecs, byte[] data) {
+        this.codecs = codecs;
+        this.input = new BinaryInput(data);
+    }
+
+    /**
+     * Reads the object contained in the serialized data.
+     *
+     * @return the deserialized object
+     */
+    Object decode() {
+        input.readHeader();
+        return readValue();
+    }
+
+    private Object readValue() {
+        byte tag = input.readByte();
+        switch (tag) {
+            case BinaryFormat.NULL:
+                return null;
+            case BinaryFormat.FALSE:
+                return Boolean.FALSE;
+            case BinaryFormat.TRUE:
+                return Boolean.TRUE;
+            case BinaryFormat.BYTE:
+                return input.readByte();
+            case BinaryFormat.SHORT:
+                return (short) input.readSignedInt();
+            case BinaryFormat.CHAR:
+                return (char) input.readVarInt();
+            case BinaryFormat.INT:
+                return input.readSignedInt();
+            case BinaryFormat.LONG:
+                return input.readSignedLong();
+            case BinaryFormat.FLOAT:
+                return input.readFloat();
+            case BinaryFormat.DOUBLE:
+                return input.readDouble();
+            case BinaryFormat.STRING:
+                return input.readString();
+            case BinaryFormat.BYTES:
+                return input.readBytes();
+            case BinaryFormat.ENUM:
+                return readEnum();
+            case BinaryFormat.VALUE:
+                return readStringValue();
+            case BinaryFormat.REFERENCE:
+                return readReference();
+            case BinaryFormat.ARRAY:
+                return readArray();
+            case BinaryFormat.COLLECTION:
+                return readCollection(false);
+            case BinaryFormat.SORTED_COLLECTION:
+                return readCollection(true);
+            case BinaryFormat.MAP:
+                return readMap(false);
+            case BinaryFormat.SORTED_MAP:
+                return readMap(true);
+            case BinaryFormat.OBJECT:
+                return readObject();
+            default:
+                throw new SerializationException(format("Unknown value type [%s] in serialized data", tag));
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private Object readEnum() {
+        Class enumType = codecs.classForName(input.readName());
+        String name = input.readString();
+        try {
+            return Enum.valueOf(enumType, name);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException(format("Enum [%s] has no constant named [%s]",
+                                                    enumType.getName(), name), e);
+        }
+    }
+
+    private Object readStringValue() {
+        String typeName = input.readName();
+        String value = input.readString();
+        if (Class.class.getName().equals(typeName)) {
+            return codecs.classForName(value);
+        }
+        return codecs.forClass(codecs.classForName(typeName)).fromString(value);
+    }
+
+    private Object readReference() {
+        int index = input.readVarInt();
+        if (index >= references.size()) {
+            throw new SerializationException("Serialized data refers to an unknown object");
+        }
+        return references.get(index);
+    }
+
+    private Object readArray() {
+        Class<?> componentType = codecs.classForName(input.readName());
+        int length = input.readVarInt();
+        Object array = Array.newInstance(componentType, length);
+        references.add(array);
+        for (int i = 0; i < length; i++) {
+            Object value = ValueConversion.convert(readValue(), componentType);
+            if (value != null || !componentType.isPrimitive()) {
+                Array.set(array, i, value);
+            }
+        }
+        return array;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private Object readCollection(boolean sorted) {
+        ClassCodec codec = codecs.forClass(codecs.classForName(input.readName()));
+        int index = references.size();
+        references.add(null);
+        Collection<Object> collection = (Collection<Object>) (sorted
+                ? codec.newInstance(readComparator())
+                : codec.newInstance());
+        references.set(index, collection);
+        int size = input.readVarInt();
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue());
+        }
+        return collection;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private Object readMap(boolean sorted) {
+        ClassCodec codec = codecs.forClass(codecs.classForName(input.readName()));
+        boolean metaData = codec.getKind() == ClassCodec.Kind.META_DATA;
+        int index = references.size();
+        references.add(null);
+        Map<Object, Object> map;
+        if (sorted) {
+            map = (Map<Object, Object>) codec.newInstance(readComparator());
+        } else {
+            map = metaData ? new HashMap<Object, Object>() : (Map<Object, Object>) codec.newInstance();
+        }
+        references.set(index, map);
+        int size = input.readVarInt();
+        for (int i = 0; i < size; i++) {
+            Object key = readValue();
+            map.put(key, readValue());
+        }
+        if (metaData) {
+            MetaData result = MetaData.from((Map) map);
+            references.set(index, result);
+            return result;
+        }
+        return map;
+    }
+
+    private Comparator<?> readComparator() {
+        Object comparator = readValue();
+        if (!(comparator instanceof Comparator)) {
+            throw new SerializationException(format("Expected a comparator in serialized data, but found a [%s]",
+                                                    comparator == null ? null : comparator.getClass().getName()));
+        }
+        return (Comparator<?>) comparator;
+    }
+
+    private Object readObject() {
+        Class<?> type = codecs.classForName(input.readName());
+        ClassCodec codec = codecs.forClass(type);
+        Object instance = codec.newInstance();
+        references.add(instance);
+        int fieldCount = input.readVarInt();
+        for (int i = 0; i < fieldCount; i++) {
+            String fieldName = input.readName();
+            Field field = codec.getField(fieldName);
+            if (field == null) {
+                skipValue();
+            } else {
+                setField(instance, field, readValue());
+            }
+        }
+        return instance;
+    }
+
+    private void setField(Object instance, Field field, Object value) {
+        Object converted = ValueConversion.convert(value, field.getType());
+        if (converted == null && field.getType().isPrimitive()) {
+            return;
+        }
+        try {
+            field.set(instance, converted);
+        } catch (IllegalAccessException e) {
+            throw new SerializationException(format("Could not set field [%s] of [%s]",
+                                                    field.getName(), instance.getClass().getName()), e);
+        }
+    }
+
+    /**
+     * Reads a value without resolving any of the classes it refers to. Composite values are registered as
+     * <code>null</code>, to keep references to subsequent values intact.
+     */
+    private void skipValue() {
+        byte tag = input.readByte();
+        switch (tag) {
+            case BinaryFormat.NULL:
+            case BinaryFormat.FALSE:
+            case BinaryFormat.TRUE:
+                break;
+            case BinaryFormat.BYTE:
+                input.readByte();
+                break;
+            case BinaryFormat.SHORT:
+            case BinaryFormat.CHAR:
+            case BinaryFormat.INT:
+            case BinaryFormat.REFERENCE:
+                input.readVarInt();
+                break;
+            case BinaryFormat.LONG:
+                input.readVarLong();
+                break;
+            case BinaryFormat.FLOAT:
+                input.readFloat();
+                break;
+            case BinaryFormat.DOUBLE:
+                input.readDouble();
+                break;
+            case BinaryFormat.STRING:
+                input.readString();
+                break;
+            case BinaryFormat.BYTES:
+                input.readBytes();
+                break;
+            case BinaryFormat.ENUM:
+            case BinaryFormat.VALUE:
+                input.readName();
+                input.readString();
+                break;
+            case BinaryFormat.ARRAY:
+            case BinaryFormat.COLLECTION:
+            case BinaryFormat.SORTED_COLLECTION:
+                input.readName();
+                references.add(null);
+                if (tag == BinaryFormat.SORTED_COLLECTION) {
+                    skipValue();
+                }
+                for (int i = input.readVarInt(); i > 0; i--) {
+                    skipValue();
+                }
+                break;
+            case BinaryFormat.MAP:
+            case BinaryFormat.SORTED_MAP:
+                input.readName();
+                references.add(null);
+                if (tag == BinaryFormat.SORTED_MAP) {
+                    skipValue();
+                }
+                for (int i = input.readVarInt(); i > 0; i--) {
+                    skipValue();
+                    skipValue();
+                }
+                break;
+            case BinaryFormat.OBJECT:
+                input.readName();
+                references.add(null);
+                for (int i = input.readVarInt(); i > 0; i--) {
+                    input.readName();
+                    skipValue();
+                }
+                break;
+            default:
+                throw new SerializationException(format("Unknown value type [%s] in serialized data", tag));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.common.SerializationException;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import static java.lang.String.format;
+
+/**
+ * Writes object graphs in the binary format. An encoder keeps its buffer between invocations, so that a single encoder
+ * per thread is enough to serialize objects without allocating new buffers. Encoders are not thread safe.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class ObjectEncoder {
+
+    private final ClassCodecs codecs;
+    private final BinaryOutput output;
+    private final Map<Object, Integer> references = new IdentityHashMap<Object, Integer>();
+    private boolean inUse;
+
+    /**
+     * Initializes an encoder that uses the given <code>codecs</code>, with a buffer of the given
+     * <code>initialCapacity</code>.
+     *
+     * @param codecs          The codecs describing how to write instances of each class
+     * @param initialCapacity The initial capacity of the buffer
+     */
+    ObjectEncoder(ClassCodecs codecs, int initialCapacity) {
+        this.codecs = codecs;
+        this.output = new BinaryOutput(initialCapacity);
+    }
+
+    /**
+     * Writes the given <code>object</code> to the buffer of this encoder, replacing its previous contents. The result
+     * is available from the returned buffer until the encoder is {@link #release() released}.
+     *
+     * @param object The object to write
+     * @return the buffer containing the serialized form of the object
+     */
+    BinaryOutput encode(Object object) {
+        inUse = true;
+        output.reset();
+        references.clear();
+        output.writeByte(BinaryFormat.VERSION);
+        writeValue(object);
+        references.clear();
+        return output;
+    }
+
+    /**
+     * Indicates whether the encoder is currently in use. An encoder that is in use must not be used to encode another
+     * object until it has been released.
+     *
+     * @return <code>true</code> if the encoder is in use, otherwise <code>false</code>
+     */
+    boolean isInUse() {
+        return inUse;
+    }
+
+    /**
+     * Releases the encoder for use by subsequent invocations.
+     */
+    void release() {
+        inUse = false;
+    }
+
+    /**
+     * Returns the capacity of the buffer of this encoder.
+     *
+     * @return the capacity of the buffer of this encoder
+     */
+    int capacity() {
+        return output.capacity();
+    }
+
+    private void writeValue(Object value) {
+        if (value == null) {
+            output.writeByte(BinaryFormat.NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            output.writeByte(BinaryFormat.STRING);
+            output.writeString((String) value);
+        } else if (type == Integer.class) {
+            output.writeByte(BinaryFormat.INT);
+            output.writeSignedInt((Integer) value);
+        } else if (type == Long.class) {
+            output.writeByte(BinaryFormat.LONG);
+            output.writeSignedLong((Long) value);
+        } else if (type == Boolean.class) {
+            output.writeByte((Boolean) value ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+        } else if (type == Double.class) {
+            output.writeByte(BinaryFormat.DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (type == Float.class) {
+            output.writeByte(BinaryFormat.FLOAT);
+            output.writeFloat((Float) value);
+        } else if (type == Short.class) {
+            output.writeByte(BinaryFormat.SHORT);
+            output.writeSignedInt((Short) value);
+        } else if (type == Byte.class) {
+            output.writeByte(BinaryFormat.BYTE);
+            output.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            output.writeByte(BinaryFormat.CHAR);
+            output.writeVarInt((Character) value);
+        } else if (type == byte[].class) {
+            output.writeByte(BinaryFormat.BYTES);
+            output.writeBytes((byte[]) value);
+        } else if (value instanceof Enum) {
+            output.writeByte(BinaryFormat.ENUM);
+            output.writeName(((Enum) value).getDeclaringClass().getName());
+            output.writeString(((Enum) value).name());
+        } else if (value instanceof Class) {
+            output.writeByte(BinaryFormat.VALUE);
+            output.writeName(Class.class.getName());
+            output.writeString(((Class) value).getName());
+        } else {
+            writeComposite(value, type);
+        }
+    }
+
+    private void writeComposite(Object value, Class<?> type) {
+        ClassCodec codec = type.isArray() ? null : codecs.forClass(type);
+        if (codec != null && codec.getKind() == ClassCodec.Kind.VALUE) {
+            output.writeByte(BinaryFormat.VALUE);
+            output.writeName(type.getName());
+            output.writeString(value.toString());
+            return;
+        }
+        Integer reference = references.get(value);
+        if (reference != null) {
+            output.writeByte(BinaryFormat.REFERENCE);
+            output.writeVarInt(reference);
+            return;
+        }
+        references.put(value, references.size());
+        if (codec == null) {
+            writeArray(value, type);
+        } else {
+            switch (codec.getKind()) {
+                case COLLECTION:
+                    writeCollection((Collection<?>) value, type);
+                    break;
+                case MAP:
+                case META_DATA:
+                    writeMap((Map<?, ?>) value, type);
+                    break;
+                default:
+                    writeObject(value, codec);
+            }
+        }
+    }
+
+    private void writeArray(Object array, Class<?> type) {
+        int length = Array.getLength(array);
+        output.writeByte(BinaryFormat.ARRAY);
+        output.writeName(type.getComponentType().getName());
+        output.writeVarInt(length);
+        for (int i = 0; i < length; i++) {
+            writeValue(Array.get(array, i));
+        }
+    }
+
+    private void writeCollection(Collection<?> collection, Class<?> type) {
+        Comparator<?> comparator = collection instanceof SortedSet ? ((SortedSet<?>) collection).comparator() : null;
+        output.writeByte(comparator == null ? BinaryFormat.COLLECTION : BinaryFormat.SORTED_COLLECTION);
+        output.writeName(type.getName());
+        if (comparator != null) {
+            writeValue(comparator);
+        }
+        output.writeVarInt(collection.size());
+        for (Object element : collection) {
+            writeValue(element);
+        }
+    }
+
+    private void writeMap(Map<?, ?> map, Class<?> type) {
+        Comparator<?> comparator = map instanceof SortedMap ? ((SortedMap<?, ?>) map).comparator() : null;
+        output.writeByte(comparator == null ? BinaryFormat.MAP : BinaryFormat.SORTED_MAP);
+        output.writeName(type.getName());
+        if (comparator != null) {
+            writeValue(comparator);
+        }
+        output.writeVarInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeValue(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    private void writeObject(Object object, ClassCodec codec) {
+        String[] fieldNames = codec.getFieldNames();
+        Field[] fields = codec.getFields();
+        output.writeByte(BinaryFormat.OBJECT);
+        output.writeName(object.getClass().getName());
+        output.writeVarInt(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            output.writeName(fieldNames[i]);
+            try {
+                writeValue(fields[i].get(object));
+            } catch (IllegalAccessException e) {
+                throw new SerializationException(format("Could not read field [%s] of [%s]",
+                                                        fieldNames[i], object.getClass().getName()), e);
+            }
+        }
+    }
+}
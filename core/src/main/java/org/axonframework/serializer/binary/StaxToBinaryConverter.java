@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.serializer.CannotConvertBetweenTypesException;
+import org.axonframework.serializer.ContentTypeConverter;
+import org.axonframework.serializer.IntermediateRepresentation;
+import org.axonframework.serializer.SimpleIntermediateRepresentation;
+import org.dom4j.Document;
+import org.dom4j.io.STAXEventReader;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * ContentTypeConverter that converts a StAX XMLEventReader, providing XML as created by the {@link
+ * BinaryToStaxConverter} and possibly modified by upcasters, back to the binary format of the {@link
+ * BinarySerializer}. The events are read into a tree, which is converted by the {@link Dom4jToBinaryConverter}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class StaxToBinaryConverter implements ContentTypeConverter<XMLEventReader, byte[]> {
+
+    private final Dom4jToBinaryConverter treeConverter = new Dom4jToBinaryConverter();
+
+    @Override
+    public Class<XMLEventReader> expectedSourceType() {
+        return XMLEventReader.class;
+    }
+
+    @Override
+    public Class<byte[]> targetType() {
+        return byte[].class;
+    }
+
+    @Override
+    public IntermediateRepresentation<byte[]> convert(IntermediateRepresentation<XMLEventReader> original) {
+        try {
+            Document document = new STAXEventReader().readDocument(original.getData());
+            return treeConverter.convert(new SimpleIntermediateRepresentation<Document>(original.getType(),
+                                                                                        Document.class, document));
+        } catch (XMLStreamException e) {
+            throw new CannotConvertBetweenTypesException("Cannot convert from XMLEventReader to binary format.", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+/**
+ * Names of the elements and attributes used in the dom4j representation of the binary format. See {@link
+ * BinaryToDom4jConverter} for a description of that representation.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class TreeFormat {
+
+    static final String ROOT = "root";
+    static final String ITEM = "item";
+    static final String ENTRY = "entry";
+    static final String KEY = "key";
+    static final String VALUE = "value";
+    static final String COMPARATOR = "comparator";
+
+    static final String TYPE = "type";
+    static final String CLASS = "class";
+    static final String ID = "id";
+    static final String REF = "ref";
+    static final String DECLARED_BY = "declaredBy";
+
+    static final String NULL = "null";
+    static final String BOOLEAN = "boolean";
+    static final String BYTE = "byte";
+    static final String SHORT = "short";
+    static final String CHAR = "char";
+    static final String INT = "int";
+    static final String LONG = "long";
+    static final String FLOAT = "float";
+    static final String DOUBLE = "double";
+    static final String STRING = "string";
+    static final String BYTES = "bytes";
+    static final String ENUM = "enum";
+    static final String ARRAY = "array";
+    static final String COLLECTION = "collection";
+    static final String MAP = "map";
+    static final String OBJECT = "object";
+
+    private TreeFormat() {
+        // utility class
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.common.SerializationException;
+
+import static java.lang.String.format;
+
+/**
+ * Converts deserialized values to the type of the field or array they are assigned to. This allows the type of a
+ * numeric field to change, e.g. from <code>int</code> to <code>long</code>, without the need for an upcaster.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class ValueConversion {
+
+    private ValueConversion() {
+        // utility class
+    }
+
+    /**
+     * Converts the given <code>value</code> to the given <code>targetType</code>. Values that are already an
+     * instance of the target type (or its wrapper type, for primitives) are returned as is.
+     *
+     * @param value      The value to convert
+     * @param targetType The type to convert the value to
+     * @return the converted value
+     *
+     * @throws SerializationException if the value cannot be converted to the target type
+     */
+    static Object convert(Object value, Class<?> targetType) {
+        if (value == null || targetType.isInstance(value)) {
+            return value;
+        }
+        Class<?> type = targetType.isPrimitive() ? wrapperOf(targetType) : targetType;
+        if (type.isInstance(value)) {
+            return value;
+        }
+        Object numericValue = value instanceof Character ? Integer.valueOf((Character) value) : value;
+        if (numericValue instanceof Number) {
+            Number number = (Number) numericValue;
+            if (type == Long.class) {
+                return number.longValue();
+            } else if (type == Integer.class) {
+                return number.intValue();
+            } else if (type == Short.class) {
+                return number.shortValue();
+            } else if (type == Byte.class) {
+                return number.byteValue();
+            } else if (type == Double.class) {
+                return number.doubleValue();
+            } else if (type == Float.class) {
+                return number.floatValue();
+            } else if (type == Character.class) {
+                return (char) number.intValue();
+            }
+        }
+        throw new SerializationException(format("Cannot assign a value of type [%s] to a field of type [%s]. "
+                                                        + "An upcaster may be needed to convert the serialized data.",
+                                                value.getClass().getName(), targetType.getName()));
+    }
+
+    private static Class<?> wrapperOf(Class<?> primitiveType) {
+        if (primitiveType == int.class) {
+            return Integer.class;
+        } else if (primitiveType == long.class) {
+            return Long.class;
+        } else if (primitiveType == boolean.class) {
+            return Boolean.class;
+        } else if (primitiveType == double.class) {
+            return Double.class;
+        } else if (primitiveType == float.class) {
+            return Float.class;
+        } else if (primitiveType == short.class) {
+            return Short.class;
+        } else if (primitiveType == byte.class) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+}
@@ -14,12 +14,8 @@
  * limitations under the License.
  */
 
-package org.axonframework.commandhandling.disruptor;
-
 /**
- * @author Allard Buijze
+ * Serializer implementation that writes objects in a compact, self-describing binary format, and the
+ * ContentTypeConverters that allow upcasters to process that format.
  */
-public interface IdentifiedCommand {
-
-    Object getAggregateIdentifier();
-}
+package org.axonframework.serializer.binary;
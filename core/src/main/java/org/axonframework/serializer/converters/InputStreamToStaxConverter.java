@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.serializer.converters;
+
+import org.axonframework.serializer.CannotConvertBetweenTypesException;
+import org.axonframework.serializer.ContentTypeConverter;
+import org.axonframework.serializer.IntermediateRepresentation;
+import org.axonframework.serializer.SimpleIntermediateRepresentation;
+
+import java.io.InputStream;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Converter that converts an input stream to a StAX XMLEventReader. It assumes that the input stream provides UTF-8
+ * formatted XML. The input stream is read lazily, while events are read from the returned reader. Unlike a dom4j
+ * Document, the XMLEventReader allows XML to be upcast without holding the entire tree in memory.
+ * <p/>
+ * DTDs and external entities are not supported.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class InputStreamToStaxConverter implements ContentTypeConverter<InputStream, XMLEventReader> {
+
+    // factories are safe for concurrent use once they have been configured
+    private final XMLInputFactory inputFactory;
+
+    /**
+     * Initializes the converter using the default StAX implementation.
+     */
+    public InputStreamToStaxConverter() {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    @Override
+    public Class<InputStream> expectedSourceType() {
+        return InputStream.class;
+    }
+
+    @Override
+    public Class<XMLEventReader> targetType() {
+        return XMLEventReader.class;
+    }
+
+    @Override
+    public IntermediateRepresentation<XMLEventReader> convert(IntermediateRepresentation<InputStream> original) {
+        try {
+            XMLEventReader reader = inputFactory.createXMLEventReader(original.getData(), "UTF-8");
+            return new SimpleIntermediateRepresentation<XMLEventReader>(original.getType(), XMLEventReader.class,
+                                                                        reader);
+        } catch (XMLStreamException e) {
+            throw new CannotConvertBetweenTypesException("Cannot convert from InputStream to XMLEventReader.", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.serializer.converters;
+
+import org.axonframework.serializer.CannotConvertBetweenTypesException;
+import org.axonframework.serializer.ContentTypeConverter;
+import org.axonframework.serializer.IntermediateRepresentation;
+import org.axonframework.serializer.SimpleIntermediateRepresentation;
+
+import java.io.ByteArrayOutputStream;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Converter that writes the events read from a StAX XMLEventReader to a byte array, containing UTF-8 formatted XML.
+ * The events are written as they are read, so that upcasters wrapping the reader are applied in a single pass.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class StaxToByteArrayConverter implements ContentTypeConverter<XMLEventReader, byte[]> {
+
+    // factories are safe for concurrent use once they have been configured
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    @Override
+    public Class<XMLEventReader> expectedSourceType() {
+        return XMLEventReader.class;
+    }
+
+    @Override
+    public Class<byte[]> targetType() {
+        return byte[].class;
+    }
+
+    @Override
+    public IntermediateRepresentation<byte[]> convert(IntermediateRepresentation<XMLEventReader> original) {
+        XMLEventReader reader = original.getData();
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            XMLEventWriter writer = outputFactory.createXMLEventWriter(output, "UTF-8");
+            writer.add(reader);
+            writer.close();
+            reader.close();
+            return new SimpleIntermediateRepresentation<byte[]>(original.getType(), byte[].class,
+                                                                output.toByteArray());
+        } catch (XMLStreamException e) {
+            throw new CannotConvertBetweenTypesException("Cannot convert from XMLEventReader to byte[].", e);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
+import org.axonframework.commandhandling.annotation.TargetAggregateIdentifier;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.axonframework.eventhandling.BackPressurePolicy;
+import org.axonframework.eventhandling.TransactionStatus;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AsynchronousCommandBusTest {
+
+    private ExecutorService executorService;
+    private AsynchronousCommandBus testSubject;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+        testSubject = new AsynchronousCommandBus(executorService, new AnnotationCommandTargetResolver(), false);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void testDispatchReturnsBeforeCommandIsProcessed() throws Exception {
+        final CountDownLatch handlerReleased = new CountDownLatch(1);
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(CommandMessage<StubCommand> command, UnitOfWork unitOfWork) throws Throwable {
+                handlerReleased.await();
+                return command.getPayload().getSequenceNumber();
+            }
+        });
+
+        FutureCallback<Integer> callback = new FutureCallback<Integer>();
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate", 42)), callback);
+
+        assertFalse(callback.isDone());
+        handlerReleased.countDown();
+        assertEquals((Integer) 42, callback.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailureReportedToCallback() throws Exception {
+        final RuntimeException failure = new RuntimeException("Mock");
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(CommandMessage<StubCommand> command, UnitOfWork unitOfWork) throws Throwable {
+                throw failure;
+            }
+        });
+
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate", 0)), callback);
+
+        try {
+            callback.get();
+            fail("Expected the failure to be reported");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCommandsForSameAggregateProcessedInOrder() throws Exception {
+        final Map<String, List<Integer>> processedCommands = new HashMap<String, List<Integer>>();
+        final String[] aggregates = {"aggregate1", "aggregate2", "aggregate3"};
+        for (String aggregate : aggregates) {
+            processedCommands.put(aggregate, Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(CommandMessage<StubCommand> command, UnitOfWork unitOfWork) throws Throwable {
+                processedCommands.get(command.getPayload().getAggregateIdentifier()).add(command.getPayload().getSequenceNumber());
+                return null;
+            }
+        });
+
+        List<FutureCallback<Object>> callbacks = new ArrayList<FutureCallback<Object>>();
+        for (int i = 0; i < 100; i++) {
+            for (String aggregate : aggregates) {
+                FutureCallback<Object> callback = new FutureCallback<Object>();
+                callbacks.add(callback);
+                testSubject.dispatch(asCommandMessage(new StubCommand(aggregate, i)), callback);
+            }
+        }
+        for (FutureCallback<Object> callback : callbacks) {
+            callback.get();
+        }
+
+        for (String aggregate : aggregates) {
+            List<Integer> sequence = processedCommands.get(aggregate);
+            assertEquals(100, sequence.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals("Command processed out of order", (Integer) i, sequence.get(i));
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCommandsForDifferentAggregatesProcessedInParallel() throws Exception {
+        final CountDownLatch secondCommandProcessed = new CountDownLatch(1);
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(CommandMessage<StubCommand> command, UnitOfWork unitOfWork) throws Throwable {
+                if ("aggregate1".equals(command.getPayload().getAggregateIdentifier())) {
+                    // can only complete if the other command isn't waiting for this one
+                    return secondCommandProcessed.await(5, TimeUnit.SECONDS);
+                }
+                secondCommandProcessed.countDown();
+                return true;
+            }
+        });
+
+        FutureCallback<Boolean> callback1 = new FutureCallback<Boolean>();
+        FutureCallback<Boolean> callback2 = new FutureCallback<Boolean>();
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate1", 0)), callback1);
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate2", 0)), callback2);
+
+        assertTrue(callback2.get());
+        assertTrue("Commands for different aggregates were not processed in parallel", callback1.get());
+    }
+
+    @Test
+    public void testQueuedCommandsReportedInStatistics() throws Exception {
+        final List<Runnable> scheduledTasks = new ArrayList<Runnable>();
+        testSubject = new AsynchronousCommandBus(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                scheduledTasks.add(command);
+            }
+        }, new AnnotationCommandTargetResolver(), false);
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(CommandMessage<StubCommand> command, UnitOfWork unitOfWork) throws Throwable {
+                return null;
+            }
+        });
+
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate", 0)), callback);
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate", 1)));
+
+        assertEquals(2, testSubject.getStatistics().getQueuedCommandCount());
+        assertEquals(0, testSubject.getStatistics().getReceivedCommandCount());
+        assertEquals(1, scheduledTasks.size());
+
+        scheduledTasks.get(0).run();
+
+        assertTrue(callback.isDone());
+        assertEquals(0, testSubject.getStatistics().getQueuedCommandCount());
+        assertEquals(2, testSubject.getStatistics().getReceivedCommandCount());
+    }
+
+    @Test
+    public void testDroppedCommandReportedToCallback() throws Exception {
+        final List<Runnable> scheduledTasks = new ArrayList<Runnable>();
+        testSubject = new AsynchronousCommandBus(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                scheduledTasks.add(command);
+            }
+        }, new AnnotationCommandTargetResolver(), false);
+        testSubject.setQueueCapacity(1);
+        testSubject.setBackPressurePolicy(BackPressurePolicy.DROP);
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(CommandMessage<StubCommand> command, UnitOfWork unitOfWork) throws Throwable {
+                return command.getPayload().getSequenceNumber();
+            }
+        });
+
+        FutureCallback<Integer> acceptedCallback = new FutureCallback<Integer>();
+        FutureCallback<Integer> droppedCallback = new FutureCallback<Integer>();
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate", 0)), acceptedCallback);
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate", 1)), droppedCallback);
+
+        assertTrue(droppedCallback.isDone());
+        try {
+            droppedCallback.get();
+            fail("Expected the dropped command to be reported");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CommandQueueFullException);
+        }
+        assertEquals(1, testSubject.getStatistics().getQueuedCommandCount());
+
+        scheduledTasks.get(0).run();
+        assertEquals((Integer) 0, acceptedCallback.get());
+        assertEquals(0, testSubject.getStatistics().getQueuedCommandCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testCommandsNotHandledInEventProcessingTransaction() throws Exception {
+        AsynchronousCommandBus boundedCommandBus = new AsynchronousCommandBus(
+                executorService, new AnnotationCommandTargetResolver(), false);
+        boundedCommandBus.setQueueCapacity(16);
+        CommandHandler<StubCommand> commandHandler = new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(CommandMessage<StubCommand> command, UnitOfWork unitOfWork) throws Throwable {
+                return TransactionStatus.current() == null;
+            }
+        };
+        testSubject.subscribe(StubCommand.class, commandHandler);
+        boundedCommandBus.subscribe(StubCommand.class, commandHandler);
+
+        FutureCallback<Boolean> callback = new FutureCallback<Boolean>();
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate", 0)), callback);
+        FutureCallback<Boolean> boundedCallback = new FutureCallback<Boolean>();
+        boundedCommandBus.dispatch(asCommandMessage(new StubCommand("aggregate", 0)), boundedCallback);
+
+        assertTrue("Command handler saw a transaction status", callback.get());
+        assertTrue("Command handler saw a transaction status", boundedCallback.get());
+    }
+
+    @Test(expected = NoHandlerForCommandException.class)
+    public void testDispatchWithoutHandlerFailsImmediately() {
+        testSubject.dispatch(asCommandMessage(new StubCommand("aggregate", 0)));
+    }
+
+    private static CommandMessage<StubCommand> asCommandMessage(StubCommand command) {
+        return new GenericCommandMessage<StubCommand>(command);
+    }
+
+    private static class StubCommand {
+
+        @TargetAggregateIdentifier
+        private final String aggregateIdentifier;
+        private final int sequenceNumber;
+
+        public StubCommand(String aggregateIdentifier, int sequenceNumber) {
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        public String getAggregateIdentifier() {
+            return aggregateIdentifier;
+        }
+
+        public int getSequenceNumber() {
+            return sequenceNumber;
+        }
+    }
+}
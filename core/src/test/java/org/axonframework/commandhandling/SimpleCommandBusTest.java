@@ -71,6 +71,19 @@ public class SimpleCommandBusTest {
                              });
     }
 
+    @Test
+    public void testCommandLatencyPercentilesReported() {
+        SimpleCommandBusStatistics statistics = testSubject.getStatistics();
+        assertEquals(0, statistics.getMedianCommandLatency());
+        for (int i = 100; i > 0; i--) {
+            statistics.recordCommandLatency(i * 1000L);
+        }
+
+        assertEquals(50, statistics.getMedianCommandLatency());
+        assertEquals(95, statistics.get95thPercentileCommandLatency());
+        assertEquals(99, statistics.get99thPercentileCommandLatency());
+    }
+
     @Test
     public void testDispatchCommand_ImplicitUnitOfWorkIsCommittedOnReturnValue() {
         UnitOfWorkFactory spyUnitOfWorkFactory = spy(new DefaultUnitOfWorkFactory());
@@ -132,6 +132,20 @@ public class AnnotationCommandTargetResolverTest {
         assertEquals(version, actual.getVersion());
     }
 
+    @Test
+    public void testResolveTarget_SameCommandTypeResolvedRepeatedly() {
+        final UUID firstIdentifier = UUID.randomUUID();
+        final UUID secondIdentifier = UUID.randomUUID();
+        VersionedAggregateIdentifier first = testSubject.resolveTarget(
+                asCommandMessage(new FieldAnnotatedCommand(firstIdentifier, 1L)));
+        VersionedAggregateIdentifier second = testSubject.resolveTarget(
+                asCommandMessage(new FieldAnnotatedCommand(secondIdentifier, null)));
+        assertEquals(firstIdentifier, first.getIdentifier());
+        assertEquals((Long) 1L, first.getVersion());
+        assertEquals(secondIdentifier, second.getIdentifier());
+        assertNull(second.getVersion());
+    }
+
     @Test
     public void testResolveTarget_WithAnnotatedFields_ParsableVersion() {
         final UUID aggregateIdentifier = UUID.randomUUID();
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common;
+
+import org.junit.*;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class ClassCacheTest {
+
+    private AtomicInteger computations;
+    private ClassCache<String> testSubject;
+
+    @Before
+    public void setUp() {
+        computations = new AtomicInteger();
+        testSubject = new ClassCache<String>() {
+            @Override
+            protected String computeValue(Class<?> type) {
+                computations.incrementAndGet();
+                return type.getName();
+            }
+        };
+    }
+
+    @Test
+    public void testValueComputedOncePerClass() {
+        assertEquals(String.class.getName(), testSubject.get(String.class));
+        assertEquals(Integer.class.getName(), testSubject.get(Integer.class));
+        assertEquals(String.class.getName(), testSubject.get(String.class));
+        assertEquals(2, computations.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testCacheDoesNotPreventClassFromBeingCollected() throws Exception {
+        URL testClasses = ClassCacheTest.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader classLoader = new URLClassLoader(new URL[]{testClasses}, null);
+        Class<?> type = classLoader.loadClass(StubType.class.getName());
+        assertNotSame(StubType.class, type);
+        assertEquals(StubType.class.getName(), testSubject.get(type));
+
+        WeakReference<Class<?>> reference = new WeakReference<Class<?>>(type);
+        type = null;
+        classLoader = null;
+        while (reference.get() != null) {
+            System.gc();
+        }
+    }
+
+    private static class StubType {
+
+    }
+}
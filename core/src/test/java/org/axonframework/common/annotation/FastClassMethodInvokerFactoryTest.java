@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import org.junit.*;
+
+import java.lang.reflect.InvocationTargetException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class FastClassMethodInvokerFactoryTest {
+
+    private FastClassMethodInvokerFactory testSubject;
+    private StubHandler target;
+
+    @Before
+    public void setUp() {
+        testSubject = new FastClassMethodInvokerFactory();
+        target = new StubHandler();
+    }
+
+    @Test
+    public void testInvokePublicMethod() throws Exception {
+        MethodInvoker invoker = testSubject.createInstance(StubHandler.class.getDeclaredMethod("handleString",
+                                                                                              String.class));
+
+        assertNotNull(invoker);
+        assertEquals("result", invoker.invoke(target, new Object[]{"value"}));
+        assertEquals("value", target.lastValue);
+    }
+
+    @Test
+    public void testExceptionFromPackagePrivateMethodIsWrapped() throws Exception {
+        MethodInvoker invoker = testSubject.createInstance(StubHandler.class.getDeclaredMethod("handleLong",
+                                                                                              Long.class));
+
+        assertNotNull(invoker);
+        try {
+            invoker.invoke(target, new Object[]{1L});
+            fail("Expected exception");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof MockException);
+        }
+    }
+
+    @Test
+    public void testPrivateAndProtectedMethodsNotSupported() throws Exception {
+        assertNull(testSubject.createInstance(StubHandler.class.getDeclaredMethod("handleInteger", Integer.class)));
+        assertNull(testSubject.createInstance(StubHandler.class.getDeclaredMethod("handleDouble", Double.class)));
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class StubHandler {
+
+        private Object lastValue;
+
+        public String handleString(String value) {
+            lastValue = value;
+            return "result";
+        }
+
+        private void handleInteger(Integer value) {
+            lastValue = value;
+        }
+
+        void handleLong(Long value) {
+            throw new MockException();
+        }
+
+        protected void handleDouble(Double value) {
+            lastValue = value;
+        }
+    }
+
+    private static class MockException extends RuntimeException {
+
+    }
+}
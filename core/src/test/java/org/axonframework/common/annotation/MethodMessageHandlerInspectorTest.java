@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import org.axonframework.domain.EventMessage;
+import org.axonframework.domain.GenericEventMessage;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.junit.*;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class MethodMessageHandlerInspectorTest {
+
+    @Test
+    public void testInspectorIsSharedPerTargetAndAnnotationType() {
+        assertSame(MethodMessageHandlerInspector.getInstance(StubHandler.class, EventHandler.class),
+                   MethodMessageHandlerInspector.getInstance(StubHandler.class, EventHandler.class));
+        assertNotSame(MethodMessageHandlerInspector.getInstance(StubHandler.class, EventHandler.class),
+                      MethodMessageHandlerInspector.getInstance(StubHandler.class, MetaData.class));
+    }
+
+    @Test
+    public void testFindMostSpecificHandler() {
+        MethodMessageHandlerInspector testSubject = MethodMessageHandlerInspector.getInstance(StubHandler.class,
+                                                                                           EventHandler.class);
+
+        assertEquals("handleString", testSubject.findHandlerMethod(GenericEventMessage.asEventMessage("string"))
+                                                .getMethodName());
+        assertEquals("handleNumber", testSubject.findHandlerMethod(GenericEventMessage.asEventMessage(1))
+                                                .getMethodName());
+        assertEquals("handleNumber", testSubject.findHandlerMethod(GenericEventMessage.asEventMessage(1L))
+                                                .getMethodName());
+        assertNull(testSubject.findHandlerMethod(GenericEventMessage.asEventMessage(new Object())));
+        // repeated lookups use the cached candidates
+        assertNull(testSubject.findHandlerMethod(GenericEventMessage.asEventMessage(new Object())));
+        assertEquals("handleString", testSubject.findHandlerMethod(GenericEventMessage.asEventMessage("other"))
+                                                .getMethodName());
+    }
+
+    @Test
+    public void testCandidatesAreEvaluatedAgainstEntireMessage() {
+        MethodMessageHandlerInspector testSubject = MethodMessageHandlerInspector.getInstance(StubHandler.class,
+                                                                                           EventHandler.class);
+
+        EventMessage<Boolean> withoutMetaData = GenericEventMessage.asEventMessage(Boolean.TRUE);
+        EventMessage<Boolean> withMetaData = withoutMetaData.withMetaData(Collections.<String, Object>singletonMap("key", "value"));
+
+        assertNull(testSubject.findHandlerMethod(withoutMetaData));
+        assertEquals("handleBooleanWithMetaData", testSubject.findHandlerMethod(withMetaData).getMethodName());
+        assertNull(testSubject.findHandlerMethod(withoutMetaData));
+    }
+
+    @Test
+    public void testUnconditionalHandlerUsedWhenConditionalCandidatesDoNotMatch() {
+        MethodMessageHandlerInspector testSubject = MethodMessageHandlerInspector.getInstance(
+                ConditionalStubHandler.class, EventHandler.class);
+
+        EventMessage<String> withoutMetaData = GenericEventMessage.asEventMessage("string");
+        EventMessage<String> withMetaData = withoutMetaData.withMetaData(Collections.<String, Object>singletonMap("key", "value"));
+
+        assertEquals("handleObject", testSubject.findHandlerMethod(withoutMetaData).getMethodName());
+        assertEquals("handleStringWithMetaData", testSubject.findHandlerMethod(withMetaData).getMethodName());
+        assertEquals("handleObject", testSubject.findHandlerMethod(GenericEventMessage.asEventMessage(1))
+                                                .getMethodName());
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class ConditionalStubHandler {
+
+        @EventHandler
+        public void handleStringWithMetaData(String event, @MetaData(key = "key", required = true) String value) {
+        }
+
+        @EventHandler
+        public void handleObject(Object event, @MetaData(key = "key") String value) {
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class StubHandler {
+
+        @EventHandler
+        public void handleString(String event) {
+        }
+
+        @EventHandler
+        public void handleNumber(Number event) {
+        }
+
+        @EventHandler
+        public void handleBooleanWithMetaData(Boolean event, @MetaData(key = "key", required = true) String value) {
+        }
+    }
+}
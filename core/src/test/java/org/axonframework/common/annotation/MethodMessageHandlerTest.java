@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import org.axonframework.domain.GenericEventMessage;
+import org.junit.*;
+
+import java.lang.reflect.InvocationTargetException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class MethodMessageHandlerTest {
+
+    private StubHandler target;
+
+    @Before
+    public void setUp() {
+        target = new StubHandler();
+    }
+
+    @Test
+    public void testInvokeMethodWithReturnValue() throws Exception {
+        MethodMessageHandler testSubject = MethodMessageHandler.createFor(
+                StubHandler.class.getDeclaredMethod("handleString", String.class));
+
+        assertEquals("result", testSubject.invoke(target, GenericEventMessage.asEventMessage("value")));
+        assertEquals("value", target.lastValue);
+    }
+
+    @Test
+    public void testInvokePrivateVoidMethod() throws Exception {
+        MethodMessageHandler testSubject = MethodMessageHandler.createFor(
+                StubHandler.class.getDeclaredMethod("handleInteger", Integer.class));
+
+        assertEquals(Void.TYPE, testSubject.invoke(target, GenericEventMessage.asEventMessage(1)));
+        assertEquals(1, target.lastValue);
+    }
+
+    @Test
+    public void testInvokeProtectedVoidMethod() throws Exception {
+        MethodMessageHandler testSubject = MethodMessageHandler.createFor(
+                StubHandler.class.getDeclaredMethod("handleDouble", Double.class));
+
+        assertEquals(Void.TYPE, testSubject.invoke(target, GenericEventMessage.asEventMessage(1D)));
+        assertEquals(1D, target.lastValue);
+    }
+
+    @Test
+    public void testExceptionFromHandlerIsWrapped() throws Exception {
+        MethodMessageHandler testSubject = MethodMessageHandler.createFor(
+                StubHandler.class.getDeclaredMethod("handleLong", Long.class));
+
+        try {
+            testSubject.invoke(target, GenericEventMessage.asEventMessage(1L));
+            fail("Expected exception");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof MockException);
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class StubHandler {
+
+        private Object lastValue;
+
+        public String handleString(String value) {
+            lastValue = value;
+            return "result";
+        }
+
+        private void handleInteger(Integer value) {
+            lastValue = value;
+        }
+
+        void handleLong(Long value) {
+            throw new MockException();
+        }
+
+        protected void handleDouble(Double value) {
+            lastValue = value;
+        }
+    }
+
+    private static class MockException extends RuntimeException {
+
+    }
+}
@@ -52,6 +52,8 @@ public class JpaEventStoreBeanDefinitionParserTest {
         assertEquals("maxSnapshotsArchived value", "2", maxSnapshotsArchived.getValue());
         PropertyValue batchSize = definition.getPropertyValues().getPropertyValue("batchSize");
         assertEquals("maxSnapshotsArchived value", "1000", batchSize.getValue());
+        PropertyValue flushAfterAppend = definition.getPropertyValues().getPropertyValue("flushAfterAppend");
+        assertEquals("flushAfterAppend value", "false", flushAfterAppend.getValue());
 
         JpaEventStore jpaEventStore = beanFactory.getBean("eventStore", JpaEventStore.class);
         assertNotNull(jpaEventStore);
@@ -16,6 +16,7 @@
 
 package org.axonframework.contextsupport.spring;
 
+import org.axonframework.commandhandling.AsynchronousCommandBus;
 import org.axonframework.commandhandling.CommandBus;
 import org.axonframework.commandhandling.SimpleCommandBus;
 import org.junit.Test;
@@ -112,4 +113,18 @@ public class SimpleCommandBusBeanDefinitionParserTest {
         assertNotNull(commandBus);
     }
 
+    @Test
+    public void commandBusElementWithExecutor() {
+        BeanDefinition beanDefinition = beanFactory.getBeanDefinition("commandBus-async");
+        assertNotNull("Bean definition not created", beanDefinition);
+        assertEquals("Wrong bean class", AsynchronousCommandBus.class.getName(), beanDefinition.getBeanClassName());
+        assertEquals("wrong amount of constructor arguments"
+                , 3, beanDefinition.getConstructorArgumentValues().getArgumentCount());
+        RuntimeBeanReference executor = (RuntimeBeanReference) beanDefinition.getConstructorArgumentValues()
+                                                                              .getArgumentValue(0, null).getValue();
+        assertEquals("taskExecutor", executor.getBeanName());
+        AsynchronousCommandBus commandBus = beanFactory.getBean("commandBus-async", AsynchronousCommandBus.class);
+        assertNotNull(commandBus);
+    }
+
 }
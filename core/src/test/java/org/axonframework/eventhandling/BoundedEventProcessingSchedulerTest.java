@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class BoundedEventProcessingSchedulerTest {
+
+    private Executor mockExecutor;
+    private TransactionManager mockTransactionManager;
+    private EventProcessingScheduler.ShutdownCallback mockShutdownCallback;
+    private List<Integer> handledEvents;
+
+    @Before
+    public void setUp() {
+        mockExecutor = mock(Executor.class);
+        mockTransactionManager = mock(TransactionManager.class);
+        mockShutdownCallback = mock(EventProcessingScheduler.ShutdownCallback.class);
+        handledEvents = Collections.synchronizedList(new ArrayList<Integer>());
+    }
+
+    @Test
+    public void testEventsProcessedInOrderAndSchedulerShutDown() {
+        BoundedEventProcessingScheduler<Integer> testSubject = createScheduler(mockExecutor, 4,
+                                                                               BackPressurePolicy.BLOCK);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(testSubject.scheduleEvent(i));
+        }
+        verify(mockExecutor, times(1)).execute(testSubject);
+
+        testSubject.run();
+
+        assertEquals(asList(0, 1, 2, 3), handledEvents);
+        verify(mockTransactionManager).beforeTransaction(isA(TransactionStatus.class));
+        verify(mockTransactionManager).afterTransaction(isA(TransactionStatus.class));
+        verify(mockShutdownCallback).afterShutdown(testSubject);
+        assertFalse("Scheduler should not accept events after shutting down", testSubject.scheduleEvent(5));
+    }
+
+    @Test
+    public void testFailedTransactionRetried() {
+        BoundedEventProcessingScheduler<Integer> testSubject = createScheduler(mockExecutor, 4,
+                                                                               BackPressurePolicy.BLOCK);
+        doAnswer(new org.mockito.stubbing.Answer() {
+            @Override
+            public Object answer(org.mockito.invocation.InvocationOnMock invocation) throws Throwable {
+                TransactionStatus status = (TransactionStatus) invocation.getArguments()[0];
+                status.setRetryPolicy(RetryPolicy.RETRY_TRANSACTION);
+                status.setRetryInterval(0);
+                return null;
+            }
+        }).when(mockTransactionManager).beforeTransaction(isA(TransactionStatus.class));
+        doThrow(new RuntimeException("Mock")).doNothing()
+                .when(mockTransactionManager).afterTransaction(isA(TransactionStatus.class));
+        testSubject.scheduleEvent(0);
+        testSubject.scheduleEvent(1);
+
+        testSubject.run();
+        // the failed batch is rescheduled
+        verify(mockExecutor, times(2)).execute(testSubject);
+        testSubject.run();
+
+        assertEquals(asList(0, 1, 0, 1), handledEvents);
+        verify(mockShutdownCallback).afterShutdown(testSubject);
+    }
+
+    @Test
+    public void testEventsDroppedWhenQueueFull() {
+        BoundedEventProcessingScheduler<Integer> testSubject = createScheduler(mockExecutor, 2,
+                                                                               BackPressurePolicy.DROP);
+        assertTrue(testSubject.scheduleEvent(0));
+        assertTrue(testSubject.scheduleEvent(1));
+        assertTrue(testSubject.scheduleEvent(2));
+
+        testSubject.run();
+
+        assertEquals(asList(0, 1), handledEvents);
+        assertEquals(1, testSubject.getDroppedEventCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testSchedulingThreadBlockedUntilCapacityAvailable() throws InterruptedException {
+        final CountDownLatch handlerStarted = new CountDownLatch(1);
+        final CountDownLatch releaseHandler = new CountDownLatch(1);
+        final CountDownLatch scheduled = new CountDownLatch(1);
+        final CountDownLatch shutdown = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final BoundedEventProcessingScheduler<Integer> testSubject = new BoundedEventProcessingScheduler<Integer>(
+                mockTransactionManager, executorService, new EventProcessingScheduler.ShutdownCallback() {
+            @Override
+            public void afterShutdown(EventProcessingScheduler scheduler) {
+                shutdown.countDown();
+            }
+        }, 2, BackPressurePolicy.BLOCK) {
+            @Override
+            protected void doHandle(Integer event) {
+                handledEvents.add(event);
+                try {
+                    if (event == 0) {
+                        handlerStarted.countDown();
+                        releaseHandler.await();
+                    } else if (event == 1) {
+                        // make sure the blocked thread gets the chance to schedule its event
+                        scheduled.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        testSubject.scheduleEvent(0);
+        handlerStarted.await();
+        testSubject.scheduleEvent(1);
+        testSubject.scheduleEvent(2);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(testSubject.scheduleEvent(3));
+                scheduled.countDown();
+            }
+        });
+        thread.start();
+        assertFalse("Scheduling thread should have been blocked", scheduled.await(100, TimeUnit.MILLISECONDS));
+
+        releaseHandler.countDown();
+        thread.join();
+        shutdown.await();
+        executorService.shutdown();
+
+        assertEquals(0, scheduled.getCount());
+        assertEquals(asList(0, 1, 2, 3), handledEvents);
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentSchedulingThroughExecutionWrapperPreservesOrder() throws InterruptedException {
+        final int threadCount = 4;
+        final int eventsPerThread = 10000;
+        final CountDownLatch allHandled = new CountDownLatch(threadCount * eventsPerThread);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        final AsynchronousExecutionWrapper<Integer> wrapper =
+                new AsynchronousExecutionWrapper<Integer>(executorService, new SequentialPolicy()) {
+                    @Override
+                    protected void doHandle(Integer task) {
+                        handledEvents.add(task);
+                        allHandled.countDown();
+                    }
+                };
+        wrapper.setQueueCapacity(16);
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int threadNumber = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        wrapper.schedule(threadNumber * eventsPerThread + i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue("Not all events were handled", allHandled.await(10, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        assertEquals(threadCount * eventsPerThread, handledEvents.size());
+        int[] lastSeen = new int[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            lastSeen[t] = -1;
+        }
+        for (Integer event : handledEvents) {
+            int thread = event / eventsPerThread;
+            assertTrue("Events of a single thread were processed out of order", event > lastSeen[thread]);
+            lastSeen[thread] = event;
+        }
+    }
+
+    private BoundedEventProcessingScheduler<Integer> createScheduler(Executor executor, int capacity,
+                                                                     BackPressurePolicy policy) {
+        return new BoundedEventProcessingScheduler<Integer>(mockTransactionManager, executor, mockShutdownCallback,
+                                                            capacity, policy) {
+            @Override
+            protected void doHandle(Integer event) {
+                handledEvents.add(event);
+            }
+        };
+    }
+
+    private static List<Integer> asList(Integer... values) {
+        List<Integer> list = new ArrayList<Integer>();
+        Collections.addAll(list, values);
+        return list;
+    }
+}
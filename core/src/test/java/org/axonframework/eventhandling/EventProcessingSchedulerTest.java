@@ -24,6 +24,7 @@ import org.mockito.*;
 import org.mockito.invocation.*;
 import org.mockito.stubbing.*;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -206,6 +207,80 @@ public class EventProcessingSchedulerTest {
         inOrder.verify(listener).afterTransaction(isA(TransactionStatus.class));
     }
 
+    @Test
+    public void testTransactionListenersNotifiedBeforeCommit() {
+        EventMessage<? extends StubDomainEvent> event1 = new GenericEventMessage<StubDomainEvent>(new StubDomainEvent());
+        EventMessage<? extends StubDomainEvent> event2 = new GenericEventMessage<StubDomainEvent>(new StubDomainEvent());
+        final TransactionalEventListener listener = mock(TransactionalEventListener.class);
+        final TransactionListener transactionListener = mock(TransactionListener.class);
+        testSubject = new EventProcessingScheduler<EventMessage>(listener, mock(ExecutorService.class),
+                                                                 new NullShutdownCallback()) {
+            @Override
+            protected void doHandle(EventMessage event) {
+                listener.handle(event);
+                TransactionStatus.current().registerListener(transactionListener);
+            }
+        };
+        testSubject.scheduleEvent(event1);
+        testSubject.scheduleEvent(event2);
+        testSubject.run();
+
+        InOrder inOrder = inOrder(listener, transactionListener);
+        inOrder.verify(listener).handle(event1);
+        inOrder.verify(listener).handle(event2);
+        inOrder.verify(transactionListener, times(2)).onPrepareCommit(isA(TransactionStatus.class));
+        inOrder.verify(listener).afterTransaction(isA(TransactionStatus.class));
+        verify(transactionListener, never()).onRollback(isA(TransactionStatus.class));
+    }
+
+    @Test
+    public void testTransactionStatusNotExposedWhenDisabled() {
+        EventMessage<? extends StubDomainEvent> event1 = new GenericEventMessage<StubDomainEvent>(new StubDomainEvent());
+        final TransactionalEventListener listener = mock(TransactionalEventListener.class);
+        final List<TransactionStatus> statuses = new ArrayList<TransactionStatus>();
+        testSubject = new EventProcessingScheduler<EventMessage>(listener, mock(ExecutorService.class),
+                                                                 new NullShutdownCallback()) {
+            @Override
+            protected void doHandle(EventMessage event) {
+                statuses.add(TransactionStatus.current());
+            }
+
+            @Override
+            protected boolean exposesTransactionStatus() {
+                return false;
+            }
+        };
+        testSubject.scheduleEvent(event1);
+        testSubject.run();
+
+        assertEquals(1, statuses.size());
+        assertNull(statuses.get(0));
+        verify(listener).beforeTransaction(isA(TransactionStatus.class));
+        verify(listener).afterTransaction(isA(TransactionStatus.class));
+    }
+
+    @Test
+    public void testTransactionListenersNotifiedOfRollback() {
+        EventMessage<? extends StubDomainEvent> event1 = new GenericEventMessage<StubDomainEvent>(new StubDomainEvent());
+        final TransactionalEventListener listener = mock(TransactionalEventListener.class);
+        final TransactionListener transactionListener = mock(TransactionListener.class);
+        testSubject = new EventProcessingScheduler<EventMessage>(listener, mock(ExecutorService.class),
+                                                                 new NullShutdownCallback()) {
+            @Override
+            protected void doHandle(EventMessage event) {
+                TransactionStatus.current().registerListener(transactionListener);
+                throw new RuntimeException("Mock");
+            }
+        };
+        testSubject.scheduleEvent(event1);
+        testSubject.run();
+
+        InOrder inOrder = inOrder(listener, transactionListener);
+        inOrder.verify(transactionListener).onRollback(isA(TransactionStatus.class));
+        inOrder.verify(listener).afterTransaction(isA(TransactionStatus.class));
+        verify(transactionListener, never()).onPrepareCommit(isA(TransactionStatus.class));
+    }
+
     private MockEventListener executeEventProcessing(RetryPolicy policy) {
         ExecutorService mockExecutorService = mock(ExecutorService.class);
         final MockEventListener listener = new MockEventListener(policy);
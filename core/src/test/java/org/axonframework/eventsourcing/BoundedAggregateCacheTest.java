@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+import net.sf.jsr107cache.CacheListener;
+import org.axonframework.common.CacheEntryWeigher;
+import org.junit.*;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class BoundedAggregateCacheTest {
+
+    private static final CacheEntryWeigher UNIT_WEIGHER = new CacheEntryWeigher() {
+        @Override
+        public long weigh(Object key, Object value) {
+            return 1;
+        }
+    };
+
+    private BoundedAggregateCache testSubject;
+    private CacheListener listener;
+
+    @Before
+    public void setUp() {
+        testSubject = new BoundedAggregateCache(3, UNIT_WEIGHER, 1, false);
+        listener = mock(CacheListener.class);
+        testSubject.addListener(listener);
+    }
+
+    @Test
+    public void testStatisticsRegisteredPerInstanceUntilClosed() throws Exception {
+        ObjectName query = new ObjectName("org.axonframework:type=BoundedAggregateCache,*");
+        int registeredBefore = ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size();
+
+        BoundedAggregateCache cache1 = new BoundedAggregateCache(10);
+        BoundedAggregateCache cache2 = new BoundedAggregateCache(10);
+        assertEquals(registeredBefore + 2, ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size());
+
+        cache1.close();
+        cache2.close();
+        assertEquals(registeredBefore, ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryEvicted() {
+        testSubject.put("key1", "value1");
+        testSubject.put("key2", "value2");
+        testSubject.put("key3", "value3");
+        assertEquals("value1", testSubject.get("key1"));
+
+        testSubject.put("key4", "value4");
+
+        assertEquals(3, testSubject.size());
+        assertNull(testSubject.peek("key2"));
+        assertTrue(testSubject.containsKey("key1"));
+        assertTrue(testSubject.containsKey("key3"));
+        assertTrue(testSubject.containsKey("key4"));
+        verify(listener).onEvict("key2");
+        assertEquals(1, statistics().getEvictionCount());
+    }
+
+    @Test
+    public void testPeekDoesNotAffectEvictionOrder() {
+        testSubject.put("key1", "value1");
+        testSubject.put("key2", "value2");
+        testSubject.put("key3", "value3");
+        assertEquals("value1", testSubject.peek("key1"));
+
+        testSubject.put("key4", "value4");
+
+        assertFalse(testSubject.containsKey("key1"));
+        assertEquals(0, statistics().getHitCount());
+    }
+
+    @Test
+    public void testReplacingEntryDoesNotEvict() {
+        testSubject.put("key1", "value1");
+        testSubject.put("key2", "value2");
+        testSubject.put("key3", "value3");
+
+        assertEquals("value1", testSubject.put("key1", "newValue"));
+
+        assertEquals(3, testSubject.size());
+        assertEquals("newValue", testSubject.get("key1"));
+        verify(listener, never()).onEvict(any());
+    }
+
+    @Test
+    public void testEntriesEvictedByWeight() {
+        testSubject = new BoundedAggregateCache(10, new CacheEntryWeigher() {
+            @Override
+            public long weigh(Object key, Object value) {
+                return ((String) value).length();
+            }
+        }, 1, false);
+
+        testSubject.put("key1", "1234");
+        testSubject.put("key2", "1234");
+        assertEquals(8, statistics().getWeight());
+        testSubject.put("key3", "1234");
+
+        assertEquals(2, testSubject.size());
+        assertFalse(testSubject.containsKey("key1"));
+        assertEquals(8, statistics().getWeight());
+    }
+
+    @Test
+    public void testIdleEntriesExpire() throws InterruptedException {
+        testSubject.setTimeToIdle(50);
+        testSubject.put("key1", "value1");
+        testSubject.put("key2", "value2");
+        Thread.sleep(100);
+        assertEquals("value2", testSubject.put("key2", "newValue"));
+
+        assertNull(testSubject.get("key1"));
+        assertEquals("newValue", testSubject.get("key2"));
+        verify(listener).onEvict("key1");
+        assertEquals(1, statistics().getExpirationCount());
+        assertEquals(0, statistics().getEvictionCount());
+    }
+
+    @Test
+    public void testEvictRemovesIdleEntries() throws InterruptedException {
+        testSubject.setTimeToIdle(50);
+        testSubject.put("key1", "value1");
+        Thread.sleep(100);
+        testSubject.evict();
+
+        assertEquals(0, testSubject.size());
+        verify(listener).onEvict("key1");
+    }
+
+    @Test
+    public void testRemoveAndClearNotifyListeners() {
+        testSubject.put("key1", "value1");
+        testSubject.put("key2", "value2");
+
+        assertEquals("value1", testSubject.remove("key1"));
+        assertNull(testSubject.remove("key1"));
+        testSubject.clear();
+
+        assertTrue(testSubject.isEmpty());
+        verify(listener).onRemove("key1");
+        verify(listener).onClear();
+    }
+
+    @Test
+    public void testHitsAndMissesCounted() {
+        testSubject.put("key1", "value1");
+        testSubject.get("key1");
+        testSubject.get("key1");
+        testSubject.get("key2");
+
+        assertEquals(2, statistics().getHitCount());
+        assertEquals(1, statistics().getMissCount());
+        assertEquals(2D / 3, statistics().getHitRatio(), 0.0001);
+        assertEquals(2, testSubject.getCacheStatistics().getCacheHits());
+        assertEquals(2, testSubject.getCacheEntry("key1").getHits());
+
+        statistics().resetStatistics();
+        assertEquals(0, statistics().getHitCount());
+    }
+
+    @Test
+    public void testEntriesSpreadOverSegments() {
+        testSubject = new BoundedAggregateCache(1000, UNIT_WEIGHER, 16, false);
+        for (int i = 0; i < 100; i++) {
+            testSubject.put("key" + i, "value" + i);
+        }
+
+        assertEquals(100, testSubject.size());
+        assertEquals(100, testSubject.keySet().size());
+        assertTrue(testSubject.containsValue("value50"));
+    }
+
+    private BoundedAggregateCacheStatisticsMXBean statistics() {
+        return (BoundedAggregateCacheStatisticsMXBean) testSubject.getCacheStatistics();
+    }
+}
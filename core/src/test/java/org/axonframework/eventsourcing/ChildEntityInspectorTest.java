@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class ChildEntityInspectorTest {
+
+    @Test
+    public void testInspectorIsSharedPerType() {
+        assertSame(ChildEntityInspector.getInstance(StubContainer.class),
+                   ChildEntityInspector.getInstance(StubContainer.class));
+    }
+
+    @Test
+    public void testFindEntitiesInFieldsCollectionsAndMaps() {
+        StubContainer container = new StubContainer();
+        container.entity = new StubEntity();
+        StubEntity listedEntity = new StubEntity();
+        container.entities.add(listedEntity);
+        StubEntity keyEntity = new StubEntity();
+        StubEntity valueEntity = new StubEntity();
+        container.entityMap.put(keyEntity, "value");
+        container.entityMap.put("key", valueEntity);
+
+        Collection<AbstractEventSourcedEntity> children = ChildEntityInspector.getInstance(StubContainer.class)
+                                                                              .findChildEntities(container);
+
+        assertEquals(4, children.size());
+        assertTrue(children.contains(container.entity));
+        assertTrue(children.contains(listedEntity));
+        assertTrue(children.contains(keyEntity));
+        assertTrue(children.contains(valueEntity));
+    }
+
+    @Test
+    public void testNullFieldsAreIgnored() {
+        StubContainer container = new StubContainer();
+        container.entities = null;
+        container.entityMap = null;
+
+        assertTrue(ChildEntityInspector.getInstance(StubContainer.class).findChildEntities(container).isEmpty());
+    }
+
+    @Test
+    public void testTypeWithoutCandidateFieldsReturnsModifiableCollection() {
+        Collection<AbstractEventSourcedEntity> children = ChildEntityInspector.getInstance(StubEntity.class)
+                                                                              .findChildEntities(new StubEntity());
+
+        assertTrue(children.isEmpty());
+        children.add(new StubEntity());
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class StubContainer {
+
+        private StubEntity entity;
+        private List<Object> entities = new ArrayList<Object>();
+        private Map<Object, Object> entityMap = new HashMap<Object, Object>();
+        private String ignored = "ignored";
+    }
+
+    private static class StubEntity extends AbstractEventSourcedEntity {
+
+        @Override
+        protected void handle(DomainEventMessage event) {
+        }
+    }
+}
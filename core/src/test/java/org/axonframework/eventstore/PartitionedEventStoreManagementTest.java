@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class PartitionedEventStoreManagementTest {
+
+    private ExecutorService executor;
+    private StubEventStoreManagement eventStore;
+    private PartitionedEventStoreManagement testSubject;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        eventStore = new StubEventStoreManagement();
+        for (int sequenceNumber = 0; sequenceNumber < 100; sequenceNumber++) {
+            for (int aggregate = 0; aggregate < 10; aggregate++) {
+                eventStore.events.add(new GenericDomainEventMessage<Object>("aggregate" + aggregate,
+                                                                            sequenceNumber, "payload"));
+            }
+        }
+        testSubject = new PartitionedEventStoreManagement(eventStore, executor, 4, false);
+        testSubject.setQueueCapacity(10);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void testAllEventsVisitedInOrderPerAggregate() {
+        // results are collected by the workers, and verified by the test thread
+        final ConcurrentMap<Object, List<Long>> sequenceNumbers = new ConcurrentHashMap<Object, List<Long>>();
+        final Set<Thread> threads = new CopyOnWriteArraySet<Thread>();
+        testSubject.visitEvents(new EventVisitor() {
+            @Override
+            public void doWithEvent(DomainEventMessage domainEvent) {
+                threads.add(Thread.currentThread());
+                sequenceNumbers.putIfAbsent(domainEvent.getAggregateIdentifier(),
+                                            Collections.synchronizedList(new ArrayList<Long>()));
+                sequenceNumbers.get(domainEvent.getAggregateIdentifier()).add(domainEvent.getSequenceNumber());
+            }
+        });
+
+        assertEquals(10, sequenceNumbers.size());
+        for (Map.Entry<Object, List<Long>> entry : sequenceNumbers.entrySet()) {
+            List<Long> actual = entry.getValue();
+            assertEquals("Wrong number of events for " + entry.getKey(), 100, actual.size());
+            for (int i = 0; i < actual.size(); i++) {
+                assertEquals("Events out of order for " + entry.getKey(), Long.valueOf(i), actual.get(i));
+            }
+        }
+        assertFalse(threads.contains(Thread.currentThread()));
+        assertTrue(threads.size() > 1);
+
+        PartitionedEventStoreManagementStatisticsMXBean statistics = testSubject.getStatistics();
+        assertFalse(statistics.isReplayInProgress());
+        assertEquals(1000, statistics.getReadEventCount());
+        assertEquals(1000, statistics.getProcessedEventCount());
+        assertEquals(0, statistics.getLag());
+        long total = 0;
+        for (long count : statistics.getProcessedEventCountPerPartition()) {
+            total += count;
+        }
+        assertEquals(1000, total);
+    }
+
+    @Test(timeout = 10000)
+    public void testVisitorExceptionIsRethrown() {
+        final MockException failure = new MockException();
+        try {
+            testSubject.visitEvents(new EventVisitor() {
+                @Override
+                public void doWithEvent(DomainEventMessage domainEvent) {
+                    if (domainEvent.getSequenceNumber() == 5) {
+                        throw failure;
+                    }
+                }
+            });
+            fail("Expected exception to be rethrown");
+        } catch (RuntimeException e) {
+            assertSame(failure, e);
+        }
+        assertFalse(testSubject.getStatistics().isReplayInProgress());
+        assertTrue(testSubject.getStatistics().getReadEventCount() < 1000);
+    }
+
+    @Test(timeout = 10000)
+    public void testVisitorErrorIsRethrown() {
+        final MockError failure = new MockError();
+        try {
+            testSubject.visitEvents(new EventVisitor() {
+                @Override
+                public void doWithEvent(DomainEventMessage domainEvent) {
+                    if (domainEvent.getSequenceNumber() == 5) {
+                        throw failure;
+                    }
+                }
+            });
+            fail("Expected error to be rethrown");
+        } catch (MockError e) {
+            assertSame(failure, e);
+        }
+        assertFalse(testSubject.getStatistics().isReplayInProgress());
+        assertTrue(testSubject.getStatistics().getReadEventCount() < 1000);
+    }
+
+    @Test(timeout = 10000)
+    public void testReplayRejectedWhenThreadPoolTooSmall() {
+        ExecutorService smallPool = Executors.newFixedThreadPool(2);
+        try {
+            new PartitionedEventStoreManagement(eventStore, smallPool, 4, false).visitEvents(new NoOpEventVisitor());
+            fail("Expected replay to be rejected");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("4 partitions"));
+        } finally {
+            smallPool.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSubmittedPartitionsTerminatedWhenExecutorRejectsWorker() throws InterruptedException {
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        final RejectedExecutionException rejection = new RejectedExecutionException("Mock");
+        Executor rejectingExecutor = new Executor() {
+            private int submitted;
+
+            @Override
+            public void execute(Runnable command) {
+                if (++submitted > 2) {
+                    throw rejection;
+                }
+                pool.execute(command);
+            }
+        };
+        try {
+            new PartitionedEventStoreManagement(eventStore, rejectingExecutor, 4, false)
+                    .visitEvents(new NoOpEventVisitor());
+            fail("Expected rejection to be rethrown");
+        } catch (RejectedExecutionException e) {
+            assertSame(rejection, e);
+        }
+        pool.shutdown();
+        assertTrue("Workers of submitted partitions did not terminate", pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void testReplayAbortedWhenWorkersDoNotStart() throws InterruptedException {
+        // not a ThreadPoolExecutor, so its capacity cannot be verified up front
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                pool.execute(command);
+            }
+        };
+        PartitionedEventStoreManagement partitioned = new PartitionedEventStoreManagement(eventStore, executor, 4,
+                                                                                          false);
+        partitioned.setStartTimeout(100);
+        try {
+            partitioned.visitEvents(new NoOpEventVisitor());
+            fail("Expected replay to be aborted");
+        } catch (EventStoreException e) {
+            assertTrue(e.getMessage().contains("2 of the 4"));
+        }
+        assertEquals(0, partitioned.getStatistics().getReadEventCount());
+        pool.shutdown();
+        assertTrue("Workers did not terminate", pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static class NoOpEventVisitor implements EventVisitor {
+
+        @Override
+        public void doWithEvent(DomainEventMessage domainEvent) {
+        }
+    }
+
+    private static class StubEventStoreManagement implements EventStoreManagement {
+
+        private final List<DomainEventMessage> events = new ArrayList<DomainEventMessage>();
+
+        @Override
+        public void visitEvents(EventVisitor visitor) {
+            for (DomainEventMessage event : events) {
+                visitor.doWithEvent(event);
+            }
+        }
+    }
+
+    private static class MockException extends RuntimeException {
+
+    }
+
+    private static class MockError extends Error {
+
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.serializer.XStreamSerializer;
+import org.junit.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class SegmentedFileSystemEventStoreTest {
+
+    private SegmentedFileSystemEventStore eventStore;
+    private File baseDir;
+    private Object aggregateIdentifier;
+
+    @Before
+    public void setUp() {
+        baseDir = new File("target/segments/" + UUID.randomUUID());
+        eventStore = createEventStore(1024 * 1024);
+        aggregateIdentifier = UUID.randomUUID();
+    }
+
+    @After
+    public void tearDown() {
+        eventStore.close();
+    }
+
+    @Test
+    public void testSaveStreamAndReadBackIn() {
+        List<DomainEventMessage> events = createEvents(aggregateIdentifier, 0, 3);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(events));
+        eventStore.appendEvents("test", new SimpleDomainEventStream(createEvents(UUID.randomUUID(), 0, 2)));
+
+        List<DomainEventMessage> actual = readAll(eventStore.readEvents("test", aggregateIdentifier));
+        assertEquals(3, actual.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(events.get(i).getIdentifier(), actual.get(i).getIdentifier());
+        }
+    }
+
+    @Test(expected = EventStreamNotFoundException.class)
+    public void testReadUnknownAggregate() {
+        eventStore.appendEvents("test", new SimpleDomainEventStream(createEvents(aggregateIdentifier, 0, 1)));
+        eventStore.readEvents("other", aggregateIdentifier);
+    }
+
+    @Test
+    public void testReadEventsAfterLatestSnapshot() {
+        eventStore.appendEvents("test", new SimpleDomainEventStream(createEvents(aggregateIdentifier, 0, 3)));
+        eventStore.appendSnapshotEvent("test", new GenericDomainEventMessage<StubDomainEvent>(
+                aggregateIdentifier, 1, new StubDomainEvent()));
+        DomainEventMessage snapshot = new GenericDomainEventMessage<StubDomainEvent>(aggregateIdentifier, 2,
+                                                                                     new StubDomainEvent());
+        eventStore.appendSnapshotEvent("test", snapshot);
+        List<DomainEventMessage> laterEvents = createEvents(aggregateIdentifier, 3, 2);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(laterEvents));
+
+        List<DomainEventMessage> actual = readAll(eventStore.readEvents("test", aggregateIdentifier));
+        assertEquals(3, actual.size());
+        assertEquals(snapshot.getIdentifier(), actual.get(0).getIdentifier());
+        assertEquals(laterEvents.get(0).getIdentifier(), actual.get(1).getIdentifier());
+        assertEquals(laterEvents.get(1).getIdentifier(), actual.get(2).getIdentifier());
+    }
+
+    @Test
+    public void testIndexRebuiltWhenReopened() {
+        eventStore.close();
+        eventStore = createEventStore(2048);
+        List<DomainEventMessage> events = createEvents(aggregateIdentifier, 0, 10);
+        for (DomainEventMessage event : events) {
+            eventStore.appendEvents("test", new SimpleDomainEventStream(event));
+        }
+        DomainEventMessage snapshot = new GenericDomainEventMessage<StubDomainEvent>(aggregateIdentifier, 7,
+                                                                                     new StubDomainEvent());
+        eventStore.appendSnapshotEvent("test", snapshot);
+        eventStore.close();
+        assertTrue("Expected events to be spread over multiple segments", segmentFiles().length > 1);
+
+        eventStore = createEventStore(2048);
+        List<DomainEventMessage> actual = readAll(eventStore.readEvents("test", aggregateIdentifier));
+        assertEquals(3, actual.size());
+        assertEquals(snapshot.getIdentifier(), actual.get(0).getIdentifier());
+        assertEquals(events.get(8).getIdentifier(), actual.get(1).getIdentifier());
+        assertEquals(events.get(9).getIdentifier(), actual.get(2).getIdentifier());
+
+        List<DomainEventMessage> moreEvents = createEvents(aggregateIdentifier, 10, 1);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(moreEvents));
+        actual = readAll(eventStore.readEvents("test", aggregateIdentifier));
+        assertEquals(moreEvents.get(0).getIdentifier(), actual.get(3).getIdentifier());
+    }
+
+    @Test
+    public void testIndexFileUsedWhenReopened() {
+        List<DomainEventMessage> events = createEvents(aggregateIdentifier, 0, 3);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(events.subList(0, 2)));
+        eventStore.close();
+        assertTrue(new File(baseDir, "index.chk").exists());
+
+        // the events appended after reopening are not in the index file, as the event store is not closed again
+        eventStore = createEventStore(1024 * 1024);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(events.subList(2, 3)));
+
+        eventStore = createEventStore(1024 * 1024);
+        List<DomainEventMessage> actual = readAll(eventStore.readEvents("test", aggregateIdentifier));
+        assertEquals(3, actual.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(events.get(i).getIdentifier(), actual.get(i).getIdentifier());
+        }
+    }
+
+    @Test
+    public void testIndexRebuiltWhenIndexFileIsInvalid() throws IOException {
+        List<DomainEventMessage> events = createEvents(aggregateIdentifier, 0, 3);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(events));
+        eventStore.close();
+        FileOutputStream out = new FileOutputStream(new File(baseDir, "index.chk"));
+        out.write(new byte[]{0, 0, 0, 1, 0, 0, 0, 1});
+        out.close();
+
+        eventStore = createEventStore(1024 * 1024);
+        assertEquals(3, readAll(eventStore.readEvents("test", aggregateIdentifier)).size());
+    }
+
+    @Test
+    public void testTornLastRecordIsTruncated() throws IOException {
+        List<DomainEventMessage> events = createEvents(aggregateIdentifier, 0, 3);
+        for (DomainEventMessage event : events) {
+            eventStore.appendEvents("test", new SimpleDomainEventStream(event));
+        }
+        simulateCrash();
+        corruptRecord(segmentFiles()[0], 2);
+
+        eventStore = createEventStore(1024 * 1024);
+        List<DomainEventMessage> actual = readAll(eventStore.readEvents("test", aggregateIdentifier));
+        assertEquals(2, actual.size());
+        assertEquals(events.get(1).getIdentifier(), actual.get(1).getIdentifier());
+
+        List<DomainEventMessage> moreEvents = createEvents(aggregateIdentifier, 2, 1);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(moreEvents));
+        eventStore.close();
+        eventStore = createEventStore(1024 * 1024);
+        actual = readAll(eventStore.readEvents("test", aggregateIdentifier));
+        assertEquals(3, actual.size());
+        assertEquals(moreEvents.get(0).getIdentifier(), actual.get(2).getIdentifier());
+    }
+
+    @Test
+    public void testCorruptRecordInMiddleOfSegmentIsRefused() throws IOException {
+        eventStore.appendEvents("test", new SimpleDomainEventStream(createEvents(aggregateIdentifier, 0, 3)));
+        simulateCrash();
+        corruptRecord(segmentFiles()[0], 1);
+
+        eventStore = createEventStore(1024 * 1024);
+        try {
+            eventStore.readEvents("test", aggregateIdentifier);
+            fail("Expected the corrupt record to be detected");
+        } catch (EventStoreException e) {
+            assertTrue(e.getMessage().contains("corrupt"));
+        }
+    }
+
+    @Test
+    public void testConcurrentAppends() throws InterruptedException {
+        final int threadCount = 8;
+        final int eventsPerThread = 50;
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final List<Object> identifiers = new ArrayList<Object>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final Object identifier = UUID.randomUUID();
+            identifiers.add(identifier);
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                        for (int i = 0; i < eventsPerThread; i++) {
+                            eventStore.appendEvents("test", new SimpleDomainEventStream(
+                                    createEvents(identifier, i, 1)));
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        startSignal.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        for (Object identifier : identifiers) {
+            List<DomainEventMessage> actual = readAll(eventStore.readEvents("test", identifier));
+            assertEquals(eventsPerThread, actual.size());
+            for (int i = 0; i < eventsPerThread; i++) {
+                assertEquals(i, actual.get(i).getSequenceNumber());
+            }
+        }
+    }
+
+    /**
+     * Closes the event store and removes its index file, leaving the event log as if the event store had never been
+     * closed.
+     */
+    private void simulateCrash() {
+        eventStore.close();
+        assertTrue(new File(baseDir, "index.chk").delete());
+    }
+
+    /**
+     * Changes a byte in the middle of the record with the given <code>recordNumber</code> in the given segment file.
+     */
+    private static void corruptRecord(File segmentFile, int recordNumber) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+        try {
+            long offset = 0;
+            for (int i = 0; i < recordNumber; i++) {
+                file.seek(offset);
+                offset += EventLogSegment.requiredCapacity(file.readInt());
+            }
+            file.seek(offset);
+            long target = offset + 8 + file.readInt() / 2;
+            file.seek(target);
+            byte original = file.readByte();
+            file.seek(target);
+            file.writeByte(original ^ 0xFF);
+        } finally {
+            file.close();
+        }
+    }
+
+    private File[] segmentFiles() {
+        File[] files = baseDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith("segment-");
+            }
+        });
+        Arrays.sort(files);
+        return files;
+    }
+
+    private SegmentedFileSystemEventStore createEventStore(int segmentSize) {
+        SegmentedFileSystemEventStore store = new SegmentedFileSystemEventStore(new XStreamSerializer());
+        store.setBaseDir(baseDir);
+        store.setSegmentSize(segmentSize);
+        return store;
+    }
+
+    private static List<DomainEventMessage> createEvents(Object identifier, long firstSequenceNumber, int count) {
+        List<DomainEventMessage> events = new ArrayList<DomainEventMessage>();
+        for (int i = 0; i < count; i++) {
+            events.add(new GenericDomainEventMessage<StubDomainEvent>(identifier, firstSequenceNumber + i,
+                                                                      new StubDomainEvent()));
+        }
+        return events;
+    }
+
+    private static List<DomainEventMessage> readAll(DomainEventStream eventStream) {
+        List<DomainEventMessage> events = new ArrayList<DomainEventMessage>();
+        while (eventStream.hasNext()) {
+            events.add(eventStream.next());
+        }
+        return events;
+    }
+}
@@ -24,9 +24,14 @@ import org.axonframework.domain.MetaData;
 import org.axonframework.domain.SimpleDomainEventStream;
 import org.axonframework.eventhandling.annotation.EventHandler;
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
+import org.axonframework.eventstore.EventStoreException;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.SerializedDomainEventData;
+import org.axonframework.eventstore.SerializedDomainEventMessage;
 import org.axonframework.repository.ConcurrencyException;
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.repository.jpa.AssociationValueEntry;
 import org.axonframework.serializer.SerializedObject;
 import org.axonframework.serializer.SerializedType;
 import org.axonframework.serializer.Serializer;
@@ -44,8 +49,13 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceException;
@@ -90,6 +100,10 @@ public class JpaEventStoreTest {
 
     @After
     public void tearDown() {
+        // the event store is a shared bean, reset any replay settings changed by a test
+        testSubject.setReplayBatchSize(1000);
+        testSubject.setReadAheadExecutor(null);
+        testSubject.setClearPersistenceContextOnReplay(false);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -288,6 +302,163 @@ public class JpaEventStoreTest {
         verify(eventVisitor, times(100)).doWithEvent(isA(DomainEventMessage.class));
     }
 
+    @Test
+    public void testVisitEvents_InSmallBatches() {
+        testSubject.setReplayBatchSize(10);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(77, "type1")));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(23, "type2")));
+        entityManager.flush();
+        entityManager.clear();
+
+        RecordingEventVisitor visitor = new RecordingEventVisitor();
+        String lastEventIdentifier = testSubject.visitEvents(null, visitor);
+
+        assertEquals(100, visitor.visitedEvents.size());
+        assertEquals(100, new HashSet<String>(visitor.visitedIdentifiers()).size());
+        assertEquals(visitor.visitedEvents.get(99).getIdentifier(), lastEventIdentifier);
+        Map<Object, Long> lastSequenceNumbers = new HashMap<Object, Long>();
+        for (DomainEventMessage event : visitor.visitedEvents) {
+            Long lastSequenceNumber = lastSequenceNumbers.put(event.getAggregateIdentifier(),
+                                                              event.getSequenceNumber());
+            assertEquals(lastSequenceNumber == null ? 0L : lastSequenceNumber + 1, event.getSequenceNumber());
+        }
+    }
+
+    @Test
+    public void testVisitEvents_ResumeAfterLastVisitedEvent() {
+        testSubject.setReplayBatchSize(7);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(77, "type1")));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(23, "type2")));
+        entityManager.flush();
+        entityManager.clear();
+
+        RecordingEventVisitor allEvents = new RecordingEventVisitor();
+        testSubject.visitEvents(allEvents);
+        List<String> identifiers = allEvents.visitedIdentifiers();
+
+        RecordingEventVisitor remainingEvents = new RecordingEventVisitor();
+        String lastEventIdentifier = testSubject.visitEvents(identifiers.get(49), remainingEvents);
+
+        assertEquals(identifiers.subList(50, 100), remainingEvents.visitedIdentifiers());
+        assertEquals(identifiers.get(99), lastEventIdentifier);
+        assertEquals(lastEventIdentifier, testSubject.visitEvents(lastEventIdentifier, new RecordingEventVisitor()));
+    }
+
+    @Test
+    public void testVisitEvents_DoesNotClearPersistenceContextByDefault() {
+        testSubject.setReplayBatchSize(10);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(25, "type1")));
+        entityManager.flush();
+        entityManager.clear();
+        DomainEventEntry entry = (DomainEventEntry) entityManager.createQuery("SELECT e FROM DomainEventEntry e")
+                                                                .setMaxResults(1)
+                                                                .getSingleResult();
+
+        testSubject.visitEvents(new RecordingEventVisitor());
+
+        assertTrue(entityManager.contains(entry));
+    }
+
+    @Test
+    public void testVisitEvents_ClearsPersistenceContext() {
+        testSubject.setReplayBatchSize(10);
+        testSubject.setClearPersistenceContextOnReplay(true);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(25, "type1")));
+        entityManager.flush();
+        entityManager.clear();
+        DomainEventEntry entry = (DomainEventEntry) entityManager.createQuery("SELECT e FROM DomainEventEntry e")
+                                                                .setMaxResults(1)
+                                                                .getSingleResult();
+
+        testSubject.visitEvents(new RecordingEventVisitor());
+
+        assertFalse(entityManager.contains(entry));
+    }
+
+    @Test
+    public void testVisitEvents_ClearingPersistenceContextKeepsChangesMadeByVisitor() {
+        testSubject.setReplayBatchSize(10);
+        testSubject.setClearPersistenceContextOnReplay(true);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(25, "type1")));
+        entityManager.createQuery("DELETE FROM AssociationValueEntry").executeUpdate();
+        for (int t = 0; t < 25; t++) {
+            entityManager.persist(new AssociationValueEntry("StubSaga", "saga" + t,
+                                                            new AssociationValue("key", "value")));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // removals are only executed when the entity manager is flushed
+        testSubject.visitEvents(new EventVisitor() {
+            @Override
+            public void doWithEvent(DomainEventMessage domainEvent) {
+                entityManager.remove(entityManager.createQuery("SELECT a FROM AssociationValueEntry a")
+                                                  .setMaxResults(1)
+                                                  .getSingleResult());
+            }
+        });
+
+        assertEquals(0L, entityManager.createQuery("SELECT count(a) FROM AssociationValueEntry a")
+                                      .getSingleResult());
+    }
+
+    @Test(expected = EventStoreException.class)
+    public void testVisitEvents_WithoutKeysetPaging_UnknownLastEventIdentifier() {
+        JpaEventStore eventStore = new JpaEventStore(new SimpleEntityManagerProvider(entityManager),
+                                                     new OffsetPagingEventEntryStore());
+        eventStore.setReplayBatchSize(7);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(20, "type1")));
+        entityManager.flush();
+        entityManager.clear();
+
+        eventStore.visitEvents("unknown", new RecordingEventVisitor());
+    }
+
+    @Test
+    public void testVisitEvents_WithoutKeysetPaging() {
+        JpaEventStore eventStore = new JpaEventStore(new SimpleEntityManagerProvider(entityManager),
+                                                     new OffsetPagingEventEntryStore());
+        eventStore.setReplayBatchSize(7);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(77, "type1")));
+        eventStore.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(23, "type2")));
+        entityManager.flush();
+        entityManager.clear();
+
+        RecordingEventVisitor allEvents = new RecordingEventVisitor();
+        eventStore.visitEvents(allEvents);
+        List<String> identifiers = allEvents.visitedIdentifiers();
+        assertEquals(100, new HashSet<String>(identifiers).size());
+
+        RecordingEventVisitor remainingEvents = new RecordingEventVisitor();
+        String lastEventIdentifier = eventStore.visitEvents(identifiers.get(49), remainingEvents);
+
+        assertEquals(identifiers.subList(50, 100), remainingEvents.visitedIdentifiers());
+        assertEquals(identifiers.get(99), lastEventIdentifier);
+    }
+
+    @Test
+    public void testVisitEvents_WithReadAheadExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            testSubject.setReplayBatchSize(10);
+            testSubject.setReadAheadExecutor(executor);
+            testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(77, "type1")));
+            entityManager.flush();
+            entityManager.clear();
+
+            RecordingEventVisitor visitor = new RecordingEventVisitor();
+            testSubject.visitEvents(visitor);
+
+            assertEquals(77, visitor.visitedEvents.size());
+            for (DomainEventMessage event : visitor.visitedEvents) {
+                assertTrue(((SerializedDomainEventMessage) event).isPayloadDeserialized());
+            }
+        } finally {
+            testSubject.setReadAheadExecutor(null);
+            executor.shutdown();
+        }
+    }
+
     @Test(expected = ConcurrencyException.class)
     public void testStoreDuplicateEvent_WithSqlExceptionTranslator() {
         testSubject.appendEvents("test", new SimpleDomainEventStream(
@@ -297,6 +468,22 @@ public class JpaEventStoreTest {
                                                       "Mock contents", MetaData.emptyInstance())));
     }
 
+    @Test
+    public void testStoreDuplicateEvent_ReportsSequenceOfBatch() {
+        testSubject.appendEvents("test", new SimpleDomainEventStream(
+                new GenericDomainEventMessage<String>("123", 0L, "Mock contents", MetaData.emptyInstance()),
+                new GenericDomainEventMessage<String>("123", 1L, "Mock contents", MetaData.emptyInstance())));
+        try {
+            testSubject.appendEvents("test", new SimpleDomainEventStream(
+                    new GenericDomainEventMessage<String>("123", 1L, "Mock contents", MetaData.emptyInstance()),
+                    new GenericDomainEventMessage<String>("123", 2L, "Mock contents", MetaData.emptyInstance()),
+                    new GenericDomainEventMessage<String>("123", 3L, "Mock contents", MetaData.emptyInstance())));
+            fail("Expected a ConcurrencyException");
+        } catch (ConcurrencyException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("[123], sequence: [1-3]"));
+        }
+    }
+
     @Test
     public void testStoreDuplicateEvent_NoSqlExceptionTranslator() {
         testSubject.setPersistenceExceptionResolver(null);
@@ -352,6 +539,44 @@ public class JpaEventStoreTest {
         assertEquals("archived snapshot sequence", 1L, snapshots.iterator().next().getSequenceNumber());
     }
 
+    @SuppressWarnings({"unchecked"})
+    @Test
+    public void testAppendEvents_PersistsAllEventsBeforeSingleFlush() {
+        BatchingEventEntryStore eventEntryStore = mock(BatchingEventEntryStore.class);
+        EntityManager mockEntityManager = mock(EntityManager.class);
+        testSubject = new JpaEventStore(new SimpleEntityManagerProvider(mockEntityManager), eventEntryStore);
+        List<DomainEventMessage<StubStateChangedEvent>> domainEvents = createDomainEvents(20, "test");
+
+        testSubject.appendEvents("test", new SimpleDomainEventStream(domainEvents));
+
+        ArgumentCaptor<List> payloadCaptor = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(eventEntryStore, mockEntityManager);
+        inOrder.verify(eventEntryStore).persistEvents(eq("test"), eq(new ArrayList<DomainEventMessage>(domainEvents)),
+                                                      payloadCaptor.capture(), Matchers.<List<SerializedObject>>any(),
+                                                      same(mockEntityManager));
+        inOrder.verify(mockEntityManager).flush();
+        assertEquals(20, payloadCaptor.getValue().size());
+        verify(eventEntryStore, never()).persistEvent(anyString(), any(DomainEventMessage.class),
+                                                      any(SerializedObject.class), any(SerializedObject.class),
+                                                      any(EntityManager.class));
+
+        testSubject.appendEvents("test", new SimpleDomainEventStream());
+        verifyNoMoreInteractions(eventEntryStore, mockEntityManager);
+    }
+
+    @Test
+    public void testAppendEvents_FlushPostponedUntilTransactionCommit() {
+        EntityManager mockEntityManager = mock(EntityManager.class);
+        testSubject = new JpaEventStore(new SimpleEntityManagerProvider(mockEntityManager));
+        testSubject.setFlushAfterAppend(false);
+
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(5, "test")));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(5, "test")));
+
+        verify(mockEntityManager, times(10)).persist(isA(DomainEventEntry.class));
+        verify(mockEntityManager, never()).flush();
+    }
+
     @SuppressWarnings({"PrimitiveArrayArgumentToVariableArgMethod", "unchecked"})
     @Test
     public void testCustomEventEntryStore() {
@@ -362,9 +587,10 @@ public class JpaEventStoreTest {
                                                       "Mock contents", MetaData.emptyInstance()),
                 new GenericDomainEventMessage<String>(UUID.randomUUID(), (long) 0,
                                                       "Mock contents", MetaData.emptyInstance())));
+        // the custom EventEntryStore doesn't support batches, so each event is persisted separately
         verify(eventEntryStore, times(2)).persistEvent(eq("test"), isA(DomainEventMessage.class),
-                                                       Matchers.<SerializedObject>any(),
-                                                       Matchers.<SerializedObject>any(), same(entityManager));
+                                                       isA(SerializedObject.class), isA(SerializedObject.class),
+                                                       same(entityManager));
 
         reset(eventEntryStore);
         GenericDomainEventMessage<String> eventMessage = new GenericDomainEventMessage<String>(
@@ -403,6 +629,71 @@ public class JpaEventStoreTest {
         return events;
     }
 
+    private static class RecordingEventVisitor implements EventVisitor {
+
+        private final List<DomainEventMessage> visitedEvents = new ArrayList<DomainEventMessage>();
+
+        @Override
+        public void doWithEvent(DomainEventMessage domainEvent) {
+            visitedEvents.add(domainEvent);
+        }
+
+        private List<String> visitedIdentifiers() {
+            List<String> identifiers = new ArrayList<String>(visitedEvents.size());
+            for (DomainEventMessage event : visitedEvents) {
+                identifiers.add(event.getIdentifier());
+            }
+            return identifiers;
+        }
+    }
+
+    /**
+     * EventEntryStore that does not support keyset paging, like EventEntryStores written before it was introduced.
+     */
+    private static class OffsetPagingEventEntryStore implements EventEntryStore {
+
+        private final DefaultEventEntryStore delegate = new DefaultEventEntryStore();
+
+        @Override
+        public void persistEvent(String aggregateType, DomainEventMessage event, SerializedObject serializedPayload,
+                                 SerializedObject serializedMetaData, EntityManager entityManager) {
+            delegate.persistEvent(aggregateType, event, serializedPayload, serializedMetaData, entityManager);
+        }
+
+        @Override
+        public SerializedDomainEventData loadLastSnapshotEvent(String aggregateType, Object identifier,
+                                                               EntityManager entityManager) {
+            return delegate.loadLastSnapshotEvent(aggregateType, identifier, entityManager);
+        }
+
+        @Override
+        public List<? extends SerializedDomainEventData> fetchBatch(int startPosition, int batchSize,
+                                                                    EntityManager entityManager) {
+            return delegate.fetchBatch(startPosition, batchSize, entityManager);
+        }
+
+        @Override
+        public List<? extends SerializedDomainEventData> fetchBatch(String aggregateType, Object identifier,
+                                                                    long firstSequenceNumber, int batchSize,
+                                                                    EntityManager entityManager) {
+            return delegate.fetchBatch(aggregateType, identifier, firstSequenceNumber, batchSize, entityManager);
+        }
+
+        @Override
+        public void pruneSnapshots(String type, DomainEventMessage mostRecentSnapshotEvent, int maxSnapshotsArchived,
+                                   EntityManager entityManager) {
+            delegate.pruneSnapshots(type, mostRecentSnapshotEvent, maxSnapshotsArchived, entityManager);
+        }
+
+        @Override
+        public void persistSnapshot(String aggregateType, DomainEventMessage snapshotEvent,
+                                    SerializedObject serializedPayload, SerializedObject serializedMetaData,
+                                    EntityManager entityManager) {
+            delegate.persistSnapshot(aggregateType, snapshotEvent, serializedPayload, serializedMetaData,
+                                     entityManager);
+        }
+    }
+
     private static class StubAggregateRoot extends AbstractAnnotatedAggregateRoot {
 
         private static final long serialVersionUID = -3656612830058057848L;
@@ -18,6 +18,7 @@ package org.axonframework.repository;
 
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.jcache.JCache;
+import org.axonframework.common.CacheEntryWeigher;
 import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.DomainEventStream;
 import org.axonframework.domain.EventMessage;
@@ -26,6 +27,8 @@ import org.axonframework.domain.StubAggregate;
 import org.axonframework.eventhandling.EventBus;
 import org.axonframework.eventsourcing.AggregateDeletedException;
 import org.axonframework.eventsourcing.AggregateFactory;
+import org.axonframework.eventsourcing.BoundedAggregateCache;
+import org.axonframework.eventsourcing.BoundedAggregateCacheStatisticsMXBean;
 import org.axonframework.eventsourcing.CachingEventSourcingRepository;
 import org.axonframework.eventstore.EventStore;
 import org.axonframework.unitofwork.CurrentUnitOfWork;
@@ -124,6 +127,39 @@ public class CachingEventSourcingRepositoryTest {
         CurrentUnitOfWork.commit();
     }
 
+    @Test
+    public void testBoundedCacheInvalidatedOnRollbackAndRecordsLoadTime() {
+        BoundedAggregateCache boundedCache = new BoundedAggregateCache(10, new CacheEntryWeigher() {
+            @Override
+            public long weigh(Object key, Object value) {
+                return 1;
+            }
+        }, 1, false);
+        testSubject.setCache(boundedCache);
+        DefaultUnitOfWork.startAndGet();
+        StubAggregate aggregate1 = new StubAggregate();
+        aggregate1.doSomething();
+        testSubject.add(aggregate1);
+        CurrentUnitOfWork.commit();
+        assertSame(aggregate1, boundedCache.peek(aggregate1.getIdentifier()));
+
+        DefaultUnitOfWork.startAndGet();
+        assertSame(aggregate1, testSubject.load(aggregate1.getIdentifier(), null));
+        CurrentUnitOfWork.get().rollback();
+        assertNull(boundedCache.peek(aggregate1.getIdentifier()));
+
+        DefaultUnitOfWork.startAndGet();
+        assertNotSame(aggregate1, testSubject.load(aggregate1.getIdentifier(), null));
+        CurrentUnitOfWork.commit();
+
+        BoundedAggregateCacheStatisticsMXBean statistics =
+                (BoundedAggregateCacheStatisticsMXBean) boundedCache.getCacheStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(1, statistics.getLoadCount());
+        assertEquals(1, boundedCache.size());
+    }
+
     private static class StubAggregateFactory implements AggregateFactory<StubAggregate> {
 
         @Override
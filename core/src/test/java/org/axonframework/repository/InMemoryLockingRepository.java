@@ -33,6 +33,10 @@ public class InMemoryLockingRepository extends LockingRepository<StubAggregate>
         super(strategy);
     }
 
+    public InMemoryLockingRepository(int lockStripeCount) {
+        super(lockStripeCount);
+    }
+
     public InMemoryLockingRepository(LockManager lockManager) {
         super(lockManager);
     }
@@ -28,8 +28,12 @@ import org.axonframework.unitofwork.UnitOfWorkListenerAdapter;
 import org.junit.*;
 import org.mockito.*;
 
+import java.lang.management.ManagementFactory;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -203,4 +207,88 @@ public class LockingRepositoryTest {
             // that's ok
         }
     }
+
+    @Test
+    public void testStripedLocking_LockReleasedAfterCommit() throws InterruptedException {
+        final InMemoryLockingRepository repository = new InMemoryLockingRepository(16);
+        repository.setEventBus(mockEventBus);
+
+        DefaultUnitOfWork.startAndGet();
+        final StubAggregate aggregate = new StubAggregate();
+        aggregate.doSomething();
+        repository.add(aggregate);
+        CurrentUnitOfWork.commit();
+
+        DefaultUnitOfWork.startAndGet();
+        repository.load(aggregate.getIdentifier(), 0L).doSomething();
+        CurrentUnitOfWork.commit();
+
+        assertEquals(2, repository.getSaveCount());
+        verify(mockEventBus, times(2)).publish(isA(DomainEventMessage.class));
+
+        // another thread must be able to lock the aggregate now
+        final CountDownLatch loaded = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                DefaultUnitOfWork.startAndGet();
+                repository.load(aggregate.getIdentifier());
+                CurrentUnitOfWork.commit();
+                loaded.countDown();
+            }
+        });
+        thread.start();
+        assertTrue("Lock was not released", loaded.await(5, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test
+    public void testStripedLocking_SaveRefusedForUnlockedAggregateInSameStripe() {
+        // with a single stripe, all aggregates share the same lock
+        final InMemoryLockingRepository repository = new InMemoryLockingRepository(1);
+        repository.setEventBus(mockEventBus);
+
+        DefaultUnitOfWork.startAndGet();
+        StubAggregate aggregate1 = new StubAggregate();
+        StubAggregate aggregate2 = new StubAggregate();
+        aggregate1.doSomething();
+        aggregate2.doSomething();
+        repository.add(aggregate1);
+        repository.add(aggregate2);
+        CurrentUnitOfWork.commit();
+
+        DefaultUnitOfWork.startAndGet();
+        StubAggregate loadedAggregate = repository.load(aggregate1.getIdentifier());
+        loadedAggregate.doSomething();
+        // the stripe is held by this thread, but only on behalf of aggregate1
+        CurrentUnitOfWork.get().registerAggregate(aggregate2, mockEventBus,
+                                                  new SaveAggregateCallback<StubAggregate>() {
+                                                      @Override
+                                                      public void save(StubAggregate aggregate) {
+                                                          repository.doSave(aggregate);
+                                                      }
+                                                  });
+        aggregate2.doSomething();
+        try {
+            CurrentUnitOfWork.commit();
+            fail("This should have failed due to lacking lock");
+        } catch (ConcurrencyException e) {
+            // that's ok
+        }
+    }
+
+    @Test
+    public void testStripedLocking_StatisticsRegisteredPerRepository() throws Exception {
+        ObjectName query = new ObjectName("org.axonframework:type=StripedLockManager,*");
+        int registered = ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size();
+
+        InMemoryLockingRepository repository1 = new InMemoryLockingRepository(4);
+        InMemoryLockingRepository repository2 = new InMemoryLockingRepository(4);
+
+        assertEquals(registered + 2, ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size());
+
+        repository1.close();
+        repository2.close();
+        assertEquals(registered, ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size());
+    }
 }
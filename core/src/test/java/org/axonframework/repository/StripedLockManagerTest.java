@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.repository;
+
+import org.axonframework.domain.AggregateRoot;
+import org.junit.*;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class StripedLockManagerTest {
+
+    @Test
+    public void testStripeCountRoundedToPowerOfTwo() {
+        assertEquals(1, new StripedLockManager(1).getStripeCount());
+        assertEquals(8, new StripedLockManager(5).getStripeCount());
+        assertEquals(16, new StripedLockManager(16).getStripeCount());
+    }
+
+    @Test
+    public void testLockIsReentrant() {
+        StripedLockManager manager = new StripedLockManager(16);
+        UUID identifier = UUID.randomUUID();
+        AggregateRoot aggregateRoot = mock(AggregateRoot.class);
+        when(aggregateRoot.getIdentifier()).thenReturn(identifier);
+
+        assertFalse(manager.validateLock(aggregateRoot));
+
+        manager.obtainLock(identifier);
+        assertTrue(manager.validateLock(aggregateRoot));
+
+        manager.obtainLock(identifier);
+        assertTrue(manager.validateLock(aggregateRoot));
+
+        manager.releaseLock(identifier);
+        assertTrue(manager.validateLock(aggregateRoot));
+
+        manager.releaseLock(identifier);
+        assertFalse(manager.validateLock(aggregateRoot));
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void testReleaseLockNotHeld() {
+        new StripedLockManager(16).releaseLock(UUID.randomUUID());
+    }
+
+    @Test
+    public void testLockOnlyValidForLockedAggregateInStripe() {
+        // with a single stripe, all aggregates share the same lock
+        StripedLockManager manager = new StripedLockManager(1);
+        AggregateRoot aggregate1 = mock(AggregateRoot.class);
+        when(aggregate1.getIdentifier()).thenReturn("aggregate1");
+        AggregateRoot aggregate2 = mock(AggregateRoot.class);
+        when(aggregate2.getIdentifier()).thenReturn("aggregate2");
+
+        manager.obtainLock("aggregate1");
+        assertTrue(manager.validateLock(aggregate1));
+        assertFalse(manager.validateLock(aggregate2));
+
+        manager.obtainLock("aggregate2");
+        manager.releaseLock("aggregate1");
+        assertFalse(manager.validateLock(aggregate1));
+        assertTrue(manager.validateLock(aggregate2));
+
+        manager.releaseLock("aggregate2");
+        assertFalse(manager.validateLock(aggregate2));
+    }
+
+    @Test
+    public void testManyAggregatesLockedInSameStripe() {
+        StripedLockManager manager = new StripedLockManager(1);
+        for (int i = 0; i < 5; i++) {
+            manager.obtainLock("aggregate" + i);
+        }
+        manager.obtainLock("aggregate2");
+        for (int i = 0; i < 5; i++) {
+            manager.releaseLock("aggregate" + i);
+        }
+
+        AggregateRoot aggregate2 = mock(AggregateRoot.class);
+        when(aggregate2.getIdentifier()).thenReturn("aggregate2");
+        assertTrue(manager.validateLock(aggregate2));
+        manager.releaseLock("aggregate2");
+        assertFalse(manager.validateLock(aggregate2));
+    }
+
+    @Test
+    public void testReleaseLockHeldByOtherThread() throws InterruptedException {
+        final StripedLockManager manager = new StripedLockManager(1);
+        manager.obtainLock("aggregate1");
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    manager.releaseLock("aggregate1");
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertTrue(failure.get() instanceof IllegalMonitorStateException);
+        manager.releaseLock("aggregate1");
+    }
+
+    @Test
+    public void testReleaseLockOfOtherAggregateInStripe() {
+        StripedLockManager manager = new StripedLockManager(1);
+        manager.obtainLock("aggregate1");
+        try {
+            manager.releaseLock("aggregate2");
+            fail("Expected IllegalMonitorStateException");
+        } catch (IllegalMonitorStateException e) {
+            assertTrue(e.getMessage().contains("aggregate2"));
+        }
+        // the lock of aggregate1 must still be held
+        AggregateRoot aggregate1 = mock(AggregateRoot.class);
+        when(aggregate1.getIdentifier()).thenReturn("aggregate1");
+        assertTrue(manager.validateLock(aggregate1));
+        manager.releaseLock("aggregate1");
+    }
+
+    @Test
+    public void testContendedAcquisitionIsRecorded() throws InterruptedException {
+        // with a single stripe, all aggregates share the same lock
+        final StripedLockManager manager = new StripedLockManager(1);
+        StripedLockManagerStatistics statistics = manager.getStatistics();
+        manager.obtainLock("aggregate1");
+        manager.releaseLock("aggregate1");
+        assertEquals(0, statistics.getContendedAcquisitionCount());
+
+        manager.obtainLock("aggregate1");
+        final CountDownLatch lockObtained = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                manager.obtainLock("aggregate2");
+                lockObtained.countDown();
+                manager.releaseLock("aggregate2");
+            }
+        });
+        thread.start();
+        while (statistics.getQueueLength() == 0) {
+            Thread.sleep(1);
+        }
+        assertArrayEquals(new int[]{1}, statistics.getQueueLengthPerStripe());
+        assertFalse(lockObtained.await(10, TimeUnit.MILLISECONDS));
+
+        manager.releaseLock("aggregate1");
+        assertTrue(lockObtained.await(1, TimeUnit.SECONDS));
+        thread.join();
+
+        assertEquals(1, statistics.getContendedAcquisitionCount());
+        assertArrayEquals(new long[]{1}, statistics.getContendedAcquisitionCountPerStripe());
+        assertTrue(statistics.getTotalWaitTime() >= 10);
+        assertEquals(0, statistics.getQueueLength());
+    }
+}
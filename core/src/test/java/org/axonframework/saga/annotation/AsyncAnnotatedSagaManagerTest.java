@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.annotation;
+
+import org.axonframework.domain.GenericEventMessage;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.repository.inmemory.InMemorySagaRepository;
+import org.junit.*;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AsyncAnnotatedSagaManagerTest {
+
+    private static final int SAGA_COUNT = 20;
+    private static final int EVENTS_PER_SAGA = 10;
+
+    private InMemorySagaRepository sagaRepository;
+    private AsyncAnnotatedSagaManager testSubject;
+    private SimpleEventBus eventBus;
+
+    @SuppressWarnings({"unchecked"})
+    @Before
+    public void setUp() {
+        eventBus = new SimpleEventBus(false);
+        sagaRepository = new InMemorySagaRepository();
+        testSubject = new AsyncAnnotatedSagaManager(eventBus, StubAsyncSaga.class);
+        testSubject.setSagaRepository(sagaRepository);
+    }
+
+    @Test(timeout = 10000)
+    public void testSingleSagaCreatedPerAssociationValue_MultipleProcessors() {
+        testSubject.setProcessorCount(4);
+        testSubject.start();
+        for (int t = 0; t < SAGA_COUNT * EVENTS_PER_SAGA; t++) {
+            eventBus.publish(new GenericEventMessage<StubEvent>(new StubEvent("id" + (t % SAGA_COUNT))));
+        }
+        testSubject.stop();
+
+        assertEquals(SAGA_COUNT, sagaRepository.size());
+        for (int i = 0; i < SAGA_COUNT; i++) {
+            Set<StubAsyncSaga> sagas = sagaRepository.find(StubAsyncSaga.class, Collections.singleton(
+                    new AssociationValue("myId", "id" + i)));
+            assertEquals(1, sagas.size());
+            assertEquals(EVENTS_PER_SAGA, sagas.iterator().next().handledEventCount);
+        }
+    }
+
+    public static class StubAsyncSaga extends AbstractAnnotatedSaga {
+
+        private static final long serialVersionUID = -3224806999195676097L;
+        private int handledEventCount;
+
+        @StartSaga
+        @SagaEventHandler(associationProperty = "myId")
+        public void handle(StubEvent event) {
+            handledEventCount++;
+        }
+    }
+
+    public static class StubEvent {
+
+        private final String myId;
+
+        public StubEvent(String myId) {
+            this.myId = myId;
+        }
+
+        public String getMyId() {
+            return myId;
+        }
+    }
+}
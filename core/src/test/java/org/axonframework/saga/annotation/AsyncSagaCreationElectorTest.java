@@ -82,6 +82,43 @@ public class AsyncSagaCreationElectorTest {
         assertFalse(e4.isElected());
     }
 
+    @Test(timeout = 1000)
+    public void testNonOwnersNeverWait() {
+        assertFalse(testSubject.waitForSagaCreationVote(false, 4, false));
+        assertFalse(testSubject.waitForSagaCreationVote(true, 4, false));
+    }
+
+    @Test(timeout = 1000)
+    public void testOwnerDecidesImmediatelyAfterOwnInvocation() {
+        assertFalse(testSubject.waitForSagaCreationVote(true, 4, true));
+    }
+
+    @Test(timeout = 1000)
+    public void testOwnerDecidesImmediatelyWhenOtherVotesCast() {
+        assertFalse(testSubject.isVotingComplete(3));
+        testSubject.waitForSagaCreationVote(false, 3, false);
+        testSubject.waitForSagaCreationVote(false, 3, false);
+        assertTrue(testSubject.isVotingComplete(3));
+
+        assertTrue(testSubject.waitForSagaCreationVote(false, 3, true));
+    }
+
+    @Test(timeout = 1000)
+    public void testSingleProcessorDecidesAlone() {
+        assertTrue(testSubject.isVotingComplete(1));
+        assertTrue(testSubject.waitForSagaCreationVote(false, 1, true));
+    }
+
+    @Test(timeout = 1000)
+    public void testClearResetsVotes() {
+        testSubject.waitForSagaCreationVote(true, 2, false);
+        assertTrue(testSubject.isVotingComplete(3));
+
+        testSubject.clear();
+
+        assertFalse(testSubject.isVotingComplete(3));
+    }
+
     private ElectionResult elect(final boolean didInvocation, final int electorCount,
                                  final boolean isSagaOwner) {
         final AtomicBoolean elected = new AtomicBoolean();
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository;
+
+import org.axonframework.eventhandling.AsynchronousExecutionWrapper;
+import org.axonframework.eventhandling.SequentialPolicy;
+import org.axonframework.eventhandling.TransactionManager;
+import org.axonframework.eventhandling.TransactionStatus;
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.Saga;
+import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
+import org.junit.*;
+import org.mockito.invocation.*;
+import org.mockito.stubbing.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AbstractSagaRepositoryTest {
+
+    private StubSagaRepository testSubject;
+    private TransactionManager mockTransactionManager;
+    private List<Runnable> executedTasks;
+    private TaskScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        testSubject = new StubSagaRepository();
+        testSubject.setWriteBehind(true);
+        mockTransactionManager = mock(TransactionManager.class);
+        executedTasks = new ArrayList<Runnable>();
+        scheduler = new TaskScheduler(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executedTasks.add(command);
+            }
+        }, mockTransactionManager);
+    }
+
+    @Test
+    public void testUpdatesWrittenOnceWhenBatchCommits() {
+        final StubSaga saga1 = new StubSaga();
+        final StubSaga saga2 = new StubSaga();
+        testSubject.add(saga1);
+        testSubject.add(saga2);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                assertEquals("Updates should be written before the transaction commits",
+                             2, testSubject.updatedSagas.size());
+                return null;
+            }
+        }).when(mockTransactionManager).afterTransaction(isA(TransactionStatus.class));
+
+        processInSingleBatch(new CommitTask(saga1), new CommitTask(saga2), new CommitTask(saga1));
+
+        assertEquals(2, testSubject.updatedSagas.size());
+        assertSame(saga1, testSubject.updatedSagas.get(0));
+        assertSame(saga2, testSubject.updatedSagas.get(1));
+        verify(mockTransactionManager).afterTransaction(isA(TransactionStatus.class));
+    }
+
+    @Test
+    public void testUpdatesDiscardedWhenBatchFails() {
+        final StubSaga saga = new StubSaga();
+        testSubject.add(saga);
+
+        processInSingleBatch(new CommitTask(saga), new Runnable() {
+            @Override
+            public void run() {
+                throw new RuntimeException("Mock");
+            }
+        });
+
+        assertTrue(testSubject.updatedSagas.isEmpty());
+    }
+
+    @Test
+    public void testEndedSagaNotUpdated() {
+        final StubSaga saga = new StubSaga();
+        testSubject.add(saga);
+
+        processInSingleBatch(new CommitTask(saga), new Runnable() {
+            @Override
+            public void run() {
+                saga.end();
+                testSubject.commit(saga);
+            }
+        });
+
+        assertTrue(testSubject.updatedSagas.isEmpty());
+        assertEquals(1, testSubject.deletedSagas.size());
+    }
+
+    @Test
+    public void testUpdateWrittenImmediatelyOutsideOfBatch() {
+        StubSaga saga = new StubSaga();
+        testSubject.add(saga);
+        testSubject.commit(saga);
+
+        assertEquals(1, testSubject.updatedSagas.size());
+    }
+
+    @Test
+    public void testUpdateWrittenImmediatelyWithoutWriteBehind() {
+        final StubSaga saga = new StubSaga();
+        testSubject.setWriteBehind(false);
+        testSubject.add(saga);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                assertEquals(2, testSubject.updatedSagas.size());
+                return null;
+            }
+        }).when(mockTransactionManager).afterTransaction(isA(TransactionStatus.class));
+
+        processInSingleBatch(new CommitTask(saga), new CommitTask(saga));
+
+        assertEquals(2, testSubject.updatedSagas.size());
+    }
+
+    @Test
+    public void testCommitAll_ActiveSagasUpdatedInSingleBatch() {
+        StubSaga saga1 = new StubSaga();
+        StubSaga saga2 = new StubSaga();
+        StubSaga endedSaga = new StubSaga();
+        testSubject.add(saga1);
+        testSubject.add(saga2);
+        testSubject.add(endedSaga);
+        endedSaga.end();
+
+        testSubject.commitAll(Arrays.asList(saga1, endedSaga, saga2));
+
+        assertEquals(1, testSubject.updateBatchCount);
+        assertEquals(Arrays.<Saga>asList(saga1, saga2), testSubject.updatedSagas);
+        assertEquals(Arrays.<Saga>asList(endedSaga), testSubject.deletedSagas);
+    }
+
+    @Test
+    public void testCommitAll_UpdatesWrittenBehind() {
+        final StubSaga saga1 = new StubSaga();
+        final StubSaga saga2 = new StubSaga();
+        testSubject.add(saga1);
+        testSubject.add(saga2);
+
+        processInSingleBatch(new Runnable() {
+            @Override
+            public void run() {
+                testSubject.commitAll(Arrays.asList(saga1, saga2));
+            }
+        }, new CommitTask(saga1));
+
+        assertEquals(1, testSubject.updateBatchCount);
+        assertEquals(Arrays.<Saga>asList(saga1, saga2), testSubject.updatedSagas);
+    }
+
+    /**
+     * Schedules the tasks, and processes them in a single batch once all have been scheduled.
+     */
+    private void processInSingleBatch(Runnable... tasks) {
+        for (Runnable task : tasks) {
+            scheduler.schedule(task);
+        }
+        assertEquals(1, executedTasks.size());
+        executedTasks.get(0).run();
+    }
+
+    private static class TaskScheduler extends AsynchronousExecutionWrapper<Runnable> {
+
+        public TaskScheduler(Executor executor, TransactionManager transactionManager) {
+            super(executor, transactionManager, new SequentialPolicy());
+        }
+
+        @Override
+        public void schedule(Runnable task) {
+            super.schedule(task);
+        }
+
+        @Override
+        protected void doHandle(Runnable task) {
+            task.run();
+        }
+    }
+
+    private class CommitTask implements Runnable {
+
+        private final Saga saga;
+
+        public CommitTask(Saga saga) {
+            this.saga = saga;
+        }
+
+        @Override
+        public void run() {
+            testSubject.commit(saga);
+        }
+    }
+
+    public static class StubSaga extends AbstractAnnotatedSaga {
+
+        public void end() {
+            super.end();
+        }
+    }
+
+    private static class StubSagaRepository extends AbstractSagaRepository {
+
+        private final List<Saga> updatedSagas = new ArrayList<Saga>();
+        private final List<Saga> deletedSagas = new ArrayList<Saga>();
+        private int updateBatchCount;
+
+        @Override
+        protected void deleteSaga(Saga saga) {
+            deletedSagas.add(saga);
+        }
+
+        @Override
+        protected <T extends Saga> T loadSaga(Class<T> type, String sagaIdentifier) {
+            return null;
+        }
+
+        @Override
+        protected void updateSaga(Saga saga) {
+            updatedSagas.add(saga);
+        }
+
+        @Override
+        protected void updateSagas(Collection<Saga> sagas) {
+            updateBatchCount++;
+            super.updateSagas(sagas);
+        }
+
+        @Override
+        protected void storeSaga(Saga saga) {
+        }
+
+        @Override
+        protected void storeAssociationValue(AssociationValue associationValue, String sagaType,
+                                             String sagaIdentifier) {
+        }
+
+        @Override
+        protected void removeAssociationValue(AssociationValue associationValue, String sagaType,
+                                              String sagaIdentifier) {
+        }
+    }
+}
@@ -16,13 +16,17 @@
 
 package org.axonframework.saga.repository;
 
+import org.axonframework.common.CacheEntryWeigher;
+import org.axonframework.saga.Saga;
 import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
 import org.junit.*;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.management.ObjectName;
 
 import static org.junit.Assert.*;
 
@@ -80,7 +84,151 @@ public class SagaCacheTest {
         assertNull(testSubject.get(UUID.randomUUID().toString()));
     }
 
+    @Test
+    public void testRetainedSagasSurviveGarbageCollection() {
+        testSubject = new SagaCache(10, new FixedWeigher(1), 1, false);
+        List<String> identifiers = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            identifiers.add(testSubject.put(new SimpleSaga()).getSagaIdentifier());
+        }
+        System.gc();
+
+        for (String identifier : identifiers) {
+            assertNotNull(testSubject.get(identifier));
+        }
+        assertEquals(5, testSubject.retainedSize());
+        assertEquals(5, testSubject.getStatistics().getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSagasReleased() {
+        testSubject = new SagaCache(4, new FixedWeigher(2), 1, false);
+        Saga saga1 = testSubject.put(new SimpleSaga());
+        Saga saga2 = testSubject.put(new SimpleSaga());
+        testSubject.get(saga1.getSagaIdentifier());
+        Saga saga3 = testSubject.put(new SimpleSaga());
+
+        assertEquals(2, testSubject.retainedSize());
+        assertEquals(1, testSubject.getStatistics().getEvictionCount());
+        // released sagas are still returned as long as they are referenced
+        assertSame(saga2, testSubject.get(saga2.getSagaIdentifier()));
+        assertSame(saga1, testSubject.get(saga1.getSagaIdentifier()));
+        assertSame(saga3, testSubject.put(new SimpleSaga(saga3.getSagaIdentifier())));
+    }
+
+    @Test
+    public void testSegmentedCacheRetainsUpToMaximumWeight() {
+        testSubject = new SagaCache(3, new FixedWeigher(1), 16, false);
+        List<Saga> sagas = new ArrayList<Saga>();
+        for (int i = 0; i < 100; i++) {
+            sagas.add(testSubject.put(new SimpleSaga()));
+        }
+
+        int retainedSize = testSubject.retainedSize();
+        assertTrue("Expected at least one retained saga", retainedSize > 0);
+        assertTrue("Expected at most 3 retained sagas, got " + retainedSize, retainedSize <= 3);
+        assertEquals(100 - retainedSize, testSubject.getStatistics().getEvictionCount());
+        for (Saga saga : sagas) {
+            testSubject.release(saga.getSagaIdentifier());
+        }
+        assertEquals(0, testSubject.retainedSize());
+    }
+
+    @Test
+    public void testIdleSagasReleased() throws InterruptedException {
+        testSubject = new SagaCache(10, new FixedWeigher(1), false);
+        testSubject.setTimeToIdle(50);
+        Saga saga = testSubject.put(new SimpleSaga());
+        Thread.sleep(100);
+        testSubject.purge();
+
+        assertEquals(0, testSubject.retainedSize());
+        assertEquals(1, testSubject.getStatistics().getExpirationCount());
+        assertSame(saga, testSubject.get(saga.getSagaIdentifier()));
+    }
+
+    @Test
+    public void testIdleSagasReleasedOnCacheMiss() throws InterruptedException {
+        testSubject = new SagaCache(10, new FixedWeigher(1), false);
+        testSubject.setTimeToIdle(50);
+        Saga saga = testSubject.put(new SimpleSaga());
+        Thread.sleep(100);
+
+        assertNull(testSubject.get(UUID.randomUUID().toString()));
+        assertEquals(1, testSubject.getStatistics().getExpirationCount());
+        assertEquals(0, testSubject.retainedSize());
+        assertSame(saga, testSubject.get(saga.getSagaIdentifier()));
+    }
+
+    @Test
+    public void testStatisticsRegisteredPerInstance() throws Exception {
+        ObjectName query = new ObjectName("org.axonframework:type=SagaCache,*");
+        int registeredBefore = ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size();
+        new SagaCache(10);
+        assertEquals(registeredBefore, ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size());
+
+        SagaCache first = new SagaCache(10, new FixedWeigher(1), true);
+        SagaCache second = new SagaCache(10, new FixedWeigher(1), true);
+        assertEquals(registeredBefore + 2, ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size());
+
+        first.close();
+        second.close();
+        assertEquals(registeredBefore, ManagementFactory.getPlatformMBeanServer().queryNames(query, null).size());
+    }
+
+    @Test
+    public void testReleasedSagaNoLongerRetained() {
+        testSubject = new SagaCache(10, new FixedWeigher(1), false);
+        Saga saga = testSubject.put(new SimpleSaga());
+        testSubject.release(saga.getSagaIdentifier());
+
+        assertEquals(0, testSubject.retainedSize());
+        assertEquals(0, testSubject.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testHitsAndMissesCounted() {
+        Saga saga = testSubject.put(new SimpleSaga());
+        testSubject.get(saga.getSagaIdentifier());
+        testSubject.get(UUID.randomUUID().toString());
+
+        assertEquals(1, testSubject.getStatistics().getHitCount());
+        assertEquals(1, testSubject.getStatistics().getMissCount());
+        assertEquals(0.5, testSubject.getStatistics().getHitRatio(), 0.0001);
+        testSubject.getStatistics().resetStatistics();
+        assertEquals(0, testSubject.getStatistics().getHitCount());
+    }
+
+    @Test
+    public void testSoftReferencedSagaReturned() {
+        testSubject.setReferenceType(SagaCache.ReferenceType.SOFT);
+        Saga saga = testSubject.put(new SimpleSaga());
+
+        assertSame(saga, testSubject.get(saga.getSagaIdentifier()));
+    }
+
+    private static class FixedWeigher implements CacheEntryWeigher {
+
+        private final long weight;
+
+        private FixedWeigher(long weight) {
+            this.weight = weight;
+        }
+
+        @Override
+        public long weigh(Object key, Object value) {
+            return weight;
+        }
+    }
+
     public static class SimpleSaga extends AbstractAnnotatedSaga {
 
+        public SimpleSaga() {
+        }
+
+        public SimpleSaga(String identifier) {
+            super(identifier);
+        }
+
     }
 }
@@ -23,6 +23,8 @@ import org.axonframework.saga.NoSuchSagaException;
 import org.axonframework.saga.Saga;
 import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
 import org.axonframework.serializer.XStreamSerializer;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.junit.*;
 import org.junit.runner.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,7 +33,10 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import javax.persistence.EntityManager;
@@ -222,6 +227,58 @@ public class JpaSagaRepositoryTest {
         assertNotNull(entityManager.find(SagaEntry.class, identifier));
     }
 
+    @DirtiesContext
+    @Test
+    public void testLoadUncachedSaga_ByAssociationValueQuery() {
+        repository.setUseAssociationValueQueries(true);
+        String identifier = UUID.randomUUID().toString();
+        MyTestSaga saga = new MyTestSaga(identifier);
+        saga.registerAssociationValue(new AssociationValue("key", "value"));
+        saga.registerAssociationValue(new AssociationValue("key", "other"));
+        entityManager.persist(new SagaEntry(saga, serializer));
+        entityManager.persist(new AssociationValueEntry("MyTestSaga", identifier, new AssociationValue("key",
+                                                                                                       "value")));
+        entityManager.persist(new AssociationValueEntry("MyTestSaga", identifier, new AssociationValue("key",
+                                                                                                       "other")));
+        entityManager.flush();
+        entityManager.clear();
+
+        Set<MyTestSaga> loaded = repository.find(MyTestSaga.class, setOf(new AssociationValue("key", "value")));
+        assertEquals(1, loaded.size());
+        MyTestSaga loadedSaga = loaded.iterator().next();
+        assertEquals(identifier, loadedSaga.getSagaIdentifier());
+
+        loadedSaga.removeAssociationValue("key", "value");
+        assertTrue(repository.find(MyTestSaga.class, setOf(new AssociationValue("key", "value"))).isEmpty());
+        assertTrue(repository.find(MyOtherTestSaga.class, setOf(new AssociationValue("key", "other"))).isEmpty());
+        assertEquals(1, repository.find(MyTestSaga.class, setOf(new AssociationValue("key", "other"))).size());
+    }
+
+    @DirtiesContext
+    @Test
+    public void testAssociationValueCacheUpdatedOnChanges() {
+        repository.setUseAssociationValueQueries(true);
+        repository.setAssociationValueCacheSize(10);
+        MyTestSaga saga1 = new MyTestSaga(UUID.randomUUID().toString());
+        MyTestSaga saga2 = new MyTestSaga(UUID.randomUUID().toString());
+        saga1.registerAssociationValue(new AssociationValue("key", "value"));
+        repository.add(saga1);
+        repository.add(saga2);
+        assertEquals(setOf(saga1), repository.find(MyTestSaga.class, setOf(new AssociationValue("key", "value"))));
+
+        // the cached association is used from now on
+        entityManager.createQuery("DELETE FROM AssociationValueEntry").executeUpdate();
+        assertEquals(setOf(saga1), repository.find(MyTestSaga.class, setOf(new AssociationValue("key", "value"))));
+
+        saga2.registerAssociationValue(new AssociationValue("key", "value"));
+        saga1.removeAssociationValue("key", "value");
+        assertEquals(setOf(saga2), repository.find(MyTestSaga.class, setOf(new AssociationValue("key", "value"))));
+
+        saga2.end();
+        repository.commit(saga2);
+        assertTrue(repository.find(MyTestSaga.class, setOf(new AssociationValue("key", "value"))).isEmpty());
+    }
+
     @Test(expected = NoSuchSagaException.class)
     public void testLoadSaga_NotFound() {
         repository.load(MyTestSaga.class, "123456");
@@ -277,6 +334,70 @@ public class JpaSagaRepositoryTest {
         assertNull(entityManager.find(SagaEntry.class, identifier));
     }
 
+    @DirtiesContext
+    @Test
+    public void testCommitAll() {
+        MyTestSaga existingSaga = new MyTestSaga(UUID.randomUUID().toString());
+        MyTestSaga endedSaga = new MyTestSaga(UUID.randomUUID().toString());
+        entityManager.persist(new SagaEntry(existingSaga, serializer));
+        entityManager.persist(new SagaEntry(endedSaga, serializer));
+        entityManager.flush();
+        entityManager.clear();
+        MyTestSaga loaded = repository.load(MyTestSaga.class, existingSaga.getSagaIdentifier());
+        MyTestSaga loadedEndedSaga = repository.load(MyTestSaga.class, endedSaga.getSagaIdentifier());
+        MyTestSaga unstoredSaga = new MyTestSaga(UUID.randomUUID().toString());
+        loaded.counter = 1;
+        loadedEndedSaga.end();
+        unstoredSaga.counter = 2;
+
+        repository.commitAll(Arrays.asList(loaded, loadedEndedSaga, unstoredSaga));
+        entityManager.clear();
+
+        SagaEntry entry = entityManager.find(SagaEntry.class, existingSaga.getSagaIdentifier());
+        assertEquals(1, ((MyTestSaga) entry.getSaga(serializer)).counter);
+        assertNull(entityManager.find(SagaEntry.class, endedSaga.getSagaIdentifier()));
+        SagaEntry newEntry = entityManager.find(SagaEntry.class, unstoredSaga.getSagaIdentifier());
+        assertEquals(2, ((MyTestSaga) newEntry.getSaga(serializer)).counter);
+    }
+
+    @DirtiesContext
+    @Test
+    public void testCommitAll_SagasWrittenInSingleFlush() {
+        List<String> identifiers = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            MyTestSaga saga = new MyTestSaga(UUID.randomUUID().toString());
+            entityManager.persist(new SagaEntry(saga, serializer));
+            identifiers.add(saga.getSagaIdentifier());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        List<MyTestSaga> sagas = new ArrayList<MyTestSaga>();
+        for (String identifier : identifiers) {
+            MyTestSaga saga = repository.load(MyTestSaga.class, identifier);
+            saga.counter = 1;
+            sagas.add(saga);
+        }
+        Statistics statistics = ((Session) entityManager.getDelegate()).getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            repository.commitAll(sagas);
+
+            assertEquals(1, statistics.getFlushCount());
+            // the entries are updated in the persistence context, instead of using an update query per saga
+            assertEquals(10, statistics.getEntityUpdateCount());
+            // the entries that are already managed aren't loaded again
+            assertEquals(0, statistics.getEntityLoadCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        entityManager.clear();
+        for (String identifier : identifiers) {
+            SagaEntry entry = entityManager.find(SagaEntry.class, identifier);
+            assertEquals(1, ((MyTestSaga) entry.getSaga(serializer)).counter);
+        }
+    }
+
     public static class MyTestSaga extends AbstractAnnotatedSaga {
 
         private static final long serialVersionUID = -1562911263884220240L;
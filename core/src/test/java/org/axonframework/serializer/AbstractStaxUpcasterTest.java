@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.serializer;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.XMLEventConsumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AbstractStaxUpcasterTest {
+
+    private XStreamSerializer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new XStreamSerializer();
+        testSubject.addAlias("old", OldEvent.class);
+        testSubject.addAlias("revised", RevisedEvent.class);
+    }
+
+    @Test
+    public void testDeserializeWithStreamingUpcaster() {
+        testSubject.setUpcasters(Arrays.<Upcaster>asList(new RevisedEventUpcaster()));
+        SerializedObject serializedObject = testSubject.serialize(new OldEvent("aggregate", "client"));
+
+        assertEquals(RevisedEvent.class, testSubject.classForType(serializedObject.getType()));
+        RevisedEvent actual = (RevisedEvent) testSubject.deserialize(serializedObject);
+        assertEquals("aggregate", actual.aggregateId);
+        assertEquals("client", actual.customerId);
+        assertEquals("unknown", actual.region);
+    }
+
+    @Test
+    public void testEventsAreUpcastWhileReading() throws Exception {
+        ChainingConverterFactory converterFactory = new ChainingConverterFactory();
+        SerializedObject serializedObject = new SimpleSerializedObject(
+                "<old><aggregateId>aggregate</aggregateId><clientId>client</clientId></old>".getBytes("UTF-8"),
+                "old", 0);
+        UpcasterChain upcasterChain = new UpcasterChain(converterFactory, new RevisedEventUpcaster());
+
+        IntermediateRepresentation upcast = upcasterChain.upcast(serializedObject);
+        assertEquals(XMLEventReader.class, upcast.getContentType());
+        XMLEventReader reader = (XMLEventReader) upcast.getData();
+
+        assertTrue(reader.nextEvent().isStartDocument());
+        assertEquals("revised", reader.nextTag().asStartElement().getName().getLocalPart());
+        assertEquals("aggregateId", reader.nextTag().asStartElement().getName().getLocalPart());
+        assertEquals("aggregate", reader.getElementText());
+        assertEquals("customerId", reader.nextTag().asStartElement().getName().getLocalPart());
+        assertEquals("client", reader.getElementText());
+        assertEquals("region", reader.peek().asStartElement().getName().getLocalPart());
+        List<String> remaining = new ArrayList<String>();
+        while (reader.hasNext()) {
+            remaining.add(reader.nextEvent().toString());
+        }
+        assertEquals(Arrays.asList("<region>", "unknown", "</region>", "</revised>"), remaining.subList(0, 4));
+        reader.close();
+    }
+
+    private static class OldEvent {
+
+        private String aggregateId;
+        private String clientId;
+
+        private OldEvent() {
+        }
+
+        private OldEvent(String aggregateId, String clientId) {
+            this.aggregateId = aggregateId;
+            this.clientId = clientId;
+        }
+    }
+
+    @Revision(2)
+    private static class RevisedEvent {
+
+        private String aggregateId;
+        private String customerId;
+        private String region;
+
+        private RevisedEvent() {
+        }
+    }
+
+    private static class RevisedEventUpcaster extends AbstractStaxUpcaster {
+
+        @Override
+        public boolean canUpcast(SerializedType serializedType) {
+            return "old".equals(serializedType.getName());
+        }
+
+        @Override
+        public SerializedType upcast(SerializedType serializedType) {
+            return new SimpleSerializedType("revised", 2);
+        }
+
+        @Override
+        protected void processEvent(XMLEvent event, int depth, XMLEventConsumer output) throws XMLStreamException {
+            if (depth == 1 && (event.isStartElement() || event.isEndElement())) {
+                if (event.isEndElement()) {
+                    output.add(getEventFactory().createStartElement("", "", "region"));
+                    output.add(getEventFactory().createCharacters("unknown"));
+                    output.add(getEventFactory().createEndElement("", "", "region"));
+                }
+                output.add(rename(event, "revised"));
+            } else if (depth == 2 && isElement(event, "clientId")) {
+                output.add(rename(event, "customerId"));
+            } else {
+                output.add(event);
+            }
+        }
+
+        private boolean isElement(XMLEvent event, String localName) {
+            return (event.isStartElement() && localName.equals(event.asStartElement().getName().getLocalPart()))
+                    || (event.isEndElement() && localName.equals(event.asEndElement().getName().getLocalPart()));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.serializer;
+
+import org.dom4j.Document;
+import org.junit.*;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class ChainingConverterFactoryTest {
+
+    private ChainingConverterFactory testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new ChainingConverterFactory();
+    }
+
+    @Test
+    public void testConverterIsCachedPerRoute() {
+        ContentTypeConverter converter = testSubject.getConverter(byte[].class, Document.class);
+
+        assertTrue(converter instanceof ChainedConverter);
+        assertEquals(byte[].class, converter.expectedSourceType());
+        assertEquals(Document.class, converter.targetType());
+        assertSame(converter, testSubject.getConverter(byte[].class, Document.class));
+    }
+
+    @Test
+    public void testRouteWithoutConverterIsReportedEachTime() {
+        for (int t = 0; t < 2; t++) {
+            try {
+                testSubject.getConverter(byte[].class, Reader.class);
+                fail("Expected CannotConvertBetweenTypesException");
+            } catch (CannotConvertBetweenTypesException e) {
+                assertTrue(e.getMessage().contains(Reader.class.getName()));
+            }
+        }
+    }
+
+    @Test
+    public void testRegisteringConverterClearsCachedRoutes() {
+        ContentTypeConverter chain = testSubject.getConverter(byte[].class, Document.class);
+        ContentTypeConverter direct = mockConverter(byte[].class, Document.class);
+
+        testSubject.registerConverter(direct);
+
+        assertNotSame(chain, testSubject.getConverter(byte[].class, Document.class));
+        assertSame(direct, testSubject.getConverter(byte[].class, Document.class));
+    }
+
+    @Test
+    public void testRegisteringConverterClearsNegativelyCachedRoutes() {
+        try {
+            testSubject.getConverter(byte[].class, Reader.class);
+            fail("Expected CannotConvertBetweenTypesException");
+        } catch (CannotConvertBetweenTypesException e) {
+            // expected
+        }
+        ContentTypeConverter converter = mockConverter(InputStream.class, Reader.class);
+        testSubject.setAdditionalConverters(Arrays.asList(converter));
+
+        ContentTypeConverter actual = testSubject.getConverter(byte[].class, Reader.class);
+        assertEquals(byte[].class, actual.expectedSourceType());
+        assertEquals(Reader.class, actual.targetType());
+    }
+
+    @Test
+    public void testRoutesAreNotCachedBeyondMaximum() {
+        testSubject.setMaxCachedRoutes(0);
+
+        ContentTypeConverter first = testSubject.getConverter(byte[].class, Document.class);
+        ContentTypeConverter second = testSubject.getConverter(byte[].class, Document.class);
+
+        assertNotSame(first, second);
+        assertEquals(first.targetType(), second.targetType());
+    }
+
+    private ContentTypeConverter mockConverter(Class<?> sourceType, Class<?> targetType) {
+        ContentTypeConverter converter = mock(ContentTypeConverter.class);
+        when(converter.expectedSourceType()).thenReturn(sourceType);
+        when(converter.targetType()).thenReturn(targetType);
+        return converter;
+    }
+}
@@ -29,6 +29,18 @@ public class JavaSerializerTest {
         assertEquals("hello", ((MySerializableObject) actualResult).getSomeProperty());
     }
 
+    @Test
+    public void testSerializeIntoBuffer() {
+        SerializationBuffer buffer = new SerializationBuffer(16);
+        SimpleSerializedObject first = buffer.serialize(testSubject, new MySerializableObject("first"));
+        SimpleSerializedObject second = buffer.serialize(testSubject, new MySerializableObject("second"));
+
+        assertEquals(buffer.size(), first.getDataLength() + second.getDataLength());
+        assertEquals("first", ((MySerializableObject) testSubject.deserialize(first)).getSomeProperty());
+        assertEquals("second", ((MySerializableObject) testSubject.deserialize(second)).getSomeProperty());
+        assertEquals(first, testSubject.serialize(new MySerializableObject("first")));
+    }
+
     @Test
     public void testClassForType() {
         Class actual = testSubject.classForType(new SimpleSerializedType(MySerializableObject.class.getName(), 0));
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.serializer;
+
+import org.junit.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class SerializationBufferTest {
+
+    private static final SerializedType TYPE = new SimpleSerializedType("type", 0);
+
+    private SerializationBuffer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new SerializationBuffer(4);
+    }
+
+    @Test
+    public void testSerializedObjectRefersToRangeOfBuffer() throws Exception {
+        testSubject.write("abc".getBytes("UTF-8"));
+        SimpleSerializedObject serializedObject = testSubject.toSerializedObject(1, TYPE);
+
+        assertEquals(2, serializedObject.getDataLength());
+        assertArrayEquals("bc".getBytes("UTF-8"), serializedObject.getData());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializedObject.writeTo(out);
+        assertArrayEquals("bc".getBytes("UTF-8"), out.toByteArray());
+        assertEquals('b', serializedObject.getStream().read());
+        assertEquals(new SimpleSerializedObject("bc".getBytes("UTF-8"), "type", 0), serializedObject);
+        assertEquals(new SimpleSerializedObject("bc".getBytes("UTF-8"), "type", 0).hashCode(),
+                     serializedObject.hashCode());
+    }
+
+    @Test
+    public void testSerializedObjectRemainsValidWhenBufferGrows() throws Exception {
+        testSubject.write("abc".getBytes("UTF-8"));
+        SerializedObject serializedObject = testSubject.toSerializedObject(0, TYPE);
+        ByteBuffer view = testSubject.asByteBuffer();
+
+        testSubject.write("defghijk".getBytes("UTF-8"));
+
+        assertEquals(11, testSubject.size());
+        assertTrue(testSubject.capacity() >= 11);
+        assertArrayEquals("abc".getBytes("UTF-8"), serializedObject.getData());
+        assertEquals(3, view.remaining());
+        assertArrayEquals("abcdefghijk".getBytes("UTF-8"), testSubject.toByteArray());
+    }
+
+    @Test
+    public void testSerializeCopiesDataOfSerializerThatDoesNotWriteToBuffers() throws Exception {
+        Serializer serializer = mock(Serializer.class);
+        when(serializer.serialize("object")).thenReturn(new SimpleSerializedObject("abc".getBytes("UTF-8"), TYPE));
+        testSubject.write('x');
+
+        SimpleSerializedObject serializedObject = testSubject.serialize(serializer, "object");
+
+        assertEquals(TYPE, serializedObject.getType());
+        assertArrayEquals("abc".getBytes("UTF-8"), serializedObject.getData());
+        assertArrayEquals("xabc".getBytes("UTF-8"), testSubject.toByteArray());
+    }
+
+    @Test
+    public void testResetRetainsCapacity() throws Exception {
+        testSubject.write(new byte[100]);
+        int capacity = testSubject.capacity();
+
+        testSubject.reset();
+
+        assertEquals(0, testSubject.size());
+        assertEquals(capacity, testSubject.capacity());
+    }
+
+    @Test
+    public void testByteBufferViewIsReadOnly() throws Exception {
+        testSubject.write("abcd".getBytes("UTF-8"));
+        ByteBuffer view = testSubject.asByteBuffer(1, 2);
+
+        assertTrue(view.isReadOnly());
+        assertEquals(0, view.position());
+        assertEquals('b', view.get());
+        assertEquals('c', view.get());
+        assertFalse(view.hasRemaining());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRangeMustLieWithinContents() throws Exception {
+        testSubject.write("ab".getBytes("UTF-8"));
+        testSubject.asByteBuffer(1, 2);
+    }
+
+    @Test
+    public void testPoolReusesBufferOfCurrentThread() {
+        SerializationBufferPool pool = new SerializationBufferPool(16, 1024);
+        SerializationBuffer buffer = pool.acquire();
+        buffer.write(1);
+        SerializationBuffer nested = pool.acquire();
+        assertNotSame(buffer, nested);
+        pool.release(nested);
+        pool.release(buffer);
+
+        SerializationBuffer next = pool.acquire();
+        assertSame(buffer, next);
+        assertEquals(0, next.size());
+        pool.release(next);
+    }
+
+    @Test
+    public void testPoolDiscardsBuffersThatGrewTooLarge() {
+        SerializationBufferPool pool = new SerializationBufferPool(16, 1024);
+        SerializationBuffer buffer = pool.acquire();
+        buffer.write(new byte[2048], 0, 2048);
+        pool.release(buffer);
+
+        assertNotSame(buffer, pool.acquire());
+    }
+}
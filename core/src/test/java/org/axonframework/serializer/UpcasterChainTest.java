@@ -73,6 +73,50 @@ public class UpcasterChainTest {
         assertEquals(object3.getType(), actual2);
     }
 
+    @Test
+    public void testUpcastersAreInspectedOncePerType() {
+        Upcaster mockUpcaster = mock(Upcaster.class);
+        when(mockUpcaster.canUpcast(any(SerializedType.class))).thenReturn(false);
+        UpcasterChain chain = new UpcasterChain(null, mockUpcaster);
+
+        for (int t = 0; t < 10; t++) {
+            assertFalse(chain.canUpcast(object1.getType()));
+            assertSame(object1.getType(), chain.upcast(object1.getType()));
+            assertEquals(object1.getType(), chain.upcast(object1).getType());
+        }
+
+        verify(mockUpcaster, times(1)).canUpcast(object1.getType());
+        verify(mockUpcaster, never()).upcast(any(IntermediateRepresentation.class));
+    }
+
+    @Test
+    public void testUpcastObject_UsesCompiledPlan() {
+        Upcaster upcaster12 = mockUpcaster(intermediate1, intermediate2);
+        Upcaster upcaster23 = mockUpcaster(intermediate2, intermediate3);
+        UpcasterChain chain = new UpcasterChain(null, upcaster12, upcaster23);
+
+        assertTrue(chain.canUpcast(object1.getType()));
+        for (int t = 0; t < 10; t++) {
+            assertEquals(object3.getType(), chain.upcast(object1).getType());
+        }
+        assertEquals(object3.getType(), chain.upcast(object1.getType()));
+
+        verify(upcaster12, times(1)).canUpcast(any(SerializedType.class));
+        verify(upcaster23, times(1)).canUpcast(any(SerializedType.class));
+        verify(upcaster12, times(10)).upcast(any(IntermediateRepresentation.class));
+        verify(upcaster23, times(10)).upcast(any(IntermediateRepresentation.class));
+    }
+
+    private Upcaster mockUpcaster(IntermediateRepresentation source, IntermediateRepresentation result) {
+        Upcaster upcaster = mock(Upcaster.class);
+        when(upcaster.canUpcast(any(SerializedType.class))).thenReturn(false);
+        when(upcaster.canUpcast(source.getType())).thenReturn(true);
+        when(upcaster.expectedRepresentationType()).thenReturn(byte[].class);
+        when(upcaster.upcast(source.getType())).thenReturn(result.getType());
+        when(upcaster.upcast(isA(IntermediateRepresentation.class))).thenReturn(result);
+        return upcaster;
+    }
+
     @Test
     public void testUpcastObject_NoTypeConversionRequired() {
         Upcaster mockUpcaster12 = new StubUpcaster(intermediate1.getType(), intermediate2, byte[].class);
@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer.binary;
+
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.MetaData;
+import org.axonframework.serializer.AbstractStaxUpcaster;
+import org.axonframework.serializer.IntermediateRepresentation;
+import org.axonframework.serializer.JavaSerializer;
+import org.axonframework.serializer.Revision;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.SerializedType;
+import org.axonframework.serializer.SimpleIntermediateRepresentation;
+import org.axonframework.serializer.SimpleSerializedObject;
+import org.axonframework.serializer.SimpleSerializedType;
+import org.axonframework.serializer.Upcaster;
+import org.axonframework.serializer.XStreamSerializer;
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.joda.time.DateTime;
+import org.junit.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.XMLEventConsumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class BinarySerializerTest {
+
+    private BinarySerializer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new BinarySerializer();
+    }
+
+    @Test
+    public void testSerializeAndDeserialize() {
+        TestEvent event = new TestEvent("hello \u00e9\u4e2d\ud83d\ude00", 42);
+        SerializedObject serializedObject = testSubject.serialize(event);
+        assertEquals(TestEvent.class.getName(), serializedObject.getType().getName());
+        assertEquals(0, serializedObject.getType().getRevision());
+
+        TestEvent actual = (TestEvent) testSubject.deserialize(serializedObject);
+        assertEquals(event.name, actual.name);
+        assertEquals(event.count, actual.count);
+        assertEquals(event.amount, actual.amount);
+        assertEquals(event.ratio, actual.ratio, 0);
+        assertEquals(event.flag, actual.flag);
+        assertEquals(event.letter, actual.letter);
+        assertEquals(event.nothing, actual.nothing);
+        assertEquals(event.boxed, actual.boxed);
+        assertEquals(event.timeUnit, actual.timeUnit);
+        assertEquals(event.timestamp, actual.timestamp);
+        assertEquals(event.price, actual.price);
+        assertEquals(event.identifier, actual.identifier);
+        assertArrayEquals(event.numbers, actual.numbers);
+        assertArrayEquals(event.data, actual.data);
+        assertArrayEquals(event.words, actual.words);
+        assertEquals(event.list, actual.list);
+        assertEquals(event.set, actual.set);
+        assertEquals(event.map, actual.map);
+        assertEquals(event.sortedMap, actual.sortedMap);
+        assertEquals(event.unmodifiableList, actual.unmodifiableList);
+        assertEquals(event.metaData, actual.metaData);
+        assertEquals(String.class, actual.type);
+        assertEquals("Transient fields should be initialized by the constructor", "transient", actual.transientValue);
+    }
+
+    @Test
+    public void testSerializeDomainEventMessage() {
+        GenericDomainEventMessage<TestEvent> message = new GenericDomainEventMessage<TestEvent>(
+                UUID.randomUUID(), 3, new TestEvent("payload", 1),
+                MetaData.from(Collections.<String, Object>singletonMap("key", "value")));
+
+        GenericDomainEventMessage<?> actual =
+                (GenericDomainEventMessage<?>) testSubject.deserialize(testSubject.serialize(message));
+
+        assertEquals(message.getIdentifier(), actual.getIdentifier());
+        assertEquals(message.getAggregateIdentifier(), actual.getAggregateIdentifier());
+        assertEquals(message.getSequenceNumber(), actual.getSequenceNumber());
+        assertEquals(message.getTimestamp(), actual.getTimestamp());
+        assertEquals(message.getMetaData(), actual.getMetaData());
+        assertEquals("payload", ((TestEvent) actual.getPayload()).name);
+    }
+
+    @Test
+    public void testSharedAndCyclicReferencesArePreserved() {
+        Node first = new Node("first");
+        Node second = new Node("second");
+        first.next = second;
+        second.next = first;
+        List<Node> nodes = new ArrayList<Node>(Arrays.asList(first, second, first));
+
+        @SuppressWarnings({"unchecked"})
+        List<Node> actual = (List<Node>) testSubject.deserialize(testSubject.serialize(nodes));
+
+        assertEquals("first", actual.get(0).name);
+        assertSame(actual.get(0), actual.get(2));
+        assertSame(actual.get(1), actual.get(0).next);
+        assertSame(actual.get(0), actual.get(1).next);
+    }
+
+    @Test
+    public void testSortedCollectionsKeepTheirComparator() {
+        SortedSet<String> set = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList("b", "A", "c"));
+        SortedMap<String, Integer> map = new TreeMap<String, Integer>(Collections.<String>reverseOrder());
+        map.put("a", 1);
+        map.put("b", 2);
+        SerializedObject serializedObject = testSubject.serialize(Arrays.asList(set, map));
+
+        List<?> actual = (List<?>) testSubject.deserialize(serializedObject);
+
+        @SuppressWarnings({"unchecked"})
+        SortedSet<String> actualSet = (SortedSet<String>) actual.get(0);
+        assertEquals(Arrays.asList("A", "b", "c"), new ArrayList<String>(actualSet));
+        assertTrue("The comparator of the set should be used", actualSet.contains("B"));
+        @SuppressWarnings({"unchecked"})
+        SortedMap<String, Integer> actualMap = (SortedMap<String, Integer>) actual.get(1);
+        actualMap.put("c", 3);
+        assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<String>(actualMap.keySet()));
+        assertArrayEquals(serializedObject.getData(),
+                          fromDocument(toDocument(serializedObject), serializedObject.getType()).getData());
+    }
+
+    @Test
+    public void testFieldsHiddenBySubclassFieldsAreKeyedByDeclaringClass() {
+        HidingEvent event = new HidingEvent("child", "parent");
+        SerializedObject serializedObject = testSubject.serialize(event);
+        Document document = toDocument(serializedObject);
+
+        @SuppressWarnings({"unchecked"})
+        List<Element> fields = document.getRootElement().elements("value");
+        assertEquals(2, fields.size());
+        assertNull(fields.get(0).attributeValue("declaredBy"));
+        assertEquals(HiddenEvent.class.getName(), fields.get(1).attributeValue("declaredBy"));
+        HidingEvent actual = (HidingEvent) testSubject.deserialize(fromDocument(document,
+                                                                                serializedObject.getType()));
+        assertEquals("child", actual.value);
+        assertEquals("parent", ((HiddenEvent) actual).value);
+    }
+
+    @Test
+    public void testSerializeToOutputStream() throws Exception {
+        TestEvent event = new TestEvent("stream", 1);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SerializedType type = testSubject.serialize(event, outputStream);
+
+        assertEquals(TestEvent.class.getName(), type.getName());
+        assertArrayEquals(testSubject.serialize(event).getData(), outputStream.toByteArray());
+        TestEvent actual = (TestEvent) testSubject.deserialize(
+                new SimpleSerializedObject(outputStream.toByteArray(), type.getName(), type.getRevision()));
+        assertEquals("stream", actual.name);
+    }
+
+    @Test
+    public void testRevisionIsTakenFromAnnotation() {
+        SerializedObject serializedObject = testSubject.serialize(new RevisedEvent("id", "client"));
+        assertEquals(RevisedEvent.class.getName(), serializedObject.getType().getName());
+        assertEquals(2, serializedObject.getType().getRevision());
+    }
+
+    @Test
+    public void testClassForType() {
+        assertEquals(TestEvent.class,
+                     testSubject.classForType(new SimpleSerializedType(TestEvent.class.getName(), 0)));
+        assertNull(testSubject.classForType(new SimpleSerializedType("unknown", 0)));
+    }
+
+    @Test
+    public void testChangedFieldsAreToleratedWithoutUpcasters() {
+        SerializedObject serializedObject = testSubject.serialize(new TestEvent("tolerant", 7));
+        Document document = toDocument(serializedObject);
+        Element root = document.getRootElement();
+        root.remove(root.element("amount"));
+        root.addElement("removedField").addAttribute("type", "object")
+            .addAttribute("class", "org.example.UnknownClass")
+            .addElement("value").addAttribute("type", "string").setText("ignored");
+        root.element("count").addAttribute("type", "long");
+
+        TestEvent actual = (TestEvent) testSubject.deserialize(fromDocument(document, serializedObject.getType()));
+
+        assertEquals("tolerant", actual.name);
+        assertEquals(7, actual.count);
+        assertEquals("Removed fields should keep the value assigned by the constructor", -1L, actual.amount);
+    }
+
+    @Test
+    public void testDocumentRepresentationConvertsBackToSameBinaryForm() {
+        Node first = new Node("first");
+        first.next = first;
+        List<Object> graph = new ArrayList<Object>(Arrays.asList(new TestEvent("doc", 3), first, first));
+        SerializedObject serializedObject = testSubject.serialize(graph);
+
+        byte[] actual = fromDocument(toDocument(serializedObject), serializedObject.getType()).getData();
+
+        assertArrayEquals(serializedObject.getData(), actual);
+    }
+
+    @Test
+    public void testDeserializeWithUpcasters() {
+        testSubject.setUpcasters(Arrays.<Upcaster>asList(new RevisedEventUpcaster()));
+        SerializedObject serializedObject = testSubject.serialize(new OldEvent("aggregate", "client"));
+
+        assertEquals(RevisedEvent.class, testSubject.classForType(serializedObject.getType()));
+        RevisedEvent actual = (RevisedEvent) testSubject.deserialize(serializedObject);
+        assertEquals("aggregate", actual.aggregateId);
+        assertEquals("client", actual.customerId);
+        assertEquals("unknown", actual.region);
+    }
+
+    @Test
+    public void testDeserializeWithStreamingUpcasters() {
+        testSubject.setUpcasters(Arrays.<Upcaster>asList(new RevisedEventStaxUpcaster()));
+        SerializedObject serializedObject = testSubject.serialize(new OldEvent("aggregate", "client"));
+
+        RevisedEvent actual = (RevisedEvent) testSubject.deserialize(serializedObject);
+        assertEquals("aggregate", actual.aggregateId);
+        assertEquals("client", actual.customerId);
+        assertEquals("unknown", actual.region);
+    }
+
+    @Test
+    public void testSerializedFormIsSmallerThanXStreamAndJavaSerialization() {
+        GenericDomainEventMessage<TestEvent> message = new GenericDomainEventMessage<TestEvent>(
+                UUID.randomUUID(), 3, new TestEvent("payload", 1),
+                MetaData.from(Collections.<String, Object>singletonMap("key", "value")));
+
+        int binarySize = testSubject.serialize(message).getData().length;
+        int xStreamSize = new XStreamSerializer().serialize(message).getData().length;
+        int javaSize = new JavaSerializer().serialize(message).getData().length;
+
+        assertTrue("Binary form is " + binarySize + " bytes, XStream form " + xStreamSize + " bytes",
+                   binarySize < xStreamSize);
+        assertTrue("Binary form is " + binarySize + " bytes, Java serialized form " + javaSize + " bytes",
+                   binarySize < javaSize);
+    }
+
+    private Document toDocument(SerializedObject serializedObject) {
+        return new BinaryToDom4jConverter().convert(new SimpleIntermediateRepresentation<byte[]>(
+                serializedObject.getType(), byte[].class, serializedObject.getData())).getData();
+    }
+
+    private SerializedObject fromDocument(Document document, SerializedType type) {
+        IntermediateRepresentation<byte[]> converted = new Dom4jToBinaryConverter().convert(
+                new SimpleIntermediateRepresentation<Document>(type, Document.class, document));
+        return new SimpleSerializedObject(converted.getData(), type.getName(), type.getRevision());
+    }
+
+    public static class TestEvent implements Serializable {
+
+        private static final long serialVersionUID = -8207359011451340186L;
+
+        private String name;
+        private int count;
+        private long amount = -1;
+        private double ratio = 0.25;
+        private boolean flag = true;
+        private char letter = 'x';
+        private String nothing;
+        private Integer boxed = 1234567;
+        private TimeUnit timeUnit = TimeUnit.SECONDS;
+        private DateTime timestamp = new DateTime();
+        private BigDecimal price = new BigDecimal("12.50");
+        private UUID identifier = UUID.randomUUID();
+        private int[] numbers = {1, -2, 300000};
+        private byte[] data = {1, 2, 3};
+        private String[] words = {"a", null, "c"};
+        private List<String> list = new ArrayList<String>(Arrays.asList("x", "y"));
+        private Set<Long> set = new HashSet<Long>(Arrays.asList(1L, 2L));
+        private Map<String, Object> map = new LinkedHashMap<String, Object>();
+        private Map<String, Integer> sortedMap = new TreeMap<String, Integer>();
+        private List<String> unmodifiableList = Collections.unmodifiableList(Arrays.asList("u"));
+        private MetaData metaData = MetaData.from(Collections.<String, Object>singletonMap("user", "me"));
+        private Class<?> type = String.class;
+        private transient String transientValue = "transient";
+
+        public TestEvent() {
+        }
+
+        public TestEvent(String name, int count) {
+            this.name = name;
+            this.count = count;
+            this.amount = 10000000000L;
+            map.put("nested", new HashMap<String, String>(Collections.singletonMap("a", "b")));
+            map.put("number", 3.5f);
+            sortedMap.put("b", 2);
+            sortedMap.put("a", 1);
+        }
+    }
+
+    private static class Node implements Serializable {
+
+        private static final long serialVersionUID = 2987345243416541209L;
+
+        private final String name;
+        private Node next;
+
+        private Node(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class HiddenEvent {
+
+        private String value;
+    }
+
+    private static class HidingEvent extends HiddenEvent {
+
+        private String value;
+
+        private HidingEvent(String value, String hiddenValue) {
+            this.value = value;
+            ((HiddenEvent) this).value = hiddenValue;
+        }
+    }
+
+    private static class OldEvent {
+
+        private final String aggregateId;
+        private final String clientId;
+
+        private OldEvent(String aggregateId, String clientId) {
+            this.aggregateId = aggregateId;
+            this.clientId = clientId;
+        }
+    }
+
+    @Revision(2)
+    private static class RevisedEvent {
+
+        private final String aggregateId;
+        private final String customerId;
+        private final String region;
+
+        private RevisedEvent(String aggregateId, String customerId) {
+            this.aggregateId = aggregateId;
+            this.customerId = customerId;
+            this.region = "default";
+        }
+    }
+
+    private static class RevisedEventUpcaster implements Upcaster<Document> {
+
+        @Override
+        public boolean canUpcast(SerializedType serializedType) {
+            return OldEvent.class.getName().equals(serializedType.getName());
+        }
+
+        @Override
+        public Class<Document> expectedRepresentationType() {
+            return Document.class;
+        }
+
+        @Override
+        public IntermediateRepresentation<?> upcast(IntermediateRepresentation<Document> intermediateRepresentation) {
+            Element root = intermediateRepresentation.getData().getRootElement();
+            root.addAttribute("class", RevisedEvent.class.getName());
+            root.element("clientId").setName("customerId");
+            root.addElement("region").addAttribute("type", "string").setText("unknown");
+            return new SimpleIntermediateRepresentation<Document>(upcast(intermediateRepresentation.getType()),
+                                                                  Document.class,
+                                                                  intermediateRepresentation.getData());
+        }
+
+        @Override
+        public SerializedType upcast(SerializedType serializedType) {
+            return new SimpleSerializedType(RevisedEvent.class.getName(), 2);
+        }
+    }
+
+    private static class RevisedEventStaxUpcaster extends AbstractStaxUpcaster {
+
+        @Override
+        public boolean canUpcast(SerializedType serializedType) {
+            return OldEvent.class.getName().equals(serializedType.getName());
+        }
+
+        @Override
+        public SerializedType upcast(SerializedType serializedType) {
+            return new SimpleSerializedType(RevisedEvent.class.getName(), 2);
+        }
+
+        @Override
+        protected void processEvent(XMLEvent event, int depth, XMLEventConsumer output) throws XMLStreamException {
+            XMLEventFactory eventFactory = getEventFactory();
+            if (depth == 1 && event.isStartElement()) {
+                List<Attribute> attributes = Arrays.asList(
+                        eventFactory.createAttribute("type", "object"),
+                        eventFactory.createAttribute("class", RevisedEvent.class.getName()));
+                output.add(eventFactory.createStartElement("", "", "root", attributes.iterator(), null));
+            } else if (depth == 1 && event.isEndElement()) {
+                output.add(eventFactory.createStartElement(
+                        "", "", "region", Collections.singletonList(eventFactory.createAttribute("type", "string"))
+                                                     .iterator(), null));
+                output.add(eventFactory.createCharacters("unknown"));
+                output.add(eventFactory.createEndElement("", "", "region"));
+                output.add(event);
+            } else if (depth == 2 && (event.isStartElement() || event.isEndElement())
+                    && "clientId".equals(elementName(event))) {
+                output.add(rename(event, "customerId"));
+            } else {
+                output.add(event);
+            }
+        }
+
+        private String elementName(XMLEvent event) {
+            return event.isStartElement()
+                    ? event.asStartElement().getName().getLocalPart()
+                    : event.asEndElement().getName().getLocalPart();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandbus.distributed;
+
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.SimpleSerializedObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A single message exchanged between a {@link TcpDestination} and a {@link TcpCommandBusConnector}. On the wire, each
+ * frame is prefixed with its length, followed by the frame type, the correlation identifier and the serialized
+ * payload. The correlation identifier links replies to the command they are sent for, allowing multiple commands to be
+ * in flight on a single connection.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class Frame {
+
+    /**
+     * Frame containing a command for which a reply is expected.
+     */
+    static final byte COMMAND = 1;
+    /**
+     * Frame containing a command for which no reply is expected.
+     */
+    static final byte COMMAND_NO_REPLY = 2;
+    /**
+     * Frame containing the result of a successfully executed command.
+     */
+    static final byte REPLY_SUCCESS = 3;
+    /**
+     * Frame containing the exception resulting from executing a command.
+     */
+    static final byte REPLY_FAILURE = 4;
+
+    /**
+     * The maximum size of a frame, excluding the length prefix.
+     */
+    static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    /**
+     * The size of the length prefix of each frame.
+     */
+    static final int LENGTH_PREFIX_SIZE = 4;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int HEADER_SIZE = 1 + 8 + 2 + 4 + 4;
+
+    private final byte type;
+    private final long correlationId;
+    private final SerializedObject payload;
+
+    /**
+     * Initializes a frame of given <code>type</code>, <code>correlationId</code> and <code>payload</code>.
+     *
+     * @param type          The type of frame
+     * @param correlationId The identifier linking the command and its reply
+     * @param payload       The serialized payload of the frame. May be <code>null</code>.
+     */
+    Frame(byte type, long correlationId, SerializedObject payload) {
+        this.type = type;
+        this.correlationId = correlationId;
+        this.payload = payload;
+    }
+
+    /**
+     * Returns the type of this frame.
+     *
+     * @return the type of this frame
+     */
+    byte getType() {
+        return type;
+    }
+
+    /**
+     * Returns the identifier linking the command and its reply.
+     *
+     * @return the identifier linking the command and its reply
+     */
+    long getCorrelationId() {
+        return correlationId;
+    }
+
+    /**
+     * Returns the serialized payload of this frame, or <code>null</code> if the frame carries no payload.
+     *
+     * @return the serialized payload of this frame
+     */
+    SerializedObject getPayload() {
+        return payload;
+    }
+
+    /**
+     * Encodes this frame, including its length prefix. The returned buffer is ready to be read from.
+     *
+     * @return a buffer containing the encoded frame
+     */
+    ByteBuffer encode() {
+        byte[] typeName = payload == null ? new byte[0] : payload.getType().getName().getBytes(UTF8);
+        byte[] data = payload == null ? new byte[0] : payload.getData();
+        int frameSize = HEADER_SIZE + typeName.length + data.length;
+        if (frameSize > MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException(String.format("The frame size of %s bytes exceeds the maximum of %s",
+                                                             frameSize, MAX_FRAME_SIZE));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH_PREFIX_SIZE + frameSize);
+        buffer.putInt(frameSize);
+        buffer.put(type);
+        buffer.putLong(correlationId);
+        buffer.putShort(payload == null ? -1 : (short) typeName.length);
+        buffer.put(typeName);
+        buffer.putInt(payload == null ? 0 : payload.getType().getRevision());
+        buffer.putInt(data.length);
+        buffer.put(data);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes a frame from the given <code>buffer</code>, which contains exactly one frame, excluding its length
+     * prefix.
+     *
+     * @param buffer The buffer containing the frame
+     * @return the decoded frame
+     */
+    static Frame decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        long correlationId = buffer.getLong();
+        short typeNameLength = buffer.getShort();
+        byte[] typeName = new byte[Math.max(0, typeNameLength)];
+        buffer.get(typeName);
+        int revision = buffer.getInt();
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        SerializedObject payload = null;
+        if (typeNameLength >= 0) {
+            payload = new SimpleSerializedObject(data, new String(typeName, UTF8), revision);
+        }
+        return new Frame(type, correlationId, payload);
+    }
+}
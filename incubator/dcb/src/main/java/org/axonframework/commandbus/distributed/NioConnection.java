@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandbus.distributed;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A non-blocking connection exchanging {@link Frame frames}. Frames may be sent by any thread. They are queued, and
+ * written by the thread running the {@link NioEventLoop} the connection is registered with. Small frames are coalesced
+ * into a single write buffer, reducing the number of system calls needed to send them.
+ * <p/>
+ * Reading is done by the event loop thread only. Incoming bytes are collected until they form a complete frame.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class NioConnection {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_READ_BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final NioEventLoop eventLoop;
+    private final Queue<OutboundFrame> writeQueue = new ConcurrentLinkedQueue<OutboundFrame>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // the buffers are only accessed by the event loop thread
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+    private OutboundFrame currentFrame;
+    private volatile boolean closed;
+
+    /**
+     * Initializes a connection for the given non-blocking <code>channel</code>, which is processed by the given
+     * <code>eventLoop</code>.
+     *
+     * @param channel   The channel to exchange frames through
+     * @param eventLoop The event loop processing the channel
+     */
+    NioConnection(SocketChannel channel, NioEventLoop eventLoop) {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Queues the given <code>frame</code> for sending. The given <code>onWritten</code> callback, if any, is invoked
+     * by the event loop thread once the frame has been handed to the socket, or when the connection is closed before
+     * that.
+     *
+     * @param frame     The frame to send
+     * @param onWritten The callback to invoke once the frame has been written. May be <code>null</code>.
+     */
+    void send(Frame frame, Runnable onWritten) {
+        writeQueue.add(new OutboundFrame(frame.encode(), onWritten));
+        if (closed) {
+            discardQueuedFrames();
+        } else if (flushRequested.compareAndSet(false, true)) {
+            eventLoop.requestFlush(this);
+        }
+    }
+
+    /**
+     * Indicates whether this connection has been closed.
+     *
+     * @return <code>true</code> if the connection is closed, otherwise <code>false</code>
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the channel of this connection.
+     *
+     * @return the channel of this connection
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Writes as many of the queued frames to the channel as possible. Must be invoked by the event loop thread.
+     *
+     * @return <code>true</code> if all queued frames were written, <code>false</code> if the socket cannot accept
+     *         more data at the moment
+     *
+     * @throws IOException when an error occurs writing to the channel
+     */
+    boolean flush() throws IOException {
+        flushRequested.set(false);
+        while (true) {
+            fillWriteBuffer();
+            writeBuffer.flip();
+            if (!writeBuffer.hasRemaining()) {
+                writeBuffer.clear();
+                return true;
+            }
+            channel.write(writeBuffer);
+            boolean completelyWritten = !writeBuffer.hasRemaining();
+            writeBuffer.compact();
+            if (!completelyWritten) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Reads the available bytes from the channel, and hands each complete frame to the given <code>listener</code>.
+     * Must be invoked by the event loop thread.
+     *
+     * @param listener The listener to hand the frames to
+     * @throws IOException when an error occurs reading from the channel, or when the other side closed the connection
+     */
+    void read(NioEventLoop.ConnectionListener listener) throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new EOFException("The connection was closed by the remote side");
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= Frame.LENGTH_PREFIX_SIZE) {
+            int frameSize = readBuffer.getInt(readBuffer.position());
+            if (frameSize <= 0 || frameSize > Frame.MAX_FRAME_SIZE) {
+                throw new IOException(String.format("Received a frame with an invalid size of %s bytes", frameSize));
+            }
+            if (readBuffer.remaining() < Frame.LENGTH_PREFIX_SIZE + frameSize) {
+                break;
+            }
+            readBuffer.position(readBuffer.position() + Frame.LENGTH_PREFIX_SIZE);
+            ByteBuffer frameBuffer = readBuffer.slice();
+            frameBuffer.limit(frameSize);
+            readBuffer.position(readBuffer.position() + frameSize);
+            listener.onFrame(this, Frame.decode(frameBuffer));
+        }
+        ensureReadCapacity();
+        readBuffer.compact();
+    }
+
+    /**
+     * Closes the connection. Frames that have not been written yet are discarded. Must be invoked by the event loop
+     * thread, or before the connection has been registered with it.
+     */
+    void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // we did our best
+        }
+        if (currentFrame != null) {
+            currentFrame.written();
+            currentFrame = null;
+        }
+        discardQueuedFrames();
+    }
+
+    private void fillWriteBuffer() {
+        while (writeBuffer.hasRemaining()) {
+            if (currentFrame == null) {
+                currentFrame = writeQueue.poll();
+                if (currentFrame == null) {
+                    return;
+                }
+            }
+            ByteBuffer data = currentFrame.data;
+            if (data.remaining() <= writeBuffer.remaining()) {
+                writeBuffer.put(data);
+                currentFrame.written();
+                currentFrame = null;
+            } else {
+                ByteBuffer part = data.duplicate();
+                part.limit(part.position() + writeBuffer.remaining());
+                writeBuffer.put(part);
+                data.position(part.position());
+            }
+        }
+    }
+
+    private void ensureReadCapacity() {
+        if (readBuffer.remaining() < Frame.LENGTH_PREFIX_SIZE) {
+            return;
+        }
+        int required = Frame.LENGTH_PREFIX_SIZE + readBuffer.getInt(readBuffer.position());
+        if (required > readBuffer.capacity()) {
+            ByteBuffer newBuffer = ByteBuffer.allocate(required);
+            newBuffer.put(readBuffer);
+            newBuffer.flip();
+            readBuffer = newBuffer;
+        }
+    }
+
+    private void discardQueuedFrames() {
+        OutboundFrame frame;
+        while ((frame = writeQueue.poll()) != null) {
+            frame.written();
+        }
+    }
+
+    private static final class OutboundFrame {
+
+        private final ByteBuffer data;
+        private final Runnable onWritten;
+
+        private OutboundFrame(ByteBuffer data, Runnable onWritten) {
+            this.data = data;
+            this.onWritten = onWritten;
+        }
+
+        private void written() {
+            if (onWritten != null) {
+                onWritten.run();
+            }
+        }
+    }
+}
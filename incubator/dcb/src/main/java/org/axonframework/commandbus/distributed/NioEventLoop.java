@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandbus.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Single-threaded loop that performs all I/O of a number of {@link NioConnection connections} using a {@link
+ * Selector}. Optionally, the loop accepts incoming connections on a server socket channel.
+ * <p/>
+ * Received frames and closed connections are reported to a {@link ConnectionListener}, which is also invoked
+ * periodically, allowing it to time out pending operations.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class NioEventLoop implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NioEventLoop.class);
+
+    private final Selector selector;
+    private final ConnectionListener listener;
+    private final long tickIntervalMillis;
+    private final Queue<NioConnection> newConnections = new ConcurrentLinkedQueue<NioConnection>();
+    private final Queue<NioConnection> flushRequests = new ConcurrentLinkedQueue<NioConnection>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean running = true;
+
+    /**
+     * Initializes an event loop that reports to the given <code>listener</code>, and invokes its {@link
+     * ConnectionListener#onTick()} method about every <code>tickIntervalMillis</code> milliseconds.
+     *
+     * @param listener           The listener to report frames and closed connections to
+     * @param tickIntervalMillis The interval between invocations of the listener's tick method
+     * @throws IOException when the selector cannot be opened
+     */
+    NioEventLoop(ConnectionListener listener, long tickIntervalMillis) throws IOException {
+        this.selector = Selector.open();
+        this.listener = listener;
+        this.tickIntervalMillis = tickIntervalMillis;
+    }
+
+    /**
+     * Registers the given <code>serverChannel</code> to accept connections on. Must be invoked before the loop is
+     * started.
+     *
+     * @param serverChannel The channel to accept connections on
+     * @throws IOException when the channel cannot be registered
+     */
+    void acceptConnections(ServerSocketChannel serverChannel) throws IOException {
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Creates a connection for the given connected <code>channel</code>, and registers it with this event loop.
+     *
+     * @param channel The channel to create a connection for
+     * @return the connection exchanging frames through the given channel
+     *
+     * @throws IOException when the channel cannot be configured
+     */
+    NioConnection register(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        // writes are coalesced by the connection itself
+        channel.socket().setTcpNoDelay(true);
+        NioConnection connection = new NioConnection(channel, this);
+        newConnections.add(connection);
+        selector.wakeup();
+        return connection;
+    }
+
+    /**
+     * Requests the given <code>connection</code> to be flushed by the event loop thread.
+     *
+     * @param connection The connection to flush
+     */
+    void requestFlush(NioConnection connection) {
+        flushRequests.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the event loop, closing all its connections, and waits until it has stopped.
+     *
+     * @throws InterruptedException when the thread is interrupted while waiting for the loop to stop
+     */
+    void shutdown() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        stopped.await();
+    }
+
+    @Override
+    public void run() {
+        try {
+            long nextTick = System.currentTimeMillis() + tickIntervalMillis;
+            while (running) {
+                selector.select(Math.max(1, nextTick - System.currentTimeMillis()));
+                registerNewConnections();
+                processSelectedKeys();
+                processFlushRequests();
+                if (System.currentTimeMillis() >= nextTick) {
+                    listener.onTick();
+                    nextTick = System.currentTimeMillis() + tickIntervalMillis;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("The selector failed. All connections are closed.", e);
+        } finally {
+            closeAll();
+            stopped.countDown();
+        }
+    }
+
+    private void registerNewConnections() {
+        NioConnection connection;
+        while ((connection = newConnections.poll()) != null) {
+            try {
+                connection.getChannel().register(selector, SelectionKey.OP_READ, connection);
+                flush(connection, connection.getChannel().keyFor(selector));
+            } catch (IOException e) {
+                close(connection, e);
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                accept((ServerSocketChannel) key.channel());
+                continue;
+            }
+            NioConnection connection = (NioConnection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.read(listener);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(connection, key);
+                }
+            } catch (IOException e) {
+                close(connection, e);
+            } catch (RuntimeException e) {
+                close(connection, new IOException("Failed to process a frame", e));
+            }
+        }
+    }
+
+    private void processFlushRequests() {
+        NioConnection connection;
+        while ((connection = flushRequests.poll()) != null) {
+            SelectionKey key = connection.getChannel().keyFor(selector);
+            if (key == null || !key.isValid()) {
+                // not registered yet, or closed. Registration flushes the connection anyway.
+                continue;
+            }
+            try {
+                flush(connection, key);
+            } catch (IOException e) {
+                close(connection, e);
+            }
+        }
+    }
+
+    private void flush(NioConnection connection, SelectionKey key) throws IOException {
+        if (connection.flush()) {
+            key.interestOps(SelectionKey.OP_READ);
+        } else {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void accept(ServerSocketChannel serverChannel) {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel != null) {
+                register(channel);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to accept a connection.", e);
+        }
+    }
+
+    private void close(NioConnection connection, IOException cause) {
+        connection.close();
+        listener.onClosed(connection, cause);
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection) {
+                close((NioConnection) key.attachment(), new IOException("The connection was shut down"));
+            } else {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    // we did our best
+                }
+            }
+        }
+        NioConnection connection;
+        while ((connection = newConnections.poll()) != null) {
+            close(connection, new IOException("The connection was shut down"));
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close the selector.", e);
+        }
+    }
+
+    /**
+     * Listener for events occurring on the connections of an event loop. All methods are invoked by the event loop
+     * thread.
+     */
+    interface ConnectionListener {
+
+        /**
+         * Invoked when a frame has been received on the given <code>connection</code>.
+         *
+         * @param connection The connection the frame was received on
+         * @param frame      The received frame
+         */
+        void onFrame(NioConnection connection, Frame frame);
+
+        /**
+         * Invoked when the given <code>connection</code> has been closed.
+         *
+         * @param connection The connection that has been closed
+         * @param cause      The reason the connection was closed
+         */
+        void onClosed(NioConnection connection, IOException cause);
+
+        /**
+         * Invoked periodically by the event loop thread.
+         */
+        void onTick();
+    }
+}
@@ -19,11 +19,31 @@ package org.axonframework.commandbus.distributed;
 import org.axonframework.common.AxonTransientException;
 
 /**
+ * Exception indicating that a command could not be handled by a remote command bus, for example because the connection
+ * to it failed, or because no reply was received in time.
+ *
  * @author Allard Buijze
  */
 public class RemoteCommandHandlingException extends AxonTransientException {
 
+    private static final long serialVersionUID = 7310513417002285205L;
+
+    /**
+     * Initializes the exception using the given <code>message</code>.
+     *
+     * @param message The message describing the exception
+     */
     public RemoteCommandHandlingException(String message) {
         super(message);
     }
+
+    /**
+     * Initializes the exception using the given <code>message</code> and <code>cause</code>.
+     *
+     * @param message The message describing the exception
+     * @param cause   The underlying cause of the exception
+     */
+    public RemoteCommandHandlingException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
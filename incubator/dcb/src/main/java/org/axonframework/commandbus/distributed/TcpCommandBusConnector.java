@@ -16,63 +16,287 @@
 
 package org.axonframework.commandbus.distributed;
 
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.common.Assert;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.util.concurrent.Executor;
-import javax.net.ServerSocketFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import static java.lang.String.format;
 
 /**
+ * Accepts commands sent by {@link TcpDestination TcpDestinations}, and dispatches them on a local {@link CommandBus}.
+ * The result of each command is sent back to the destination it was received from.
+ * <p/>
+ * All I/O is non-blocking and performed by a single thread. Received commands are deserialized and dispatched by a
+ * separate {@link #setDispatchExecutor(java.util.concurrent.Executor) dispatch executor}, so that command handling
+ * never blocks I/O. The default dispatch executor uses a single thread, which dispatches the commands in the order in
+ * which they were received.
+ *
  * @author Allard Buijze
+ * @since 2.0
  */
 public class TcpCommandBusConnector {
 
-    private ServerSocket serverSocket;
-    private ServerSocketFactory serverSocketFactory;
+    private static final Logger logger = LoggerFactory.getLogger(TcpCommandBusConnector.class);
+    private static final long TICK_INTERVAL_MILLIS = 1000;
+
+    private CommandBus commandBus;
+    private Serializer serializer;
+    private InetSocketAddress localAddress = new InetSocketAddress(0);
     private Executor executor;
+    private Executor dispatchExecutor;
+    private ServerSocketChannel serverChannel;
+    private NioEventLoop eventLoop;
+    private volatile Executor currentDispatchExecutor;
+    private ExecutorService defaultDispatchExecutor;
+
+    /**
+     * Binds the connector to the configured {@link #setLocalAddress(InetSocketAddress) local address}, and starts
+     * accepting connections.
+     *
+     * @throws IOException when the connector cannot be bound to the local address
+     */
+    public void connect() throws IOException {
+        Assert.state(commandBus != null, "A CommandBus must be configured");
+        Assert.state(serializer != null, "A Serializer must be configured");
+        Assert.state(eventLoop == null, "The connector is already connected");
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.socket().bind(localAddress);
+            eventLoop = new NioEventLoop(new CommandListener(), TICK_INTERVAL_MILLIS);
+            eventLoop.acceptConnections(serverChannel);
+        } catch (IOException e) {
+            serverChannel.close();
+            eventLoop = null;
+            throw e;
+        }
+        if (dispatchExecutor == null) {
+            defaultDispatchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread dispatchThread = new Thread(r, "TcpCommandBusConnector-dispatch-" + getLocalAddress());
+                    dispatchThread.setDaemon(true);
+                    return dispatchThread;
+                }
+            });
+            currentDispatchExecutor = defaultDispatchExecutor;
+        } else {
+            currentDispatchExecutor = dispatchExecutor;
+        }
+        if (executor == null) {
+            Thread ioThread = new Thread(eventLoop, "TcpCommandBusConnector-" + getLocalAddress());
+            ioThread.setDaemon(true);
+            ioThread.start();
+        } else {
+            executor.execute(eventLoop);
+        }
+    }
 
-    public TcpCommandBusConnector() {
+    /**
+     * Closes all connections and stops accepting new ones. Commands that are still being processed are not replied
+     * to.
+     *
+     * @throws InterruptedException when the thread is interrupted while waiting for the I/O thread to stop
+     */
+    public void disconnect() throws InterruptedException {
+        if (eventLoop != null) {
+            eventLoop.shutdown();
+            eventLoop = null;
+        }
+        if (defaultDispatchExecutor != null) {
+            defaultDispatchExecutor.shutdown();
+            defaultDispatchExecutor = null;
+        }
     }
 
-    public void connect() {
-        executor.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    if (serverSocket == null) {
-                        serverSocket = serverSocketFactory.createServerSocket();
-                    }
-                    final Socket connection = serverSocket.accept();
-                    executor.execute(new ConnectionHandler(connection));
-                } catch (IOException e) {
-                    //
-                }
-            }
-        });
+    /**
+     * Returns the address the connector is bound to, or <code>null</code> if it is not connected. When the connector
+     * is configured to bind to port 0, the returned address contains the port that was actually assigned.
+     *
+     * @return the address the connector is bound to
+     */
+    public InetSocketAddress getLocalAddress() {
+        if (serverChannel == null || !serverChannel.isOpen()) {
+            return null;
+        }
+        return (InetSocketAddress) serverChannel.socket().getLocalSocketAddress();
+    }
+
+    /**
+     * Sets the command bus to dispatch received commands on.
+     *
+     * @param commandBus the command bus to dispatch received commands on
+     */
+    public void setCommandBus(CommandBus commandBus) {
+        this.commandBus = commandBus;
+    }
+
+    /**
+     * Sets the serializer to deserialize commands and serialize their results with. Must be compatible with the
+     * serializer used by the destinations sending the commands.
+     *
+     * @param serializer the serializer to deserialize commands and serialize their results with
+     */
+    public void setSerializer(Serializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Sets the address to accept connections on. Defaults to an ephemeral port on all local interfaces.
+     *
+     * @param localAddress the address to accept connections on
+     */
+    public void setLocalAddress(InetSocketAddress localAddress) {
+        this.localAddress = localAddress;
     }
 
+    /**
+     * Sets the executor that provides the thread performing the I/O of this connector. The thread is occupied until
+     * the connector is {@link #disconnect() disconnected}. Defaults to a newly created daemon thread.
+     *
+     * @param executor the executor that provides the thread performing the I/O of this connector
+     */
     public void setExecutor(Executor executor) {
         this.executor = executor;
     }
 
-    public void setServerSocket(ServerSocketFactory serverSocketFactory) {
-        this.serverSocketFactory = serverSocketFactory;
+    /**
+     * Sets the executor that deserializes received commands and dispatches them on the command bus. Commands are
+     * dispatched in the order in which they were received only if the executor processes its tasks in that order,
+     * for example when it uses a single thread. Defaults to a newly created executor using a single daemon thread,
+     * which is shut down when the connector is {@link #disconnect() disconnected}.
+     * <p/>
+     * Commands rejected by the executor are replied to with the rejection as failure.
+     *
+     * @param dispatchExecutor the executor that dispatches received commands on the command bus
+     */
+    public void setDispatchExecutor(Executor dispatchExecutor) {
+        this.dispatchExecutor = dispatchExecutor;
     }
 
-    private static class ConnectionHandler implements Runnable {
-        private final Socket connection;
+    private final class CommandListener implements NioEventLoop.ConnectionListener {
+
+        @Override
+        public void onFrame(NioConnection connection, Frame frame) {
+            try {
+                currentDispatchExecutor.execute(new DispatchTask(connection, frame));
+            } catch (RejectedExecutionException e) {
+                logger.warn("The dispatch executor rejected a received command.", e);
+                if (frame.getType() == Frame.COMMAND) {
+                    new ReplyCallback(connection, frame.getCorrelationId()).onFailure(e);
+                }
+            }
+        }
+
+        @Override
+        public void onClosed(NioConnection connection, IOException cause) {
+            logger.debug("A connection was closed.", cause);
+        }
 
-        public ConnectionHandler(Socket connection) {
+        @Override
+        public void onTick() {
+        }
+    }
+
+    private final class DispatchTask implements Runnable {
+
+        private final NioConnection connection;
+        private final Frame frame;
+
+        private DispatchTask(NioConnection connection, Frame frame) {
             this.connection = connection;
+            this.frame = frame;
         }
 
         @Override
         public void run() {
+            ReplyCallback callback = null;
+            if (frame.getType() == Frame.COMMAND) {
+                callback = new ReplyCallback(connection, frame.getCorrelationId());
+            }
+            CommandMessage<?> command;
+            try {
+                command = asCommandMessage(serializer.deserialize(frame.getPayload()));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to deserialize a received command.", e);
+                if (callback != null) {
+                    callback.onFailure(e);
+                }
+                return;
+            }
             try {
-                connection.getInputStream().read();
-            } catch (IOException e) {
-                // TODO: Implement
+                if (callback != null) {
+                    commandBus.dispatch(command, callback);
+                } else {
+                    commandBus.dispatch(command);
+                }
+            } catch (RuntimeException e) {
+                logger.warn(format("Failed to dispatch a received [%s].", command.getPayloadType().getSimpleName()),
+                            e);
+                if (callback != null) {
+                    callback.onFailure(e);
+                }
+            }
+        }
+
+        private CommandMessage<?> asCommandMessage(Object command) {
+            if (command instanceof CommandMessage) {
+                return (CommandMessage<?>) command;
             }
+            return new GenericCommandMessage<Object>(command);
+        }
+    }
+
+    private final class ReplyCallback implements CommandCallback<Object> {
+
+        private final NioConnection connection;
+        private final long correlationId;
+
+        private ReplyCallback(NioConnection connection, long correlationId) {
+            this.connection = connection;
+            this.correlationId = correlationId;
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+            try {
+                reply(Frame.REPLY_SUCCESS, result == null ? null : serializer.serialize(result));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to serialize the result of a command.", e);
+                onFailure(e);
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            SerializedObject serializedCause;
+            try {
+                serializedCause = serializer.serialize(cause);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to serialize the exception resulting from a command.", e);
+                serializedCause = serializer.serialize(new RemoteCommandHandlingException(
+                        format("The command failed with a [%s]: %s", cause.getClass().getName(),
+                               cause.getMessage())));
+            }
+            reply(Frame.REPLY_FAILURE, serializedCause);
+        }
+
+        private void reply(byte type, SerializedObject payload) {
+            connection.send(new Frame(type, correlationId, payload), null);
         }
     }
 }
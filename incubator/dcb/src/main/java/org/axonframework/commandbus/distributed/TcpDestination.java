@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandbus.distributed;
+
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.common.Assert;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Destination that sends commands to a {@link TcpCommandBusConnector} over a single, persistent TCP connection. All
+ * I/O is non-blocking and performed by a dedicated thread. Commands sent by different threads are multiplexed on the
+ * connection, and their replies are matched using a correlation identifier. Small commands sent in quick succession
+ * are coalesced into a single write.
+ * <p/>
+ * The number of commands in flight is limited. When the limit is reached, sending a command blocks until a reply has
+ * been received for one of the commands in flight. Commands for which no reply is received within the configured
+ * {@link #setTimeout(long) timeout} are reported to their callback as failed with a {@link
+ * RemoteCommandHandlingException}. The same happens to all pending commands when the connection is lost. The connection
+ * is re-established when the next command is sent.
+ * <p/>
+ * Callbacks are invoked by a dedicated thread, in the order in which the commands completed, and never by the I/O
+ * thread. A callback may therefore send another command, even when that blocks until a command in flight completes.
+ * Note that a blocking callback delays the callbacks of other commands.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class TcpDestination implements Destination {
+
+    private static final Logger logger = LoggerFactory.getLogger(TcpDestination.class);
+    private static final int DEFAULT_MAX_IN_FLIGHT_COMMANDS = 1024;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final long TICK_INTERVAL_MILLIS = 100;
+
+    private final InetSocketAddress address;
+    private final Serializer serializer;
+    private final NioEventLoop eventLoop;
+    private final ExecutorService callbackExecutor;
+    private final ConcurrentMap<Long, PendingCommand> pendingCommands = new ConcurrentHashMap<Long, PendingCommand>();
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final Semaphore inFlightPermits;
+    private final Object connectionLock = new Object();
+    private volatile NioConnection connection;
+    private volatile long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+    /**
+     * Initializes a destination sending commands to the connector listening on the given <code>address</code>, allowing
+     * at most 1024 commands to be in flight. The commands are serialized using the given <code>serializer</code>.
+     * <p/>
+     * The I/O thread is started immediately. The connection is opened when the first command is sent.
+     *
+     * @param address    The address of the connector to send commands to
+     * @param serializer The serializer to serialize commands and deserialize results with
+     * @throws IOException when the I/O thread cannot be initialized
+     */
+    public TcpDestination(InetSocketAddress address, Serializer serializer) throws IOException {
+        this(address, serializer, DEFAULT_MAX_IN_FLIGHT_COMMANDS);
+    }
+
+    /**
+     * Initializes a destination sending commands to the connector listening on the given <code>address</code>, allowing
+     * at most <code>maxInFlightCommands</code> commands to be in flight. The commands are serialized using the given
+     * <code>serializer</code>.
+     * <p/>
+     * The I/O thread is started immediately. The connection is opened when the first command is sent.
+     *
+     * @param address             The address of the connector to send commands to
+     * @param serializer          The serializer to serialize commands and deserialize results with
+     * @param maxInFlightCommands The maximum number of commands sent, but not completed yet
+     * @throws IOException when the I/O thread cannot be initialized
+     */
+    public TcpDestination(InetSocketAddress address, Serializer serializer, int maxInFlightCommands)
+            throws IOException {
+        Assert.notNull(address, "The address may not be null");
+        Assert.notNull(serializer, "The serializer may not be null");
+        Assert.isTrue(maxInFlightCommands > 0, "The maximum number of commands in flight must be positive");
+        this.address = address;
+        this.serializer = serializer;
+        this.inFlightPermits = new Semaphore(maxInFlightCommands);
+        this.eventLoop = new NioEventLoop(new ReplyListener(), TICK_INTERVAL_MILLIS);
+        this.callbackExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread callbackThread = new Thread(r, "TcpDestination-callbacks-" + TcpDestination.this.address);
+                callbackThread.setDaemon(true);
+                return callbackThread;
+            }
+        });
+        Thread ioThread = new Thread(eventLoop, "TcpDestination-" + address);
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Failures to deliver the command are logged.
+     */
+    @Override
+    public void send(Object command) {
+        if (!acquirePermit()) {
+            logger.warn("Interrupted while waiting to send a [{}]. The command was not sent.",
+                        command.getClass().getSimpleName());
+            return;
+        }
+        try {
+            Frame frame = new Frame(Frame.COMMAND_NO_REPLY, 0, serializer.serialize(command));
+            getConnection().send(frame, new Runnable() {
+                @Override
+                public void run() {
+                    inFlightPermits.release();
+                }
+            });
+        } catch (IOException e) {
+            inFlightPermits.release();
+            logger.warn(format("Failed to send a [%s] to [%s].", command.getClass().getSimpleName(), address), e);
+        } catch (RuntimeException e) {
+            inFlightPermits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public <R> void send(Object command, CommandCallback<R> callback) {
+        if (!acquirePermit()) {
+            callback.onFailure(new RemoteCommandHandlingException(
+                    "Interrupted while waiting to send the command. The command was not sent."));
+            return;
+        }
+        NioConnection current;
+        SerializedObject serializedCommand;
+        try {
+            serializedCommand = serializer.serialize(command);
+            current = getConnection();
+        } catch (IOException e) {
+            inFlightPermits.release();
+            callback.onFailure(new RemoteCommandHandlingException(format("Failed to connect to [%s]", address), e));
+            return;
+        } catch (RuntimeException e) {
+            inFlightPermits.release();
+            callback.onFailure(e);
+            return;
+        }
+        long correlationId = correlationIds.incrementAndGet();
+        pendingCommands.put(correlationId, new PendingCommand(callback, current,
+                                                              System.currentTimeMillis() + timeoutMillis));
+        current.send(new Frame(Frame.COMMAND, correlationId, serializedCommand), null);
+        if (current.isClosed()) {
+            // the connection may have been closed before the command was registered as pending
+            completeExceptionally(correlationId, new RemoteCommandHandlingException(
+                    format("The connection to [%s] was closed before the command was sent", address)));
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        NioConnection current = connection;
+        return current != null && !current.isClosed();
+    }
+
+    /**
+     * Sets the time, in milliseconds, to wait for the reply to a command. When no reply is received in time, the
+     * command is reported as failed to its callback. Defaults to 30 seconds.
+     *
+     * @param timeoutMillis the time to wait for the reply to a command, in milliseconds
+     */
+    public void setTimeout(long timeoutMillis) {
+        Assert.isTrue(timeoutMillis > 0, "The timeout must be a positive number");
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Closes the connection and stops the I/O thread. Pending commands are reported as failed to their callbacks,
+     * after which the callback thread is stopped.
+     *
+     * @throws InterruptedException when the thread is interrupted while waiting for the I/O thread to stop
+     */
+    public void shutdown() throws InterruptedException {
+        eventLoop.shutdown();
+        callbackExecutor.shutdown();
+    }
+
+    private boolean acquirePermit() {
+        try {
+            inFlightPermits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private NioConnection getConnection() throws IOException {
+        NioConnection current = connection;
+        if (current != null && !current.isClosed()) {
+            return current;
+        }
+        synchronized (connectionLock) {
+            if (connection == null || connection.isClosed()) {
+                SocketChannel channel = SocketChannel.open();
+                try {
+                    channel.socket().connect(address, CONNECT_TIMEOUT_MILLIS);
+                    connection = eventLoop.register(channel);
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+            return connection;
+        }
+    }
+
+    private void completeExceptionally(long correlationId, Throwable cause) {
+        PendingCommand pendingCommand = pendingCommands.remove(correlationId);
+        if (pendingCommand != null) {
+            inFlightPermits.release();
+            pendingCommand.fail(cause);
+        }
+    }
+
+    private final class ReplyListener implements NioEventLoop.ConnectionListener {
+
+        @Override
+        public void onFrame(NioConnection connection, Frame frame) {
+            PendingCommand pendingCommand = pendingCommands.remove(frame.getCorrelationId());
+            if (pendingCommand == null) {
+                logger.debug("Received a reply for command [{}], which has already timed out.",
+                             frame.getCorrelationId());
+                return;
+            }
+            inFlightPermits.release();
+            Object result;
+            try {
+                result = frame.getPayload() == null ? null : serializer.deserialize(frame.getPayload());
+            } catch (RuntimeException e) {
+                pendingCommand.fail(new RemoteCommandHandlingException("Failed to deserialize the reply", e));
+                return;
+            }
+            if (frame.getType() == Frame.REPLY_FAILURE && result instanceof Throwable) {
+                pendingCommand.fail((Throwable) result);
+            } else if (frame.getType() == Frame.REPLY_FAILURE) {
+                pendingCommand.fail(new RemoteCommandHandlingException(format(
+                        "The command failed, but the reply contained a [%s] instead of an exception",
+                        result == null ? "null" : result.getClass().getName())));
+            } else {
+                pendingCommand.succeed(result);
+            }
+        }
+
+        @Override
+        public void onClosed(NioConnection connection, IOException cause) {
+            logger.warn(format("The connection to [%s] was closed.", address), cause);
+            for (Map.Entry<Long, PendingCommand> entry : pendingCommands.entrySet()) {
+                if (entry.getValue().connection == connection) {
+                    completeExceptionally(entry.getKey(), new RemoteCommandHandlingException(
+                            format("The connection to [%s] was closed before a reply was received", address), cause));
+                }
+            }
+        }
+
+        @Override
+        public void onTick() {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<Long, PendingCommand> entry : pendingCommands.entrySet()) {
+                if (entry.getValue().deadline <= now) {
+                    completeExceptionally(entry.getKey(), new RemoteCommandHandlingException(
+                            format("No reply was received from [%s] in time", address)));
+                }
+            }
+        }
+    }
+
+    private final class PendingCommand {
+
+        private final CommandCallback<Object> callback;
+        private final NioConnection connection;
+        private final long deadline;
+
+        @SuppressWarnings({"unchecked"})
+        private PendingCommand(CommandCallback<?> callback, NioConnection connection, long deadline) {
+            this.callback = (CommandCallback<Object>) callback;
+            this.connection = connection;
+            this.deadline = deadline;
+        }
+
+        private void succeed(final Object result) {
+            invokeCallback(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onSuccess(result);
+                }
+            });
+        }
+
+        private void fail(final Throwable cause) {
+            invokeCallback(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onFailure(cause);
+                }
+            });
+        }
+
+        private void invokeCallback(final Runnable invocation) {
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        invocation.run();
+                    } catch (RuntimeException e) {
+                        logger.error("The callback of a command threw an exception.", e);
+                    }
+                }
+            };
+            try {
+                callbackExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // the destination has been shut down
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandbus.distributed.jgroups;
+
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.Serializer;
+import org.axonframework.serializer.SimpleSerializedObject;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Message containing a command that is sent to the member owning the segment of the command's target aggregate. The
+ * payload and meta data of the command are serialized using the serializer of the command bus, so that commands need
+ * not be {@link Serializable} themselves.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class DispatchMessage implements Serializable {
+
+    private static final long serialVersionUID = -8792911964758889674L;
+
+    private final String commandIdentifier;
+    private final String payloadType;
+    private final int payloadRevision;
+    private final byte[] serializedPayload;
+    private final String metaDataType;
+    private final int metaDataRevision;
+    private final byte[] serializedMetaData;
+
+    DispatchMessage(CommandMessage<?> commandMessage, Serializer serializer) {
+        this.commandIdentifier = commandMessage.getIdentifier();
+        SerializedObject payload = serializer.serialize(commandMessage.getPayload());
+        this.payloadType = payload.getType().getName();
+        this.payloadRevision = payload.getType().getRevision();
+        this.serializedPayload = payload.getData();
+        SerializedObject metaData = serializer.serialize(commandMessage.getMetaData());
+        this.metaDataType = metaData.getType().getName();
+        this.metaDataRevision = metaData.getType().getRevision();
+        this.serializedMetaData = metaData.getData();
+    }
+
+    public String getCommandIdentifier() {
+        return commandIdentifier;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public CommandMessage<?> getCommandMessage(Serializer serializer) {
+        Object payload = serializer.deserialize(new SimpleSerializedObject(serializedPayload, payloadType,
+                                                                          payloadRevision));
+        Map<String, Object> metaData = (Map<String, Object>) serializer.deserialize(
+                new SimpleSerializedObject(serializedMetaData, metaDataType, metaDataRevision));
+        return new GenericCommandMessage<Object>(payload, metaData);
+    }
+}
@@ -18,6 +18,15 @@ package org.axonframework.commandbus.distributed.jgroups;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
+import org.axonframework.commandbus.distributed.RemoteCommandHandlingException;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.CommandTargetResolver;
+import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
+import org.axonframework.common.Assert;
+import org.axonframework.serializer.Serializer;
 import org.jgroups.Address;
 import org.jgroups.Channel;
 import org.jgroups.ChannelClosedException;
@@ -27,155 +36,645 @@ import org.jgroups.JChannel;
 import org.jgroups.Message;
 import org.jgroups.View;
 import org.jgroups.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.Vector;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import static java.lang.String.format;
 
 /**
+ * CommandBus implementation that distributes commands over the members of a JGroups cluster. Each member that has
+ * {@link #joinGroup(int) joined} owns a number of segments of a consistent hash ring, proportional to the load factor
+ * it joined with. Commands are routed to the owner of the segment their target aggregate identifier hashes to, so that
+ * all commands for an aggregate are handled by the same member. Commands that don't target a specific aggregate are
+ * routed using their message identifier. When the local member owns the segment, the command is dispatched on the
+ * local segment directly.
+ * <p/>
+ * When the hash ring changes, because members join, leave or change their load factor, commands for an aggregate are
+ * not sent to its new owner until all commands sent to its previous owner have been completed. This guarantees that
+ * commands for the same aggregate, dispatched by the same thread, are handled in the order they were dispatched. When a
+ * member leaves the cluster, the commands it has not replied to are reported as failed with a {@link
+ * RemoteCommandHandlingException}.
+ * <p/>
+ * Commands received from other members are deserialized and dispatched on the local segment by a {@link
+ * #setDispatchExecutor(java.util.concurrent.Executor) dispatch executor}, so that command handling never blocks the
+ * thread delivering the messages of the channel. The default dispatch executor uses a single thread, which dispatches
+ * the commands in the order in which they were received.
+ *
  * @author Allard Buijze
+ * @since 2.0
  */
-public class JGroupsCommandBus {
+public class JGroupsCommandBus implements CommandBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(JGroupsCommandBus.class);
+    private static final long STATE_TRANSFER_TIMEOUT_MILLIS = 10000;
 
     private final JChannel channel;
-    private volatile Ring hashRing;
-    private AtomicLong counter = new AtomicLong(0);
+    private final CommandBus localSegment;
+    private final Serializer serializer;
     private final String segmentId;
     private final JoinCondition joinedCondition = new JoinCondition();
-
-    public JGroupsCommandBus(final JChannel channel) {
+    private final Object routingLock = new Object();
+    // guarded by routingLock
+    private final Map<String, RoutingQueue> routingQueues = new HashMap<String, RoutingQueue>();
+    private final ConcurrentMap<String, PendingReply> pendingReplies = new ConcurrentHashMap<String, PendingReply>();
+    private volatile Ring hashRing = Ring.emptyRing();
+    private CommandTargetResolver commandTargetResolver = new AnnotationCommandTargetResolver();
+    private Executor dispatchExecutor;
+    private volatile Executor currentDispatchExecutor;
+    private ExecutorService defaultDispatchExecutor;
+
+    /**
+     * Initializes a command bus that distributes commands over the members of the cluster the given
+     * <code>channel</code> is connected to. Commands routed to this member are dispatched on the given
+     * <code>localSegment</code>. Commands and their results are serialized using the given <code>serializer</code>.
+     *
+     * @param channel      The connected channel to exchange commands through
+     * @param localSegment The command bus to dispatch the commands routed to this member on
+     * @param serializer   The serializer to serialize commands and their results with
+     */
+    public JGroupsCommandBus(JChannel channel, CommandBus localSegment, Serializer serializer) {
+        Assert.notNull(channel, "The channel may not be null");
+        Assert.notNull(localSegment, "The local segment may not be null");
+        Assert.notNull(serializer, "The serializer may not be null");
         this.channel = channel;
+        this.localSegment = localSegment;
+        this.serializer = serializer;
         this.segmentId = UUID.randomUUID().toString();
     }
 
-    public void subscribe() throws ChannelNotConnectedException, ChannelClosedException {
-        channel.setReceiver(new ExtendedReceiverAdapter() {
-            @Override
-            public byte[] getState() {
-                try {
-                    return Util.objectToByteBuffer(hashRing);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
+    /**
+     * Starts receiving messages from the channel, and retrieves the current hash ring from the other members of the
+     * cluster. Commands are not routed to this member until it has {@link #joinGroup(int) joined}.
+     *
+     * @throws ChannelNotConnectedException when the channel is not connected
+     * @throws ChannelClosedException       when the channel has been closed
+     */
+    public void connect() throws ChannelNotConnectedException, ChannelClosedException {
+        if (dispatchExecutor == null) {
+            defaultDispatchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread dispatchThread = new Thread(r, "JGroupsCommandBus-dispatch-" + channel.getName());
+                    dispatchThread.setDaemon(true);
+                    return dispatchThread;
                 }
+            });
+            currentDispatchExecutor = defaultDispatchExecutor;
+        } else {
+            currentDispatchExecutor = dispatchExecutor;
+        }
+        channel.setReceiver(new MessageReceiver());
+        if (!channel.getState(null, STATE_TRANSFER_TIMEOUT_MILLIS)) {
+            logger.info("No other members found. Starting with an empty hash ring.");
+        }
+    }
+
+    /**
+     * Stops the thread dispatching the commands received from other members, if it was created by this command bus.
+     * The channel itself is not closed. Commands that are still being processed are not replied to.
+     */
+    public void disconnect() {
+        if (defaultDispatchExecutor != null) {
+            defaultDispatchExecutor.shutdown();
+            defaultDispatchExecutor = null;
+        }
+    }
+
+    /**
+     * Joins the hash ring with the given <code>loadFactor</code>, which is the number of segments this member owns.
+     * Members with a higher load factor will receive proportionally more commands. Invoking this method again changes
+     * the load factor of this member. A load factor of 0 removes this member from the ring, while keeping it connected
+     * to dispatch commands to other members.
+     *
+     * @param loadFactor The number of segments to own
+     * @throws ChannelNotConnectedException when the channel is not connected
+     * @throws ChannelClosedException       when the channel has been closed
+     */
+    public void joinGroup(int loadFactor) throws ChannelNotConnectedException, ChannelClosedException {
+        Assert.isTrue(loadFactor >= 0, "The load factor may not be negative");
+        channel.send(null, null, new JoinMessage(loadFactor, segmentId));
+    }
+
+    /**
+     * Waits until this member has joined the hash ring.
+     *
+     * @throws InterruptedException when the thread is interrupted while waiting
+     */
+    public void awaitJoined() throws InterruptedException {
+        joinedCondition.await();
+    }
+
+    /**
+     * Waits until this member has joined the hash ring, or the given number of <code>millis</code> has passed.
+     *
+     * @param millis The maximum number of milliseconds to wait
+     * @return <code>true</code> if this member has joined, otherwise <code>false</code>
+     *
+     * @throws InterruptedException when the thread is interrupted while waiting
+     */
+    public boolean awaitJoined(long millis) throws InterruptedException {
+        return joinedCondition.await(millis);
+    }
+
+    /**
+     * Prints the segments of the hash ring, and the member owning each of them, to the given <code>out</code>.
+     *
+     * @param out The stream to print the hash ring to
+     */
+    public void printHashRing(PrintStream out) {
+        hashRing.writeTo(channel, out);
+    }
+
+    /**
+     * Returns the number of segments in the hash ring, as currently known by this member.
+     *
+     * @return the number of segments in the hash ring
+     */
+    int getHashRingSize() {
+        return hashRing.size();
+    }
+
+    @Override
+    public void dispatch(CommandMessage<?> command) {
+        dispatch(command, null);
+    }
+
+    @Override
+    public <R> void dispatch(CommandMessage<?> command, CommandCallback<R> callback) {
+        String routingKey = routingKeyFor(command);
+        RoutingQueue routingQueue;
+        boolean startProcessing;
+        synchronized (routingLock) {
+            routingQueue = routingQueues.get(routingKey);
+            if (routingQueue == null) {
+                routingQueue = new RoutingQueue(routingKey);
+                routingQueues.put(routingKey, routingQueue);
             }
+            routingQueue.waiting.add(new DispatchTask(routingQueue, command, callback));
+            startProcessing = !routingQueue.processing;
+            routingQueue.processing = true;
+        }
+        if (startProcessing) {
+            routingQueue.sendWaitingTasks();
+        }
+    }
 
-            @Override
-            public void getState(OutputStream ostream) {
-                try {
-                    ostream.write(Util.objectToByteBuffer(hashRing));
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+    @Override
+    public <C> void subscribe(Class<C> commandType, CommandHandler<? super C> handler) {
+        localSegment.subscribe(commandType, handler);
+    }
+
+    @Override
+    public <C> void unsubscribe(Class<C> commandType, CommandHandler<? super C> handler) {
+        localSegment.unsubscribe(commandType, handler);
+    }
+
+    /**
+     * Sets the resolver for the aggregate targeted by each command. The identifier of the targeted aggregate decides
+     * which member handles the command. Defaults to an {@link AnnotationCommandTargetResolver}.
+     *
+     * @param commandTargetResolver the resolver for the aggregate targeted by each command
+     */
+    public void setCommandTargetResolver(CommandTargetResolver commandTargetResolver) {
+        this.commandTargetResolver = commandTargetResolver;
+    }
+
+    /**
+     * Sets the executor that deserializes the commands received from other members and dispatches them on the local
+     * segment. Commands are only guaranteed to be dispatched in the order in which they were received if the executor
+     * uses a single thread. Must be set before {@link #connect() connecting}. Defaults to an executor using a single
+     * daemon thread, which is stopped when this command bus is {@link #disconnect() disconnected}.
+     *
+     * @param dispatchExecutor the executor that dispatches received commands on the local segment
+     */
+    public void setDispatchExecutor(Executor dispatchExecutor) {
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
+    private String routingKeyFor(CommandMessage<?> command) {
+        try {
+            return commandTargetResolver.resolveTarget(command).getIdentifier().toString();
+        } catch (IllegalArgumentException e) {
+            return command.getIdentifier();
+        }
+    }
+
+    private void send(DispatchTask task, Address destination) {
+        if (destination.equals(channel.getAddress())) {
+            localSegment.dispatch(task.command, task);
+            return;
+        }
+        DispatchMessage dispatchMessage;
+        try {
+            dispatchMessage = new DispatchMessage(task.command, serializer);
+        } catch (RuntimeException e) {
+            task.onFailure(e);
+            return;
+        }
+        String commandIdentifier = task.command.getIdentifier();
+        pendingReplies.put(commandIdentifier, new PendingReply(task, destination));
+        try {
+            channel.send(destination, null, dispatchMessage);
+        } catch (Exception e) {
+            PendingReply pendingReply = pendingReplies.remove(commandIdentifier);
+            if (pendingReply != null) {
+                pendingReply.task.onFailure(new RemoteCommandHandlingException(
+                        format("Failed to send a [%s] to [%s]", task.command.getPayloadType().getSimpleName(),
+                               channel.getName(destination)), e));
             }
+        }
+    }
 
-            @Override
-            public void setState(InputStream istream) {
-                try {
-                    setState(IOUtils.toByteArray(istream));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+    private void updateHashRing(Ring newHashRing) {
+        synchronized (routingLock) {
+            hashRing = newHashRing;
+        }
+    }
+
+    private void failPendingRepliesOfDepartedMembers(Vector<Address> members) {
+        Set<Address> activeMembers = new HashSet<Address>(members);
+        for (Map.Entry<String, PendingReply> entry : pendingReplies.entrySet()) {
+            if (!activeMembers.contains(entry.getValue().destination)) {
+                PendingReply pendingReply = pendingReplies.remove(entry.getKey());
+                if (pendingReply != null) {
+                    pendingReply.task.onFailure(new RemoteCommandHandlingException(
+                            "The member handling the command left the cluster before replying"));
                 }
             }
+        }
+    }
+
+    private final class MessageReceiver extends ExtendedReceiverAdapter {
+
+        @Override
+        public byte[] getState() {
+            try {
+                return Util.objectToByteBuffer(hashRing);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to serialize the hash ring", e);
+            }
+        }
 
-            @Override
-            public void setState(byte[] state) {
-                try {
-                    hashRing = (Ring) Util.objectFromByteBuffer(state);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+        @Override
+        public void getState(OutputStream ostream) {
+            try {
+                ostream.write(getState());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to write the hash ring", e);
             }
+        }
 
-            @Override
-            public void viewAccepted(View view) {
+        @Override
+        public void setState(InputStream istream) {
+            try {
+                setState(IOUtils.toByteArray(istream));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read the hash ring", e);
+            }
+        }
+
+        @Override
+        public void setState(byte[] state) {
+            try {
+                updateHashRing((Ring) Util.objectFromByteBuffer(state));
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to deserialize the hash ring", e);
+            }
+        }
+
+        @Override
+        public void viewAccepted(View view) {
+            boolean membersLeft;
+            synchronized (routingLock) {
                 Ring newHashRing = hashRing.withMembers(view.getMembers());
-                if (!hashRing.equals(newHashRing)) {
-                    System.out.println("Looks like we've lost someone");
-                    hashRing = newHashRing;
-                    printHashRing();
-                }
+                membersLeft = !hashRing.equals(newHashRing);
+                hashRing = newHashRing;
+            }
+            if (membersLeft) {
+                logger.info("One or more members have left the cluster. Their segments are reassigned.");
+            }
+            failPendingRepliesOfDepartedMembers(view.getMembers());
+        }
+
+        @Override
+        public void receive(Message msg) {
+            Object message = msg.getObject();
+            if (message instanceof JoinMessage) {
+                processJoinMessage(msg.getSrc(), (JoinMessage) message);
+            } else if (message instanceof DispatchMessage) {
+                processDispatchMessage(msg.getSrc(), (DispatchMessage) message);
+            } else if (message instanceof ReplyMessage) {
+                processReplyMessage((ReplyMessage) message);
+            } else {
+                logger.warn("Received a message of unknown type [{}] from [{}]. It is ignored.",
+                            message == null ? null : message.getClass().getName(), channel.getName(msg.getSrc()));
+            }
+        }
+
+        private void processJoinMessage(Address member, JoinMessage joinMessage) {
+            logger.info(format("[%s] joined with a load factor of %s", channel.getName(member),
+                               joinMessage.getSegmentCount()));
+            synchronized (routingLock) {
+                hashRing = hashRing.withMember(member, joinMessage.getSegmentId(), joinMessage.getSegmentCount());
+            }
+            if (member.equals(channel.getAddress())) {
+                joinedCondition.setJoined();
             }
+        }
+
+        private void processDispatchMessage(final Address sender, final DispatchMessage dispatchMessage) {
+            final ReplyingCallback callback = new ReplyingCallback(sender, dispatchMessage.getCommandIdentifier());
+            try {
+                currentDispatchExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        CommandMessage<?> command;
+                        try {
+                            command = dispatchMessage.getCommandMessage(serializer);
+                        } catch (RuntimeException e) {
+                            logger.warn("Failed to deserialize a received command.", e);
+                            callback.onFailure(e);
+                            return;
+                        }
+                        try {
+                            localSegment.dispatch(command, callback);
+                        } catch (RuntimeException e) {
+                            callback.onFailure(e);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                callback.onFailure(new RemoteCommandHandlingException(
+                        "The member is no longer dispatching received commands", e));
+            }
+        }
+
+        private void processReplyMessage(ReplyMessage replyMessage) {
+            PendingReply pendingReply = pendingReplies.remove(replyMessage.getCommandIdentifier());
+            if (pendingReply == null) {
+                logger.debug("Received a reply for command [{}], which has already been completed.",
+                             replyMessage.getCommandIdentifier());
+                return;
+            }
+            Object result;
+            try {
+                result = replyMessage.getResult(serializer);
+            } catch (RuntimeException e) {
+                pendingReply.task.onFailure(new RemoteCommandHandlingException("Failed to deserialize the reply", e));
+                return;
+            }
+            if (replyMessage.isSuccess()) {
+                pendingReply.task.onSuccess(result);
+            } else if (result instanceof Throwable) {
+                pendingReply.task.onFailure((Throwable) result);
+            } else {
+                pendingReply.task.onFailure(new RemoteCommandHandlingException(format(
+                        "The command failed, but the reply contained a [%s] instead of an exception",
+                        result == null ? "null" : result.getClass().getName())));
+            }
+        }
+    }
 
-            @Override
-            public void receive(Message msg) {
-                Object message = msg.getObject();
-                if (message instanceof JoinMessage) {
-                    JoinMessage joinMessage = (JoinMessage) message;
-                    System.out.println(String.format("%s joined as %s with load factor: %s",
-                                                     msg.getSrc(),
-                                                     joinMessage.getSegmentId(),
-                                                     joinMessage.getSegmentCount()));
-                    hashRing = hashRing.withMember(msg.getSrc(),
-                                                   joinMessage.getSegmentId(),
-                                                   joinMessage.getSegmentCount());
-                    printHashRing();
-                    if (msg.getSrc().equals(channel.getAddress())) {
-                        joinedCondition.setJoined();
-                        System.out.println("Joining completed");
+    /**
+     * The commands for a single routing key that have been dispatched, but not yet sent, and the number of commands
+     * sent for that key that have not been completed yet. A command is only sent when no commands are in flight, or
+     * when the commands in flight have been sent to the member that currently owns the routing key.
+     */
+    private final class RoutingQueue {
+
+        private final String routingKey;
+        // all fields below are guarded by routingLock
+        private final Queue<DispatchTask> waiting = new LinkedList<DispatchTask>();
+        private Address destination;
+        private int inFlight;
+        private boolean processing;
+
+        private RoutingQueue(String routingKey) {
+            this.routingKey = routingKey;
+        }
+
+        /**
+         * Sends waiting tasks, in order, until the queue is empty or the next task must wait for the commands in
+         * flight to complete. Only the thread that has set the <code>processing</code> flag may invoke this method.
+         */
+        private void sendWaitingTasks() {
+            while (true) {
+                DispatchTask task;
+                Address target;
+                synchronized (routingLock) {
+                    task = waiting.peek();
+                    target = task == null ? null : hashRing.getMemberFor(routingKey);
+                    if (task == null || (inFlight > 0 && (target == null || !target.equals(destination)))) {
+                        processing = false;
+                        removeIfIdle();
+                        return;
+                    }
+                    waiting.poll();
+                    if (target != null) {
+                        destination = target;
+                        inFlight++;
                     }
+                }
+                if (target == null) {
+                    task.reportFailure(new RemoteCommandHandlingException(
+                            "No members have joined the cluster to handle commands"));
                 } else {
-                    System.out.println(msg.getObject());
-                    System.out.println("A message was received. Now received: " + counter.addAndGet(1));
+                    send(task, target);
                 }
             }
-        });
-        if (!channel.getState(null, 10000)) {
-            // we're the first, so the ring must be empty
-            hashRing = Ring.emptyRing();
         }
-    }
 
-    public void printHashRing() {
-        hashRing.writeTo(channel, System.out);
-    }
+        private void completed() {
+            boolean resume;
+            synchronized (routingLock) {
+                inFlight--;
+                resume = inFlight == 0 && !processing && !waiting.isEmpty();
+                if (resume) {
+                    processing = true;
+                } else {
+                    removeIfIdle();
+                }
+            }
+            if (resume) {
+                resumeSending();
+            }
+        }
 
-    public void joinGroup(int loadFactor) throws ChannelNotConnectedException, ChannelClosedException {
-        // Let's join the group
-        channel.send(null, null, new JoinMessage(loadFactor, segmentId));
-        System.out.println("Join message sent");
+        /**
+         * Sends the waiting tasks using the dispatch executor. A command may complete on the thread delivering the
+         * messages of the channel, which must not dispatch the waiting commands on the local segment itself.
+         */
+        private void resumeSending() {
+            Runnable sendTask = new Runnable() {
+                @Override
+                public void run() {
+                    sendWaitingTasks();
+                }
+            };
+            Executor executor = currentDispatchExecutor;
+            if (executor == null) {
+                sendTask.run();
+                return;
+            }
+            try {
+                executor.execute(sendTask);
+            } catch (RejectedExecutionException e) {
+                sendTask.run();
+            }
+        }
+
+        private void removeIfIdle() {
+            if (inFlight == 0 && !processing && waiting.isEmpty()) {
+                routingQueues.remove(routingKey);
+            }
+        }
     }
 
-    public void awaitJoined() throws InterruptedException {
-        joinedCondition.await();
+    /**
+     * A command that has been dispatched, and the callback to report its result to. The task is the callback for the
+     * command itself, so that its routing queue is notified when it completes.
+     */
+    private static final class DispatchTask implements CommandCallback<Object> {
+
+        private final RoutingQueue routingQueue;
+        private final CommandMessage<?> command;
+        private final CommandCallback<Object> callback;
+
+        @SuppressWarnings({"unchecked"})
+        private DispatchTask(RoutingQueue routingQueue, CommandMessage<?> command, CommandCallback<?> callback) {
+            this.routingQueue = routingQueue;
+            this.command = command;
+            this.callback = (CommandCallback<Object>) callback;
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+            try {
+                if (callback != null) {
+                    callback.onSuccess(result);
+                }
+            } catch (RuntimeException e) {
+                logger.error("The callback of a command threw an exception.", e);
+            } finally {
+                routingQueue.completed();
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            try {
+                reportFailure(cause);
+            } finally {
+                routingQueue.completed();
+            }
+        }
+
+        private void reportFailure(Throwable cause) {
+            try {
+                if (callback != null) {
+                    callback.onFailure(cause);
+                } else {
+                    logger.warn(format("A [%s] failed. No callback was provided to report the failure to.",
+                                       command.getPayloadType().getSimpleName()), cause);
+                }
+            } catch (RuntimeException e) {
+                logger.error("The callback of a command threw an exception.", e);
+            }
+        }
     }
 
-    public void awaitJoined(long millis) throws InterruptedException {
-        joinedCondition.await(millis);
+    private static final class PendingReply {
+
+        private final DispatchTask task;
+        private final Address destination;
+
+        private PendingReply(DispatchTask task, Address destination) {
+            this.task = task;
+            this.destination = destination;
+        }
     }
 
-    public void send(String message) throws ChannelNotConnectedException, ChannelClosedException {
-        Address dest = hashRing.getMemberFor(message);
-        channel.send(dest, null, message);
+    private final class ReplyingCallback implements CommandCallback<Object> {
+
+        private final Address sender;
+        private final String commandIdentifier;
+
+        private ReplyingCallback(Address sender, String commandIdentifier) {
+            this.sender = sender;
+            this.commandIdentifier = commandIdentifier;
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+            ReplyMessage reply;
+            try {
+                reply = new ReplyMessage(commandIdentifier, true, result, serializer);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to serialize the result of a command.", e);
+                onFailure(e);
+                return;
+            }
+            sendReply(reply);
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            ReplyMessage reply;
+            try {
+                reply = new ReplyMessage(commandIdentifier, false, cause, serializer);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to serialize the exception resulting from a command.", e);
+                reply = new ReplyMessage(commandIdentifier, false, new RemoteCommandHandlingException(
+                        format("The command failed with a [%s]: %s", cause.getClass().getName(),
+                               cause.getMessage())), serializer);
+            }
+            sendReply(reply);
+        }
+
+        private void sendReply(ReplyMessage reply) {
+            try {
+                channel.send(sender, null, reply);
+            } catch (Exception e) {
+                logger.warn(format("Failed to send the reply to command [%s] to [%s].", commandIdentifier,
+                                   channel.getName(sender)), e);
+            }
+        }
     }
 
     private static class Ring implements Serializable {
 
+        private static final long serialVersionUID = -4183491648516183227L;
+
         private final SortedMap<String, Address> hashes;
 
         private Ring(SortedMap<String, Address> hashed) {
             hashes = hashed;
         }
 
-        public synchronized static Ring fromScratch(Address address, String segmentId, int segmentCount) {
-            SortedMap<String, Address> hashes = new TreeMap<String, Address>();
-            for (int t = 0; t < segmentCount; t++) {
-                String hash = hashOf(segmentId + " #" + t);
-                hashes.put(hash, address);
-            }
-            return new Ring(hashes);
-        }
-
         public static Ring emptyRing() {
             return new Ring(new TreeMap<String, Address>());
         }
@@ -195,28 +694,35 @@ public class JGroupsCommandBus {
             return new Ring(newHashes);
         }
 
+        /**
+         * Returns the member owning the segment the given <code>item</code> hashes to, or <code>null</code> if the
+         * ring is empty.
+         *
+         * @param item The item to find the owning member for
+         * @return the member owning the segment of the given item
+         */
         public Address getMemberFor(String item) {
-            String hash = hashOf(item);
-            if (hashes.containsKey(hash)) {
-                return hashes.get(hash);
-            } else {
-                SortedMap<String, Address> tailMap = hashes.tailMap(hash);
-                if (tailMap.isEmpty()) {
-                    return hashes.get(hashes.firstKey());
-                } else {
-                    return hashes.get(tailMap.firstKey());
-                }
+            if (hashes.isEmpty()) {
+                return null;
             }
+            SortedMap<String, Address> tailMap = hashes.tailMap(hashOf(item));
+            if (tailMap.isEmpty()) {
+                return hashes.get(hashes.firstKey());
+            }
+            return hashes.get(tailMap.firstKey());
+        }
+
+        public int size() {
+            return hashes.size();
         }
 
         private static String hashOf(String item) {
             return DigestUtils.md5Hex(item);
         }
 
-        public void writeTo(Channel channel, OutputStream out) {
-            PrintStream w = new PrintStream(out);
+        public void writeTo(Channel channel, PrintStream out) {
             for (Map.Entry<String, Address> entry : hashes.entrySet()) {
-                w.println(entry.getKey() + ": " + channel.getName(entry.getValue()));
+                out.println(entry.getKey() + ": " + channel.getName(entry.getValue()));
             }
         }
 
@@ -255,21 +761,41 @@ public class JGroupsCommandBus {
         }
     }
 
+    /**
+     * Condition that is met once this member has joined the hash ring.
+     */
     public final class JoinCondition {
 
         // Guarded by "this"
         private boolean isJoined;
 
+        /**
+         * Waits until this member has joined the hash ring.
+         *
+         * @throws InterruptedException when the thread is interrupted while waiting
+         */
         public synchronized void await() throws InterruptedException {
             while (!isJoined) {
                 wait();
             }
         }
 
-        public synchronized void await(long millis) throws InterruptedException {
-            while (!isJoined) {
-                wait(millis);
+        /**
+         * Waits until this member has joined the hash ring, or the given number of <code>millis</code> has passed.
+         *
+         * @param millis The maximum number of milliseconds to wait
+         * @return <code>true</code> if this member has joined, otherwise <code>false</code>
+         *
+         * @throws InterruptedException when the thread is interrupted while waiting
+         */
+        public synchronized boolean await(long millis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + millis;
+            long remaining = millis;
+            while (!isJoined && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
             }
+            return isJoined;
         }
 
         private synchronized void setJoined() {
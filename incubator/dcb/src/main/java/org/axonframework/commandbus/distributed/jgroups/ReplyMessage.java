@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandbus.distributed.jgroups;
+
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.Serializer;
+import org.axonframework.serializer.SimpleSerializedObject;
+
+import java.io.Serializable;
+
+/**
+ * Message containing the result of a command, sent back to the member that dispatched it. The result is either the
+ * return value of the command handler, or the exception it threw.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class ReplyMessage implements Serializable {
+
+    private static final long serialVersionUID = 3525306371734178203L;
+
+    private final String commandIdentifier;
+    private final boolean success;
+    private final String resultType;
+    private final int resultRevision;
+    private final byte[] serializedResult;
+
+    ReplyMessage(String commandIdentifier, boolean success, Object result, Serializer serializer) {
+        this.commandIdentifier = commandIdentifier;
+        this.success = success;
+        if (result == null) {
+            this.resultType = null;
+            this.resultRevision = 0;
+            this.serializedResult = null;
+        } else {
+            SerializedObject serializedObject = serializer.serialize(result);
+            this.resultType = serializedObject.getType().getName();
+            this.resultRevision = serializedObject.getType().getRevision();
+            this.serializedResult = serializedObject.getData();
+        }
+    }
+
+    public String getCommandIdentifier() {
+        return commandIdentifier;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public Object getResult(Serializer serializer) {
+        if (serializedResult == null) {
+            return null;
+        }
+        return serializer.deserialize(new SimpleSerializedObject(serializedResult, resultType, resultRevision));
+    }
+}
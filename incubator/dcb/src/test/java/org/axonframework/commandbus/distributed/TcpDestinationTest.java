@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandbus.distributed;
+
+import org.axonframework.commandhandling.AsynchronousCommandBus;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.axonframework.serializer.XStreamSerializer;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.junit.*;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class TcpDestinationTest {
+
+    private ExecutorService executor;
+    private AsynchronousCommandBus commandBus;
+    private TcpCommandBusConnector connector;
+    private TcpDestination testSubject;
+    private CountDownLatch blockedHandlers;
+    private AtomicInteger handledCommands;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        commandBus = new AsynchronousCommandBus(executor, new AnnotationCommandTargetResolver(), false);
+        blockedHandlers = new CountDownLatch(1);
+        handledCommands = new AtomicInteger();
+        commandBus.subscribe(String.class, new StubCommandHandler());
+        connector = new TcpCommandBusConnector();
+        connector.setCommandBus(commandBus);
+        connector.setSerializer(new XStreamSerializer());
+        connector.setLocalAddress(new InetSocketAddress("127.0.0.1", 0));
+        connector.connect();
+        testSubject = new TcpDestination(connector.getLocalAddress(), new XStreamSerializer());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        blockedHandlers.countDown();
+        testSubject.shutdown();
+        connector.disconnect();
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testResultIsReturnedToCallback() throws Exception {
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.send("echo", callback);
+
+        assertEquals("reply to echo", callback.get());
+        assertTrue(testSubject.isAvailable());
+    }
+
+    @Test(timeout = 10000)
+    public void testExceptionIsReturnedToCallback() throws Exception {
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.send("fail", callback);
+
+        try {
+            callback.get();
+            fail("Expected an exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("failed on purpose", e.getCause().getMessage());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentCommandsAreMultiplexedOnSingleConnection() throws Exception {
+        final int threadCount = 8;
+        final int commandsPerThread = 250;
+        final List<FutureCallback<Object>> callbacks = new ArrayList<FutureCallback<Object>>();
+        for (int t = 0; t < threadCount * commandsPerThread; t++) {
+            callbacks.add(new FutureCallback<Object>());
+        }
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final int offset = t * commandsPerThread;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < offset + commandsPerThread; i++) {
+                        testSubject.send("command " + i, callbacks.get(i));
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < callbacks.size(); i++) {
+            assertEquals("reply to command " + i, callbacks.get(i).get());
+        }
+        assertEquals(threadCount * commandsPerThread, handledCommands.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testPendingCommandTimesOut() throws Exception {
+        testSubject.setTimeout(200);
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.send("block", callback);
+
+        try {
+            callback.get();
+            fail("Expected an exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RemoteCommandHandlingException);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSendingBlocksWhenTooManyCommandsAreInFlight() throws Exception {
+        testSubject.shutdown();
+        testSubject = new TcpDestination(connector.getLocalAddress(), new XStreamSerializer(), 2);
+        testSubject.send("block", new FutureCallback<Object>());
+        testSubject.send("block", new FutureCallback<Object>());
+
+        final FutureCallback<Object> thirdCallback = new FutureCallback<Object>();
+        final CountDownLatch thirdSent = new CountDownLatch(1);
+        Thread sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                testSubject.send("echo", thirdCallback);
+                thirdSent.countDown();
+            }
+        });
+        sender.start();
+
+        assertFalse("The third command should wait for a command to complete",
+                    thirdSent.await(300, TimeUnit.MILLISECONDS));
+        blockedHandlers.countDown();
+        assertEquals("reply to echo", thirdCallback.get());
+        sender.join();
+    }
+
+    @Test(timeout = 10000)
+    public void testCallbackMaySendCommandsWhenTooManyCommandsAreInFlight() throws Exception {
+        testSubject.shutdown();
+        testSubject = new TcpDestination(connector.getLocalAddress(), new XStreamSerializer(), 2);
+        testSubject.send("block", new FutureCallback<Object>());
+
+        final FutureCallback<Object> firstNestedCallback = new FutureCallback<Object>();
+        final FutureCallback<Object> secondNestedCallback = new FutureCallback<Object>();
+        final AtomicReference<String> callbackThread = new AtomicReference<String>();
+        testSubject.send("echo", new CommandCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                callbackThread.set(Thread.currentThread().getName());
+                testSubject.send("nested 1", firstNestedCallback);
+                // blocks until the reply to the first nested command has been read
+                testSubject.send("nested 2", secondNestedCallback);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+            }
+        });
+
+        assertEquals("reply to nested 2", secondNestedCallback.get());
+        assertEquals("reply to nested 1", firstNestedCallback.get());
+        assertTrue(callbackThread.get().startsWith("TcpDestination-callbacks-"));
+    }
+
+    @Test(timeout = 10000)
+    public void testConnectorDispatchesCommandsUsingDispatchExecutor() throws Exception {
+        testSubject.shutdown();
+        connector.disconnect();
+        final AtomicReference<String> dispatchThread = new AtomicReference<String>();
+        SimpleCommandBus synchronousCommandBus = new SimpleCommandBus() {
+            @Override
+            public <R> void dispatch(CommandMessage<?> command, CommandCallback<R> callback) {
+                dispatchThread.set(Thread.currentThread().getName());
+                super.dispatch(command, callback);
+            }
+        };
+        synchronousCommandBus.subscribe(String.class, new StubCommandHandler());
+        connector = new TcpCommandBusConnector();
+        connector.setCommandBus(synchronousCommandBus);
+        connector.setSerializer(new XStreamSerializer());
+        connector.setLocalAddress(new InetSocketAddress("127.0.0.1", 0));
+        connector.setDispatchExecutor(executor);
+        connector.connect();
+        testSubject = new TcpDestination(connector.getLocalAddress(), new XStreamSerializer());
+
+        FutureCallback<Object> blockedCallback = new FutureCallback<Object>();
+        testSubject.send("block", blockedCallback);
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.send("echo", callback);
+
+        // the blocked handler doesn't keep the connector from handling other commands
+        assertEquals("reply to echo", callback.get());
+        assertFalse(blockedCallback.isDone());
+        assertFalse(dispatchThread.get().startsWith("TcpCommandBusConnector"));
+        blockedHandlers.countDown();
+        assertEquals("reply to block", blockedCallback.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testPendingCommandsFailWhenConnectionIsLost() throws Exception {
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.send("block", callback);
+        // make sure the command has arrived before the connection is closed
+        while (handledCommands.get() == 0) {
+            Thread.sleep(10);
+        }
+
+        connector.disconnect();
+
+        try {
+            callback.get();
+            fail("Expected an exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RemoteCommandHandlingException);
+        }
+        assertFalse(testSubject.isAvailable());
+    }
+
+    @Test(timeout = 10000)
+    public void testCommandWithoutCallbackIsDelivered() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            testSubject.send("command " + i);
+        }
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.send("echo", callback);
+        callback.get();
+
+        while (handledCommands.get() < 11) {
+            Thread.sleep(10);
+        }
+        assertEquals(11, handledCommands.get());
+    }
+
+    private class StubCommandHandler implements CommandHandler<String> {
+
+        @Override
+        public Object handle(CommandMessage<String> commandMessage, UnitOfWork unitOfWork) throws Throwable {
+            handledCommands.incrementAndGet();
+            String command = commandMessage.getPayload();
+            if ("fail".equals(command)) {
+                throw new IllegalStateException("failed on purpose");
+            } else if ("block".equals(command)) {
+                blockedHandlers.await();
+            }
+            return "reply to " + command;
+        }
+    }
+}
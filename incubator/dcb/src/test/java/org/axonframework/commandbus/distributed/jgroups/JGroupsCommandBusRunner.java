@@ -16,8 +16,12 @@
 
 package org.axonframework.commandbus.distributed.jgroups;
 
-import org.jgroups.ChannelClosedException;
-import org.jgroups.ChannelNotConnectedException;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.serializer.XStreamSerializer;
+import org.axonframework.unitofwork.UnitOfWork;
 import org.jgroups.JChannel;
 
 import java.util.Scanner;
@@ -35,8 +39,15 @@ public class JGroupsCommandBusRunner {
         System.setProperty("java.net.preferIPv4Stack", "true");
         JChannel channel = new JChannel("jgroups_config/tcp.xml");
         channel.connect("testing");
-        dcb = new JGroupsCommandBus(channel);
-        dcb.subscribe();
+        dcb = new JGroupsCommandBus(channel, new SimpleCommandBus(), new XStreamSerializer());
+        dcb.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(CommandMessage<String> commandMessage, UnitOfWork unitOfWork) {
+                System.out.println("Received: " + commandMessage.getPayload());
+                return null;
+            }
+        });
+        dcb.connect();
         System.out.println("Subscribed to group. Ready to join.");
         Scanner scanner = new Scanner(System.in);
         Integer loadFactor = null;
@@ -68,20 +79,21 @@ public class JGroupsCommandBusRunner {
                     System.out.println(newLoadFactor + " is not a number");
                 }
             } else if ("debug".equals(line)) {
-                dcb.printHashRing();
+                dcb.printHashRing(System.out);
             } else if ("members".equals(line)) {
                 System.out.println(channel.getViewAsString());
             } else if (!"quit".equals(line)) {
-                dcb.send(line);
+                dcb.dispatch(new GenericCommandMessage<Object>(line));
             }
         }
+        dcb.disconnect();
         channel.close();
     }
 
-    private static void readAndSendMessages() throws ChannelNotConnectedException, ChannelClosedException {
+    private static void readAndSendMessages() {
         for (int t = 0; t < MESSAGE_COUNT; t++) {
             String message = UUID.randomUUID().toString();
-            dcb.send(message);
+            dcb.dispatch(new GenericCommandMessage<Object>(message));
         }
     }
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandbus.distributed.jgroups;
+
+import org.axonframework.commandbus.distributed.RemoteCommandHandlingException;
+import org.axonframework.commandhandling.AsynchronousCommandBus;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
+import org.axonframework.commandhandling.annotation.TargetAggregateIdentifier;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.axonframework.serializer.XStreamSerializer;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.jgroups.JChannel;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class JGroupsCommandBusTest {
+
+    private String clusterName;
+    private List<Node> nodes;
+    private List<Integer> handledSequence;
+    private CountDownLatch blockedHandlers;
+
+    @BeforeClass
+    public static void preferIpv4() {
+        System.setProperty("java.net.preferIPv4Stack", "true");
+    }
+
+    @Before
+    public void setUp() {
+        clusterName = "test-" + UUID.randomUUID();
+        nodes = new ArrayList<Node>();
+        handledSequence = Collections.synchronizedList(new ArrayList<Integer>());
+        blockedHandlers = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        blockedHandlers.countDown();
+        for (Node node : nodes) {
+            node.close();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testCommandIsHandledLocallyWhenOnlyMember() throws Exception {
+        Node node = startNode("node1", 10);
+
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        node.commandBus.dispatch(command("aggregate", 1), callback);
+
+        assertEquals("node1", callback.get());
+        assertEquals(1, node.handledCommands.get());
+    }
+
+    @Test(timeout = 30000)
+    public void testCommandFailsWhenNoMemberHasJoined() throws Exception {
+        Node node = startNode("node1", 0);
+
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        node.commandBus.dispatch(command("aggregate", 1), callback);
+
+        try {
+            callback.get();
+            fail("Expected an exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RemoteCommandHandlingException);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testCommandsAreRoutedByAggregateIdentifier() throws Exception {
+        Node node1 = startNode("node1", 10);
+        Node node2 = startNode("node2", 10);
+        awaitRingSize(node1, 20);
+
+        List<FutureCallback<Object>> callbacks = new ArrayList<FutureCallback<Object>>();
+        for (int i = 0; i < 200; i++) {
+            FutureCallback<Object> callback = new FutureCallback<Object>();
+            node1.commandBus.dispatch(command("aggregate" + (i % 100), i), callback);
+            callbacks.add(callback);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Commands for the same aggregate should be handled by the same member",
+                         callbacks.get(i).get(), callbacks.get(i + 100).get());
+        }
+
+        assertEquals(200, node1.handledCommands.get() + node2.handledCommands.get());
+        assertTrue("Expected both members to handle commands", node1.handledCommands.get() > 0);
+        assertTrue("Expected both members to handle commands", node2.handledCommands.get() > 0);
+    }
+
+    @Test(timeout = 30000)
+    public void testCommandsAreDistributedAccordingToLoadFactor() throws Exception {
+        Node node1 = startNode("node1", 1);
+        Node node2 = startNode("node2", 50);
+        awaitRingSize(node1, 51);
+
+        List<FutureCallback<Object>> callbacks = new ArrayList<FutureCallback<Object>>();
+        for (int i = 0; i < 500; i++) {
+            FutureCallback<Object> callback = new FutureCallback<Object>();
+            node1.commandBus.dispatch(command(UUID.randomUUID().toString(), i), callback);
+            callbacks.add(callback);
+        }
+        for (FutureCallback<Object> callback : callbacks) {
+            callback.get();
+        }
+
+        assertTrue("Expected the member with the highest load factor to handle most commands",
+                   node2.handledCommands.get() > node1.handledCommands.get());
+    }
+
+    @Test(timeout = 30000)
+    public void testCommandOrderIsMaintainedWhenSegmentsMoveToAnotherMember() throws Exception {
+        Node node1 = startNode("node1", 10);
+        Node node2 = startNode("node2", 0);
+
+        List<FutureCallback<Object>> callbacks = new ArrayList<FutureCallback<Object>>();
+        for (int i = 0; i < 300; i++) {
+            if (i == 100) {
+                node2.commandBus.joinGroup(10);
+                awaitRingSize(node1, 20);
+            } else if (i == 150) {
+                node1.commandBus.joinGroup(0);
+            }
+            FutureCallback<Object> callback = new FutureCallback<Object>();
+            node1.commandBus.dispatch(command("aggregate", i), callback);
+            callbacks.add(callback);
+            Thread.sleep(1);
+        }
+        for (FutureCallback<Object> callback : callbacks) {
+            callback.get();
+        }
+
+        assertEquals(300, handledSequence.size());
+        for (int i = 0; i < 300; i++) {
+            assertEquals(Integer.valueOf(i), handledSequence.get(i));
+        }
+        assertEquals("node1", callbacks.get(0).get());
+        assertEquals("node2", callbacks.get(299).get());
+    }
+
+    @Test(timeout = 30000)
+    public void testPendingCommandsFailWhenMemberLeaves() throws Exception {
+        Node node1 = startNode("node1", 0);
+        Node node2 = startNode("node2", 10);
+        awaitRingSize(node1, 10);
+
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        node1.commandBus.dispatch(command("block", 1), callback);
+        while (node2.handledCommands.get() == 0) {
+            Thread.sleep(10);
+        }
+        node2.close();
+
+        try {
+            callback.get();
+            fail("Expected an exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RemoteCommandHandlingException);
+        }
+
+        node1.commandBus.joinGroup(10);
+        node1.commandBus.awaitJoined();
+        FutureCallback<Object> nextCallback = new FutureCallback<Object>();
+        node1.commandBus.dispatch(command("block", 2), nextCallback);
+        blockedHandlers.countDown();
+        assertEquals("node1", nextCallback.get());
+    }
+
+    @Test(timeout = 30000)
+    public void testBlockingCommandDoesNotKeepMemberFromReceivingCommands() throws Exception {
+        Node node1 = startNode("node1", 0);
+        Node node2 = new Node("node2", new SimpleCommandBus());
+        nodes.add(node2);
+        node2.commandBus.joinGroup(10);
+        assertTrue("Node did not join in time", node2.commandBus.awaitJoined(5000));
+        awaitRingSize(node1, 10);
+
+        FutureCallback<Object> blockedCallback = new FutureCallback<Object>();
+        node1.commandBus.dispatch(command("block", 1), blockedCallback);
+        while (node2.handledCommands.get() == 0) {
+            Thread.sleep(10);
+        }
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        node1.commandBus.dispatch(command("aggregate", 2), callback);
+
+        assertEquals("node2", callback.get());
+        assertFalse(blockedCallback.isDone());
+        blockedHandlers.countDown();
+        assertEquals("node2", blockedCallback.get());
+    }
+
+    private Node startNode(String name, int loadFactor) throws Exception {
+        Node node = new Node(name, null);
+        nodes.add(node);
+        if (loadFactor > 0) {
+            node.commandBus.joinGroup(loadFactor);
+            assertTrue("Node did not join in time", node.commandBus.awaitJoined(5000));
+        }
+        return node;
+    }
+
+    private void awaitRingSize(Node node, int expectedSize) throws InterruptedException {
+        while (node.commandBus.getHashRingSize() != expectedSize) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static CommandMessage<TestCommand> command(String aggregateIdentifier, int sequence) {
+        return new GenericCommandMessage<TestCommand>(new TestCommand(aggregateIdentifier, sequence));
+    }
+
+    private class Node {
+
+        private final String name;
+        private final JChannel channel;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final JGroupsCommandBus commandBus;
+        private final AtomicInteger handledCommands = new AtomicInteger();
+
+        /**
+         * Starts a member that dispatches commands on the given <code>synchronousSegment</code> using a thread per
+         * received command, or on an asynchronous local segment when <code>synchronousSegment</code> is
+         * <code>null</code>.
+         */
+        private Node(final String name, CommandBus synchronousSegment) throws Exception {
+            this.name = name;
+            channel = new JChannel("jgroups_config/loopback.xml");
+            channel.setName(name);
+            channel.connect(clusterName);
+            if (synchronousSegment == null) {
+                commandBus = new JGroupsCommandBus(channel, new AsynchronousCommandBus(
+                        executor, new AnnotationCommandTargetResolver(), false), new XStreamSerializer());
+            } else {
+                commandBus = new JGroupsCommandBus(channel, synchronousSegment, new XStreamSerializer());
+                commandBus.setDispatchExecutor(executor);
+            }
+            commandBus.subscribe(TestCommand.class, new CommandHandler<TestCommand>() {
+                @Override
+                public Object handle(CommandMessage<TestCommand> commandMessage, UnitOfWork unitOfWork)
+                        throws Throwable {
+                    handledCommands.incrementAndGet();
+                    TestCommand command = commandMessage.getPayload();
+                    if ("block".equals(command.getAggregateIdentifier())) {
+                        blockedHandlers.await();
+                    }
+                    handledSequence.add(command.getSequence());
+                    return name;
+                }
+            });
+            commandBus.connect();
+        }
+
+        private void close() {
+            commandBus.disconnect();
+            channel.close();
+            executor.shutdown();
+        }
+    }
+
+    public static class TestCommand {
+
+        @TargetAggregateIdentifier
+        private final String aggregateIdentifier;
+        private final int sequence;
+
+        public TestCommand(String aggregateIdentifier, int sequence) {
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.sequence = sequence;
+        }
+
+        public String getAggregateIdentifier() {
+            return aggregateIdentifier;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+    }
+}
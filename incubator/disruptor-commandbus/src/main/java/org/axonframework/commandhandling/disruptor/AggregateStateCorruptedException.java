@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.axonframework.common.AxonTransientException;
+
+/**
+ * Exception indicating that a command was rejected because the state of the aggregate it targets was invalidated by
+ * the failure of an earlier command on that same aggregate. Commands that are dispatched after the failure has been
+ * processed are executed against a freshly loaded aggregate, meaning that a retry may succeed.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class AggregateStateCorruptedException extends AxonTransientException {
+
+    private static final long serialVersionUID = -2498523413384536276L;
+    private final Object aggregateIdentifier;
+
+    /**
+     * Initializes the exception for the aggregate with given <code>aggregateIdentifier</code> and with the given
+     * <code>message</code>.
+     *
+     * @param aggregateIdentifier The identifier of the aggregate of which the state was invalidated
+     * @param message             The message describing the cause of the exception
+     */
+    public AggregateStateCorruptedException(Object aggregateIdentifier, String message) {
+        super(message);
+        this.aggregateIdentifier = aggregateIdentifier;
+    }
+
+    /**
+     * Returns the identifier of the aggregate of which the state was invalidated.
+     *
+     * @return the identifier of the aggregate of which the state was invalidated
+     */
+    public Object getAggregateIdentifier() {
+        return aggregateIdentifier;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.axonframework.eventsourcing.EventSourcedAggregateRoot;
+
+/**
+ * Reference to an aggregate held in the cache of the {@link CommandHandlerInvoker}. Besides the aggregate itself,
+ * it keeps track of the sequence of the last ring buffer entry that used the aggregate, and whether the state of the
+ * aggregate has been invalidated by a failure.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class CachedAggregate {
+
+    private final EventSourcedAggregateRoot aggregate;
+    private long lastSequence;
+    private volatile boolean invalidated;
+
+    /**
+     * Initializes a reference to the given <code>aggregate</code>.
+     *
+     * @param aggregate The aggregate to reference
+     */
+    CachedAggregate(EventSourcedAggregateRoot aggregate) {
+        this.aggregate = aggregate;
+    }
+
+    /**
+     * Returns the referenced aggregate.
+     *
+     * @return the referenced aggregate
+     */
+    EventSourcedAggregateRoot getAggregate() {
+        return aggregate;
+    }
+
+    /**
+     * Returns the sequence of the last ring buffer entry that used this aggregate. May only be accessed by the thread
+     * running the {@link CommandHandlerInvoker}.
+     *
+     * @return the sequence of the last ring buffer entry that used this aggregate
+     */
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Registers the given <code>sequence</code> as the last ring buffer entry that used this aggregate. May only be
+     * invoked by the thread running the {@link CommandHandlerInvoker} owning the aggregate.
+     *
+     * @param sequence the sequence of the ring buffer entry using this aggregate
+     */
+    void setLastSequence(long sequence) {
+        this.lastSequence = sequence;
+    }
+
+    /**
+     * Indicates whether the state of the aggregate has been invalidated.
+     *
+     * @return <code>true</code> if the state of the aggregate can no longer be trusted, otherwise <code>false</code>
+     */
+    boolean isInvalidated() {
+        return invalidated;
+    }
+
+    /**
+     * Marks the state of the aggregate as invalid. Commands that have been assigned this aggregate, but have not been
+     * completely processed yet, are rejected. The next command for the aggregate will load it from the event store.
+     */
+    void invalidate() {
+        this.invalidated = true;
+    }
+}
@@ -17,29 +17,171 @@
 package org.axonframework.commandhandling.disruptor;
 
 import com.lmax.disruptor.EventHandler;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.NoHandlerForCommandException;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.eventsourcing.AggregateFactory;
 import org.axonframework.eventsourcing.EventSourcedAggregateRoot;
+import org.axonframework.eventstore.EventStore;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
 
 /**
+ * First stage of the DisruptorCommandBus. Multiple invokers process the ring buffer concurrently, each handling only
+ * the commands targeting the aggregates it owns. Ownership is decided by the hash of the aggregate identifier, meaning
+ * that all commands for an aggregate are handled by the same invoker, in the order in which they were dispatched.
+ * <p/>
+ * Each invoker keeps the aggregates it owns in a bounded cache, from which the least recently used aggregates are
+ * evicted once the maximum size is exceeded. An aggregate is never evicted while events it generated may not have been
+ * stored yet, as reloading it from the event store would result in an aggregate with outdated state. Aggregates
+ * invalidated by a failure are reloaded from the event store when the next command targets them. Since the cache is
+ * only accessed by the thread running the invoker, it requires no synchronization.
+ *
  * @author Allard Buijze
  */
 public class CommandHandlerInvoker implements EventHandler<CommandHandlingEntry> {
 
     public static final ThreadLocal<EventSourcedAggregateRoot> preLoadedAggregate = new ThreadLocal<EventSourcedAggregateRoot>();
 
+    private final Map<Object, CachedAggregate> cache = new LinkedHashMap<Object, CachedAggregate>(16, 0.75f, true);
+    private final EventStore eventStore;
+    private final AggregateFactory<?> aggregateFactory;
+    private final Map<Class<?>, CommandHandler<?>> commandHandlers;
+    private final EventPublisher eventPublisher;
+    private final int invokerCount;
+    private final int invokerId;
+    private volatile int maximumCacheSize;
+
+    /**
+     * Creates <code>invokerCount</code> invokers, which together process all commands. The given
+     * <code>maximumCacheSize</code> is divided equally over the caches of the invokers.
+     *
+     * @param eventStore       The event store to load aggregates from
+     * @param aggregateFactory The factory creating the aggregate instances
+     * @param commandHandlers  The command handlers, mapped by the type of command they handle
+     * @param eventPublisher   The last stage of the DisruptorCommandBus, which stores the events of aggregates
+     * @param invokerCount     The number of invokers to create
+     * @param maximumCacheSize The maximum number of aggregates to keep in the caches of all invokers together
+     * @return the invokers to process the commands with
+     */
+    static CommandHandlerInvoker[] createInstances(EventStore eventStore, AggregateFactory<?> aggregateFactory,
+                                                   Map<Class<?>, CommandHandler<?>> commandHandlers,
+                                                   EventPublisher eventPublisher, int invokerCount,
+                                                   int maximumCacheSize) {
+        CommandHandlerInvoker[] invokers = new CommandHandlerInvoker[invokerCount];
+        for (int invokerId = 0; invokerId < invokerCount; invokerId++) {
+            invokers[invokerId] = new CommandHandlerInvoker(eventStore, aggregateFactory, commandHandlers,
+                                                            eventPublisher, invokerCount, invokerId);
+            invokers[invokerId].setMaximumCacheSize(maximumCacheSize);
+        }
+        return invokers;
+    }
+
+    private CommandHandlerInvoker(EventStore eventStore, AggregateFactory<?> aggregateFactory,
+                                  Map<Class<?>, CommandHandler<?>> commandHandlers, EventPublisher eventPublisher,
+                                  int invokerCount, int invokerId) {
+        this.eventStore = eventStore;
+        this.aggregateFactory = aggregateFactory;
+        this.commandHandlers = commandHandlers;
+        this.eventPublisher = eventPublisher;
+        this.invokerCount = invokerCount;
+        this.invokerId = invokerId;
+    }
+
     @Override
     public void onEvent(CommandHandlingEntry entry, long sequence, boolean endOfBatch) throws Exception {
+        if (!ownedByCurrentInvoker(entry.getAggregateIdentifier())) {
+            return;
+        }
+        try {
+            resolveCommandHandler(entry);
+            preLoadAggregate(entry, sequence);
+        } catch (RuntimeException e) {
+            entry.setExceptionResult(e);
+            return;
+        }
+        if (entry.getCachedAggregate().isInvalidated()) {
+            entry.setExceptionResult(new AggregateStateCorruptedException(
+                    entry.getAggregateIdentifier(), "The command was rejected, as an earlier command failed to "
+                    + "execute on the same aggregate"));
+            return;
+        }
+        invokeCommandHandler(entry);
+    }
+
+    /**
+     * Sets the maximum number of aggregates to keep in the caches of all invokers together. Each invoker keeps an
+     * equal share of them. A cache may temporarily hold more aggregates when more aggregates than this are used by
+     * commands that are being processed.
+     *
+     * @param maximumCacheSize the maximum number of aggregates to keep in the caches of all invokers together
+     */
+    void setMaximumCacheSize(int maximumCacheSize) {
+        this.maximumCacheSize = Math.max(1, (maximumCacheSize + invokerCount - 1) / invokerCount);
+    }
+
+    private boolean ownedByCurrentInvoker(Object aggregateIdentifier) {
+        return (aggregateIdentifier.hashCode() & Integer.MAX_VALUE) % invokerCount == invokerId;
+    }
+
+    private void resolveCommandHandler(CommandHandlingEntry entry) {
+        CommandHandler<?> handler = commandHandlers.get(entry.getCommand().getPayloadType());
+        if (handler == null) {
+            throw new NoHandlerForCommandException(format("No handler was subscribed to commands of type [%s]",
+                                                          entry.getCommand().getPayloadType().getSimpleName()));
+        }
+        entry.setCommandHandler(handler);
+        entry.setUnitOfWork(new MultiThreadedUnitOfWork());
+    }
+
+    private void preLoadAggregate(CommandHandlingEntry entry, long sequence) {
+        final Object aggregateIdentifier = entry.getAggregateIdentifier();
+        CachedAggregate cachedAggregate = cache.get(aggregateIdentifier);
+        if (cachedAggregate == null || cachedAggregate.isInvalidated()) {
+            DomainEventStream events = eventStore.readEvents(aggregateFactory.getTypeIdentifier(),
+                                                             aggregateIdentifier);
+            EventSourcedAggregateRoot aggregateRoot = aggregateFactory.createAggregate(aggregateIdentifier,
+                                                                                       events.peek());
+            aggregateRoot.initializeState(events);
+            cachedAggregate = new CachedAggregate(aggregateRoot);
+            cachedAggregate.setLastSequence(sequence);
+            cache.put(aggregateIdentifier, cachedAggregate);
+            evictIfNecessary();
+        } else {
+            cachedAggregate.setLastSequence(sequence);
+        }
+        entry.setCachedAggregate(cachedAggregate);
+    }
+
+    private void evictIfNecessary() {
+        long publishedSequence = eventPublisher.getPublishedSequence();
+        Iterator<CachedAggregate> iterator = cache.values().iterator();
+        // entries are iterated in access order, meaning the last sequences increase along the way
+        while (cache.size() > maximumCacheSize && iterator.hasNext()) {
+            if (iterator.next().getLastSequence() > publishedSequence) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private void invokeCommandHandler(CommandHandlingEntry entry) {
         final EventSourcedAggregateRoot aggregateRoot = entry.getPreLoadedAggregate();
-        preLoadedAggregate.set(entry.getPreLoadedAggregate());
+        preLoadedAggregate.set(aggregateRoot);
         try {
             Object result = entry.getCommandHandler().handle(entry.getCommand(), null);
             entry.setResult(result);
+            entry.setEvents(aggregateRoot.getUncommittedEvents());
         } catch (Throwable throwable) {
+            // the events are discarded, which leaves the aggregate in an invalid state
             entry.setExceptionResult(throwable);
+        } finally {
+            aggregateRoot.commitEvents();
+            preLoadedAggregate.remove();
         }
-
-        entry.setEventsToStore(aggregateRoot.getUncommittedEvents());
-        entry.setEventsToPublish(aggregateRoot.getUncommittedEvents());
-        aggregateRoot.commitEvents();
-        preLoadedAggregate.remove();
     }
 }
@@ -16,6 +16,7 @@
 
 package org.axonframework.commandhandling.disruptor;
 
+import org.axonframework.commandhandling.CommandCallback;
 import org.axonframework.commandhandling.CommandHandler;
 import org.axonframework.commandhandling.CommandMessage;
 import org.axonframework.commandhandling.InterceptorChain;
@@ -31,12 +32,12 @@ public class CommandHandlingEntry {
     private Object aggregateIdentifier;
     private InterceptorChain interceptorChain;
     private MultiThreadedUnitOfWork unitOfWork;
-    private EventSourcedAggregateRoot preLoadedAggregate;
+    private CachedAggregate preLoadedAggregate;
     private CommandHandler<?> commandHandler;
+    private CommandCallback<?> callback;
     private Throwable exceptionResult;
     private Object result;
-    private DomainEventStream eventsToStore;
-    private DomainEventStream eventsToPublish;
+    private DomainEventStream events;
 
     public CommandMessage<?> getCommand() {
         return command;
@@ -63,10 +64,14 @@ public class CommandHandlingEntry {
     }
 
     public EventSourcedAggregateRoot getPreLoadedAggregate() {
+        return preLoadedAggregate == null ? null : preLoadedAggregate.getAggregate();
+    }
+
+    CachedAggregate getCachedAggregate() {
         return preLoadedAggregate;
     }
 
-    public void setPreLoadedAggregate(EventSourcedAggregateRoot preLoadedAggregate) {
+    void setCachedAggregate(CachedAggregate preLoadedAggregate) {
         this.preLoadedAggregate = preLoadedAggregate;
     }
 
@@ -102,27 +107,24 @@ public class CommandHandlingEntry {
         return result;
     }
 
-    public void setEventsToStore(DomainEventStream events) {
-        this.eventsToStore = events;
-    }
-
-    public DomainEventStream getEventsToStore() {
-        return eventsToStore;
+    public void setEvents(DomainEventStream events) {
+        this.events = events;
     }
 
-    public void setEventsToPublish(DomainEventStream events) {
-        this.eventsToPublish = events;
+    public DomainEventStream getEvents() {
+        return events;
     }
 
-    public DomainEventStream getEventsToPublish() {
-        return eventsToPublish;
+    @SuppressWarnings({"unchecked"})
+    public CommandCallback<Object> getCallback() {
+        return (CommandCallback<Object>) callback;
     }
 
-    public void clear(CommandMessage<?> command, Object aggregateIdentifier) {
+    public void clear(CommandMessage<?> command, Object aggregateIdentifier, CommandCallback<?> callback) {
         this.aggregateIdentifier = aggregateIdentifier;
         this.command = command;
-        eventsToPublish = null;
-        eventsToStore = null;
+        this.callback = callback;
+        events = null;
         result = null;
         exceptionResult = null;
         commandHandler = null;
@@ -25,6 +25,9 @@ import org.axonframework.commandhandling.CommandBus;
 import org.axonframework.commandhandling.CommandCallback;
 import org.axonframework.commandhandling.CommandHandler;
 import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.CommandTargetResolver;
+import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
+import org.axonframework.common.Assert;
 import org.axonframework.domain.AggregateRoot;
 import org.axonframework.eventhandling.EventBus;
 import org.axonframework.eventsourcing.AggregateFactory;
@@ -39,33 +42,74 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 
 /**
+ * CommandBus implementation that processes commands in a pipeline of two stages, connected by a ring buffer. The first
+ * stage loads the aggregate targeted by the command and invokes the command handler, and the second stores and
+ * publishes the generated events, after which the callback of the command is invoked. The aggregate targeted by a
+ * command is resolved using a {@link CommandTargetResolver}, which defaults to an {@link
+ * AnnotationCommandTargetResolver}.
+ * <p/>
+ * The first stage may be processed by multiple threads, called invokers, each of which handles the commands for the
+ * aggregates it owns. All commands for an aggregate are handled by the same invoker, in the order in which they were
+ * dispatched. Events are stored and published by a single thread, in the order in which the commands were dispatched.
+ * <p/>
+ * The DisruptorCommandBus also acts as the repository from which command handlers load the aggregate. This repository
+ * only provides access to the aggregate targeted by the command being handled.
+ * <p/>
+ * Loaded aggregates are kept in a cache holding at most {@link #setCacheSize(int) 1024} aggregates by default. Each
+ * invoker keeps an equal share of them.
+ *
  * @author Allard Buijze
+ * @since 2.0
  */
 public class DisruptorCommandBus implements CommandBus, Repository {
 
     private static final ThreadGroup DISRUPTOR_THREAD_GROUP = new ThreadGroup("Disruptor");
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final int DEFAULT_INVOKER_COUNT = 1;
 
     private final ConcurrentMap<Class<?>, CommandHandler<?>> commandHandlers = new ConcurrentHashMap<Class<?>, CommandHandler<?>>();
     private final Disruptor<CommandHandlingEntry> disruptor;
+    private final CommandHandlerInvoker[] invokers;
+    private volatile CommandTargetResolver commandTargetResolver = new AnnotationCommandTargetResolver();
 
-    public DisruptorCommandBus(int bufferSize, AggregateFactory<?> eventStore, EventStore aggregateFactory,
+    public DisruptorCommandBus(int bufferSize, AggregateFactory<?> aggregateFactory, EventStore eventStore,
                                EventBus eventBus) {
-        this(Executors.defaultThreadFactory(), bufferSize, eventStore, aggregateFactory, eventBus, null);
+        this(Executors.defaultThreadFactory(), bufferSize, aggregateFactory, eventStore, eventBus, null);
     }
 
-    public DisruptorCommandBus(int bufferSize, AggregateFactory<?> eventStore, EventStore aggregateFactory,
+    public DisruptorCommandBus(int bufferSize, AggregateFactory<?> aggregateFactory, EventStore eventStore,
                                EventBus eventBus, Serializer eventSerializer) {
         this(new ThreadFactory() {
             @Override
             public Thread newThread(Runnable r) {
                 return new Thread(DISRUPTOR_THREAD_GROUP, r);
             }
-        }, bufferSize, eventStore, aggregateFactory, eventBus, eventSerializer);
+        }, bufferSize, aggregateFactory, eventStore, eventBus, eventSerializer);
     }
 
     public DisruptorCommandBus(final ThreadFactory threadFactory, int bufferSize, AggregateFactory<?> aggregateFactory,
                                EventStore eventStore,
                                EventBus eventBus, Serializer eventSerializer) {
+        this(threadFactory, bufferSize, DEFAULT_INVOKER_COUNT, aggregateFactory, eventStore, eventBus,
+             eventSerializer);
+    }
+
+    /**
+     * Initializes a DisruptorCommandBus that handles commands using <code>invokerCount</code> threads. Commands for
+     * the same aggregate are always handled by the same thread.
+     *
+     * @param threadFactory    The factory providing the threads to process the ring buffer with
+     * @param bufferSize       The size of the ring buffer. Must be a power of two.
+     * @param invokerCount     The number of threads that invoke command handlers
+     * @param aggregateFactory The factory creating the aggregate instances
+     * @param eventStore       The event store to load aggregates from and to store generated events in
+     * @param eventBus         The event bus to publish generated events on. May be <code>null</code>.
+     * @param eventSerializer  The serializer for the events. May be <code>null</code>.
+     */
+    public DisruptorCommandBus(final ThreadFactory threadFactory, int bufferSize, int invokerCount,
+                               AggregateFactory<?> aggregateFactory, EventStore eventStore,
+                               EventBus eventBus, Serializer eventSerializer) {
+        Assert.isTrue(invokerCount > 0, "The invoker count must be a positive number");
         Executor executor = new Executor() {
             @Override
             public void execute(Runnable command) {
@@ -78,28 +122,61 @@ public class DisruptorCommandBus implements CommandBus, Repository {
                                                         new YieldingWaitStrategy());
 
 
+        EventPublisher eventPublisher = new EventPublisher(eventStore, aggregateFactory.getTypeIdentifier(), eventBus);
+        invokers = CommandHandlerInvoker.createInstances(eventStore, aggregateFactory, commandHandlers,
+                                                         eventPublisher, invokerCount, DEFAULT_CACHE_SIZE);
         //noinspection unchecked
-        disruptor.handleEventsWith(new CommandHandlerPreFetcher(eventStore, aggregateFactory, commandHandlers))
-                 .then(new CommandHandlerInvoker())
-                 .then(new EventPublisher(eventStore,
-                                          aggregateFactory.getTypeIdentifier(),
-                                          eventBus));
+        disruptor.handleEventsWith(invokers)
+                 .then(eventPublisher);
         disruptor.start();
     }
 
     @Override
     public void dispatch(final CommandMessage<?> command) {
+        dispatch(command, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The callback is invoked by the thread publishing the events, once the events generated by the command have been
+     * stored and published.
+     *
+     * @throws IllegalArgumentException if the aggregate targeted by the command cannot be resolved
+     */
+    @Override
+    public <R> void dispatch(CommandMessage<?> command, CommandCallback<R> callback) {
+        Object aggregateIdentifier = commandTargetResolver.resolveTarget(command).getIdentifier();
         RingBuffer<CommandHandlingEntry> ringBuffer = disruptor.getRingBuffer();
-        Object aggregateIdentifier = ((IdentifiedCommand) command.getPayload()).getAggregateIdentifier();
         long sequence = ringBuffer.next();
         CommandHandlingEntry event = ringBuffer.get(sequence);
-        event.clear(command, aggregateIdentifier);
+        event.clear(command, aggregateIdentifier, callback);
         ringBuffer.publish(sequence);
     }
 
-    @Override
-    public <R> void dispatch(CommandMessage<?> command, CommandCallback<R> callback) {
-        throw new UnsupportedOperationException();
+    /**
+     * Sets the resolver that resolves the aggregate targeted by each command. Defaults to an {@link
+     * AnnotationCommandTargetResolver}.
+     *
+     * @param commandTargetResolver the resolver for the aggregate targeted by each command
+     */
+    public void setCommandTargetResolver(CommandTargetResolver commandTargetResolver) {
+        Assert.notNull(commandTargetResolver, "The command target resolver may not be null");
+        this.commandTargetResolver = commandTargetResolver;
+    }
+
+    /**
+     * Sets the maximum number of aggregates to keep in the cache. The cache is divided equally over the invokers. When
+     * the cache of an invoker is full, its least recently used aggregates are evicted, with the exception of
+     * aggregates used by commands that have not been completely processed yet. Defaults to 1024.
+     *
+     * @param cacheSize the maximum number of aggregates to keep in the cache
+     */
+    public void setCacheSize(int cacheSize) {
+        Assert.isTrue(cacheSize > 0, "The cache size must be a positive number");
+        for (CommandHandlerInvoker invoker : invokers) {
+            invoker.setMaximumCacheSize(cacheSize);
+        }
     }
 
     @Override
@@ -117,15 +194,14 @@ public class DisruptorCommandBus implements CommandBus, Repository {
         return load(aggregateIdentifier);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation returns the aggregate pre-loaded for the command being handled by the current thread.
+     */
     @Override
     public AggregateRoot load(Object aggregateIdentifier) {
-
-        //        CurrentUnitOfWork.get().registerAggregate(aggregateRoot, null);
-//        if (aggregateRoot.id().equals(aggregateIdentifier)) {
         return CommandHandlerInvoker.preLoadedAggregate.get();
-//        } else {
-//            throw new UnsupportedOperationException("Not supported to load another aggregate than the pre-loaded one");
-//        }
     }
 
     @Override
@@ -17,18 +17,45 @@
 package org.axonframework.commandhandling.disruptor;
 
 import com.lmax.disruptor.EventHandler;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.SimpleDomainEventStream;
 import org.axonframework.eventhandling.EventBus;
 import org.axonframework.eventstore.EventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
 
 /**
+ * Last stage of the DisruptorCommandBus. Stores and publishes the events generated by each command, and reports the
+ * result of the command to its callback.
+ * <p/>
+ * The events of all commands in a batch of ring buffer entries are appended to the event store in a single call, when
+ * the last entry of the batch is processed. Callbacks are invoked once the events of their command have been stored
+ * and published.
+ * <p/>
+ * When a command has failed, the events of the preceding commands in the batch are stored first, after which the
+ * aggregate it targeted is invalidated. Subsequent commands that were executed against the invalidated aggregate are
+ * rejected, and the next command for that aggregate will operate on a copy that is loaded from the event store.
+ *
  * @author Allard Buijze
  */
 public class EventPublisher implements EventHandler<CommandHandlingEntry> {
 
+    private static final Logger logger = LoggerFactory.getLogger(EventPublisher.class);
 
     private final EventStore eventStore;
     private final String aggregateType;
     private final EventBus eventBus;
+    // the ring buffer does not reuse entries before the last entry of the batch has been processed
+    private final List<CommandHandlingEntry> entriesInBatch = new ArrayList<CommandHandlingEntry>();
+    private final List<DomainEventMessage> eventsInBatch = new ArrayList<DomainEventMessage>();
+    private volatile long publishedSequence = -1;
 
     public EventPublisher(EventStore eventStore, String aggregateType, EventBus eventBus) {
         this.eventStore = eventStore;
@@ -38,9 +65,94 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
 
     @Override
     public void onEvent(CommandHandlingEntry entry, long sequence, boolean endOfBatch) throws Exception {
-        eventStore.appendEvents(aggregateType, entry.getEventsToStore());
-        while (eventBus != null && entry.getEventsToPublish().hasNext()) {
-            eventBus.publish(entry.getEventsToPublish().next());
+        CachedAggregate aggregate = entry.getCachedAggregate();
+        if (entry.getExceptionResult() == null && aggregate.isInvalidated()) {
+            entry.setExceptionResult(new AggregateStateCorruptedException(
+                    entry.getAggregateIdentifier(), "The command was rejected, as an earlier command failed to "
+                    + "execute on the same aggregate"));
+        } else if (entry.getExceptionResult() == null) {
+            DomainEventStream events = entry.getEvents();
+            while (events.hasNext()) {
+                eventsInBatch.add(events.next());
+            }
+        } else if (aggregate != null && !aggregate.isInvalidated()) {
+            // the aggregate is reloaded from the event store, which must contain the events of preceding commands
+            processBatch();
+            aggregate.invalidate();
+        }
+        entriesInBatch.add(entry);
+        if (endOfBatch) {
+            processBatch();
+            publishedSequence = sequence;
+        }
+    }
+
+    /**
+     * Returns the sequence of the last ring buffer entry of which the events have been stored.
+     *
+     * @return the sequence of the last ring buffer entry of which the events have been stored
+     */
+    long getPublishedSequence() {
+        return publishedSequence;
+    }
+
+    private void processBatch() {
+        if (!eventsInBatch.isEmpty()) {
+            try {
+                eventStore.appendEvents(aggregateType, new SimpleDomainEventStream(eventsInBatch));
+            } catch (RuntimeException e) {
+                failBatch(e);
+            }
+            publishEvents();
+        }
+        for (CommandHandlingEntry entry : entriesInBatch) {
+            invokeCallback(entry);
+        }
+        eventsInBatch.clear();
+        entriesInBatch.clear();
+    }
+
+    private void failBatch(RuntimeException cause) {
+        logger.error("Failed to store the events of a batch of {} commands.", entriesInBatch.size(), cause);
+        eventsInBatch.clear();
+        for (CommandHandlingEntry entry : entriesInBatch) {
+            if (entry.getExceptionResult() == null) {
+                entry.setExceptionResult(cause);
+                entry.getCachedAggregate().invalidate();
+            }
+        }
+    }
+
+    private void publishEvents() {
+        if (eventBus == null) {
+            return;
+        }
+        for (DomainEventMessage event : eventsInBatch) {
+            try {
+                eventBus.publish(event);
+            } catch (RuntimeException e) {
+                // the events have been stored, so the commands themselves were successful
+                logger.error(format("An exception occurred while publishing a [%s] event.",
+                                    event.getPayloadType().getSimpleName()), e);
+            }
+        }
+    }
+
+    private void invokeCallback(CommandHandlingEntry entry) {
+        CommandCallback<Object> callback = entry.getCallback();
+        try {
+            if (callback == null && entry.getExceptionResult() != null) {
+                logger.error(format("Processing of a [%s] resulted in an exception: ",
+                                    entry.getCommand().getPayloadType().getSimpleName()),
+                             entry.getExceptionResult());
+            } else if (callback != null && entry.getExceptionResult() != null) {
+                callback.onFailure(entry.getExceptionResult());
+            } else if (callback != null) {
+                callback.onSuccess(entry.getResult());
+            }
+        } catch (RuntimeException e) {
+            logger.error(format("The callback of a [%s] threw an exception.",
+                                entry.getCommand().getPayloadType().getSimpleName()), e);
         }
     }
 }
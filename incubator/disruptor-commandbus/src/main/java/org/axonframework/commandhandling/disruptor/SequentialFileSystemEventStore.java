@@ -72,8 +72,9 @@ public class SequentialFileSystemEventStore implements SnapshotEventStore {
                 SerializedObject serialized = eventSerializer.serialize(event);
                 os.writeUTF(serialized.getType().getName());
                 os.writeInt(serialized.getType().getRevision());
-                os.writeInt(serialized.getData().length);
-                os.write(serialized.getData());
+                byte[] data = serialized.getData();
+                os.writeInt(data.length);
+                os.write(data);
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -19,6 +19,9 @@ package org.axonframework.commandhandling.disruptor;
 import org.axonframework.commandhandling.CommandHandler;
 import org.axonframework.commandhandling.CommandMessage;
 import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.annotation.TargetAggregateIdentifier;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
 import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.DomainEventStream;
 import org.axonframework.domain.GenericDomainEventMessage;
@@ -27,6 +30,9 @@ import org.axonframework.eventhandling.EventBus;
 import org.axonframework.eventhandling.SimpleEventBus;
 import org.axonframework.eventsourcing.AbstractEventSourcedAggregateRoot;
 import org.axonframework.eventsourcing.AbstractEventSourcedEntity;
+import org.axonframework.eventsourcing.AggregateInitializer;
+import org.axonframework.eventsourcing.BoundedAggregateCache;
+import org.axonframework.eventsourcing.CachingEventSourcingRepository;
 import org.axonframework.eventsourcing.GenericAggregateFactory;
 import org.axonframework.eventstore.EventStore;
 import org.axonframework.repository.Repository;
@@ -35,72 +41,110 @@ import org.axonframework.unitofwork.UnitOfWork;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static junit.framework.Assert.assertEquals;
 
 /**
+ * Benchmark comparing the number of commands per second processed by the DisruptorCommandBus to that of the
+ * SimpleCommandBus, using an event sourcing repository with a cache. The commands are spread over a number of
+ * aggregates, and the DisruptorCommandBus uses an invoker thread for each available processor.
+ *
  * @author Allard Buijze
  */
 public class DisruptorCommandBusBenchmark {
 
+    private static final long COMMAND_COUNT = 5 * 1000L * 1000L;
+    private static final int AGGREGATE_COUNT = 64;
+    private static final int INVOKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    public static void main(String[] args) throws Exception {
+        long disruptorThroughput = runDisruptorCommandBus();
+        long simpleThroughput = runSimpleCommandBus();
 
-    private static final long COMMAND_COUNT = 20 * 1000L * 1000L;
+        System.out.println("DisruptorCommandBus did " + disruptorThroughput + " commands per second");
+        System.out.println("SimpleCommandBus did " + simpleThroughput + " commands per second");
+    }
 
-    public static void main(String[] args) throws InterruptedException {
+    private static long runDisruptorCommandBus() throws Exception {
         EventBus eventBus = new SimpleEventBus();
         StubHandler stubHandler = new StubHandler();
         InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
         DisruptorCommandBus commandBus =
-                new DisruptorCommandBus(4096, new GenericAggregateFactory<StubAggregate>(StubAggregate.class),
+                new DisruptorCommandBus(Executors.defaultThreadFactory(), 4096, INVOKER_COUNT,
+                                        new GenericAggregateFactory<StubAggregate>(StubAggregate.class),
                                         inMemoryEventStore,
                                         eventBus, new XStreamSerializer());
         commandBus.subscribe(StubCommand.class, stubHandler);
         stubHandler.setRepository(commandBus);
-        final String aggregateIdentifier = "MyID";
-        inMemoryEventStore.appendEvents(StubAggregate.class.getSimpleName(), new SimpleDomainEventStream(
-                new GenericDomainEventMessage<StubDomainEvent>(aggregateIdentifier, 0, new StubDomainEvent())));
+        inMemoryEventStore.appendInitialEvents();
 
         long start = System.currentTimeMillis();
-        for (int i = 0; i < COMMAND_COUNT; i++) {
-            CommandMessage<StubCommand> command = new GenericCommandMessage<StubCommand>(new StubCommand(
-                    aggregateIdentifier));
-            commandBus.dispatch(command);
+        for (int i = 0; i < COMMAND_COUNT - 1; i++) {
+            commandBus.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier(i))));
         }
+        // the events of all commands are stored in the order in which the commands were dispatched
+        FutureCallback<Object> lastCommandCallback = new FutureCallback<Object>();
+        commandBus.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier(0))),
+                            lastCommandCallback);
         System.out.println("Finished dispatching!");
 
+        lastCommandCallback.get(30, TimeUnit.SECONDS);
+        long end = System.currentTimeMillis();
         inMemoryEventStore.countDownLatch.await(30, TimeUnit.SECONDS);
+        assertEquals("Seems that some events are missing", 0, inMemoryEventStore.countDownLatch.getCount());
+        commandBus.stop();
+        return (COMMAND_COUNT * 1000L) / (end - start);
+    }
+
+    private static long runSimpleCommandBus() throws Exception {
+        EventBus eventBus = new SimpleEventBus();
+        StubHandler stubHandler = new StubHandler();
+        InMemoryEventStore inMemoryEventStore = new InMemoryEventStore();
+        SimpleCommandBus commandBus = new SimpleCommandBus(false);
+        CachingEventSourcingRepository<StubAggregate> repository = new CachingEventSourcingRepository<StubAggregate>(
+                new GenericAggregateFactory<StubAggregate>(StubAggregate.class));
+        repository.setEventStore(inMemoryEventStore);
+        repository.setEventBus(eventBus);
+        repository.setCache(new BoundedAggregateCache(1024));
+        commandBus.subscribe(StubCommand.class, stubHandler);
+        stubHandler.setRepository(repository);
+        inMemoryEventStore.appendInitialEvents();
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < COMMAND_COUNT; i++) {
+            commandBus.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier(i))));
+        }
         long end = System.currentTimeMillis();
         assertEquals("Seems that some events are missing", 0, inMemoryEventStore.countDownLatch.getCount());
+        return (COMMAND_COUNT * 1000L) / (end - start);
+    }
 
-        System.out.println("Did " + ((COMMAND_COUNT * 1000L) / (end - start)) + " commands per second");
-        commandBus.stop();
+    private static String aggregateIdentifier(int commandNumber) {
+        return "MyID-" + (commandNumber % AGGREGATE_COUNT);
     }
 
     private static class StubAggregate extends AbstractEventSourcedAggregateRoot {
 
         private int timesDone = 0;
-        private final UUID identifier;
+        private final Object identifier;
 
-        private StubAggregate() {
-            this(UUID.randomUUID());
-        }
-
-        private StubAggregate(UUID identifier) {
+        @AggregateInitializer
+        private StubAggregate(Object identifier) {
             this.identifier = identifier;
         }
 
         @Override
         public Object getIdentifier() {
-            throw new UnsupportedOperationException("Not implemented yet");
+            return identifier;
         }
 
         public void doSomething() {
-            apply(new SomethingDoneEvent());
+            apply(new StubDomainEvent());
         }
 
         @Override
@@ -118,21 +162,24 @@ public class DisruptorCommandBusBenchmark {
 
     private static class InMemoryEventStore implements EventStore {
 
-        private final Map<String, DomainEventMessage> storedEvents = new HashMap<String, DomainEventMessage>();
-        private final CountDownLatch countDownLatch = new CountDownLatch((int) (COMMAND_COUNT + 1L));
+        private final Map<String, DomainEventMessage> storedEvents = new ConcurrentHashMap<String, DomainEventMessage>();
+        private final CountDownLatch countDownLatch = new CountDownLatch((int) (COMMAND_COUNT + AGGREGATE_COUNT));
+
+        public void appendInitialEvents() {
+            for (int i = 0; i < AGGREGATE_COUNT; i++) {
+                appendEvents(StubAggregate.class.getSimpleName(), new SimpleDomainEventStream(
+                        new GenericDomainEventMessage<StubDomainEvent>(aggregateIdentifier(i), 0,
+                                                                       new StubDomainEvent())));
+            }
+        }
 
         @Override
         public void appendEvents(String type, DomainEventStream events) {
-            if (!events.hasNext()) {
-                return;
-            }
-            String key = events.peek().getAggregateIdentifier().toString();
-            DomainEventMessage<?> lastEvent = null;
             while (events.hasNext()) {
                 countDownLatch.countDown();
-                lastEvent = events.next();
+                DomainEventMessage<?> event = events.next();
+                storedEvents.put(event.getAggregateIdentifier().toString(), event);
             }
-            storedEvents.put(key, lastEvent);
         }
 
         @Override
@@ -141,17 +188,17 @@ public class DisruptorCommandBusBenchmark {
         }
     }
 
-    private static class StubCommand implements IdentifiedCommand {
+    private static class StubCommand {
 
-        private Object agregateIdentifier;
+        @TargetAggregateIdentifier
+        private final Object aggregateIdentifier;
 
-        public StubCommand(Object agregateIdentifier) {
-            this.agregateIdentifier = agregateIdentifier;
+        public StubCommand(Object aggregateIdentifier) {
+            this.aggregateIdentifier = aggregateIdentifier;
         }
 
-        @Override
         public Object getAggregateIdentifier() {
-            return agregateIdentifier;
+            return aggregateIdentifier;
         }
     }
 
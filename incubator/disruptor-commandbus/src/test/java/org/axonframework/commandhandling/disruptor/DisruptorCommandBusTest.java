@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.annotation.TargetAggregateIdentifier;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.eventsourcing.AbstractEventSourcedAggregateRoot;
+import org.axonframework.eventsourcing.AbstractEventSourcedEntity;
+import org.axonframework.eventsourcing.AggregateInitializer;
+import org.axonframework.eventsourcing.GenericAggregateFactory;
+import org.axonframework.eventstore.EventStore;
+import org.axonframework.repository.Repository;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class DisruptorCommandBusTest {
+
+    private StubEventStore eventStore;
+    private StubHandler commandHandler;
+    private DisruptorCommandBus testSubject;
+
+    @Before
+    public void setUp() {
+        eventStore = new StubEventStore();
+        for (String aggregateIdentifier : new String[]{"A", "B", "C"}) {
+            eventStore.appendEvents("StubAggregate", new SimpleDomainEventStream(
+                    new GenericDomainEventMessage<String>(aggregateIdentifier, 0, "created")));
+        }
+        eventStore.appendedEvents.clear();
+    }
+
+    @After
+    public void tearDown() {
+        if (testSubject != null) {
+            testSubject.stop();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCallbackInvokedWithResultOfCommand() throws Exception {
+        testSubject = createCommandBus(1);
+
+        assertEquals(1, dispatch("A", false).get());
+        assertEquals(2, dispatch("A", false).get());
+
+        assertEquals(2, eventStore.appendedEvents.size());
+        assertEquals(1L, eventStore.appendedEvents.get(0).getSequenceNumber());
+        assertEquals(2L, eventStore.appendedEvents.get(1).getSequenceNumber());
+    }
+
+    @Test(timeout = 10000)
+    public void testCallbackInvokedWithFailureOfCommand() throws Exception {
+        testSubject = createCommandBus(1);
+
+        try {
+            dispatch("A", true).get();
+            fail("Expected the failure of the command to be reported");
+        } catch (ExecutionException e) {
+            assertEquals("Mock", e.getCause().getMessage());
+        }
+        assertTrue("The events of the failed command should not be stored", eventStore.appendedEvents.isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void testAggregateReloadedAfterFailedCommand() throws Exception {
+        testSubject = createCommandBus(1);
+
+        assertEquals(1, dispatch("A", false).get());
+        try {
+            dispatch("A", true).get();
+            fail("Expected the failure of the command to be reported");
+        } catch (ExecutionException e) {
+            assertEquals("Mock", e.getCause().getMessage());
+        }
+        // the cached instance has handled 2 commands, the one loaded from the event store only 1
+        assertEquals(2, dispatch("A", false).get());
+
+        assertEquals(2, eventStore.readCount("A"));
+        assertEquals(2, eventStore.appendedEvents.size());
+        assertEquals(2L, eventStore.appendedEvents.get(1).getSequenceNumber());
+    }
+
+    @Test(timeout = 10000)
+    public void testLeastRecentlyUsedAggregatesEvicted() throws Exception {
+        testSubject = createCommandBus(1);
+        testSubject.setCacheSize(2);
+
+        dispatch("A", false).get();
+        dispatch("B", false).get();
+        dispatch("C", false).get();
+        dispatch("A", false).get();
+        dispatch("C", false).get();
+
+        assertEquals(2, eventStore.readCount("A"));
+        assertEquals(1, eventStore.readCount("B"));
+        assertEquals(1, eventStore.readCount("C"));
+    }
+
+    @Test(timeout = 10000)
+    public void testCommandsForSameAggregateHandledBySameInvokerInOrder() throws Exception {
+        testSubject = createCommandBus(4);
+        String[] aggregateIdentifiers = {"A", "B", "C"};
+        Map<String, List<StubCommand>> dispatchedCommands = new ConcurrentHashMap<String, List<StubCommand>>();
+        List<FutureCallback<Object>> callbacks = new ArrayList<FutureCallback<Object>>();
+        for (String aggregateIdentifier : aggregateIdentifiers) {
+            dispatchedCommands.put(aggregateIdentifier, new ArrayList<StubCommand>());
+        }
+        for (int i = 0; i < 100; i++) {
+            for (String aggregateIdentifier : aggregateIdentifiers) {
+                StubCommand command = new StubCommand(aggregateIdentifier, false);
+                dispatchedCommands.get(aggregateIdentifier).add(command);
+                callbacks.add(dispatch(command));
+            }
+        }
+        for (FutureCallback<Object> callback : callbacks) {
+            callback.get();
+        }
+
+        Set<Thread> invokerThreads = new HashSet<Thread>();
+        for (String aggregateIdentifier : aggregateIdentifiers) {
+            assertEquals(dispatchedCommands.get(aggregateIdentifier),
+                         commandHandler.handledCommands.get(aggregateIdentifier));
+            Set<Thread> threadsOfAggregate = commandHandler.handlingThreads.get(aggregateIdentifier);
+            assertEquals("Commands for an aggregate were handled by several invokers", 1, threadsOfAggregate.size());
+            invokerThreads.addAll(threadsOfAggregate);
+        }
+        assertFalse(invokerThreads.contains(Thread.currentThread()));
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedCommandInBatch_EventsOfCommandsOnInvalidatedAggregateNotAppended() throws Exception {
+        testSubject = createCommandBus(2);
+        eventStore.appendBlocker = new CountDownLatch(1);
+
+        FutureCallback<Object> firstCallback = dispatch(new StubCommand("C", false));
+        FutureCallback<Object> failingCallback = dispatch(new StubCommand("A", true));
+        FutureCallback<Object> rejectedCallback = dispatch(new StubCommand("A", false));
+        FutureCallback<Object> otherAggregateCallback = dispatch(new StubCommand("B", false));
+        // the publisher is blocked until all commands have been handled, so that they end up in the same batch
+        while (commandHandler.handledCount.get() < 4) {
+            Thread.sleep(1);
+        }
+        eventStore.appendBlocker.countDown();
+
+        assertEquals(1, firstCallback.get());
+        assertEquals(1, otherAggregateCallback.get());
+        try {
+            failingCallback.get();
+            fail("Expected the failure of the command to be reported");
+        } catch (ExecutionException e) {
+            assertEquals("Mock", e.getCause().getMessage());
+        }
+        try {
+            rejectedCallback.get();
+            fail("Expected the command on the invalidated aggregate to be rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AggregateStateCorruptedException);
+        }
+        List<Object> appendedAggregates = new ArrayList<Object>();
+        for (DomainEventMessage event : eventStore.appendedEvents) {
+            appendedAggregates.add(event.getAggregateIdentifier());
+        }
+        assertEquals(2, appendedAggregates.size());
+        assertTrue(appendedAggregates.contains("B"));
+        assertTrue(appendedAggregates.contains("C"));
+    }
+
+    private DisruptorCommandBus createCommandBus(int invokerCount) {
+        DisruptorCommandBus commandBus = new DisruptorCommandBus(
+                Executors.defaultThreadFactory(), 8, invokerCount,
+                new GenericAggregateFactory<StubAggregate>(StubAggregate.class), eventStore, null, null);
+        commandHandler = new StubHandler(commandBus);
+        commandBus.subscribe(StubCommand.class, commandHandler);
+        return commandBus;
+    }
+
+    private FutureCallback<Object> dispatch(String aggregateIdentifier, boolean fail) {
+        return dispatch(new StubCommand(aggregateIdentifier, fail));
+    }
+
+    private FutureCallback<Object> dispatch(StubCommand command) {
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.dispatch(new GenericCommandMessage<StubCommand>(command), callback);
+        return callback;
+    }
+
+    private static class StubAggregate extends AbstractEventSourcedAggregateRoot {
+
+        private final Object identifier;
+        private int timesDone;
+
+        @AggregateInitializer
+        private StubAggregate(Object identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public Object getIdentifier() {
+            return identifier;
+        }
+
+        public int doSomething() {
+            apply(new StubDomainEvent());
+            return timesDone;
+        }
+
+        @Override
+        protected void handle(DomainEventMessage event) {
+            if (StubDomainEvent.class.isAssignableFrom(event.getPayloadType())) {
+                timesDone++;
+            }
+        }
+
+        @Override
+        protected Collection<AbstractEventSourcedEntity> getChildEntities() {
+            return Collections.emptyList();
+        }
+    }
+
+    private static class StubEventStore implements EventStore {
+
+        private final Map<Object, List<DomainEventMessage>> storedEvents =
+                new ConcurrentHashMap<Object, List<DomainEventMessage>>();
+        private final Map<Object, AtomicInteger> readCounts = new ConcurrentHashMap<Object, AtomicInteger>();
+        private final List<DomainEventMessage> appendedEvents =
+                Collections.synchronizedList(new ArrayList<DomainEventMessage>());
+        private volatile CountDownLatch appendBlocker;
+
+        @Override
+        public void appendEvents(String type, DomainEventStream events) {
+            if (appendBlocker != null) {
+                try {
+                    appendBlocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            while (events.hasNext()) {
+                DomainEventMessage event = events.next();
+                List<DomainEventMessage> eventsOfAggregate = storedEvents.get(event.getAggregateIdentifier());
+                if (eventsOfAggregate == null) {
+                    eventsOfAggregate = new ArrayList<DomainEventMessage>();
+                    storedEvents.put(event.getAggregateIdentifier(), eventsOfAggregate);
+                }
+                eventsOfAggregate.add(event);
+                appendedEvents.add(event);
+            }
+        }
+
+        @Override
+        public DomainEventStream readEvents(String type, Object identifier) {
+            AtomicInteger readCount = readCounts.get(identifier);
+            if (readCount == null) {
+                readCount = new AtomicInteger();
+                readCounts.put(identifier, readCount);
+            }
+            readCount.incrementAndGet();
+            return new SimpleDomainEventStream(storedEvents.get(identifier));
+        }
+
+        private int readCount(Object identifier) {
+            AtomicInteger readCount = readCounts.get(identifier);
+            return readCount == null ? 0 : readCount.get();
+        }
+    }
+
+    private static class StubCommand {
+
+        @TargetAggregateIdentifier
+        private final Object aggregateIdentifier;
+        private final boolean fail;
+
+        private StubCommand(Object aggregateIdentifier, boolean fail) {
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.fail = fail;
+        }
+    }
+
+    private static class StubHandler implements CommandHandler<StubCommand> {
+
+        private final Repository repository;
+        private final Map<Object, List<StubCommand>> handledCommands = new ConcurrentHashMap<Object, List<StubCommand>>();
+        private final Map<Object, Set<Thread>> handlingThreads = new ConcurrentHashMap<Object, Set<Thread>>();
+        private final AtomicInteger handledCount = new AtomicInteger();
+
+        private StubHandler(Repository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object handle(CommandMessage<StubCommand> command, UnitOfWork unitOfWork) throws Throwable {
+            // an aggregate is only ever accessed by the invoker owning it
+            Object aggregateIdentifier = command.getPayload().aggregateIdentifier;
+            if (!handledCommands.containsKey(aggregateIdentifier)) {
+                handledCommands.put(aggregateIdentifier, new ArrayList<StubCommand>());
+                handlingThreads.put(aggregateIdentifier, Collections.synchronizedSet(new HashSet<Thread>()));
+            }
+            handledCommands.get(aggregateIdentifier).add(command.getPayload());
+            handlingThreads.get(aggregateIdentifier).add(Thread.currentThread());
+            handledCount.incrementAndGet();
+            StubAggregate aggregate = (StubAggregate) repository.load(command.getPayload().aggregateIdentifier);
+            int timesDone = aggregate.doSomething();
+            if (command.getPayload().fail) {
+                throw new RuntimeException("Mock");
+            }
+            return timesDone;
+        }
+    }
+
+    private static class StubDomainEvent {
+    }
+}